@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
 import java.util.TimeZone;
@@ -31,7 +32,8 @@ public final class LDFusionToolApplication {
         //return "Usage:\n java -jar odcs-fusion-tool-<version>.jar [--verbose] [--profile] [--only-conflicts] [--only-mapped] <xml config file>"
         //        + "\n\n  It is recommended to run java with both -Xmx and -Xms options to allocate\n  enough memory if processing large input.";
         return "Usage:\n java -jar odcs-fusion-tool-<version>.jar [-v|-vv] [--profile] [--only-mapped] <xml config file>"
-                + "\n\n  It is recommended to run java with BOTH -Xmx and -Xms options to allocate\n  enough memory if processing large input.";
+                + "\n\n  It is recommended to run java with BOTH -Xmx and -Xms options to allocate\n  enough memory if processing large input.\n\n"
+                + LDFusionToolDumpCommand.getUsage();
     }
 
     /**
@@ -39,6 +41,11 @@ public final class LDFusionToolApplication {
      * @param args command line arguments
      */
     public static void main(String[] args) {
+        if (args != null && args.length > 0 && LDFusionToolDumpCommand.COMMAND_NAME.equals(args[0])) {
+            LDFusionToolDumpCommand.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         ApplicationArgs parsedArgs;
         try {
             parsedArgs = parseArgs(args);
@@ -109,7 +116,7 @@ public final class LDFusionToolApplication {
         System.out.printf("ODCS-FusionTool executed in %s\n", formatRunTime(System.currentTimeMillis() - startTime));
     }
 
-    private static void setLogLevel(ApplicationArgs.VerboseLevel verboseLevel) {
+    static void setLogLevel(ApplicationArgs.VerboseLevel verboseLevel) {
         Level logLevel;
         switch (verboseLevel) {
             case VERBOSE:
@@ -282,6 +289,9 @@ public final class LDFusionToolApplication {
             System.out.println("Buffering time:                   " + timeProfiler.formatCounter(EnumFusionCounters.BUFFERING));
             System.out.println("Conflict resolution time:         " + timeProfiler.formatCounter(EnumFusionCounters.CONFLICT_RESOLUTION));
             System.out.println("Output writing time:              " + timeProfiler.formatCounter(EnumFusionCounters.OUTPUT_WRITING));
+            System.out.println("Quad loading idle time:           " + timeProfiler.formatCounter(EnumFusionCounters.QUAD_LOADING_IDLE));
+            System.out.println("Conflict resolution idle time:    " + timeProfiler.formatCounter(EnumFusionCounters.CONFLICT_RESOLUTION_IDLE));
+            System.out.println("Output writing idle time:         " + timeProfiler.formatCounter(EnumFusionCounters.OUTPUT_WRITING_IDLE));
             System.out.println("Maximum recorded total memory:    " + MemoryProfiler.formatMemoryBytes(memoryProfiler.getMaxTotalMemory()));
             System.out.println("Maximum recorded used memory:     " + MemoryProfiler.formatMemoryBytes(memoryProfiler.getMaxUsedMemory()));
             System.out.println("Minimum recorded free memory:     " + MemoryProfiler.formatMemoryBytes(memoryProfiler.getMinFreeMemory()));
@@ -1,6 +1,10 @@
 package cz.cuni.mff.odcleanstore.fusiontool;
 
 import com.google.code.externalsorting.ExternalSort;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import cz.cuni.mff.odcleanstore.conflictresolution.ConflictResolverFactory;
 import cz.cuni.mff.odcleanstore.conflictresolution.ResolutionFunctionRegistry;
 import cz.cuni.mff.odcleanstore.conflictresolution.impl.ConflictResolutionPolicyImpl;
@@ -8,16 +12,24 @@ import cz.cuni.mff.odcleanstore.conflictresolution.impl.DistanceMeasureImpl;
 import cz.cuni.mff.odcleanstore.conflictresolution.quality.SourceQualityCalculator;
 import cz.cuni.mff.odcleanstore.conflictresolution.quality.impl.DecidingConflictFQualityCalculator;
 import cz.cuni.mff.odcleanstore.conflictresolution.quality.impl.ODCSSourceQualityCalculator;
+import cz.cuni.mff.odcleanstore.conflictresolution.resolution.AllResolution;
+import cz.cuni.mff.odcleanstore.conflictresolution.resolution.BestResolution;
 import cz.cuni.mff.odcleanstore.fusiontool.config.*;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescriptionConflictResolver;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.NestedResourceDescriptionQualityCalculatorImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.ParallelResolutionExecutor;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.PrecomputedSourceQualityCalculator;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.ResourceDescriptionConflictResolverImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.SingleValueClusterResolution;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.ThreadConfinedConflictResolver;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.AlternativeUriNavigator;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CompactUriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.IndexedUriMapping;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
-import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterableImpl;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
 import cz.cuni.mff.odcleanstore.fusiontool.io.LargeCollectionFactory;
 import cz.cuni.mff.odcleanstore.fusiontool.io.MapdbCollectionFactory;
+import cz.cuni.mff.odcleanstore.fusiontool.io.MappedUriMapping;
 import cz.cuni.mff.odcleanstore.fusiontool.io.MemoryCollectionFactory;
 import cz.cuni.mff.odcleanstore.fusiontool.io.RepositoryFactory;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.ExternalSortingInputLoader;
@@ -33,7 +45,10 @@ import cz.cuni.mff.odcleanstore.fusiontool.loaders.fiter.MappedResourceFilter;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.fiter.RequiredClassFilter;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.fiter.ResourceDescriptionFilter;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.metadata.MetadataLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas.ExternalSameAsLinkResolver;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas.ParallelSameAsLinkLoader;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas.SameAsLinkFileLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas.SameAsLinkLoader;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas.SameAsLinkRepositoryLoader;
 import cz.cuni.mff.odcleanstore.fusiontool.source.ConstructSource;
 import cz.cuni.mff.odcleanstore.fusiontool.source.ConstructSourceImpl;
@@ -52,6 +67,10 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Loads and prepares all inputs for data fusion executor, executes data fusion and outputs additional metadata
@@ -66,6 +85,9 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
 
     private static final CloseableRDFWriterFactory rdfWriterFactory = new CloseableRDFWriterFactory();
 
+    /** Suffix of the file next to the persisted URI mapping where the index of alternative URIs is persisted. */
+    private static final String ALTERNATIVE_URI_INDEX_SUFFIX = ".alternatives";
+
     /** An instance of {@link cz.cuni.mff.odcleanstore.fusiontool.io.RepositoryFactory}. */
     protected final RepositoryFactory repositoryFactory;
 
@@ -93,10 +115,22 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
 
     @Override
     public LDFusionToolExecutor getExecutor(UriMappingIterable uriMapping) {
-        return new LDFusionToolExecutor(
+        if (config.getPipelineBufferSize() == 0) {
+            return new LDFusionToolExecutor(
+                    hasVirtuosoSource(config.getDataSources()),
+                    config.getMaxOutputTriples(),
+                    getInputFilter(uriMapping),
+                    executorTimeProfiler,
+                    executorMemoryProfiler
+            );
+        }
+        return new PipelinedFusionExecutor(
                 hasVirtuosoSource(config.getDataSources()),
                 config.getMaxOutputTriples(),
                 getInputFilter(uriMapping),
+                getConflictResolutionThreadCount(),
+                config.isOrderedOutput(),
+                config.getPipelineBufferSize(),
                 executorTimeProfiler,
                 executorMemoryProfiler
         );
@@ -246,6 +280,13 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
 
     /**
      * Reads and resolves sameAs links and returns the result canonical URI mapping.
+     * If a URI mapping file is configured, the mapping persisted by a previous run with the same sameAs inputs
+     * is used instead, or the resolved mapping is persisted for subsequent runs. The persisted mapping is not reused
+     * if any sameAs source is remote (e.g. a SPARQL endpoint), because changes of its content cannot be detected.
+     * If external sameAs resolution is enabled, links are resolved in external memory and the result
+     * is memory-mapped from the URI mapping file (or a temporary file if no URI mapping file is configured).
+     * The returned mapping holds an index of alternative URIs shared by all users of the mapping,
+     * which is persisted next to the URI mapping file if one is configured.
      * @return canonical URI mapping
      * @throws cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException error
      * @throws java.io.IOException I/O error
@@ -257,8 +298,84 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
                 config.getPropertyResolutionStrategies().keySet(),
                 config.getCanonicalURIsInputFile(),
                 config.getPreferredCanonicalURIs());
-        UriMappingIterableImpl uriMapping = new UriMappingIterableImpl(preferredURIs);
 
+        File uriMappingFile = config.getUriMappingFile();
+        if (uriMappingFile == null && config.isExternalSameAsResolution()) {
+            uriMappingFile = LDFusionToolUtils.createTempFile(config.getTempDirectory(), "odcs-ft.urimapping.");
+            uriMappingFile.deleteOnExit();
+            resolveUriMappingExternally(preferredURIs, uriMappingFile, 0);
+            return new IndexedUriMapping(MappedUriMapping.open(uriMappingFile), config.getThreadCount());
+        } else if (uriMappingFile == null) {
+            return new IndexedUriMapping(resolveUriMapping(preferredURIs), config.getThreadCount());
+        }
+        long fingerprint = getSameAsFingerprint(preferredURIs);
+        File alternativeUriIndexFile = new File(uriMappingFile.getPath() + ALTERNATIVE_URI_INDEX_SUFFIX);
+        return new IndexedUriMapping(getPersistedUriMapping(preferredURIs, uriMappingFile, fingerprint),
+                config.getThreadCount(), alternativeUriIndexFile, fingerprint);
+    }
+
+    private MappedUriMapping getPersistedUriMapping(Set<String> preferredURIs, File uriMappingFile, long fingerprint)
+            throws LDFusionToolException, IOException {
+        ConstructSourceConfig remoteSource = getRemoteSameAsSource();
+        if (remoteSource != null) {
+            LOG.info("Persisted URI mapping {} is not reused because sameAs links are loaded from remote source {}",
+                    uriMappingFile.getPath(), remoteSource.getName());
+        } else if (uriMappingFile.isFile()) {
+            try {
+                MappedUriMapping uriMapping = MappedUriMapping.open(uriMappingFile);
+                if (uriMapping.getFingerprint() == fingerprint) {
+                    LOG.info(String.format("Using %,d URIs from persisted URI mapping %s", uriMapping.size(), uriMappingFile.getPath()));
+                    return uriMapping;
+                }
+                LOG.info("Persisted URI mapping {} is out of date, sameAs links will be resolved again", uriMappingFile.getPath());
+            } catch (IOException e) {
+                LOG.warn("Cannot read persisted URI mapping {}, sameAs links will be resolved again: {}", uriMappingFile.getPath(), e.getMessage());
+            }
+        }
+        if (config.isExternalSameAsResolution()) {
+            resolveUriMappingExternally(preferredURIs, uriMappingFile, fingerprint);
+        } else {
+            UriMappingIterable resolvedUriMapping = resolveUriMapping(preferredURIs);
+            long startTime = System.currentTimeMillis();
+            MappedUriMapping.write(resolvedUriMapping, uriMappingFile, fingerprint);
+            LOG.info("Persisted URI mapping to {} in {} ms", uriMappingFile.getPath(), System.currentTimeMillis() - startTime);
+        }
+        return MappedUriMapping.open(uriMappingFile);
+    }
+
+    private UriMappingIterable resolveUriMapping(Set<String> preferredURIs) throws LDFusionToolException {
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl(preferredURIs);
+        List<SameAsLinkLoader> loaders = getSameAsLinkLoaders();
+        if (loaders.size() > 1) {
+            // partial mappings are merged in the order of loaders regardless of the number of threads
+            new ParallelSameAsLinkLoader(loaders, config.getThreadCount()).loadSameAsMappings(uriMapping);
+        } else {
+            for (SameAsLinkLoader loader : loaders) {
+                loader.loadSameAsMappings(uriMapping);
+            }
+        }
+        // the frozen mapping is shared by conflict resolution threads and its lookups don't modify the DFU
+        return uriMapping.freeze();
+    }
+
+    private void resolveUriMappingExternally(Set<String> preferredURIs, File uriMappingFile, long fingerprint)
+            throws LDFusionToolException, IOException {
+        try (ExternalSameAsLinkResolver resolver = new ExternalSameAsLinkResolver(
+                preferredURIs, config.getTempDirectory(), calculateMemoryLimit())) {
+            for (SameAsLinkLoader loader : getSameAsLinkLoaders()) {
+                loader.loadSameAsMappings(resolver);
+            }
+            resolver.resolve(uriMappingFile, fingerprint);
+        }
+    }
+
+    /**
+     * Returns loaders of all sameAs sources; large line-based sameAs files are split into chunks
+     * which can be loaded in parallel.
+     * @return loaders of sameAs links
+     * @throws LDFusionToolException error creating loaders
+     */
+    private List<SameAsLinkLoader> getSameAsLinkLoaders() throws LDFusionToolException {
         // TODO: rework
         List<ConstructSourceConfig> repositorySameAsSourcesConfig = new ArrayList<>();
         List<ConstructSourceConfig> fileSameAsSourcesConfig = new ArrayList<>();
@@ -270,17 +387,71 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
             }
         }
 
+        List<SameAsLinkLoader> loaders = new ArrayList<>();
         for (ConstructSourceConfig source : fileSameAsSourcesConfig) {
-            SameAsLinkFileLoader loader = new SameAsLinkFileLoader(source, config.getParserConfig(), config.getSameAsLinkTypes());
-            loader.loadSameAsMappings(uriMapping);
+            loaders.addAll(SameAsLinkFileLoader.createChunkLoaders(source, config.getParserConfig(),
+                    config.getSameAsLinkTypes(), LDFTConfigConstants.SAME_AS_FILE_CHUNK_SIZE));
         }
 
         Collection<ConstructSource> repositorySameAsSources = getConstructSources(repositorySameAsSourcesConfig);
         for (ConstructSource source : repositorySameAsSources) {
-            SameAsLinkRepositoryLoader loader = new SameAsLinkRepositoryLoader(source);
-            loader.loadSameAsMappings(uriMapping);
+            loaders.add(new SameAsLinkRepositoryLoader(source));
+        }
+        return loaders;
+    }
+
+    /**
+     * Returns a sameAs source whose content may change without changing its configuration, i.e. any source other
+     * than a file.
+     * @return remote sameAs source or null if all sameAs sources are files
+     */
+    private ConstructSourceConfig getRemoteSameAsSource() {
+        for (ConstructSourceConfig sourceConfig : config.getSameAsSources()) {
+            if (sourceConfig.getType() != EnumDataSourceType.FILE) {
+                return sourceConfig;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a value identifying inputs of sameAs link resolution, i.e. sameAs sources (including sizes and
+     * modification times of files), sameAs link types, preferred URIs and the resolution method.
+     * Content of remote sources (see {@link #getRemoteSameAsSource()}) cannot be checked, therefore a unique value
+     * is included for them so that neither the persisted mapping nor the index of alternative URIs is reused.
+     * @param preferredURIs URIs preferred for canonical URIs
+     * @return fingerprint of sameAs resolution inputs
+     */
+    private long getSameAsFingerprint(Set<String> preferredURIs) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (ConstructSourceConfig sourceConfig : config.getSameAsSources()) {
+            hasher.putString(sourceConfig.getType().name(), Charsets.UTF_8)
+                    .putString(String.valueOf(sourceConfig.getName()), Charsets.UTF_8)
+                    .putString(String.valueOf(sourceConfig.getConstructQuery()), Charsets.UTF_8);
+            for (Map.Entry<String, String> param : new TreeMap<>(sourceConfig.getParams()).entrySet()) {
+                hasher.putString(param.getKey(), Charsets.UTF_8).putString(String.valueOf(param.getValue()), Charsets.UTF_8);
+            }
+            String path = sourceConfig.getParams().get(ConfigParameters.DATA_SOURCE_FILE_PATH);
+            if (sourceConfig.getType() == EnumDataSourceType.FILE && path != null) {
+                File file = new File(path);
+                hasher.putLong(file.length()).putLong(file.lastModified());
+            } else if (sourceConfig.getType() != EnumDataSourceType.FILE) {
+                UUID runId = UUID.randomUUID();
+                hasher.putLong(runId.getMostSignificantBits()).putLong(runId.getLeastSignificantBits());
+            }
+        }
+        Set<String> linkTypes = new TreeSet<>();
+        for (URI linkType : config.getSameAsLinkTypes()) {
+            linkTypes.add(linkType.stringValue());
         }
-        return uriMapping;
+        for (String linkType : linkTypes) {
+            hasher.putString(linkType, Charsets.UTF_8);
+        }
+        for (String preferredURI : new TreeSet<>(preferredURIs)) {
+            hasher.putString(preferredURI, Charsets.UTF_8);
+        }
+        hasher.putBoolean(config.isExternalSameAsResolution()); // canonical URIs are chosen differently
+        return hasher.hash().asLong();
     }
 
     /**
@@ -319,7 +490,7 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
      */
     protected UriCollection getSeedSubjects(Collection<DataSource> dataSources, SparqlRestriction seedResourceRestriction)
             throws LDFusionToolException {
-        FederatedSeedSubjectsLoader loader = new FederatedSeedSubjectsLoader(dataSources);
+        FederatedSeedSubjectsLoader loader = new FederatedSeedSubjectsLoader(dataSources, config.getTempDirectory());
         return loader.getTripleSubjectsCollection(seedResourceRestriction);
     }
 
@@ -372,22 +543,98 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
 
     /**
      * Creates conflict resolver initialized according to given configuration.
+     * When conflicts are resolved by multiple threads, names of resolved graphs contain the index of the thread
+     * (and of the helper thread resolving a large resource description) which generated them, so they depend on
+     * the scheduling of threads and are not reproducible between runs.
      * @param metadata metadata for conflict resolution
      * @param uriMapping mapping of URIs to their canonical URI
      * @return initialized conflict resolver
      */
     @Override
-    public ResourceDescriptionConflictResolver getConflictResolver(Model metadata, UriMappingIterable uriMapping) {
-        DistanceMeasureImpl distanceMeasure = new DistanceMeasureImpl();
+    public ResourceDescriptionConflictResolver getConflictResolver(final Model metadata, final UriMappingIterable uriMapping) {
+        final String resolvedGraphsURIPrefix = config.getResultDataURIPrefix() + ODCSInternal.QUERY_RESULT_GRAPH_URI_INFIX + "/";
+        final ParallelResolutionExecutor parallelResolutionExecutor = createParallelResolutionExecutor();
+        final SourceQualityCalculator sourceQualityCalculator = createSourceQualityCalculator(metadata);
+        if (getConflictResolutionThreadCount() <= 1) {
+            return createConflictResolver(metadata, uriMapping, resolvedGraphsURIPrefix, parallelResolutionExecutor, sourceQualityCalculator);
+        }
+
+        // Conflict resolvers are not thread-safe, each thread resolving conflicts in PipelinedFusionExecutor needs its own;
+        // resolved graph names get a distinct prefix for each thread so that names generated by different threads don't collide
+        return new ThreadConfinedConflictResolver(new ThreadConfinedConflictResolver.ConflictResolverFactory() {
+            @Override
+            public ResourceDescriptionConflictResolver createConflictResolver(int index) {
+                return LDFusionToolComponentFactory.this.createConflictResolver(
+                        metadata, uriMapping, resolvedGraphsURIPrefix + index + "/", parallelResolutionExecutor, sourceQualityCalculator);
+            }
+        });
+    }
+
+    private int getConflictResolutionThreadCount() {
+        return config.getPipelineBufferSize() > 0 ? config.getThreadCount() : 1;
+    }
+
+    /**
+     * Creates executor providing threads which help with resolution of large resource descriptions;
+     * the executor is shared by conflict resolvers of all threads.
+     * Helper threads count towards the thread limit together with threads resolving conflicts,
+     * i.e. they only use threads idle in the pipeline.
+     * Idle threads are released so that the executor doesn't need to be shut down; when all threads are busy,
+     * the executor rejects new tasks and conflict resolvers execute them in the calling thread.
+     * @return executor or null if large resource descriptions shouldn't be resolved in parallel
+     */
+    private ParallelResolutionExecutor createParallelResolutionExecutor() {
+        if (config.getThreadCount() <= 1 || config.getParallelResolutionThreshold() <= 0) {
+            return null;
+        }
+        // at least one thread resolving conflicts is active when a helper is started
+        // daemon threads so that idle helper threads don't prevent the application from exiting
+        Executor executor = new ThreadPoolExecutor(0, config.getThreadCount() - 1, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("parallel-resolution-%d").build());
+        return new ParallelResolutionExecutor(executor, config.getThreadCount());
+    }
+
+    /**
+     * Creates calculator of source graph quality with quality of graphs in the given metadata computed in advance;
+     * the calculator is shared by conflict resolvers of all threads.
+     * @param metadata metadata for conflict resolution
+     * @return source quality calculator
+     */
+    private SourceQualityCalculator createSourceQualityCalculator(Model metadata) {
         SourceQualityCalculator sourceQualityCalculator = new ODCSSourceQualityCalculator(
                 config.getScoreIfUnknown(),
                 config.getPublisherScoreWeight());
-        ResolutionFunctionRegistry registry = ConflictResolverFactory.createInitializedResolutionFunctionRegistry(
-                sourceQualityCalculator,
-                config.getAgreeCoefficient(),
-                distanceMeasure);
+        PrecomputedSourceQualityCalculator precomputedSourceQualityCalculator = new PrecomputedSourceQualityCalculator(
+                sourceQualityCalculator, metadata);
+        LOG.debug("Precomputed quality of {} source graphs", precomputedSourceQualityCalculator.size());
+        return precomputedSourceQualityCalculator;
+    }
+
+    private ResourceDescriptionConflictResolver createConflictResolver(
+            Model metadata,
+            UriMappingIterable uriMapping,
+            String resolvedGraphsURIPrefix,
+            ParallelResolutionExecutor parallelResolutionExecutor,
+            final SourceQualityCalculator sourceQualityCalculator) {
+        DistanceMeasureImpl distanceMeasure = new DistanceMeasureImpl();
+        ResolutionFunctionRegistry registry = createResolutionFunctionRegistry(sourceQualityCalculator, distanceMeasure);
+        ResourceDescriptionConflictResolverImpl.ResolutionFunctionRegistryFactory parallelRegistryFactory =
+                new ResourceDescriptionConflictResolverImpl.ResolutionFunctionRegistryFactory() {
+                    @Override
+                    public ResolutionFunctionRegistry createRegistry() {
+                        // functions of each thread get their own distance measure and quality calculators,
+                        // only the immutable source quality calculator is shared
+                        return createResolutionFunctionRegistry(sourceQualityCalculator, new DistanceMeasureImpl());
+                    }
+                };
+        DecidingConflictFQualityCalculator decidingFQualityCalculator = new DecidingConflictFQualityCalculator(
+                sourceQualityCalculator, config.getAgreeCoefficient(), distanceMeasure);
         NestedResourceDescriptionQualityCalculatorImpl nestedResourceDescriptionQualityCalculator = new NestedResourceDescriptionQualityCalculatorImpl(
-                new DecidingConflictFQualityCalculator(sourceQualityCalculator, config.getAgreeCoefficient(), distanceMeasure));
+                decidingFQualityCalculator);
+        SingleValueClusterResolution singleValueClusterResolution = new SingleValueClusterResolution(
+                decidingFQualityCalculator,
+                Arrays.asList(AllResolution.getName(), BestResolution.getName()));
 
         // TODO
         //if (config.getOutputConflictsOnly()) {
@@ -398,11 +645,24 @@ public class LDFusionToolComponentFactory implements FusionComponentFactory {
                 new ConflictResolutionPolicyImpl(config.getDefaultResolutionStrategy(), config.getPropertyResolutionStrategies()),
                 uriMapping,
                 metadata,
-                config.getResultDataURIPrefix() + ODCSInternal.QUERY_RESULT_GRAPH_URI_INFIX + "/",
-                nestedResourceDescriptionQualityCalculator
+                resolvedGraphsURIPrefix,
+                nestedResourceDescriptionQualityCalculator,
+                parallelResolutionExecutor,
+                parallelRegistryFactory,
+                config.getThreadCount() - 1,
+                config.getParallelResolutionThreshold(),
+                singleValueClusterResolution
         );
     }
 
+    private ResolutionFunctionRegistry createResolutionFunctionRegistry(
+            SourceQualityCalculator sourceQualityCalculator, DistanceMeasureImpl distanceMeasure) {
+        return ConflictResolverFactory.createInitializedResolutionFunctionRegistry(
+                sourceQualityCalculator,
+                config.getAgreeCoefficient(),
+                distanceMeasure);
+    }
+
     @Override
     public UriMappingWriter getCanonicalUriWriter(UriMappingIterable uriMapping) throws IOException {
         return new CanonicalUriFileWriter(config.getCanonicalURIsOutputFile());
@@ -0,0 +1,155 @@
+package cz.cuni.mff.odcleanstore.fusiontool;
+
+import cz.cuni.mff.odcleanstore.fusiontool.config.ApplicationArgs;
+import cz.cuni.mff.odcleanstore.fusiontool.config.Config;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigReader;
+import cz.cuni.mff.odcleanstore.fusiontool.config.DataSourceConfig;
+import cz.cuni.mff.odcleanstore.fusiontool.dump.DataSourceDumper;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.InvalidInputException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.io.RepositoryFactory;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSourceImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import org.openrdf.repository.RepositoryException;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The dump sub-command of the application.
+ * Dumps all quads of data sources given in a configuration file to local N-Quads files
+ * (e.g. so that they can be used as file data sources of a subsequent run).
+ * An interrupted dump is resumed when the command is run again with the same arguments.
+ * @author Jan Michelfeit
+ */
+public final class LDFusionToolDumpCommand {
+    /** Name of the sub-command, given as the first command line argument. */
+    public static final String COMMAND_NAME = "dump";
+
+    private static final int DEFAULT_THREAD_COUNT = 4;
+
+    static String getUsage() {
+        return "Usage:\n java -jar odcs-fusion-tool-<version>.jar dump [-v|-vv] [--threads <n>] [--gzip] [--split-by-mb <n>]"
+                + " <xml config file> <output directory>"
+                + "\n\n  Dumps all quads of data sources from the config file to N-Quads files in the output directory."
+                + "\n  Running the command again resumes an interrupted dump.";
+    }
+
+    /**
+     * Executes the dump sub-command.
+     * @param args command line arguments following the sub-command name
+     */
+    public static void run(String[] args) {
+        ApplicationArgs.VerboseLevel verboseLevel = ApplicationArgs.VerboseLevel.NOT_VERBOSE;
+        int threadCount = DEFAULT_THREAD_COUNT;
+        boolean compress = false;
+        long splitSize = 0;
+        String configFilePath = null;
+        String outputDirectoryPath = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-v":
+                        verboseLevel = ApplicationArgs.VerboseLevel.VERBOSE;
+                        break;
+                    case "-vv":
+                    case "--verbose":
+                        verboseLevel = ApplicationArgs.VerboseLevel.VERY_VERBOSE;
+                        break;
+                    case "--threads":
+                        threadCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--gzip":
+                        compress = true;
+                        break;
+                    case "--split-by-mb":
+                        splitSize = Long.parseLong(args[++i]) * LDFusionToolUtils.MB_BYTES;
+                        break;
+                    default:
+                        if (configFilePath == null) {
+                            configFilePath = args[i];
+                        } else {
+                            outputDirectoryPath = args[i];
+                        }
+                        break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(getUsage());
+            return;
+        }
+        if (configFilePath == null || outputDirectoryPath == null || threadCount <= 0) {
+            System.err.println(getUsage());
+            return;
+        }
+
+        LDFusionToolApplication.setLogLevel(verboseLevel);
+
+        File configFile = new File(configFilePath);
+        File outputDirectory = new File(outputDirectoryPath);
+        if (!configFile.isFile() || !configFile.canRead()) {
+            System.err.println("Cannot read the given config file.\n");
+            System.err.println(getUsage());
+            return;
+        }
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.err.println("Cannot create the output directory.\n");
+            return;
+        }
+
+        Config config;
+        try {
+            config = ConfigReader.parseConfigXml(configFile);
+        } catch (InvalidInputException e) {
+            System.err.println("Error in config file:");
+            System.err.println("  " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            dumpDataSources(config, outputDirectory, threadCount, compress, splitSize);
+        } catch (LDFusionToolException e) {
+            System.err.println("Error:");
+            System.err.println("  " + e.getMessage());
+            if (e.getCause() != null) {
+                System.err.println("  " + e.getCause().getMessage());
+            }
+            e.printStackTrace(System.err);
+            return;
+        }
+        System.out.println("--------------------------------");
+        System.out.printf("Dump executed in %s\n", LDFusionToolUtils.formatTime(System.currentTimeMillis() - startTime));
+    }
+
+    private static void dumpDataSources(Config config, File outputDirectory, int threadCount, boolean compress, long splitSize)
+            throws LDFusionToolException {
+        RepositoryFactory repositoryFactory = new RepositoryFactory(config.getParserConfig());
+        List<DataSourceConfig> dataSourceConfigs = config.getDataSources();
+        for (int i = 0; i < dataSourceConfigs.size(); i++) {
+            DataSource dataSource = DataSourceImpl.fromConfig(dataSourceConfigs.get(i), config.getPrefixes(), repositoryFactory);
+            try {
+                File outputFile = new File(outputDirectory, getDumpFileName(i, dataSource, compress));
+                System.out.printf("Dumping source %s to %s\n", dataSource.getName(), outputFile.getPath());
+                new DataSourceDumper(dataSource, threadCount, compress, splitSize).dump(outputFile);
+            } finally {
+                try {
+                    dataSource.getRepository().shutDown();
+                } catch (RepositoryException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static String getDumpFileName(int index, DataSource dataSource, boolean compress) {
+        String name = "dump-" + (index + 1) + "-" + dataSource.getName().replaceAll("[^A-Za-z0-9_-]+", "_") + ".nq";
+        return compress ? name + ".gz" : name;
+    }
+
+    /** Disable constructor. */
+    private LDFusionToolDumpCommand() {
+    }
+}
@@ -22,6 +22,8 @@ import java.util.Collection;
  * Fuses RDF data loaded from RDF sources using ODCS Conflict Resolution and writes the output to RDF outputs.
  * Conflict resolution includes resolution of owl:sameAs link, resolution of instance-level conflicts.
  * See sample configuration files (sample-config-full.xml) for overview of all processing options.
+ * Loading, conflict resolution and output writing are executed sequentially in the calling thread;
+ * see {@link PipelinedFusionExecutor} for execution of these stages in parallel.
  *
  * This class is not thread-safe.
  */
@@ -134,7 +136,7 @@ public class LDFusionToolExecutor implements FusionExecutor {
             try {
                 Thread.sleep(2);
             } catch (InterruptedException e) {
-                // ignore
+                Thread.currentThread().interrupt();
             }
         }
     }
@@ -151,7 +153,15 @@ public class LDFusionToolExecutor implements FusionExecutor {
         this.isCanceledCallback = isCanceledCallback;
     }
 
-    private boolean isCanceled() {
+    protected ProfilingTimeCounter<EnumFusionCounters> getTimeProfiler() {
+        return timeProfiler;
+    }
+
+    protected MemoryProfiler getMemoryProfiler() {
+        return memoryProfiler;
+    }
+
+    protected boolean isCanceled() {
         return isCanceledCallback != null && isCanceledCallback.isCanceled();
     }
 }
@@ -0,0 +1,452 @@
+package cz.cuni.mff.odcleanstore.fusiontool;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
+import cz.cuni.mff.odcleanstore.conflictresolution.exceptions.ConflictResolutionException;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescription;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescriptionConflictResolver;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.InputLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.fiter.ResourceDescriptionFilter;
+import cz.cuni.mff.odcleanstore.fusiontool.util.EnumFusionCounters;
+import cz.cuni.mff.odcleanstore.fusiontool.util.MemoryProfiler;
+import cz.cuni.mff.odcleanstore.fusiontool.util.ProfilingTimeCounter;
+import cz.cuni.mff.odcleanstore.fusiontool.util.StatementBoundedQueue;
+import cz.cuni.mff.odcleanstore.fusiontool.writers.CloseableRDFWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuses RDF data like {@link LDFusionToolExecutor} but executes loading of resource descriptions,
+ * conflict resolution and output writing as a pipeline of stages running in parallel.
+ * Resource descriptions are read from the input loader by a single reader thread, conflicts are resolved
+ * by a pool of worker threads and results are written by the thread calling {@code fuse()}.
+ *
+ * Stages are joined by queues whose capacity is given in statements, so that earlier stages wait
+ * when a later stage is slower (e.g. when writing to a remote SPARQL endpoint) and the memory used
+ * for buffered data is bounded. Results are written either in the order of input or as soon as they are resolved;
+ * limit on output triples and cancellation are evaluated in the order results are written.
+ *
+ * The time profiler measures time each stage spends working and time it spends waiting for other stages
+ * (counters {@link EnumFusionCounters#QUAD_LOADING_IDLE}, {@link EnumFusionCounters#CONFLICT_RESOLUTION_IDLE}
+ * and {@link EnumFusionCounters#OUTPUT_WRITING_IDLE}); times measured in worker threads are summed.
+ * The given conflict resolver must be thread-safe if more than one worker thread is used.
+ *
+ * This class is not thread-safe.
+ */
+public class PipelinedFusionExecutor extends LDFusionToolExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(PipelinedFusionExecutor.class);
+
+    /** Time in seconds to wait for pipeline threads to finish. */
+    private static final long THREAD_TERMINATION_TIMEOUT = 60;
+
+    private final int threadCount;
+    private final boolean isOrderedOutput;
+    private final int bufferSize;
+
+    /**
+     * @param hasVirtuosoSource indicates whether the {@link cz.cuni.mff.odcleanstore.fusiontool.loaders.InputLoader}
+     *      given to {@code fuse()} may contain a source of type
+     *      {@link cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType#VIRTUOSO} (need for Virtuoso bug circumvention).
+     * @param maxOutputTriples maximum number of triples to be processed; null means unlimited
+     * @param threadCount number of threads resolving conflicts
+     * @param isOrderedOutput whether results are written in the order of input
+     * @param bufferSize maximum number of statements in each queue between stages
+     * @param timeProfiler time profiler
+     * @param memoryProfiler memory profiler
+     */
+    public PipelinedFusionExecutor(
+            boolean hasVirtuosoSource,
+            Long maxOutputTriples,
+            ResourceDescriptionFilter resourceDescriptionFilter,
+            int threadCount,
+            boolean isOrderedOutput,
+            int bufferSize,
+            ProfilingTimeCounter<EnumFusionCounters> timeProfiler,
+            MemoryProfiler memoryProfiler) {
+        super(hasVirtuosoSource, maxOutputTriples, resourceDescriptionFilter, timeProfiler, memoryProfiler);
+        Preconditions.checkArgument(threadCount > 0);
+        Preconditions.checkArgument(bufferSize > 0);
+        this.threadCount = threadCount;
+        this.isOrderedOutput = isOrderedOutput;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void fuse(ResourceDescriptionConflictResolver conflictResolver, InputLoader inputLoader, CloseableRDFWriter rdfWriter)
+            throws LDFusionToolException, ConflictResolutionException, IOException {
+        new Pipeline(conflictResolver, inputLoader, rdfWriter).fuse();
+    }
+
+    /**
+     * Rethrows an error which occurred in another thread; errors of types not thrown by {@code fuse()} are wrapped.
+     */
+    private static void rethrow(Throwable error) throws LDFusionToolException, ConflictResolutionException, IOException {
+        if (error instanceof LDFusionToolException) {
+            throw (LDFusionToolException) error;
+        } else if (error instanceof ConflictResolutionException) {
+            throw (ConflictResolutionException) error;
+        } else if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        } else {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.PARALLEL_FUSION_THREAD,
+                    "Error in conflict resolution thread", error);
+        }
+    }
+
+    /**
+     * A single execution of the pipeline.
+     * The reader thread is the only one accessing the input loader; it is given resolved statements
+     * through a queue in the order they are written.
+     */
+    private class Pipeline {
+        private final ResourceDescriptionConflictResolver conflictResolver;
+        private final InputLoader inputLoader;
+        private final CloseableRDFWriter rdfWriter;
+        private final StatementBoundedQueue<FusionTask> loadedQueue = new StatementBoundedQueue<>(bufferSize);
+        private final StatementBoundedQueue<FusionTask> outputQueue = new StatementBoundedQueue<>(bufferSize);
+        private final BlockingQueue<Collection<ResolvedStatement>> updateQueue = new LinkedBlockingQueue<>();
+        private final List<ProfilingTimeCounter<EnumFusionCounters>> threadTimeProfilers = new ArrayList<>();
+        private long outputTriples = 0;
+        private long inputTriples = 0;
+        private volatile boolean isStopped = false;
+
+        public Pipeline(ResourceDescriptionConflictResolver conflictResolver, InputLoader inputLoader, CloseableRDFWriter rdfWriter) {
+            this.conflictResolver = conflictResolver;
+            this.inputLoader = inputLoader;
+            this.rdfWriter = rdfWriter;
+        }
+
+        public void fuse() throws LDFusionToolException, ConflictResolutionException, IOException {
+            LOG.info("Starting conflict resolution in {} threads", threadCount);
+            // daemon threads so that a failed conflict resolution doesn't prevent the application from exiting
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount + 1,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("fusion-%d").build());
+            try {
+                executor.execute(new InputReader(createThreadTimeProfiler()));
+                for (int i = 0; i < threadCount; i++) {
+                    executor.execute(new ConflictResolutionWorker(createThreadTimeProfiler()));
+                }
+                writeResults();
+
+                // The reader may have been stopped before it could apply all updates if the output limit was reached
+                if (stopThreads(executor)) {
+                    for (Collection<ResolvedStatement> resolvedStatements : updateQueue) {
+                        inputLoader.updateWithResolvedStatements(resolvedStatements);
+                    }
+                }
+            } finally {
+                stopThreads(executor);
+            }
+            for (ProfilingTimeCounter<EnumFusionCounters> threadTimeProfiler : threadTimeProfilers) {
+                getTimeProfiler().addProfilingTimeCounter(threadTimeProfiler);
+            }
+
+            if (isCanceled()) {
+                LOG.warn("The execution was canceled!");
+            }
+            LOG.info(String.format("Processed %,d quads which were resolved to %,d output quads.", inputTriples, outputTriples));
+        }
+
+        private void writeResults() throws LDFusionToolException, ConflictResolutionException, IOException {
+            long writtenCount = 0;
+            long readCount = Long.MAX_VALUE;
+            boolean limitReached = false;
+            while (!limitReached && writtenCount < readCount) {
+                FusionTask task = takeResolvedTask();
+                if (task.isEndOfInput()) {
+                    readCount = task.sequenceNumber;
+                    continue;
+                }
+                limitReached = !writeResult(task);
+                writtenCount++;
+            }
+        }
+
+        private FusionTask takeResolvedTask() throws LDFusionToolException, ConflictResolutionException, IOException {
+            ProfilingTimeCounter<EnumFusionCounters> timeProfiler = getTimeProfiler();
+            timeProfiler.startCounter(EnumFusionCounters.OUTPUT_WRITING_IDLE);
+            FusionTask task;
+            try {
+                task = outputQueue.take();
+                task.awaitResolved();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.PARALLEL_FUSION_INTERRUPTED,
+                        "Interrupted while waiting for conflict resolution", e);
+            }
+            timeProfiler.stopAddCounter(EnumFusionCounters.OUTPUT_WRITING_IDLE);
+            if (task.error != null) {
+                rethrow(task.error);
+            }
+            return task;
+        }
+
+        /**
+         * Writes the result of conflict resolution for a single resource description.
+         * @return false if the result was not written because the limit on output triples would be exceeded
+         */
+        private boolean writeResult(FusionTask task) throws IOException {
+            ResourceDescription resourceDescription = task.resourceDescription;
+            inputTriples += resourceDescription.getDescribingStatements().size();
+            Collection<ResolvedStatement> resolvedQuads = task.resolvedStatements;
+            if (resolvedQuads == null) {
+                // filtered out
+                updateQueue.add(Collections.<ResolvedStatement>emptyList());
+                return true;
+            }
+            LOG.debug("Resolved {} quads resulting in {} quads (processed totally {} quads)",
+                    new Object[] {resourceDescription.getDescribingStatements().size(), resolvedQuads.size(), inputTriples});
+
+            // Check if we have reached the limit on output triples
+            Long maxOutputTriples = getMaxOutputTriples();
+            if (maxOutputTriples != null && maxOutputTriples >= 0 && outputTriples + resolvedQuads.size() > maxOutputTriples) {
+                return false;
+            }
+            outputTriples += resolvedQuads.size();
+
+            // Add objects filtered by CR for traversal
+            updateQueue.add(resolvedQuads);
+
+            // Write result to output
+            getTimeProfiler().startCounter(EnumFusionCounters.OUTPUT_WRITING);
+            rdfWriter.writeResolvedStatements(resolvedQuads);
+            getTimeProfiler().stopAddCounter(EnumFusionCounters.OUTPUT_WRITING);
+
+            getMemoryProfiler().capture();
+            return true;
+        }
+
+        private ProfilingTimeCounter<EnumFusionCounters> createThreadTimeProfiler() {
+            ProfilingTimeCounter<EnumFusionCounters> threadTimeProfiler = getTimeProfiler().createSimilarInstance();
+            threadTimeProfilers.add(threadTimeProfiler);
+            return threadTimeProfiler;
+        }
+
+        /**
+         * Stops the reader and worker threads and waits for them to finish.
+         * @return true if all threads finished
+         */
+        private boolean stopThreads(ExecutorService executor) throws LDFusionToolException {
+            if (executor.isTerminated()) {
+                return true;
+            }
+            isStopped = true;
+            executor.shutdownNow();
+
+            // Release blocked threads in case the interrupt was swallowed by the input loader or a conflict resolver
+            loadedQueue.close();
+            outputQueue.close();
+            updateQueue.add(Collections.<ResolvedStatement>emptyList());
+
+            try {
+                boolean isTerminated = executor.awaitTermination(THREAD_TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+                if (!isTerminated) {
+                    LOG.warn("Conflict resolution threads did not finish in {} s", THREAD_TERMINATION_TIMEOUT);
+                }
+                return isTerminated;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.PARALLEL_FUSION_INTERRUPTED,
+                        "Interrupted while waiting for conflict resolution threads to finish", e);
+            }
+        }
+
+        /**
+         * Reads resource descriptions from the input loader and updates the loader with resolved statements.
+         * When the input loader has no more resource descriptions, the reader waits for resolved statements
+         * of resource descriptions in progress because they can add more input (e.g. for transitive loading).
+         */
+        private class InputReader implements Runnable {
+            private final ProfilingTimeCounter<EnumFusionCounters> threadTimeProfiler;
+
+            public InputReader(ProfilingTimeCounter<EnumFusionCounters> threadTimeProfiler) {
+                this.threadTimeProfiler = threadTimeProfiler;
+            }
+
+            @Override
+            public void run() {
+                long readCount = 0;
+                long inProgressCount = 0;
+                try {
+                    while (true) {
+                        inProgressCount -= applyUpdates(false);
+                        if (isStopped || isCanceled()) {
+                            break;
+                        }
+                        threadTimeProfiler.startCounter(EnumFusionCounters.BUFFERING);
+                        boolean hasNext = inputLoader.hasNext();
+                        threadTimeProfiler.stopAddCounter(EnumFusionCounters.BUFFERING);
+                        if (!hasNext) {
+                            if (inProgressCount == 0) {
+                                break;
+                            }
+                            inProgressCount -= applyUpdates(true);
+                            continue;
+                        }
+
+                        threadTimeProfiler.startCounter(EnumFusionCounters.QUAD_LOADING);
+                        ResourceDescription resourceDescription = inputLoader.next();
+                        threadTimeProfiler.stopAddCounter(EnumFusionCounters.QUAD_LOADING);
+                        FusionTask task = new FusionTask(readCount, resourceDescription);
+                        int statementCount = resourceDescription.getDescribingStatements().size();
+                        threadTimeProfiler.startCounter(EnumFusionCounters.QUAD_LOADING_IDLE);
+                        if (isOrderedOutput) {
+                            outputQueue.put(task, statementCount);
+                        }
+                        loadedQueue.put(task, statementCount);
+                        threadTimeProfiler.stopAddCounter(EnumFusionCounters.QUAD_LOADING_IDLE);
+                        readCount++;
+                        inProgressCount++;
+                        fixVirtuosoOpenedStatements();
+                    }
+                } catch (InterruptedException e) {
+                    // fusion was stopped
+                    return;
+                } catch (Throwable e) {
+                    outputQueue.putMarker(FusionTask.failed(e));
+                    return;
+                }
+                outputQueue.putMarker(FusionTask.endOfInput(readCount));
+            }
+
+            /**
+             * Updates the input loader with resolved statements written so far.
+             * @param wait whether to wait for at least one update
+             * @return number of updates
+             */
+            private int applyUpdates(boolean wait) throws InterruptedException {
+                Collection<ResolvedStatement> resolvedStatements;
+                if (wait) {
+                    threadTimeProfiler.startCounter(EnumFusionCounters.QUAD_LOADING_IDLE);
+                    resolvedStatements = updateQueue.take();
+                    threadTimeProfiler.stopAddCounter(EnumFusionCounters.QUAD_LOADING_IDLE);
+                } else {
+                    resolvedStatements = updateQueue.poll();
+                }
+                int count = 0;
+                while (resolvedStatements != null) {
+                    threadTimeProfiler.startCounter(EnumFusionCounters.BUFFERING);
+                    inputLoader.updateWithResolvedStatements(resolvedStatements);
+                    threadTimeProfiler.stopAddCounter(EnumFusionCounters.BUFFERING);
+                    count++;
+                    resolvedStatements = updateQueue.poll();
+                }
+                return count;
+            }
+        }
+
+        /**
+         * Applies input filters and resolves conflicts in resource descriptions given by the reader.
+         */
+        private class ConflictResolutionWorker implements Runnable {
+            private final ProfilingTimeCounter<EnumFusionCounters> threadTimeProfiler;
+
+            public ConflictResolutionWorker(ProfilingTimeCounter<EnumFusionCounters> threadTimeProfiler) {
+                this.threadTimeProfiler = threadTimeProfiler;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        threadTimeProfiler.startCounter(EnumFusionCounters.CONFLICT_RESOLUTION_IDLE);
+                        FusionTask task = loadedQueue.take();
+                        threadTimeProfiler.stopAddCounter(EnumFusionCounters.CONFLICT_RESOLUTION_IDLE);
+                        if (task == null) {
+                            break;
+                        }
+                        try {
+                            resolve(task);
+                        } catch (Throwable e) {
+                            task.error = e;
+                        }
+                        task.markResolved();
+                        if (!isOrderedOutput) {
+                            threadTimeProfiler.startCounter(EnumFusionCounters.CONFLICT_RESOLUTION_IDLE);
+                            outputQueue.put(task, task.resolvedStatements != null ? task.resolvedStatements.size() : 0);
+                            threadTimeProfiler.stopAddCounter(EnumFusionCounters.CONFLICT_RESOLUTION_IDLE);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // fusion finished
+                }
+            }
+
+            private void resolve(FusionTask task) throws ConflictResolutionException {
+                threadTimeProfiler.startCounter(EnumFusionCounters.INPUT_FILTERING);
+                boolean accept = getResourceDescriptionFilter().accept(task.resourceDescription);
+                threadTimeProfiler.stopAddCounter(EnumFusionCounters.INPUT_FILTERING);
+                if (!accept) {
+                    LOG.debug("Resource {} doesn't match filter, skipping", task.resourceDescription.getResource());
+                    return;
+                }
+
+                threadTimeProfiler.startCounter(EnumFusionCounters.CONFLICT_RESOLUTION);
+                task.resolvedStatements = conflictResolver.resolveConflicts(task.resourceDescription);
+                threadTimeProfiler.stopAddCounter(EnumFusionCounters.CONFLICT_RESOLUTION);
+            }
+        }
+    }
+
+    /**
+     * Resource description passed between pipeline threads together with its result.
+     * Fields set by a worker thread are visible to other threads after {@link #awaitResolved()} returns.
+     */
+    private static class FusionTask {
+        private final long sequenceNumber;
+        private final ResourceDescription resourceDescription;
+        private final CountDownLatch resolvedLatch = new CountDownLatch(1);
+        private Collection<ResolvedStatement> resolvedStatements;
+        private Throwable error;
+
+        public FusionTask(long sequenceNumber, ResourceDescription resourceDescription) {
+            this.sequenceNumber = sequenceNumber;
+            this.resourceDescription = resourceDescription;
+        }
+
+        public static FusionTask endOfInput(long readCount) {
+            FusionTask task = new FusionTask(readCount, null);
+            task.markResolved();
+            return task;
+        }
+
+        public static FusionTask failed(Throwable error) {
+            FusionTask task = new FusionTask(-1, null);
+            task.error = error;
+            task.markResolved();
+            return task;
+        }
+
+        public boolean isEndOfInput() {
+            return resourceDescription == null;
+        }
+
+        public void markResolved() {
+            resolvedLatch.countDown();
+        }
+
+        public void awaitResolved() throws InterruptedException {
+            resolvedLatch.await();
+        }
+    }
+}
@@ -49,6 +49,14 @@ public interface ConfigIO {
      */
     File getCanonicalURIsInputFile();
 
+    /**
+     * File where the resolved mapping of URIs to canonical URIs is persisted between runs.
+     * If the file exists and was created from the same sameAs sources, it is used instead of loading sameAs links.
+     * Null means that sameAs links are always loaded and resolved.
+     * @return file with persisted URI mapping or null
+     */
+    File getUriMappingFile();
+
     /**
      * Directory for temporary files.
      * @return directory for temporary files.
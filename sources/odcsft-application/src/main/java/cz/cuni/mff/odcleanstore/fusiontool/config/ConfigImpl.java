@@ -25,12 +25,18 @@ public class ConfigImpl implements Config {
 
     private File canonicalURIsOutputFile = null;
     private File canonicalURIsInputFile;
+    private File uriMappingFile = null;
     private boolean enableFileCache = false;
     private Long maxOutputTriples = null;
     private boolean isProfilingOn = false;
     //private boolean outputConflictsOnly = false;
     private boolean outputMappedSubjectsOnly = false;
     private boolean isLocalCopyProcessing = true;
+    private boolean isExternalSameAsResolution = false;
+    private int threadCount = LDFTConfigConstants.DEFAULT_THREAD_COUNT;
+    private boolean isOrderedOutput = LDFTConfigConstants.DEFAULT_ORDERED_OUTPUT;
+    private int pipelineBufferSize = LDFTConfigConstants.DEFAULT_PIPELINE_BUFFER_SIZE;
+    private int parallelResolutionThreshold = LDFTConfigConstants.DEFAULT_PARALLEL_RESOLUTION_THRESHOLD;
     private Long memoryLimit = null;
     private File tempDirectory = LDFTConfigConstants.DEFAULT_TEMP_DIRECTORY;
     private ParserConfig parserConfig = LDFTConfigConstants.DEFAULT_FILE_PARSER_CONFIG;
@@ -176,6 +182,20 @@ public class ConfigImpl implements Config {
         this.canonicalURIsInputFile = file;
     }
 
+    @Override
+    public File getUriMappingFile() {
+        return uriMappingFile;
+    }
+
+    /**
+     * Sets value for {@link #getUriMappingFile()}.
+     *
+     * @param file see {@link #getUriMappingFile()}
+     */
+    public void setUriMappingFile(File file) {
+        this.uriMappingFile = file;
+    }
+
     @Override
     public boolean getEnableFileCache() {
         return enableFileCache;
@@ -259,6 +279,71 @@ public class ConfigImpl implements Config {
         this.isLocalCopyProcessing = isLocalCopyProcessing;
     }
 
+    @Override
+    public boolean isExternalSameAsResolution() {
+        return isExternalSameAsResolution;
+    }
+
+    /**
+     * Sets value for {@link #isExternalSameAsResolution()}.
+     * @param isExternalSameAsResolution see {@link #isExternalSameAsResolution()}
+     */
+    public void setExternalSameAsResolution(boolean isExternalSameAsResolution) {
+        this.isExternalSameAsResolution = isExternalSameAsResolution;
+    }
+
+    @Override
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets value for {@link #getThreadCount()}.
+     * @param threadCount see {@link #getThreadCount()}
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    @Override
+    public boolean isOrderedOutput() {
+        return isOrderedOutput;
+    }
+
+    /**
+     * Sets value for {@link #isOrderedOutput()}.
+     * @param isOrderedOutput see {@link #isOrderedOutput()}
+     */
+    public void setOrderedOutput(boolean isOrderedOutput) {
+        this.isOrderedOutput = isOrderedOutput;
+    }
+
+    @Override
+    public int getPipelineBufferSize() {
+        return pipelineBufferSize;
+    }
+
+    /**
+     * Sets value for {@link #getPipelineBufferSize()}.
+     * @param pipelineBufferSize see {@link #getPipelineBufferSize()}
+     */
+    public void setPipelineBufferSize(int pipelineBufferSize) {
+        this.pipelineBufferSize = pipelineBufferSize;
+    }
+
+    @Override
+    public int getParallelResolutionThreshold() {
+        return parallelResolutionThreshold;
+    }
+
+    /**
+     * Sets value for {@link #getParallelResolutionThreshold()}.
+     * @param parallelResolutionThreshold see {@link #getParallelResolutionThreshold()}
+     */
+    public void setParallelResolutionThreshold(int parallelResolutionThreshold) {
+        this.parallelResolutionThreshold = parallelResolutionThreshold;
+    }
+
     @Override
     public Long getMemoryLimit() {
         return memoryLimit;
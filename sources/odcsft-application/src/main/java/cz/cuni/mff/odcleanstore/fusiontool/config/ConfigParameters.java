@@ -12,17 +12,38 @@ public final class ConfigParameters {
     public static final String DATA_SOURCE_FILE_FORMAT = "format";
     public static final String DATA_SOURCE_FILE_BASE_URI = "baseUri".toLowerCase();
     public static final String DATA_SOURCE_SPARQL_MIN_QUERY_INTERVAL = "minQueryInterval".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_MAX_QUERY_BURST = "maxQueryBurst".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_MAX_CONCURRENT_QUERIES = "maxConcurrentQueries".toLowerCase();
     public static final String DATA_SOURCE_SPARQL_ENDPOINT = "endpointUrl".toLowerCase();
     public static final String DATA_SOURCE_VIRTUOSO_PASSWORD = "password";
     public static final String DATA_SOURCE_VIRTUOSO_USERNAME = "username";
     public static final String DATA_SOURCE_VIRTUOSO_PORT = "port";
     public static final String DATA_SOURCE_VIRTUOSO_HOST = "host";
     public static final String DATA_SOURCE_SPARQL_RESULT_MAX_ROWS = "sparqlResultMaxRows".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_INITIAL_PAGE_SIZE = "initialPageSize".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_TARGET_PAGE_LATENCY = "targetPageLatency".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_ORDERED_PAGING = "orderedPaging".toLowerCase();
+    public static final String DATA_SOURCE_RETRY_INITIAL_INTERVAL = "retryInitialInterval".toLowerCase();
+    public static final String DATA_SOURCE_RETRY_MAX_TIME = "retryMaxTime".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_RESULT_FORMAT = "resultFormat".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_COMPRESSION = "compression";
+    public static final String DATA_SOURCE_ALTERNATIVE_URIS_QUERY = "alternativeUrisQuery".toLowerCase();
+    public static final String DATA_SOURCE_MAX_QUERY_LIST_LENGTH = "maxQueryListLength".toLowerCase();
+    public static final String DATA_SOURCE_SEED_SUBJECTS_PAGE_SIZE = "seedSubjectsPageSize".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_CACHE_DIRECTORY = "responseCacheDir".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_CACHE_TTL = "responseCacheTtl".toLowerCase();
+    public static final String DATA_SOURCE_SPARQL_CACHE_MAX_SIZE_MB = "responseCacheMaxSizeMb".toLowerCase();
     public static final String PROCESSING_CANONICAL_URI_OUTPUT_FILE = "canonicalUriOutputFile";
     public static final String PROCESSING_CANONICAL_URI_INPUT_FILE = "canonicalUriInputFile";
+    public static final String PROCESSING_URI_MAPPING_FILE = "uriMappingFile";
     public static final String PROCESSING_ENABLE_FILE_CACHE = "enableFileCache";
     public static final String PROCESSING_MAX_OUTPUT_TRIPLES = "maxOutputTriples";
     public static final String PROCESSING_LOCAL_COPY_PROCESSING = "localCopyProcessing";
+    public static final String PROCESSING_EXTERNAL_SAME_AS_RESOLUTION = "externalSameAsResolution";
+    public static final String PROCESSING_THREAD_COUNT = "threadCount";
+    public static final String PROCESSING_ORDERED_OUTPUT = "orderedOutput";
+    public static final String PROCESSING_PIPELINE_BUFFER_SIZE = "pipelineBufferSize";
+    public static final String PROCESSING_PARALLEL_RESOLUTION_THRESHOLD = "parallelResolutionThreshold";
     public static final String PROCESSING_ONLY_RESOURCES_WITH_CLASS = "processResourcesWithClass";
     public static final String OUTPUT_PATH = "path";
     public static final String OUTPUT_FORMAT = "format";
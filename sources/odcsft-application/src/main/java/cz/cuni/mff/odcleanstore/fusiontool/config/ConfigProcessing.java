@@ -27,6 +27,42 @@ public interface ConfigProcessing {
      */
     boolean isLocalCopyProcessing();
 
+    /**
+     * Indicates whether sameAs links should be resolved in external memory (using sorted temporary files)
+     * instead of in memory; useful when the sameAs links don't fit into memory.
+     * @return true iff sameAs links should be resolved in external memory
+     */
+    boolean isExternalSameAsResolution();
+
+    /**
+     * Number of threads used for parallelizable processing, e.g. loading of sameAs links or conflict resolution.
+     * @return number of threads
+     */
+    int getThreadCount();
+
+    /**
+     * Indicates whether resolved quads should be written in the same order as resource descriptions
+     * are read from input when conflicts are resolved by multiple threads.
+     * @return true iff the order of input should be preserved in the output
+     */
+    boolean isOrderedOutput();
+
+    /**
+     * Maximum number of statements buffered between stages of pipelined conflict resolution
+     * (loading of input, conflict resolution and output writing).
+     * Zero means that the stages are executed sequentially in a single thread.
+     * @return maximum number of buffered statements or zero
+     */
+    int getPipelineBufferSize();
+
+    /**
+     * Minimum number of statements in a resource description for conflict clusters of the description
+     * to be resolved in parallel by multiple threads (see {@link #getThreadCount()}).
+     * Zero means that conflict clusters of a single resource description are always resolved in one thread.
+     * @return minimum number of statements or zero
+     */
+    int getParallelResolutionThreshold();
+
     /**
      * Maximum memory amount to use for large operations.
      * Null means no limit.
@@ -174,6 +174,12 @@ public final class ConfigReader {
                 } else {
                     config.setCanonicalURIsInputFile(null);
                 }
+            } else if (ConfigParameters.PROCESSING_URI_MAPPING_FILE.equalsIgnoreCase(param.getName())) {
+                if (!ODCSUtils.isNullOrEmpty(param.getValue())) {
+                    config.setUriMappingFile(new File(param.getValue()));
+                } else {
+                    config.setUriMappingFile(null);
+                }
             } else if (ConfigParameters.PROCESSING_ENABLE_FILE_CACHE.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
                 config.setEnableFileCache(Boolean.parseBoolean(param.getValue()));
             } else if (ConfigParameters.PROCESSING_MAX_OUTPUT_TRIPLES.equalsIgnoreCase(param.getName())) {
@@ -181,6 +187,28 @@ public final class ConfigReader {
                 config.setMaxOutputTriples(value);
             } else if (ConfigParameters.PROCESSING_LOCAL_COPY_PROCESSING.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
                 config.setLocalCopyProcessing(Boolean.parseBoolean(param.getValue()));
+            } else if (ConfigParameters.PROCESSING_EXTERNAL_SAME_AS_RESOLUTION.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
+                config.setExternalSameAsResolution(Boolean.parseBoolean(param.getValue()));
+            } else if (ConfigParameters.PROCESSING_THREAD_COUNT.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
+                long value = convertToLong(param.getValue(), "Value of " + ConfigParameters.PROCESSING_THREAD_COUNT + " is not a valid number");
+                if (value < 1 || value > Integer.MAX_VALUE) {
+                    throw new InvalidInputException("Value of " + ConfigParameters.PROCESSING_THREAD_COUNT + " must be a positive number");
+                }
+                config.setThreadCount((int) value);
+            } else if (ConfigParameters.PROCESSING_ORDERED_OUTPUT.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
+                config.setOrderedOutput(Boolean.parseBoolean(param.getValue()));
+            } else if (ConfigParameters.PROCESSING_PIPELINE_BUFFER_SIZE.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
+                long value = convertToLong(param.getValue(), "Value of " + ConfigParameters.PROCESSING_PIPELINE_BUFFER_SIZE + " is not a valid number");
+                if (value < 0 || value > Integer.MAX_VALUE) {
+                    throw new InvalidInputException("Value of " + ConfigParameters.PROCESSING_PIPELINE_BUFFER_SIZE + " must be a non-negative number");
+                }
+                config.setPipelineBufferSize((int) value);
+            } else if (ConfigParameters.PROCESSING_PARALLEL_RESOLUTION_THRESHOLD.equalsIgnoreCase(param.getName()) && !ODCSUtils.isNullOrEmpty(param.getValue())) {
+                long value = convertToLong(param.getValue(), "Value of " + ConfigParameters.PROCESSING_PARALLEL_RESOLUTION_THRESHOLD + " is not a valid number");
+                if (value < 0 || value > Integer.MAX_VALUE) {
+                    throw new InvalidInputException("Value of " + ConfigParameters.PROCESSING_PARALLEL_RESOLUTION_THRESHOLD + " must be a non-negative number");
+                }
+                config.setParallelResolutionThreshold((int) value);
             } else if (ConfigParameters.PROCESSING_ONLY_RESOURCES_WITH_CLASS.equalsIgnoreCase(param.getName())) {
                 if (!ODCSUtils.isNullOrEmpty(param.getValue())) {
                     URI classUri = prefixExpander.convertToUriWithExpansion(param.getValue());
@@ -50,9 +50,10 @@ public final class LDFTConfigConstants {
     public static final String DEFAULT_RESULT_DATA_URI_PREFIX = ODCS.NAMESPACE + "fusiontool/";
 
     /**
-     * Maximum number of values in a generated argument for the "?var IN (...)" SPARQL construct .
+     * Default maximum number of URIs in a single query for owl:sameAs alternatives of a resource.
+     * The actual number may be lowered automatically if the SPARQL endpoint rejects the query.
      */
-    public static final int MAX_QUERY_LIST_LENGTH = 25;
+    public static final int DEFAULT_MAX_QUERY_LIST_LENGTH = 100;
 
     /**
      * Coefficient used in quality computation formula. Value N means that (N+1)
@@ -105,6 +106,64 @@ public final class LDFTConfigConstants {
      */
     public static final int DEFAULT_SPARQL_RESULT_MAX_ROWS = 10_000;
 
+    /**
+     * Default number of rows requested in the first page of results when all triples are loaded from a SPARQL
+     * endpoint; the page size is adapted to the observed latency afterwards.
+     */
+    public static final int DEFAULT_SPARQL_INITIAL_PAGE_SIZE = 1_000;
+
+    /**
+     * Minimum number of rows requested in a single page of results when the page size is adapted.
+     */
+    public static final int MIN_SPARQL_PAGE_SIZE = 100;
+
+    /**
+     * Default target time to load a single page of results in milliseconds.
+     */
+    public static final long DEFAULT_SPARQL_TARGET_PAGE_LATENCY = 10_000;
+
+    /**
+     * Default format of SPARQL SELECT query results requested from SPARQL endpoints.
+     * Endpoints which do not support the format fall back to another format by content negotiation.
+     */
+    public static final String DEFAULT_SPARQL_RESULT_FORMAT = "binary";
+
+    /**
+     * Default time to live of cached SPARQL responses in seconds (one week).
+     */
+    public static final long DEFAULT_SPARQL_RESPONSE_CACHE_TTL = 7 * 24 * TIME_UNIT_60 * TIME_UNIT_60;
+
+    /**
+     * Default maximum size of SPARQL response cache in megabytes.
+     */
+    public static final long DEFAULT_SPARQL_RESPONSE_CACHE_MAX_SIZE_MB = 1024;
+
+    /**
+     * Default number of threads used for parallelizable processing.
+     * Multi-threading is opt-in because names of graphs resolved by multiple threads are not reproducible.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 1;
+
+    /**
+     * Default value for whether the output of conflict resolution running in multiple threads keeps the order of input.
+     */
+    public static final boolean DEFAULT_ORDERED_OUTPUT = true;
+
+    /**
+     * Default maximum number of statements buffered between stages of pipelined conflict resolution.
+     */
+    public static final int DEFAULT_PIPELINE_BUFFER_SIZE = 100_000;
+
+    /**
+     * Default minimum number of statements in a resource description for its conflict clusters to be resolved in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_RESOLUTION_THRESHOLD = 10_000;
+
+    /**
+     * Approximate size in bytes of chunks of large line-based sameAs link files loaded in parallel.
+     */
+    public static final long SAME_AS_FILE_CHUNK_SIZE = 64L * 1024 * 1024;
+
     /**
      * Max portion of free memory to use.
      */
@@ -138,6 +197,22 @@ public final class LDFTConfigConstants {
      */
     public static final int REPOSITORY_RETRY_ATTEMPTS = 3 * TIME_UNIT_60_INT * TIME_UNIT_60_INT * (int) ODCSUtils.MILLISECONDS / REPOSITORY_RETRY_INTERVAL;
 
+    /**
+     * Default delay in milliseconds after the first failure of a query when loading all triples;
+     * the delay grows exponentially with further consecutive failures.
+     */
+    public static final long DEFAULT_RETRY_INITIAL_INTERVAL = 1_000;
+
+    /**
+     * Maximum delay between two consecutive attempts of a failed query in milliseconds.
+     */
+    public static final long MAX_RETRY_INTERVAL = 5 * TIME_UNIT_60 * ODCSUtils.MILLISECONDS;
+
+    /**
+     * Default maximum total delay in milliseconds spent retrying a failed query (3 hours).
+     */
+    public static final long DEFAULT_RETRY_MAX_TIME = (long) REPOSITORY_RETRY_ATTEMPTS * REPOSITORY_RETRY_INTERVAL;
+
     static {
         DEFAULT_FILE_PARSER_CONFIG = new ParserConfig();
         DEFAULT_FILE_PARSER_CONFIG.set(BasicParserSettings.FAIL_ON_UNKNOWN_DATATYPES, false);
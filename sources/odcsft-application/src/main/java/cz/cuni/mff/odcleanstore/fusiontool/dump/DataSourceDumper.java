@@ -0,0 +1,333 @@
+package cz.cuni.mff.odcleanstore.fusiontool.dump;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.data.AllTriplesRepositoryLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.data.PageOverlapCheck;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.util.OutputParamReader;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dumps all quads of a data source to an N-Quads file.
+ * Quads are loaded in pages of {@code sparqlResultMaxRows} quads by parallel workers, each of which serializes
+ * its page; pages are appended to the output in the order of completion and recorded in a {@link DumpJournal}
+ * so that an interrupted dump can be resumed exactly where it stopped.
+ * With compression enabled, each page is written as a separate gzip member, which keeps the output
+ * a valid gzip file that can be truncated after any page.
+ * Unless ordered paging is enabled for the data source, the dump fails when pages loaded in the same run
+ * are detected to overlap (see {@link PageOverlapCheck}).
+ * @author Jan Michelfeit
+ */
+public class DataSourceDumper {
+    private static final Logger LOG = LoggerFactory.getLogger(DataSourceDumper.class);
+
+    /** Suffix of the journal file appended to the output file name. */
+    public static final String JOURNAL_FILE_SUFFIX = ".journal";
+
+    /** Interval between throughput reports in milliseconds. */
+    private static final long REPORT_INTERVAL = 10_000;
+
+    private final DataSource dataSource;
+    private final int threadCount;
+    private final boolean compress;
+    private final long splitSize;
+    private final int pageSize;
+    private final PageOverlapCheck pageOverlapCheck = new PageOverlapCheck();
+
+    /**
+     * Creates a new instance.
+     * @param dataSource data source to dump
+     * @param threadCount number of pages loaded in parallel
+     * @param compress whether output should be gzip compressed
+     * @param splitSize maximum size of an output file in bytes; zero or negative means output is not split
+     */
+    public DataSourceDumper(DataSource dataSource, int threadCount, boolean compress, long splitSize) {
+        Preconditions.checkArgument(threadCount > 0);
+        this.dataSource = dataSource;
+        this.threadCount = threadCount;
+        this.compress = compress;
+        this.splitSize = splitSize;
+        this.pageSize = new OutputParamReader(dataSource).getIntValue(
+                ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS,
+                LDFTConfigConstants.DEFAULT_SPARQL_RESULT_MAX_ROWS);
+    }
+
+    /**
+     * Dumps all quads of the data source to the given file, resuming a previous interrupted dump to the same file.
+     * @param outputFile output file
+     * @throws LDFusionToolException error loading quads or writing output
+     */
+    public void dump(File outputFile) throws LDFusionToolException {
+        File journalFile = new File(outputFile.getPath() + JOURNAL_FILE_SUFFIX);
+        try (DumpJournal journal = new DumpJournal(journalFile, pageSize);
+             DumpFileWriter writer = new DumpFileWriter(outputFile, splitSize)) {
+            if (journal.isFinished()) {
+                LOG.info("Dump of source {} to {} is already complete", dataSource, outputFile);
+                return;
+            }
+            if (journal.getLastPart() >= 0) {
+                writer.resume(journal.getLastPart(), journal.getLastPartLength());
+                LOG.info("Resuming dump of source {} to {} with {} pages already completed",
+                        new Object[]{dataSource, outputFile, journal.getCompletedPages().size()});
+            } else {
+                writer.start();
+            }
+            dumpPages(journal, writer);
+            journal.dumpFinished();
+        } catch (IOException e) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.DUMP_OUTPUT,
+                    "Error writing dump of source " + dataSource + " to " + outputFile, e);
+        }
+    }
+
+    private void dumpPages(DumpJournal journal, DumpFileWriter writer) throws LDFusionToolException, IOException {
+        SortedMap<Long, Integer> completedPages = new TreeMap<>(journal.getCompletedPages());
+        TruncationCheck truncationCheck = new TruncationCheck();
+        long endOffset = Long.MAX_VALUE;
+        for (Map.Entry<Long, Integer> page : completedPages.entrySet()) {
+            truncationCheck.pageCompleted(page.getKey(), page.getValue());
+            endOffset = Math.min(endOffset, getEndOffset(page.getKey(), page.getValue()));
+        }
+
+        ThroughputReport report = new ThroughputReport(completedPages);
+        // daemon threads so that a failed dump doesn't prevent the application from exiting
+        String threadNameFormat = "dump-" + dataSource.getName().replace("%", "%%") + "-%d";
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadNameFormat).build());
+        try {
+            CompletionService<DumpPage> completionService = new ExecutorCompletionService<>(executor);
+            long nextOffset = 0;
+            int pagesInProgress = 0;
+            while (true) {
+                // keep a few pages ready so that workers don't wait for the writer
+                while (pagesInProgress < 2 * threadCount && nextOffset < endOffset) {
+                    if (!completedPages.containsKey(nextOffset)) {
+                        completionService.submit(new DumpPageTask(nextOffset));
+                        pagesInProgress++;
+                    }
+                    nextOffset += pageSize;
+                }
+                if (pagesInProgress == 0) {
+                    break;
+                }
+
+                DumpPage page = takeCompletedPage(completionService);
+                pagesInProgress--;
+                truncationCheck.pageCompleted(page.offset, page.quadCount);
+                writer.write(page.data);
+                journal.pageCompleted(page.offset, page.quadCount, writer.getCurrentPart(), writer.getCurrentLength());
+                completedPages.put(page.offset, page.quadCount);
+                endOffset = Math.min(endOffset, getEndOffset(page.offset, page.quadCount));
+                report.pageWritten(page);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        report.logSummary();
+    }
+
+    private DumpPage takeCompletedPage(CompletionService<DumpPage> completionService) throws LDFusionToolException {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.DUMP_INCOMPLETE,
+                    "Dump of source " + dataSource + " was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LDFusionToolException) {
+                throw (LDFusionToolException) e.getCause();
+            }
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.DUMP_INCOMPLETE,
+                    "Error loading quads from source " + dataSource, e.getCause());
+        }
+    }
+
+    /**
+     * Returns the offset after which no more pages need to be loaded given a completed page.
+     * An empty page marks the end of data; after a short page, one more page is loaded to verify that
+     * the short page is the last one and not a result truncated by the endpoint (see {@link TruncationCheck}).
+     */
+    private long getEndOffset(long pageOffset, int quadCount) {
+        if (quadCount == 0) {
+            return pageOffset;
+        } else if (quadCount < pageSize) {
+            return pageOffset + pageSize + 1;
+        } else {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Loads a single page of quads from the data source.
+     * @param offset offset of the first quad of the page
+     * @param limit maximum number of quads in the page
+     * @param rdfHandler handler to which quads in the page are passed
+     * @return number of quads in the page
+     * @throws LDFusionToolException error loading quads
+     */
+    protected int loadPage(long offset, int limit, RDFHandler rdfHandler) throws LDFusionToolException {
+        AllTriplesRepositoryLoader loader = new AllTriplesRepositoryLoader(dataSource);
+        try {
+            loader.setPageOverlapCheck(pageOverlapCheck);
+            return loader.loadPage(offset, limit, rdfHandler);
+        } finally {
+            loader.close();
+        }
+    }
+
+    /**
+     * Loads a page of quads and serializes them as they are streamed from the data source.
+     */
+    private DumpPage loadAndSerializePage(long offset) throws LDFusionToolException, IOException, RDFHandlerException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream outputStream = bytes;
+        if (compress) {
+            outputStream = new GZIPOutputStream(outputStream) {
+                {
+                    this.def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        int quadCount;
+        try (Writer writer = new OutputStreamWriter(outputStream, Charsets.UTF_8)) {
+            RDFWriter rdfWriter = Rio.createWriter(RDFFormat.NQUADS, writer);
+            rdfWriter.startRDF();
+            quadCount = loadPage(offset, pageSize, rdfWriter);
+            rdfWriter.endRDF();
+        }
+        // an empty page is not written at all (not even as an empty gzip member)
+        return new DumpPage(offset, quadCount, quadCount > 0 ? bytes.toByteArray() : new byte[0]);
+    }
+
+    /**
+     * A loaded and serialized page of quads.
+     */
+    private static class DumpPage {
+        private final long offset;
+        private final int quadCount;
+        private final byte[] data;
+
+        public DumpPage(long offset, int quadCount, byte[] data) {
+            this.offset = offset;
+            this.quadCount = quadCount;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Task loading and serializing a single page of quads.
+     */
+    private class DumpPageTask implements Callable<DumpPage> {
+        private final long offset;
+
+        public DumpPageTask(long offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public DumpPage call() throws Exception {
+            return loadAndSerializePage(offset);
+        }
+    }
+
+    /**
+     * Checks as pages complete that no page except for the last non-empty one is incomplete.
+     * An incomplete page followed by more quads means the endpoint returns fewer rows than requested
+     * and quads in the rest of the page have been skipped; the dump fails as soon as this is detected.
+     */
+    private class TruncationCheck {
+        private long firstIncompleteOffset = Long.MAX_VALUE;
+        private int firstIncompleteQuadCount;
+        private long lastNonEmptyOffset = -1;
+
+        public void pageCompleted(long offset, int quadCount) throws LDFusionToolException {
+            if (quadCount < pageSize && offset < firstIncompleteOffset) {
+                firstIncompleteOffset = offset;
+                firstIncompleteQuadCount = quadCount;
+            }
+            if (quadCount > 0) {
+                lastNonEmptyOffset = Math.max(lastNonEmptyOffset, offset);
+            }
+            if (firstIncompleteOffset < lastNonEmptyOffset) {
+                throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.DUMP_INCOMPLETE, String.format(
+                        "Source %s returned only %d rows for a page of %d quads at offset %d, the dump is incomplete."
+                                + " Delete the dump and set parameter %s to a value of at most %d.",
+                        dataSource, firstIncompleteQuadCount, pageSize, firstIncompleteOffset,
+                        ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, Math.max(1, firstIncompleteQuadCount)));
+            }
+        }
+    }
+
+    /**
+     * Periodically logs the progress and throughput of the dump.
+     */
+    private class ThroughputReport {
+        private final long startTime = System.currentTimeMillis();
+        private long lastReportTime = startTime;
+        private long totalQuads;
+        private long quads = 0;
+        private long bytes = 0;
+        private int pages = 0;
+
+        public ThroughputReport(SortedMap<Long, Integer> resumedPages) {
+            for (int quadCount : resumedPages.values()) {
+                totalQuads += quadCount;
+            }
+        }
+
+        public void pageWritten(DumpPage page) {
+            totalQuads += page.quadCount;
+            quads += page.quadCount;
+            bytes += page.data.length;
+            pages++;
+            long now = System.currentTimeMillis();
+            if (now - lastReportTime >= REPORT_INTERVAL) {
+                lastReportTime = now;
+                LOG.info(format("Dumped"));
+            }
+        }
+
+        public void logSummary() {
+            LOG.info(format("Finished dump,"));
+        }
+
+        private String format(String prefix) {
+            long time = Math.max(1, System.currentTimeMillis() - startTime);
+            return String.format("%s %,d quads in total from source %s; %,d quads in %,d pages in %s (%,.0f quads/s, %.2f MB/s)",
+                    prefix, totalQuads, dataSource, quads, pages, LDFusionToolUtils.formatTime(time),
+                    quads * 1000d / time, bytes * 1000d / LDFusionToolUtils.MB_BYTES / time);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package cz.cuni.mff.odcleanstore.fusiontool.dump;
+
+import cz.cuni.mff.odcleanstore.fusiontool.io.SplitFileNameGenerator;
+import cz.cuni.mff.odcleanstore.fusiontool.util.Closeable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Appends blocks of serialized data to the output file of a dump, optionally split to parts of a limited size.
+ * A block is never split across parts. Parts are numbered from 0 if the output is not split
+ * (the only part is the base file itself) and from 1 otherwise (a suffix is appended to the base file name
+ * as with {@link SplitFileNameGenerator}).
+ * @author Jan Michelfeit
+ */
+public class DumpFileWriter implements Closeable<IOException> {
+    private final File baseFile;
+    private final long splitSize;
+    private final SplitFileNameGenerator fileNameGenerator;
+    private RandomAccessFile currentFile;
+    private int currentPart;
+    private long currentLength;
+
+    /**
+     * Creates a new instance; no file is opened until the first block is written.
+     * @param baseFile output file
+     * @param splitSize maximum size of an output part in bytes; zero or negative means output is not split
+     */
+    public DumpFileWriter(File baseFile, long splitSize) {
+        this.baseFile = baseFile;
+        this.splitSize = splitSize;
+        this.fileNameGenerator = new SplitFileNameGenerator(baseFile);
+        this.currentPart = isSplit() ? 0 : -1;
+    }
+
+    /**
+     * Starts writing from the beginning of the first part; existing output files are discarded.
+     * @throws IOException I/O error
+     */
+    public void start() throws IOException {
+        resume(isSplit() ? 1 : 0, 0);
+    }
+
+    /**
+     * Continues writing to the given part at the given position; anything written after that position is discarded.
+     * @param part index of the part
+     * @param length length of the part to keep
+     * @throws IOException I/O error
+     */
+    public void resume(int part, long length) throws IOException {
+        closeCurrentFile();
+        openPart(part, length);
+        for (int i = part + 1; isSplit() && getPartFile(i).exists(); i++) {
+            if (!getPartFile(i).delete()) {
+                throw new IOException("Cannot delete incomplete dump file " + getPartFile(i).getPath());
+            }
+        }
+    }
+
+    /**
+     * Appends a block of data to the output; a new part is started if the block doesn't fit into the current part.
+     * @param data block of data
+     * @throws IOException I/O error
+     */
+    public void write(byte[] data) throws IOException {
+        if (data.length == 0) {
+            return;
+        }
+        if (currentFile == null) {
+            openPart(currentPart + 1, 0);
+        } else if (isSplit() && currentLength > 0 && currentLength + data.length > splitSize) {
+            closeCurrentFile();
+            openPart(currentPart + 1, 0);
+        }
+        currentFile.write(data);
+        currentLength += data.length;
+    }
+
+    /**
+     * Returns the index of the part written to.
+     * @return part index
+     */
+    public int getCurrentPart() {
+        return currentPart;
+    }
+
+    /**
+     * Returns the length of the part written to.
+     * @return length in bytes
+     */
+    public long getCurrentLength() {
+        return currentLength;
+    }
+
+    /**
+     * Returns the file of the given part.
+     * @param part index of the part
+     * @return file of the part
+     */
+    public File getPartFile(int part) {
+        return isSplit() ? fileNameGenerator.getFile(part) : baseFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrentFile();
+    }
+
+    private boolean isSplit() {
+        return splitSize > 0;
+    }
+
+    private void openPart(int part, long length) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(getPartFile(part), "rw");
+        try {
+            file.setLength(length);
+            file.seek(length);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        currentFile = file;
+        currentPart = part;
+        currentLength = length;
+    }
+
+    private void closeCurrentFile() throws IOException {
+        if (currentFile != null) {
+            try {
+                currentFile.close();
+            } finally {
+                currentFile = null;
+            }
+        }
+    }
+}
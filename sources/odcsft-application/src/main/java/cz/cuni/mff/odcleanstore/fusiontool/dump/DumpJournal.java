@@ -0,0 +1,161 @@
+package cz.cuni.mff.odcleanstore.fusiontool.dump;
+
+import com.google.common.base.Charsets;
+import cz.cuni.mff.odcleanstore.fusiontool.util.Closeable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Checkpoint journal of a dump of a data source.
+ * The journal records each page of quads after the page has been appended to the dump output, together with
+ * the position in the output after the page. A dump interrupted at any point can therefore be resumed by
+ * truncating the output to the last recorded position and loading only the pages missing in the journal.
+ * The journal is a text file with one record per line; an incomplete last line left by a crash is ignored.
+ * @author Jan Michelfeit
+ */
+public class DumpJournal implements Closeable<IOException> {
+    private static final String PAGE_SIZE_RECORD = "pageSize";
+    private static final String PAGE_RECORD = "page";
+    private static final String FINISHED_RECORD = "finished";
+    private static final String SEPARATOR = " ";
+
+    private final RandomAccessFile file;
+    private final SortedMap<Long, Integer> completedPages = new TreeMap<>();
+    private int lastPart = -1;
+    private long lastPartLength = 0;
+    private boolean finished = false;
+
+    /**
+     * Opens an existing journal or creates a new one.
+     * @param journalFile journal file
+     * @param pageSize size of pages of the dump; must match the page size of an existing journal
+     * @throws IOException I/O error or the existing journal was created with a different page size
+     */
+    public DumpJournal(File journalFile, int pageSize) throws IOException {
+        this.file = new RandomAccessFile(journalFile, "rw");
+        try {
+            readRecords(pageSize);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns pages recorded in the journal.
+     * @return map of page offset to the number of quads in the page
+     */
+    public SortedMap<Long, Integer> getCompletedPages() {
+        return Collections.unmodifiableSortedMap(completedPages);
+    }
+
+    /**
+     * Returns the index of the output part to which the last recorded page was written.
+     * @return part index or -1 if no page has been recorded
+     */
+    public int getLastPart() {
+        return lastPart;
+    }
+
+    /**
+     * Returns the length of the output part to which the last recorded page was written after the page.
+     * @return length of the part in bytes
+     */
+    public long getLastPartLength() {
+        return lastPartLength;
+    }
+
+    /**
+     * Indicates whether the dump has been completed.
+     * @return true if the dump has been completed
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Records a page written to the output.
+     * @param offset offset of the page
+     * @param quadCount number of quads in the page
+     * @param part index of the output part to which the page was written
+     * @param partLength length of the output part after the page
+     * @throws IOException I/O error
+     */
+    public void pageCompleted(long offset, int quadCount, int part, long partLength) throws IOException {
+        writeRecord(PAGE_RECORD, offset, quadCount, part, partLength);
+        completedPages.put(offset, quadCount);
+        lastPart = part;
+        lastPartLength = partLength;
+    }
+
+    /**
+     * Records that all pages have been written to the output.
+     * @throws IOException I/O error
+     */
+    public void dumpFinished() throws IOException {
+        writeRecord(FINISHED_RECORD);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void readRecords(int pageSize) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        file.readFully(content);
+        int completeLength = content.length;
+        while (completeLength > 0 && content[completeLength - 1] != '\n') {
+            completeLength--;
+        }
+        file.setLength(completeLength);
+        file.seek(completeLength);
+
+        String text = new String(content, 0, completeLength, Charsets.UTF_8);
+        if (text.isEmpty()) {
+            writeRecord(PAGE_SIZE_RECORD, pageSize);
+            return;
+        }
+        for (String line : text.split("\n")) {
+            String[] fields = line.split(SEPARATOR);
+            try {
+                switch (fields[0]) {
+                    case PAGE_SIZE_RECORD:
+                        int journalPageSize = Integer.parseInt(fields[1]);
+                        if (journalPageSize != pageSize) {
+                            throw new IOException("The dump was started with page size " + journalPageSize
+                                    + ", cannot resume it with page size " + pageSize);
+                        }
+                        break;
+                    case PAGE_RECORD:
+                        completedPages.put(Long.parseLong(fields[1]), Integer.parseInt(fields[2]));
+                        lastPart = Integer.parseInt(fields[3]);
+                        lastPartLength = Long.parseLong(fields[4]);
+                        break;
+                    case FINISHED_RECORD:
+                        finished = true;
+                        break;
+                    default:
+                        throw new IOException("Invalid record in dump journal: " + line);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Invalid record in dump journal: " + line, e);
+            }
+        }
+    }
+
+    private void writeRecord(String type, Object... fields) throws IOException {
+        StringBuilder record = new StringBuilder(type);
+        for (Object field : fields) {
+            record.append(SEPARATOR).append(field);
+        }
+        record.append('\n');
+        file.write(record.toString().getBytes(Charsets.UTF_8));
+    }
+}
@@ -14,6 +14,11 @@ public final class LDFusionToolErrorCodes {
 
 
     // CHECKSTYLE:OFF
+    public static final int PARALLEL_FUSION_INTERRUPTED = 46;
+    public static final int PARALLEL_FUSION_THREAD = 45;
+    public static final int DUMP_INCOMPLETE = 44;
+    public static final int DUMP_OUTPUT = 43;
+    public static final int SEED_SUBJECTS_SPOOL = 42;
     public static final int INPUT_LOADER_MERGE = 41;
     public static final int SAME_AS_LOAD = 40;
     public static final int INVALID_TMP_FILE_FORMAT_TUPLE = 39;
@@ -0,0 +1,137 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingSet;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set which keeps a Bloom filter in front of the underlying set so that most lookups of
+ * elements not contained in the set are answered without accessing the (possibly disk-backed) underlying set.
+ * The filter grows as needed: when the expected number of insertions of the current filter is exceeded,
+ * a new filter of twice the size and with a lower false positive probability is added.
+ * Elements are distinguished in the filter by their {@code toString()} value.
+ * @param <T> type of elements
+ * @author Jan Michelfeit
+ */
+public class BloomFilteredSet<T> extends ForwardingSet<T> {
+    /** Default expected number of insertions of the initial filter. */
+    public static final int DEFAULT_INITIAL_CAPACITY = 1 << 20;
+
+    /** False positive probability of the initial filter. */
+    private static final double INITIAL_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    /** Ratio of false positive probabilities of successive filters; keeps the total probability bounded. */
+    private static final double FALSE_POSITIVE_TIGHTENING_RATIO = 0.5;
+
+    private final Set<T> delegate;
+    private final List<BloomFilter<Object>> filters = new ArrayList<>();
+    private int currentFilterCapacity;
+    private double currentFalsePositiveProbability;
+    private int currentFilterInsertions;
+
+    /**
+     * Creates a new instance with the default initial capacity.
+     * @param delegate the underlying set
+     */
+    public BloomFilteredSet(Set<T> delegate) {
+        this(delegate, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new instance.
+     * The underlying set must be empty or all its elements must be added through this instance.
+     * @param delegate the underlying set
+     * @param initialCapacity expected number of insertions of the initial filter
+     */
+    public BloomFilteredSet(Set<T> delegate, int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity > 0);
+        this.delegate = delegate;
+        this.currentFilterCapacity = initialCapacity;
+        this.currentFalsePositiveProbability = INITIAL_FALSE_POSITIVE_PROBABILITY;
+        filters.add(createFilter());
+        for (T element : delegate) {
+            putToFilter(element);
+        }
+    }
+
+    @Override
+    protected Set<T> delegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return mightContain(object) && delegate.contains(object);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> collection) {
+        return standardContainsAll(collection);
+    }
+
+    @Override
+    public boolean add(T element) {
+        if (mightContain(element) && delegate.contains(element)) {
+            return false;
+        }
+        putToFilter(element);
+        return delegate.add(element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        return standardAddAll(collection);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        filters.clear();
+        currentFilterInsertions = 0;
+        filters.add(createFilter());
+    }
+
+    private boolean mightContain(Object object) {
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            if (filters.get(i).mightContain(object)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void putToFilter(Object element) {
+        if (currentFilterInsertions >= currentFilterCapacity) {
+            currentFilterCapacity = currentFilterCapacity <= Integer.MAX_VALUE / 2 ? currentFilterCapacity * 2 : Integer.MAX_VALUE;
+            currentFalsePositiveProbability *= FALSE_POSITIVE_TIGHTENING_RATIO;
+            currentFilterInsertions = 0;
+            filters.add(createFilter());
+        }
+        filters.get(filters.size() - 1).put(element);
+        currentFilterInsertions++;
+    }
+
+    private BloomFilter<Object> createFilter() {
+        return BloomFilter.create(ToStringFunnel.INSTANCE, currentFilterCapacity, currentFalsePositiveProbability);
+    }
+
+    /**
+     * Funnel using the string value of objects.
+     */
+    private enum ToStringFunnel implements Funnel<Object> {
+        INSTANCE;
+
+        @Override
+        public void funnel(Object from, PrimitiveSink into) {
+            into.putString(String.valueOf(from), Charsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Preconditions;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.Dataset;
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQuery;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.TupleQueryResultHandler;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.base.RepositoryConnectionWrapper;
+import org.openrdf.repository.base.RepositoryWrapper;
+
+/**
+ * Repository wrapper which answers SPARQL SELECT queries from a persistent {@link SparqlResponseCache}
+ * when possible and stores responses of other SELECT queries to the cache.
+ * Queries with bindings or dataset set explicitly are always passed to the underlying repository.
+ * @author Jan Michelfeit
+ */
+public class CachingRepository extends RepositoryWrapper {
+    private final SparqlResponseCache cache;
+    private final String endpointId;
+
+    /**
+     * Creates a new instance.
+     * @param delegate wrapped repository
+     * @param cache cache for query responses
+     * @param endpointId identifier of the wrapped repository used as part of the cache key (e.g. endpoint URL)
+     */
+    public CachingRepository(Repository delegate, SparqlResponseCache cache, String endpointId) {
+        super(delegate);
+        Preconditions.checkNotNull(cache);
+        Preconditions.checkNotNull(endpointId);
+        this.cache = cache;
+        this.endpointId = endpointId;
+    }
+
+    @Override
+    public RepositoryConnection getConnection() throws RepositoryException {
+        return new CachingRepositoryConnection(this, getDelegate().getConnection());
+    }
+
+    /**
+     * Connection returning {@link CachingTupleQuery caching queries}.
+     */
+    private class CachingRepositoryConnection extends RepositoryConnectionWrapper {
+        public CachingRepositoryConnection(Repository repository, RepositoryConnection delegate) {
+            super(repository, delegate);
+        }
+
+        @Override
+        public TupleQuery prepareTupleQuery(QueryLanguage ql, String query, String baseURI)
+                throws MalformedQueryException, RepositoryException {
+            TupleQuery delegateQuery = getDelegate().prepareTupleQuery(ql, query, baseURI);
+            String key = cache.createKey(endpointId, baseURI == null ? query : baseURI + '\n' + query);
+            return new CachingTupleQuery(delegateQuery, key);
+        }
+    }
+
+    /**
+     * Tuple query evaluated from cache if possible.
+     */
+    private class CachingTupleQuery implements TupleQuery {
+        private final TupleQuery delegate;
+        private final String cacheKey;
+
+        public CachingTupleQuery(TupleQuery delegate, String cacheKey) {
+            this.delegate = delegate;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public TupleQueryResult evaluate() throws QueryEvaluationException {
+            if (delegate.getBindings().size() > 0 || delegate.getDataset() != null) {
+                return delegate.evaluate();
+            }
+            TupleQueryResult cachedResult = cache.getCachedResult(cacheKey);
+            if (cachedResult != null) {
+                return cachedResult;
+            }
+            return cache.cacheResult(cacheKey, delegate.evaluate());
+        }
+
+        @Override
+        public void evaluate(TupleQueryResultHandler handler) throws QueryEvaluationException, TupleQueryResultHandlerException {
+            TupleQueryResult result = evaluate();
+            try {
+                handler.startQueryResult(result.getBindingNames());
+                while (result.hasNext()) {
+                    handler.handleSolution(result.next());
+                }
+                handler.endQueryResult();
+            } finally {
+                result.close();
+            }
+        }
+
+        @Override
+        public void setMaxQueryTime(int maxQueryTime) {
+            delegate.setMaxQueryTime(maxQueryTime);
+        }
+
+        @Override
+        public int getMaxQueryTime() {
+            return delegate.getMaxQueryTime();
+        }
+
+        @Override
+        public void setBinding(String name, Value value) {
+            delegate.setBinding(name, value);
+        }
+
+        @Override
+        public void removeBinding(String name) {
+            delegate.removeBinding(name);
+        }
+
+        @Override
+        public void clearBindings() {
+            delegate.clearBindings();
+        }
+
+        @Override
+        public BindingSet getBindings() {
+            return delegate.getBindings();
+        }
+
+        @Override
+        public void setDataset(Dataset dataset) {
+            delegate.setDataset(dataset);
+        }
+
+        @Override
+        public Dataset getDataset() {
+            return delegate.getDataset();
+        }
+
+        @Override
+        public void setIncludeInferred(boolean includeInferred) {
+            delegate.setIncludeInferred(includeInferred);
+        }
+
+        @Override
+        public boolean getIncludeInferred() {
+            return delegate.getIncludeInferred();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cz.cuni.mff.odcleanstore.fusiontool.io;
 
+import com.google.common.base.Charsets;
 import cz.cuni.mff.odcleanstore.fusiontool.io.externalsort.ExternalSort;
 import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
 import org.slf4j.Logger;
@@ -26,7 +27,8 @@ public class ExternalSorter {
      */
     private static final int MAX_SORT_TMP_FILES = 2048;
 
-    private static final Charset CHARSET = Charset.defaultCharset();
+    /** Charset of temporary files; must be able to encode any line, regardless of the platform default charset. */
+    private static final Charset CHARSET = Charsets.UTF_8;
 
     private final Comparator<String> lineComparator;
     private final File cacheDirectory;
@@ -58,7 +60,7 @@ public class ExternalSorter {
         ExternalSort.mergeSortedFiles(sortFiles,
                 outputWriter,
                 lineComparator,
-                Charset.defaultCharset(),
+                CHARSET,
                 true, // distinct
                 useGZip);
     }
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.Set;
 
 import cz.cuni.mff.odcleanstore.fusiontool.util.Closeable;
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
 
 /**
  * Factory interface for potentially large collections. 
@@ -16,5 +17,12 @@ public interface LargeCollectionFactory extends Closeable<IOException> {
      * @return a new Set
      */
     <T> Set<T> createSet();
+
+    /**
+     * Creates a new FIFO queue of URIs which ignores URIs that have already been added to it.
+     * @return a new queue of URIs
+     * @throws IOException error creating the queue
+     */
+    UriCollection createUriQueue() throws IOException;
 }
 
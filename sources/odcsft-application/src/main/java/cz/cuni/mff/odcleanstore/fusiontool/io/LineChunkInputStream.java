@@ -0,0 +1,110 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream reading whole lines of a file that start in the given byte range.
+ * Consecutive ranges of a file therefore split it into chunks of complete lines which
+ * can be parsed independently (e.g. N-Triples or N-Quads files).
+ */
+public class LineChunkInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream inputStream;
+    private final long end;
+    private long position;
+    private boolean isAtLineStart;
+
+    /**
+     * Creates a new instance.
+     * @param file file to read
+     * @param start position of the first byte of the range
+     * @param end position after the last byte of the range
+     * @throws IOException I/O error
+     */
+    public LineChunkInputStream(File file, long start, long end) throws IOException {
+        Preconditions.checkArgument(0 <= start && start <= end);
+        this.end = end;
+        FileInputStream fileInputStream = new FileInputStream(file);
+        try {
+            this.position = Math.max(0, start - 1);
+            fileInputStream.getChannel().position(position);
+        } catch (IOException e) {
+            fileInputStream.close();
+            throw e;
+        }
+        this.inputStream = new BufferedInputStream(fileInputStream, BUFFER_SIZE);
+        if (start == 0) {
+            isAtLineStart = true;
+        } else {
+            // skip the rest of a line started in the previous range
+            int b;
+            do {
+                b = inputStream.read();
+                position++;
+            } while (b >= 0 && b != '\n');
+            isAtLineStart = b >= 0;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (isAtLineStart && position >= end) {
+            return -1;
+        }
+        int b = inputStream.read();
+        if (b < 0) {
+            isAtLineStart = true;
+            position = Long.MAX_VALUE;
+            return -1;
+        }
+        position++;
+        isAtLineStart = b == '\n';
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        Preconditions.checkPositionIndexes(offset, offset + length, buffer.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (position < end) {
+            int count = inputStream.read(buffer, offset, (int) Math.min(length, end - position));
+            if (count < 0) {
+                isAtLineStart = true;
+                position = Long.MAX_VALUE;
+                return -1;
+            }
+            position += count;
+            isAtLineStart = buffer[offset + count - 1] == '\n';
+            return count;
+        }
+
+        // finish the last line started in the range
+        int count = 0;
+        while (count < length) {
+            int b = read();
+            if (b < 0) {
+                break;
+            }
+            buffer[offset + count] = (byte) b;
+            count++;
+            if (isAtLineStart) {
+                break;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
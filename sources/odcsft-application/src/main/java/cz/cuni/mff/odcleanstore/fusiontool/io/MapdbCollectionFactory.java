@@ -4,6 +4,7 @@
 package cz.cuni.mff.odcleanstore.fusiontool.io;
 
 import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 
@@ -14,7 +15,7 @@ import java.util.UUID;
 
 /**
  * Helper factory class for collections which may not fit into memory and need to be backed by a file.
- * Current implementation uses MapDB (http://www.mapdb.org).
+ * Current implementation uses MapDB (http://www.mapdb.org) for sets and {@link MappedFileUriQueue} for queues.
  * Note that calling size() on produced collections may not have constant time complexity!
  * @author Jan Michelfeit
  */
@@ -23,6 +24,7 @@ public class MapdbCollectionFactory implements LargeCollectionFactory {
 
     private static final String TEMP_FILE_PREFIX = "odcs-ft.db.";
 
+    private final File workingDirectory;
     private final File dbFile;
     private DB db;
     private boolean isClosed = false;
@@ -33,12 +35,18 @@ public class MapdbCollectionFactory implements LargeCollectionFactory {
      * @throws IOException error creating temporary file
      */
     public MapdbCollectionFactory(File workingDirectory) throws IOException {
+        this.workingDirectory = workingDirectory;
         this.dbFile = LDFusionToolUtils.createTempFile(workingDirectory, TEMP_FILE_PREFIX);
     }
 
+    /**
+     * {@inheritDoc}
+     * The returned set has a {@link BloomFilteredSet Bloom filter} in front of it so that lookups of elements
+     * not contained in the set mostly do not need to access the backing file.
+     */
     @Override
     public <T> Set<T> createSet() {
-        return createTempFileBackedSet(UUID.randomUUID().toString()); 
+        return new BloomFilteredSet<T>(this.<T>createTempFileBackedSet(UUID.randomUUID().toString()));
     }
     
     /**
@@ -55,6 +63,11 @@ public class MapdbCollectionFactory implements LargeCollectionFactory {
         // return getDb().getHashSet(name);
     }
 
+    @Override
+    public UriCollection createUriQueue() {
+        return new MappedFileUriQueue(workingDirectory);
+    }
+
     @Override
     public void close() throws IOException {
         if (db != null) {
@@ -0,0 +1,249 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.util.MappedBuffers;
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
+
+import java.io.File;
+import java.io.IOError;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * FIFO queue of URIs backed by memory-mapped files which ignores URIs that have already been added to it.
+ * URIs are appended to a log of fixed-size memory-mapped segment files and read in the order of insertion;
+ * segments are released as soon as they are consumed (one of them is kept for reuse), so the log takes only
+ * as much disk space as URIs waiting in the queue.
+ * Added URIs are remembered as 128-bit fingerprints in a hash table in a memory-mapped file
+ * (see {@link MappedFingerprintSet}) so that neither of the structures occupies Java heap.
+ * The probability that a URI is ignored because of a fingerprint collision is negligible (below 10^-20 for 10^9 URIs).
+ * I/O errors are reported as {@link IOError}.
+ * @author Jan Michelfeit
+ */
+public class MappedFileUriQueue implements UriCollection {
+    private static final String TEMP_FILE_PREFIX = "odcs-ft.queue.";
+
+    /** Default size of a single segment file in bytes. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * (int) LDFusionToolUtils.MB_BYTES;
+
+    private static final long INITIAL_TABLE_CAPACITY = 1 << 16;
+    private static final int RECORD_HEADER_SIZE = 4;
+    private static final int SEGMENT_END_MARK = -1;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final File directory;
+    private final int segmentSize;
+    /** Mapped segments of the log from the segment with index {@link #firstSegmentIndex}. */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long firstSegmentIndex = 0;
+    /** Consumed segment kept for reuse. */
+    private Segment spareSegment;
+    private long writePosition = 0;
+    private long readPosition = 0;
+    private long queueSize = 0;
+    private final MappedFingerprintSet addedUris;
+
+    /**
+     * Creates a new instance with segments of the default size.
+     * @param directory directory where segment files are created
+     */
+    public MappedFileUriQueue(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param directory directory where segment files are created
+     * @param segmentSize size of a single segment file in bytes
+     */
+    public MappedFileUriQueue(File directory, int segmentSize) {
+        Preconditions.checkArgument(segmentSize > RECORD_HEADER_SIZE);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.addedUris = new MappedFingerprintSet(directory, INITIAL_TABLE_CAPACITY);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return queueSize > 0;
+    }
+
+    @Override
+    public String next() {
+        if (queueSize <= 0) {
+            throw new NoSuchElementException();
+        }
+        int offset = segmentOffset(readPosition);
+        if (segmentSize - offset < RECORD_HEADER_SIZE
+                || getSegment(segmentIndex(readPosition)).getInt(offset) == SEGMENT_END_MARK) {
+            readPosition = nextSegmentStart(readPosition);
+        }
+        releaseConsumedSegments();
+        byte[] bytes = readRecord(readPosition);
+        readPosition += RECORD_HEADER_SIZE + bytes.length;
+        queueSize--;
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * Adds the URI to the end of the queue unless it has been added before.
+     * @param uri the URI to add
+     */
+    @Override
+    public void add(String uri) {
+        byte[] bytes = uri.getBytes(Charsets.UTF_8);
+        ByteBuffer fingerprint = ByteBuffer.wrap(HASH_FUNCTION.hashBytes(bytes).asBytes());
+        if (addedUris.add(fingerprint.getLong(0), fingerprint.getLong(8))) {
+            appendRecord(bytes);
+            queueSize++;
+        }
+    }
+
+    /**
+     * Returns the number of URIs waiting in the queue.
+     * @return number of URIs in the queue
+     */
+    public long size() {
+        return queueSize;
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+        segments.clear();
+        if (spareSegment != null) {
+            spareSegment.release();
+            spareSegment = null;
+        }
+        addedUris.close();
+        queueSize = 0;
+    }
+
+    private void appendRecord(byte[] bytes) {
+        int recordSize = RECORD_HEADER_SIZE + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("URI of " + bytes.length + " bytes exceeds size of a queue segment");
+        }
+        int offset = segmentOffset(writePosition);
+        if (offset + recordSize > segmentSize) {
+            if (segmentSize - offset >= RECORD_HEADER_SIZE) {
+                getSegment(segmentIndex(writePosition)).putInt(offset, SEGMENT_END_MARK);
+            }
+            writePosition = nextSegmentStart(writePosition);
+            offset = 0;
+        }
+        ByteBuffer segment = getSegment(segmentIndex(writePosition));
+        segment.putInt(offset, bytes.length);
+        ByteBuffer view = segment.duplicate();
+        view.position(offset + RECORD_HEADER_SIZE);
+        view.put(bytes);
+        writePosition += recordSize;
+    }
+
+    private byte[] readRecord(long position) {
+        ByteBuffer segment = getSegment(segmentIndex(position));
+        int offset = segmentOffset(position);
+        byte[] bytes = new byte[segment.getInt(offset)];
+        ByteBuffer view = segment.duplicate();
+        view.position(offset + RECORD_HEADER_SIZE);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Releases segments before the segment of {@link #readPosition}; the writer is never behind the reader,
+     * so these segments won't be accessed again.
+     */
+    private void releaseConsumedSegments() {
+        long readSegmentIndex = segmentIndex(readPosition);
+        while (firstSegmentIndex < readSegmentIndex && !segments.isEmpty()) {
+            Segment segment = segments.removeFirst();
+            firstSegmentIndex++;
+            if (spareSegment == null) {
+                spareSegment = segment;
+            } else {
+                segment.release();
+            }
+        }
+    }
+
+    private ByteBuffer getSegment(long index) {
+        while (firstSegmentIndex + segments.size() <= index) {
+            if (spareSegment != null) {
+                // stale content of a reused segment is never read, the reader stops at records written by the writer
+                segments.addLast(spareSegment);
+                spareSegment = null;
+            } else {
+                segments.addLast(mapNewSegment());
+            }
+        }
+        // the reader accesses the first segment and the writer the last one
+        if (index == firstSegmentIndex) {
+            return segments.getFirst().buffer;
+        } else if (index == firstSegmentIndex + segments.size() - 1) {
+            return segments.getLast().buffer;
+        }
+        Iterator<Segment> it = segments.iterator();
+        for (long i = firstSegmentIndex; i < index; i++) {
+            it.next();
+        }
+        return it.next().buffer;
+    }
+
+    private Segment mapNewSegment() {
+        try {
+            File file = LDFusionToolUtils.createTempFile(directory, TEMP_FILE_PREFIX);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                return new Segment(file, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            }
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+    }
+
+    private long segmentIndex(long position) {
+        return position / segmentSize;
+    }
+
+    private int segmentOffset(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    private long nextSegmentStart(long position) {
+        return (position / segmentSize + 1) * segmentSize;
+    }
+
+    /**
+     * Mapped segment file of the log.
+     */
+    private static class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        private Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private void release() {
+            MappedBuffers.unmap(buffer);
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.util.MappedBuffers;
+
+import java.io.File;
+import java.io.IOError;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Set of 128-bit fingerprints stored in an open-addressing hash table in a memory-mapped file.
+ * The table takes 16 bytes per slot and is at most 3/4 full, so disk use is bounded by the number of fingerprints
+ * and the table doesn't occupy Java heap. When the table grows, it is rehashed to a new file of double size
+ * and the old file is deleted.
+ * I/O errors are reported as {@link IOError}.
+ */
+class MappedFingerprintSet {
+    private static final String TEMP_FILE_PREFIX = "odcs-ft.fingerprints.";
+    private static final int SLOT_SIZE = 16;
+    /** Number of slots in a single mapped chunk of the table file (a mapping can't exceed 2 GB). */
+    private static final int CHUNK_SLOTS_SHIFT = 26;
+    private static final long MAX_CAPACITY = 1L << 36;
+
+    private final File directory;
+    private File tableFile;
+    private MappedByteBuffer[] chunks;
+    private long capacity;
+    private long size = 0;
+
+    /**
+     * Creates a new empty set.
+     * @param directory directory where the table file is created
+     * @param initialCapacity initial number of slots of the table; must be a power of two
+     */
+    MappedFingerprintSet(File directory, long initialCapacity) {
+        this.directory = directory;
+        mapTable(initialCapacity);
+    }
+
+    /**
+     * Adds a fingerprint to the set.
+     * @param high upper 64 bits of the fingerprint
+     * @param low lower 64 bits of the fingerprint
+     * @return true if the fingerprint wasn't in the set before
+     */
+    boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            low = 1; // zero marks an empty slot
+        }
+        if (!insert(high, low)) {
+            return false;
+        }
+        size++;
+        if (size * 4 > capacity * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of fingerprints in the set.
+     * @return number of fingerprints
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Unmaps and deletes the table file.
+     */
+    void close() {
+        releaseTable(chunks, tableFile);
+        chunks = new MappedByteBuffer[0];
+        tableFile = null;
+        capacity = 0;
+        size = 0;
+    }
+
+    private boolean insert(long high, long low) {
+        long mask = capacity - 1;
+        long slot = high & mask;
+        while (true) {
+            MappedByteBuffer chunk = chunks[(int) (slot >>> CHUNK_SLOTS_SHIFT)];
+            int offset = (int) (slot & ((1L << CHUNK_SLOTS_SHIFT) - 1)) * SLOT_SIZE;
+            long slotHigh = chunk.getLong(offset);
+            long slotLow = chunk.getLong(offset + 8);
+            if (slotHigh == 0 && slotLow == 0) {
+                chunk.putLong(offset, high);
+                chunk.putLong(offset + 8, low);
+                return true;
+            } else if (slotHigh == high && slotLow == low) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Maximum capacity of fingerprint set exceeded");
+        }
+        MappedByteBuffer[] oldChunks = chunks;
+        File oldTableFile = tableFile;
+        long oldCapacity = capacity;
+        mapTable(capacity * 2);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            MappedByteBuffer chunk = oldChunks[(int) (slot >>> CHUNK_SLOTS_SHIFT)];
+            int offset = (int) (slot & ((1L << CHUNK_SLOTS_SHIFT) - 1)) * SLOT_SIZE;
+            long high = chunk.getLong(offset);
+            long low = chunk.getLong(offset + 8);
+            if (high != 0 || low != 0) {
+                insert(high, low);
+            }
+        }
+        releaseTable(oldChunks, oldTableFile);
+    }
+
+    private void mapTable(long newCapacity) {
+        long chunkSlots = Math.min(newCapacity, 1L << CHUNK_SLOTS_SHIFT);
+        int chunkCount = (int) (newCapacity / chunkSlots);
+        try {
+            File file = LDFusionToolUtils.createTempFile(directory, TEMP_FILE_PREFIX);
+            MappedByteBuffer[] newChunks = new MappedByteBuffer[chunkCount];
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                // newly created file regions are zero-filled, i.e. all slots are empty
+                for (int i = 0; i < chunkCount; i++) {
+                    newChunks[i] = randomAccessFile.getChannel().map(
+                            FileChannel.MapMode.READ_WRITE, i * chunkSlots * SLOT_SIZE, chunkSlots * SLOT_SIZE);
+                }
+            }
+            this.tableFile = file;
+            this.chunks = newChunks;
+            this.capacity = newCapacity;
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+    }
+
+    private static void releaseTable(MappedByteBuffer[] chunks, File file) {
+        for (MappedByteBuffer chunk : chunks) {
+            MappedBuffers.unmap(chunk);
+        }
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
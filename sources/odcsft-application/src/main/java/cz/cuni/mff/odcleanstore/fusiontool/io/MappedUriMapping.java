@@ -0,0 +1,293 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CanonicalUriCache;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable canonical URI mapping stored in a memory-mapped file.
+ * The file is created from a resolved {@link UriMappingIterable} by {@link #write(UriMappingIterable, File, long)}
+ * or by {@link MappedUriMappingWriter} and contains a dictionary of all mapped URIs (including canonical URIs)
+ * sorted by their UTF-8 representation and an array with the index of the canonical URI for each URI in the dictionary.
+ * URIs are looked up by binary search directly in the mapped file, so the mapping doesn't occupy heap space
+ * and the same file can be shared by concurrent processes. Lookups are thread-safe.
+ * Mapped resources are shared {@link URI} instances from a {@link CanonicalUriCache}, which also saves decoding
+ * of frequent canonical URIs from the file.
+ *
+ * File layout (big-endian): header ({@link #MAGIC}, {@link #VERSION}, URI count N, fingerprint),
+ * int[N] indexes of canonical URIs padded to a multiple of 8 bytes, long[N + 1] offsets of URIs in the data section,
+ * data section with UTF-8 encoded URIs.
+ * @author Jan Michelfeit
+ */
+public class MappedUriMapping implements UriMappingIterable {
+    static final long MAGIC = 0x4C44465455524D31L; // "LDFTURM1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    /** Size of a mapped segment of the file; a multiple of 8 so that no array element crosses segments. */
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    /** Orders strings by code points, which is the same as the order of their UTF-8 representations. */
+    public static final Comparator<String> UTF8_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            int length = Math.min(s1.length(), s2.length());
+            for (int i = 0; i < length; i++) {
+                char c1 = s1.charAt(i);
+                char c2 = s2.charAt(i);
+                if (c1 != c2) {
+                    if (c1 >= Character.MIN_SURROGATE && c2 >= Character.MIN_SURROGATE) {
+                        // surrogate pairs encode code points above U+FFFF
+                        c1 = fixupSurrogateOrder(c1);
+                        c2 = fixupSurrogateOrder(c2);
+                    }
+                    return c1 - c2;
+                }
+            }
+            return s1.length() - s2.length();
+        }
+
+        private char fixupSurrogateOrder(char c) {
+            return (char) (c > Character.MAX_SURROGATE ? c - 0x800 : c + 0x2000);
+        }
+    };
+
+    private final File file;
+    private final MappedByteBuffer[] segments;
+    private final int uriCount;
+    private final long fingerprint;
+    private final long offsetsStart;
+    private final long dataStart;
+    private final CanonicalUriCache canonicalUriCache;
+    private final CanonicalUriCache.UriSource uriSource = new CanonicalUriCache.UriSource() {
+        @Override
+        public String getUri(int index) {
+            return MappedUriMapping.this.getUri(index);
+        }
+    };
+
+    /**
+     * Writes the given URI mapping to a file which can be opened with {@link #open(File)}.
+     * All URIs are sorted in memory; use {@link MappedUriMappingWriter} for mappings that don't fit into memory.
+     * The file is written to a temporary file first and then renamed so that readers never see an incomplete file.
+     * @param uriMapping resolved URI mapping
+     * @param file output file
+     * @param fingerprint value identifying inputs the mapping was resolved from; see {@link #getFingerprint()}
+     * @throws IOException I/O error
+     */
+    public static void write(UriMappingIterable uriMapping, File file, long fingerprint) throws IOException {
+        List<String> uris = new ArrayList<>();
+        for (String uri : uriMapping) {
+            uris.add(uri);
+            uris.add(uriMapping.getCanonicalURI(uri));
+        }
+        Collections.sort(uris, UTF8_ORDER);
+        int uriCount = 0;
+        for (int i = 0; i < uris.size(); i++) {
+            if (uriCount == 0 || !uris.get(i).equals(uris.get(uriCount - 1))) {
+                uris.set(uriCount++, uris.get(i));
+            }
+        }
+        uris = uris.subList(0, uriCount);
+
+        try (MappedUriMappingWriter writer = new MappedUriMappingWriter(file, uriCount, fingerprint)) {
+            for (String uri : uris) {
+                int index = writer.addUri(uri);
+                writer.setCanonicalIndex(index, Collections.binarySearch(uris, uriMapping.getCanonicalURI(uri), UTF8_ORDER));
+            }
+        }
+    }
+
+    /**
+     * Opens a URI mapping previously written by {@link #write(UriMappingIterable, File, long)}.
+     * @param file file with the URI mapping
+     * @return URI mapping backed by the file
+     * @throws IOException I/O error or the file is not a valid URI mapping file
+     */
+    public static MappedUriMapping open(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+            }
+            return new MappedUriMapping(file, segments, size);
+        }
+    }
+
+    private MappedUriMapping(File file, MappedByteBuffer[] segments, long size) throws IOException {
+        this.file = file;
+        this.segments = segments;
+        if (size < HEADER_SIZE || getLong(0) != MAGIC || getInt(8) != VERSION) {
+            throw new IOException("File " + file.getPath() + " is not a valid URI mapping file");
+        }
+        this.uriCount = getInt(12);
+        this.fingerprint = getLong(16);
+        this.offsetsStart = HEADER_SIZE + (uriCount + 1) / 2 * 8L;
+        this.dataStart = offsetsStart + (uriCount + 1) * 8L;
+        if (uriCount < 0 || dataStart > size || dataStart + getLong(offsetsStart + uriCount * 8L) != size) {
+            throw new IOException("File " + file.getPath() + " is not a valid URI mapping file");
+        }
+        this.canonicalUriCache = new CanonicalUriCache(uriCount);
+    }
+
+    /**
+     * Returns the fingerprint given when the mapping was written.
+     * It can be used to detect that the mapping is out of date with respect to its inputs.
+     * @return fingerprint of the mapping
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the number of URIs in the mapping, including canonical URIs.
+     * @return number of URIs
+     */
+    public int size() {
+        return uriCount;
+    }
+
+    @Override
+    public String getCanonicalURI(String uri) {
+        int index = find(uri.getBytes(Charsets.UTF_8));
+        if (index < 0) {
+            return uri;
+        }
+        int canonicalIndex = getCanonicalIndex(index);
+        return canonicalIndex == index ? uri : getUri(canonicalIndex);
+    }
+
+    @Override
+    public URI mapURI(URI uri) {
+        return (URI) mapResource(uri);
+    }
+
+    @Override
+    public Resource mapResource(Resource resource) {
+        if (resource instanceof URI) {
+            int index = find(resource.stringValue().getBytes(Charsets.UTF_8));
+            if (index >= 0) {
+                int canonicalIndex = getCanonicalIndex(index);
+                return canonicalIndex == index ? resource : canonicalUriCache.getURI(canonicalIndex, uriSource);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Returns iterator over URIs mapped to a different canonical URI.
+     * @return iterator over contained non-canonical URIs
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int nextIndex = findNonCanonical(0);
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < uriCount;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String uri = getUri(nextIndex);
+                nextIndex = findNonCanonical(nextIndex + 1);
+                return uri;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "URI mapping " + file.getPath();
+    }
+
+    private int findNonCanonical(int fromIndex) {
+        int index = fromIndex;
+        while (index < uriCount && getCanonicalIndex(index) == index) {
+            index++;
+        }
+        return index;
+    }
+
+    private int find(byte[] uri) {
+        int low = 0;
+        int high = uriCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareUri(middle, uri);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareUri(int index, byte[] uri) {
+        long start = dataStart + getLong(offsetsStart + index * 8L);
+        long length = dataStart + getLong(offsetsStart + (index + 1) * 8L) - start;
+        int commonLength = (int) Math.min(length, uri.length);
+        for (int i = 0; i < commonLength; i++) {
+            int comparison = (getByte(start + i) & 0xff) - (uri[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Long.compare(length, uri.length);
+    }
+
+    private String getUri(int index) {
+        long start = dataStart + getLong(offsetsStart + index * 8L);
+        long end = dataStart + getLong(offsetsStart + (index + 1) * 8L);
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = getByte(start + i);
+        }
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    private int getCanonicalIndex(int index) {
+        return getInt(HEADER_SIZE + index * 4L);
+    }
+
+    private byte getByte(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    private int getInt(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].getInt((int) (position % SEGMENT_SIZE));
+    }
+
+    private long getLong(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].getLong((int) (position % SEGMENT_SIZE));
+    }
+}
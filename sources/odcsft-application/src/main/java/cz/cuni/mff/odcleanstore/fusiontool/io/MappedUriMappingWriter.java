@@ -0,0 +1,186 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import cz.cuni.mff.odcleanstore.fusiontool.util.AtomicFiles;
+import cz.cuni.mff.odcleanstore.fusiontool.util.Closeable;
+import cz.cuni.mff.odcleanstore.fusiontool.util.MappedBuffers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a file that can be opened by {@link MappedUriMapping#open(File)} without keeping the mapping in memory.
+ * All URIs of the mapping must be added by {@link #addUri(String)} in the order of {@link MappedUriMapping#UTF8_ORDER}
+ * and index of the canonical URI must be set by {@link #setCanonicalIndex(int, int)} for every URI
+ * (in any order). The file is written to a uniquely named temporary file in the target directory which atomically
+ * replaces the target file on {@link #close()}.
+ * @author Jan Michelfeit
+ */
+public class MappedUriMappingWriter implements Closeable<IOException> {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final File tempFile;
+    private final RandomAccessFile output;
+    private final FileChannel channel;
+    private final int uriCount;
+    private final long fingerprint;
+    private final long offsetsStart;
+    private final long dataStart;
+    private final MappedByteBuffer[] canonicalSegments;
+    private final ByteBuffer offsetsBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer dataBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long offsetsPosition;
+    private long dataPosition;
+    private int addedUriCount = 0;
+    private String lastUri = null;
+
+    /**
+     * Creates a new instance.
+     * @param file output file
+     * @param uriCount number of URIs in the mapping
+     * @param fingerprint value identifying inputs the mapping was resolved from; see {@link MappedUriMapping#getFingerprint()}
+     * @throws IOException I/O error
+     */
+    public MappedUriMappingWriter(File file, int uriCount, long fingerprint) throws IOException {
+        Preconditions.checkArgument(uriCount >= 0);
+        this.file = file;
+        this.tempFile = AtomicFiles.createTempFile(file);
+        this.uriCount = uriCount;
+        this.fingerprint = fingerprint;
+        this.offsetsStart = MappedUriMapping.HEADER_SIZE + (uriCount + 1) / 2 * 8L;
+        this.dataStart = offsetsStart + (uriCount + 1) * 8L;
+        this.offsetsPosition = offsetsStart;
+        this.dataPosition = dataStart;
+        try {
+            this.output = new RandomAccessFile(tempFile, "rw");
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        try {
+            this.channel = output.getChannel();
+            long canonicalSize = offsetsStart - MappedUriMapping.HEADER_SIZE;
+            int segmentCount = (int) ((canonicalSize + MappedUriMapping.SEGMENT_SIZE - 1) / MappedUriMapping.SEGMENT_SIZE);
+            this.canonicalSegments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long position = i * MappedUriMapping.SEGMENT_SIZE;
+                canonicalSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, MappedUriMapping.HEADER_SIZE + position,
+                        Math.min(MappedUriMapping.SEGMENT_SIZE, canonicalSize - position));
+            }
+        } catch (IOException e) {
+            output.close();
+            tempFile.delete();
+            throw e;
+        }
+        offsetsBuffer.putLong(0);
+    }
+
+    /**
+     * Adds the next URI to the mapping.
+     * @param uri URI greater than the previously added URI in the order of {@link MappedUriMapping#UTF8_ORDER}
+     * @return index of the added URI
+     * @throws IOException I/O error
+     */
+    public int addUri(String uri) throws IOException {
+        Preconditions.checkState(addedUriCount < uriCount, "More URIs than declared added to URI mapping");
+        Preconditions.checkArgument(lastUri == null || MappedUriMapping.UTF8_ORDER.compare(lastUri, uri) < 0,
+                "URIs must be added to URI mapping in order without duplicates");
+        byte[] bytes = uri.getBytes(Charsets.UTF_8);
+        if (dataBuffer.remaining() < bytes.length) {
+            flushData();
+        }
+        if (bytes.length > dataBuffer.capacity()) {
+            channel.write(ByteBuffer.wrap(bytes), dataPosition);
+            dataPosition += bytes.length;
+        } else {
+            dataBuffer.put(bytes);
+        }
+        if (!offsetsBuffer.hasRemaining()) {
+            flushOffsets();
+        }
+        offsetsBuffer.putLong(dataPosition + dataBuffer.position() - dataStart);
+        lastUri = uri;
+        return addedUriCount++;
+    }
+
+    /**
+     * Sets the canonical URI for a URI.
+     * @param index index of the URI
+     * @param canonicalIndex index of the canonical URI
+     */
+    public void setCanonicalIndex(int index, int canonicalIndex) {
+        Preconditions.checkElementIndex(index, uriCount);
+        Preconditions.checkElementIndex(canonicalIndex, uriCount);
+        long position = index * 4L;
+        canonicalSegments[(int) (position / MappedUriMapping.SEGMENT_SIZE)]
+                .putInt((int) (position % MappedUriMapping.SEGMENT_SIZE), canonicalIndex);
+    }
+
+    /**
+     * Completes the file and moves it to the target location.
+     * If not all URIs have been added, the incomplete file is deleted.
+     * @throws IOException I/O error or not all URIs have been added
+     */
+    @Override
+    public void close() throws IOException {
+        boolean isComplete = addedUriCount == uriCount;
+        boolean isWritten = false;
+        try {
+            if (isComplete) {
+                flushOffsets();
+                flushData();
+                ByteBuffer header = ByteBuffer.allocate(MappedUriMapping.HEADER_SIZE);
+                header.putLong(MappedUriMapping.MAGIC);
+                header.putInt(MappedUriMapping.VERSION);
+                header.putInt(uriCount);
+                header.putLong(fingerprint);
+                header.flip();
+                channel.write(header, 0);
+                for (MappedByteBuffer segment : canonicalSegments) {
+                    segment.force();
+                }
+                isWritten = true;
+            }
+        } finally {
+            output.close();
+            for (MappedByteBuffer segment : canonicalSegments) {
+                MappedBuffers.unmap(segment);
+            }
+            if (!isWritten) {
+                tempFile.delete();
+            }
+        }
+        if (!isComplete) {
+            throw new IOException(String.format("Only %,d of %,d URIs added to URI mapping %s",
+                    addedUriCount, uriCount, file.getPath()));
+        }
+        try {
+            AtomicFiles.replace(tempFile, file);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw new IOException("Cannot move URI mapping to " + file.getPath(), e);
+        }
+    }
+
+    private void flushOffsets() throws IOException {
+        offsetsBuffer.flip();
+        while (offsetsBuffer.hasRemaining()) {
+            offsetsPosition += channel.write(offsetsBuffer, offsetsPosition);
+        }
+        offsetsBuffer.clear();
+    }
+
+    private void flushData() throws IOException {
+        dataBuffer.flip();
+        while (dataBuffer.hasRemaining()) {
+            dataPosition += channel.write(dataBuffer, dataPosition);
+        }
+        dataBuffer.clear();
+    }
+}
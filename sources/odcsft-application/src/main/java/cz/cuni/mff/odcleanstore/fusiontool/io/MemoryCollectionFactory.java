@@ -1,11 +1,13 @@
 package cz.cuni.mff.odcleanstore.fusiontool.io;
 
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
+
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Helper factory class for memory-backed collections.
- * Current implementation uses HashSet.
+ * Current implementation uses HashSet and {@link MemoryUriQueue}.
  * @author Jan Michelfeit
  */
 public class MemoryCollectionFactory implements LargeCollectionFactory {
@@ -14,6 +16,11 @@ public class MemoryCollectionFactory implements LargeCollectionFactory {
         return new HashSet<T>();
     }
 
+    @Override
+    public UriCollection createUriQueue() {
+        return new MemoryUriQueue();
+    }
+
     @Override
     public void close() {
         // do nothing
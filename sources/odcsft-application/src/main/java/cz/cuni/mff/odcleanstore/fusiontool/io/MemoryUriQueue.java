@@ -0,0 +1,49 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * FIFO queue of URIs kept in memory which ignores URIs that have already been added to it.
+ * @author Jan Michelfeit
+ */
+public class MemoryUriQueue implements UriCollection {
+    private final Queue<String> queue = new ArrayDeque<>();
+    private final Set<String> addedUris = new HashSet<>();
+
+    @Override
+    public boolean hasNext() {
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        String result = queue.poll();
+        if (result == null) {
+            throw new NoSuchElementException();
+        }
+        return result;
+    }
+
+    /**
+     * Adds the URI to the end of the queue unless it has been added before.
+     * @param uri the URI to add
+     */
+    @Override
+    public void add(String uri) {
+        if (addedUris.add(uri)) {
+            queue.add(uri);
+        }
+    }
+
+    @Override
+    public void close() {
+        queue.clear();
+        addedUris.clear();
+    }
+}
@@ -3,6 +3,7 @@ package cz.cuni.mff.odcleanstore.fusiontool.io;
 import com.google.common.base.Preconditions;
 import cz.cuni.mff.odcleanstore.core.ODCSUtils;
 import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SourceConfig;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
@@ -11,6 +12,7 @@ import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
 import cz.cuni.mff.odcleanstore.fusiontool.util.OutputParamReader;
 import org.openrdf.model.URI;
 import org.openrdf.model.ValueFactory;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
@@ -136,8 +138,25 @@ public final class RepositoryFactory {
 
         String endpointUrl = paramReader.getRequiredStringValue(ConfigParameters.DATA_SOURCE_SPARQL_ENDPOINT);
         long minQueryIntervalMs = paramReader.getLongValue(ConfigParameters.DATA_SOURCE_SPARQL_MIN_QUERY_INTERVAL, -1);
-
-        Repository repository = new WellBehavedSPARQLRepository(endpointUrl, minQueryIntervalMs);
+        int maxQueryBurst = paramReader.getIntValue(ConfigParameters.DATA_SOURCE_SPARQL_MAX_QUERY_BURST, 1);
+        int maxConcurrentQueries = paramReader.getIntValue(ConfigParameters.DATA_SOURCE_SPARQL_MAX_CONCURRENT_QUERIES, -1);
+
+        String resultFormatName = paramReader.getStringValue(ConfigParameters.DATA_SOURCE_SPARQL_RESULT_FORMAT,
+                LDFTConfigConstants.DEFAULT_SPARQL_RESULT_FORMAT);
+        TupleQueryResultFormat resultFormat = getTupleQueryResultFormat(resultFormatName);
+        if (resultFormat == null) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.REPOSITORY_CONFIG,
+                    "Unknown SPARQL result format " + resultFormatName + " for data source " + dataSourceName
+                            + ", supported formats are binary, json, xml and tsv");
+        }
+        boolean compressionEnabled = Boolean.parseBoolean(
+                paramReader.getStringValue(ConfigParameters.DATA_SOURCE_SPARQL_COMPRESSION, "true"));
+
+        WellBehavedSPARQLRepository sparqlRepository = new WellBehavedSPARQLRepository(
+                endpointUrl, minQueryIntervalMs, maxQueryBurst, maxConcurrentQueries);
+        sparqlRepository.setPreferredResultFormat(resultFormat);
+        sparqlRepository.setCompressionEnabled(compressionEnabled);
+        Repository repository = sparqlRepository;
         try {
             repository.initialize();
         } catch (RepositoryException e) {
@@ -145,7 +164,46 @@ public final class RepositoryFactory {
                     "Error when initializing repository for " + dataSourceName, e);
         }
         LOG.debug("Initialized SPARQL repository {}", dataSourceName);
+
+        String cacheDirectory = paramReader.getStringValue(ConfigParameters.DATA_SOURCE_SPARQL_CACHE_DIRECTORY);
+        if (cacheDirectory != null && !cacheDirectory.isEmpty()) {
+            long ttlSeconds = paramReader.getLongValue(ConfigParameters.DATA_SOURCE_SPARQL_CACHE_TTL,
+                    LDFTConfigConstants.DEFAULT_SPARQL_RESPONSE_CACHE_TTL);
+            long maxSizeMb = paramReader.getLongValue(ConfigParameters.DATA_SOURCE_SPARQL_CACHE_MAX_SIZE_MB,
+                    LDFTConfigConstants.DEFAULT_SPARQL_RESPONSE_CACHE_MAX_SIZE_MB);
+            if (ttlSeconds <= 0 || maxSizeMb <= 0) {
+                throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.REPOSITORY_CONFIG,
+                        "SPARQL response cache TTL and maximum size must be positive numbers for source " + dataSourceName);
+            }
+            SparqlResponseCache cache = new SparqlResponseCache(
+                    new File(cacheDirectory),
+                    ttlSeconds * ODCSUtils.MILLISECONDS,
+                    maxSizeMb * LDFusionToolUtils.MB_BYTES);
+            repository = new CachingRepository(repository, cache, endpointUrl);
+            LOG.info("Using SPARQL response cache in {} for source {}", cacheDirectory, dataSourceName);
+        }
         return repository;
     }
 
+    /**
+     * Returns the SPARQL result format of the given name or null if it is not supported.
+     * CSV is deliberately not supported because it doesn't distinguish URIs from literals and drops
+     * datatypes and language tags.
+     * @param formatName name of the format
+     * @return result format or null
+     */
+    private static TupleQueryResultFormat getTupleQueryResultFormat(String formatName) {
+        switch (formatName.toLowerCase()) {
+            case "binary":
+                return TupleQueryResultFormat.BINARY;
+            case "tsv":
+                return TupleQueryResultFormat.TSV;
+            case "json":
+                return TupleQueryResultFormat.JSON;
+            case "xml":
+                return TupleQueryResultFormat.SPARQL;
+            default:
+                return null;
+        }
+    }
 }
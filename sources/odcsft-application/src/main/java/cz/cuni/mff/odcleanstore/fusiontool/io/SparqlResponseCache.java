@@ -0,0 +1,419 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
+import cz.cuni.mff.odcleanstore.fusiontool.io.ntuples.NTuplesParser;
+import cz.cuni.mff.odcleanstore.fusiontool.io.ntuples.NTuplesWriter;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.MapBindingSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of SPARQL SELECT query results stored in a directory on the local disk.
+ * Cached responses are keyed by an endpoint identifier and normalized query text,
+ * expire after the given time to live, and the oldest responses are evicted when the total size
+ * of the cache exceeds the given limit.
+ * <p/>
+ * Only results where all variables are bound in every row are cached.
+ * Several caches may share the same directory; each of them enforces its own size limit on the whole directory.
+ * @author Jan Michelfeit
+ */
+public class SparqlResponseCache {
+    private static final Logger LOG = LoggerFactory.getLogger(SparqlResponseCache.class);
+
+    private static final String CACHE_FILE_SUFFIX = ".nt.gz";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String HEADER_PREFIX = "#bindings:";
+
+    /** Portion of maximum size the cache is shrunk to when it overflows. */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    private final File cacheDirectory;
+    private final long timeToLiveMs;
+    private final long maxSizeBytes;
+    private final AtomicLong currentSize;
+
+    /**
+     * Creates a new instance.
+     * @param cacheDirectory directory where cached responses are stored; created if it doesn't exist
+     * @param timeToLiveMs time in milliseconds after which a cached response expires
+     * @param maxSizeBytes maximum total size of cached responses in bytes
+     */
+    public SparqlResponseCache(File cacheDirectory, long timeToLiveMs, long maxSizeBytes) {
+        Preconditions.checkNotNull(cacheDirectory);
+        Preconditions.checkArgument(timeToLiveMs > 0);
+        Preconditions.checkArgument(maxSizeBytes > 0);
+        this.cacheDirectory = cacheDirectory;
+        this.timeToLiveMs = timeToLiveMs;
+        this.maxSizeBytes = maxSizeBytes;
+        cacheDirectory.mkdirs();
+        this.currentSize = new AtomicLong(computeDirectorySize());
+        LOG.debug("Initialized SPARQL response cache in {} with {}", cacheDirectory,
+                LDFusionToolUtils.humanReadableSize(currentSize.get()));
+    }
+
+    /**
+     * Returns cache key for the given query sent to the given endpoint.
+     * @param endpointId identifier of the queried endpoint (e.g. endpoint URL)
+     * @param query SPARQL query
+     * @return cache key
+     */
+    public String createKey(String endpointId, String query) {
+        String normalized = endpointId + '\n' + normalizeQuery(query);
+        return Hashing.sha1().hashString(normalized, Charsets.UTF_8).toString();
+    }
+
+    /**
+     * Returns a cached result for the given key if there is a cached response which has not expired yet.
+     * The returned result should be closed after it is no longer needed.
+     * @param key cache key obtained from {@link #createKey(String, String)}
+     * @return cached query result or null if no valid cached response is available
+     */
+    public TupleQueryResult getCachedResult(String key) {
+        File file = getCacheFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        if (System.currentTimeMillis() - file.lastModified() > timeToLiveMs) {
+            removeFile(file);
+            return null;
+        }
+        try {
+            return new CachedTupleQueryResult(file);
+        } catch (IOException e) {
+            LOG.warn("Cannot read cached SPARQL response from {}, removing it from cache", file.getName(), e);
+            removeFile(file);
+            return null;
+        }
+    }
+
+    /**
+     * Wraps the given query result so that the result is stored to cache under the given key
+     * once it is completely iterated and closed.
+     * @param key cache key obtained from {@link #createKey(String, String)}
+     * @param result query result to cache
+     * @return query result returning the same data as {@code result}
+     */
+    public TupleQueryResult cacheResult(String key, TupleQueryResult result) {
+        try {
+            return new CachingTupleQueryResult(result, getCacheFile(key));
+        } catch (IOException | QueryEvaluationException e) {
+            LOG.warn("Cannot create SPARQL response cache file, the response will not be cached", e);
+            return result;
+        }
+    }
+
+    /**
+     * Collapses whitespace outside of string literals and IRIs so that formatting of the query doesn't affect the key.
+     * @param query SPARQL query
+     * @return normalized query
+     */
+    protected static String normalizeQuery(String query) {
+        StringBuilder result = new StringBuilder(query.length());
+        char quote = 0;
+        boolean lastWhitespace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                result.append(c);
+                if (c == '\\' && quote != '>' && i + 1 < query.length()) {
+                    result.append(query.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                lastWhitespace = true;
+            } else {
+                if (lastWhitespace && result.length() > 0) {
+                    result.append(' ');
+                }
+                lastWhitespace = false;
+                result.append(c);
+                if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '<' && i + 1 < query.length() && !Character.isWhitespace(query.charAt(i + 1))
+                        && query.charAt(i + 1) != '=') {
+                    quote = '>';
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private File getCacheFile(String key) {
+        File subdirectory = new File(cacheDirectory, key.substring(0, 2));
+        return new File(subdirectory, key + CACHE_FILE_SUFFIX);
+    }
+
+    private void commitFile(File tempFile, File targetFile) {
+        long size = tempFile.length();
+        if (targetFile.exists()) {
+            removeFile(targetFile);
+        }
+        if (tempFile.renameTo(targetFile)) {
+            if (currentSize.addAndGet(size) > maxSizeBytes) {
+                evict();
+            }
+        } else {
+            LOG.warn("Cannot store SPARQL response cache file {}", targetFile.getName());
+            tempFile.delete();
+        }
+    }
+
+    private void removeFile(File file) {
+        long size = file.length();
+        if (file.delete()) {
+            currentSize.addAndGet(-size);
+        }
+    }
+
+    private synchronized void evict() {
+        if (currentSize.get() <= maxSizeBytes) {
+            return;
+        }
+        List<File> files = listCacheFiles();
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long diff = o1.lastModified() - o2.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        long targetSize = (long) (maxSizeBytes * EVICTION_TARGET_RATIO);
+        int evictedCount = 0;
+        for (File file : files) {
+            if (currentSize.get() <= targetSize) {
+                break;
+            }
+            removeFile(file);
+            evictedCount++;
+        }
+        LOG.debug("Evicted {} responses from SPARQL response cache, {} left", evictedCount,
+                LDFusionToolUtils.humanReadableSize(currentSize.get()));
+    }
+
+    private long computeDirectorySize() {
+        long size = 0;
+        for (File file : listCacheFiles()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    private List<File> listCacheFiles() {
+        List<File> result = new ArrayList<>();
+        File[] subdirectories = cacheDirectory.listFiles();
+        if (subdirectories == null) {
+            return result;
+        }
+        for (File subdirectory : subdirectories) {
+            File[] files = subdirectory.isDirectory() ? subdirectory.listFiles() : null;
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(CACHE_FILE_SUFFIX)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Query result read from a cache file.
+     */
+    private static class CachedTupleQueryResult implements TupleQueryResult {
+        private final List<String> bindingNames;
+        private final NTuplesParser parser;
+
+        public CachedTupleQueryResult(File file) throws IOException {
+            Reader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(file)), Charsets.UTF_8));
+            try {
+                this.bindingNames = readHeader(reader);
+                this.parser = new NTuplesParser(reader, LDFTConfigConstants.DEFAULT_FILE_PARSER_CONFIG);
+            } catch (IOException e) {
+                reader.close();
+                throw e;
+            }
+        }
+
+        private static List<String> readHeader(Reader reader) throws IOException {
+            StringBuilder header = new StringBuilder();
+            int c = reader.read();
+            while (c != -1 && c != '\n') {
+                header.append((char) c);
+                c = reader.read();
+            }
+            if (c == -1 || header.indexOf(HEADER_PREFIX) != 0) {
+                throw new IOException("Invalid cache file header");
+            }
+            String names = header.substring(HEADER_PREFIX.length()).trim();
+            return Collections.unmodifiableList(Arrays.asList(names.split(" ")));
+        }
+
+        @Override
+        public List<String> getBindingNames() {
+            return bindingNames;
+        }
+
+        @Override
+        public boolean hasNext() throws QueryEvaluationException {
+            try {
+                return parser.hasNext();
+            } catch (IOException e) {
+                throw new QueryEvaluationException("Error reading cached SPARQL response", e);
+            }
+        }
+
+        @Override
+        public BindingSet next() throws QueryEvaluationException {
+            List<Value> tuple;
+            try {
+                tuple = parser.next();
+            } catch (IOException e) {
+                throw new QueryEvaluationException("Error reading cached SPARQL response", e);
+            }
+            if (tuple.size() != bindingNames.size()) {
+                throw new QueryEvaluationException("Invalid cached SPARQL response row: " + tuple);
+            }
+            MapBindingSet bindingSet = new MapBindingSet(bindingNames.size());
+            for (int i = 0; i < bindingNames.size(); i++) {
+                bindingSet.addBinding(bindingNames.get(i), tuple.get(i));
+            }
+            return bindingSet;
+        }
+
+        @Override
+        public void remove() throws QueryEvaluationException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws QueryEvaluationException {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                throw new QueryEvaluationException(e);
+            }
+        }
+    }
+
+    /**
+     * Query result passing through results of another result and storing them to a cache file.
+     * The cache file is committed only if the result was iterated to its end.
+     */
+    private class CachingTupleQueryResult implements TupleQueryResult {
+        private final TupleQueryResult delegate;
+        private final File targetFile;
+        private final List<String> bindingNames;
+        private File tempFile;
+        private NTuplesWriter writer;
+        private boolean isComplete = false;
+
+        public CachingTupleQueryResult(TupleQueryResult delegate, File targetFile)
+                throws IOException, QueryEvaluationException {
+            this.delegate = delegate;
+            this.targetFile = targetFile;
+            this.bindingNames = delegate.getBindingNames();
+            targetFile.getParentFile().mkdirs();
+            this.tempFile = File.createTempFile(targetFile.getName(), TEMP_FILE_SUFFIX, targetFile.getParentFile());
+            Writer fileWriter = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(tempFile)), Charsets.UTF_8));
+            this.writer = new NTuplesWriter(fileWriter);
+            StringBuilder header = new StringBuilder(HEADER_PREFIX);
+            for (String bindingName : bindingNames) {
+                header.append(' ').append(bindingName);
+            }
+            fileWriter.write(header.append('\n').toString());
+        }
+
+        @Override
+        public List<String> getBindingNames() throws QueryEvaluationException {
+            return bindingNames;
+        }
+
+        @Override
+        public boolean hasNext() throws QueryEvaluationException {
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext) {
+                isComplete = true;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public BindingSet next() throws QueryEvaluationException {
+            BindingSet bindingSet = delegate.next();
+            if (writer != null) {
+                writeBindingSet(bindingSet);
+            }
+            return bindingSet;
+        }
+
+        private void writeBindingSet(BindingSet bindingSet) {
+            Value[] values = new Value[bindingNames.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = bindingSet.getValue(bindingNames.get(i));
+                if (values[i] == null) {
+                    // unbound values cannot be represented in the cache file
+                    discard();
+                    return;
+                }
+            }
+            try {
+                writer.writeTuple(values);
+            } catch (IOException e) {
+                LOG.warn("Error writing SPARQL response cache file, the response will not be cached", e);
+                discard();
+            }
+        }
+
+        private void discard() {
+            if (writer != null) {
+                LDFusionToolUtils.closeQuietly(writer);
+                writer = null;
+                tempFile.delete();
+            }
+        }
+
+        @Override
+        public void remove() throws QueryEvaluationException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws QueryEvaluationException {
+            try {
+                delegate.close();
+            } finally {
+                if (writer != null && isComplete) {
+                    try {
+                        writer.close();
+                        writer = null;
+                        commitFile(tempFile, targetFile);
+                    } catch (IOException e) {
+                        LOG.warn("Error writing SPARQL response cache file, the response will not be cached", e);
+                        discard();
+                    }
+                } else {
+                    discard();
+                }
+            }
+        }
+    }
+}
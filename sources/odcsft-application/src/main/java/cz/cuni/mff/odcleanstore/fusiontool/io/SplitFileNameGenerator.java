@@ -31,8 +31,16 @@ public class SplitFileNameGenerator {
      * @return file with numeric suffix appended to base file
      */
     public File nextFile() {
-        String suffix = Integer.toString(fileCount.incrementAndGet());
-        return addFileNameSuffix(baseFileName, suffix);
+        return getFile(fileCount.incrementAndGet());
+    }
+
+    /**
+     * Returns file with suffix '-n' appended to base file, i.e. the n-th file returned by {@link #nextFile()}.
+     * @param n number of the file
+     * @return file with numeric suffix appended to base file
+     */
+    public File getFile(int n) {
+        return addFileNameSuffix(baseFileName, Integer.toString(n));
     }
 
     private static File addFileNameSuffix(File file, String suffix) {
@@ -0,0 +1,71 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe rate limiter based on the token bucket algorithm.
+ * One token is added to the bucket per the given interval and the bucket holds at most
+ * {@code burstSize} tokens, so that up to {@code burstSize} requests can be issued at once after
+ * a period of inactivity while the long-term rate is at most one request per interval.
+ * Callers which find the bucket empty reserve a future token and wait for it, i.e. they are served
+ * in the order of arrival.
+ * @author Jan Michelfeit
+ */
+public class TokenBucketRateLimiter {
+    private final Ticker ticker;
+    private final double intervalNanos;
+    private final int burstSize;
+    private double availableTokens;
+    private long lastRefillTime;
+
+    /**
+     * Creates a new instance with a full bucket.
+     * @param intervalMs interval in milliseconds in which a single token is added
+     * @param burstSize maximum number of tokens in the bucket
+     */
+    public TokenBucketRateLimiter(long intervalMs, int burstSize) {
+        this(intervalMs, burstSize, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance with a full bucket measuring time by the given ticker.
+     * @param intervalMs interval in milliseconds in which a single token is added
+     * @param burstSize maximum number of tokens in the bucket
+     * @param ticker source of time
+     */
+    TokenBucketRateLimiter(long intervalMs, int burstSize, Ticker ticker) {
+        Preconditions.checkArgument(intervalMs > 0, "Interval must be positive");
+        Preconditions.checkArgument(burstSize > 0, "Burst size must be positive");
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.burstSize = burstSize;
+        this.availableTokens = burstSize;
+        this.ticker = ticker;
+        this.lastRefillTime = ticker.read();
+    }
+
+    /**
+     * Takes one token from the bucket, waiting until it is available if necessary.
+     * @throws InterruptedException the thread was interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves one token and returns the time until the reserved token becomes available.
+     * @return time to wait in nanoseconds; zero if a token is available immediately
+     */
+    synchronized long reserve() {
+        long now = ticker.read();
+        availableTokens = Math.min(burstSize, availableTokens + (now - lastRefillTime) / intervalNanos);
+        lastRefillTime = now;
+        availableTokens -= 1;
+        return availableTokens >= 0 ? 0 : (long) Math.ceil(-availableTokens * intervalNanos);
+    }
+}
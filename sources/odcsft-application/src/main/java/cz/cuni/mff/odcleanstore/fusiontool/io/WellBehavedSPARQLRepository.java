@@ -2,28 +2,72 @@ package cz.cuni.mff.odcleanstore.fusiontool.io;
 
 import org.apache.commons.httpclient.*;
 import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.openrdf.http.client.HTTPClient;
+import org.openrdf.query.Binding;
+import org.openrdf.query.Dataset;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.repository.sparql.SPARQLRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
 
 /**
- * SPARQL repository which issues at most one query per the given time interval 
- * so that the SPARQL source endpoint is not overloaded.
+ * SPARQL repository which limits the rate and concurrency of queries so that the SPARQL source endpoint
+ * is not overloaded.
+ * The rate is limited by a {@link TokenBucketRateLimiter token bucket} allowing on average one query per
+ * the given time interval and bursts of at most the given number of queries.
+ * The number of concurrent queries is limited by a semaphore held while a query is executed, i.e. until
+ * the endpoint starts sending the response. Results streamed to an open query result don't hold it, so that
+ * a thread iterating over results of one query can issue another query to the same repository.
+ * Optionally, the repository requests gzip compressed responses and prefers the given tuple query result format
+ * when negotiating the response format with the endpoint.
+ * The repository can be safely shared by multiple threads.
  * @author Jan Michelfeit
  */
 public class WellBehavedSPARQLRepository extends SPARQLRepository {
-    private final long minQueryIntervalMs;
-    
+    private static final Logger LOG = LoggerFactory.getLogger(WellBehavedSPARQLRepository.class);
+
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final String GZIP_ENCODING = "gzip";
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int maxConcurrentQueries;
+    /** Permits for concurrently executed queries; null if not limited. */
+    private final Semaphore queryPermits;
+    private TupleQueryResultFormat preferredResultFormat = null;
+    private boolean compressionEnabled = false;
+
     /**
      * @param endpointUrl URL of SPARQL endpoint to access
      * @param minQueryIntervalMs minimal interval between queries in milliseconds
      */
     public WellBehavedSPARQLRepository(String endpointUrl, long minQueryIntervalMs) {
+        this(endpointUrl, minQueryIntervalMs, 1, -1);
+    }
+
+    /**
+     * @param endpointUrl URL of SPARQL endpoint to access
+     * @param minQueryIntervalMs average interval between queries in milliseconds; not limited if not positive
+     * @param maxQueryBurst maximum number of queries issued at once without waiting for {@code minQueryIntervalMs}
+     * @param maxConcurrentQueries maximum number of concurrently executed queries; not limited if not positive
+     */
+    public WellBehavedSPARQLRepository(String endpointUrl, long minQueryIntervalMs, int maxQueryBurst, int maxConcurrentQueries) {
         super(endpointUrl);
-        this.minQueryIntervalMs = minQueryIntervalMs;
+        this.rateLimiter = createRateLimiter(minQueryIntervalMs, maxQueryBurst);
+        this.maxConcurrentQueries = maxConcurrentQueries;
+        this.queryPermits = maxConcurrentQueries > 0 ? new Semaphore(maxConcurrentQueries, true) : null;
     }
-    
+
     /**
      * @param queryEndpointUrl URL of SPARQL endpoint to access for queries
      * @param updateEndpointUrl URL of SPARQL-update capable endpoint
@@ -31,7 +75,40 @@ public class WellBehavedSPARQLRepository extends SPARQLRepository {
      */
     public WellBehavedSPARQLRepository(String queryEndpointUrl, String updateEndpointUrl, long minQueryIntervalMs) {
         super(queryEndpointUrl, updateEndpointUrl);
-        this.minQueryIntervalMs = minQueryIntervalMs;
+        this.rateLimiter = createRateLimiter(minQueryIntervalMs, 1);
+        this.maxConcurrentQueries = -1;
+        this.queryPermits = null;
+    }
+
+    /**
+     * Sets the tuple query result format preferred in content negotiation with the endpoint.
+     * Must be called before the repository is initialized.
+     * @param preferredResultFormat preferred format or null for the default
+     */
+    public void setPreferredResultFormat(TupleQueryResultFormat preferredResultFormat) {
+        this.preferredResultFormat = preferredResultFormat;
+    }
+
+    /**
+     * Sets whether gzip compressed responses should be requested from the endpoint.
+     * @param compressionEnabled true if responses should be compressed
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Returns true if a query is waiting for another one to finish because of the concurrency limit.
+     * @return true if a query is waiting for a permit
+     */
+    boolean hasQueuedQueries() {
+        return queryPermits != null && queryPermits.hasQueuedThreads();
+    }
+
+    private static TokenBucketRateLimiter createRateLimiter(long minQueryIntervalMs, int maxQueryBurst) {
+        return minQueryIntervalMs > 0
+                ? new TokenBucketRateLimiter(minQueryIntervalMs, Math.max(1, maxQueryBurst))
+                : null;
     }
 
     @Override
@@ -40,7 +117,7 @@ public class WellBehavedSPARQLRepository extends SPARQLRepository {
     }
     
     /**
-     * Implementation of {@link HTTPClient} limiting the frequency of requests.
+     * Implementation of {@link HTTPClient} limiting the frequency of requests and requesting compressed responses.
      */
     protected class WellBehavedOpenRdfHTTPClient extends HTTPClient {
         private static final int DEFAULT_PROXY_PORT = 80;
@@ -48,12 +125,41 @@ public class WellBehavedSPARQLRepository extends SPARQLRepository {
         @Override
         public void initialize() {
             super.initialize();
-            if (httpClient == null) {
-                httpClient = new WellBehavedHttpClient(httpClient.getHttpConnectionManager());
+            if (preferredResultFormat != null) {
+                setPreferredTupleQueryResultFormat(preferredResultFormat);
+            }
+            if (httpClient != null && !(httpClient instanceof WellBehavedHttpClient)) {
+                HttpConnectionManager connectionManager = httpClient.getHttpConnectionManager();
+                HttpConnectionManagerParams params = connectionManager.getParams();
+                if (params.getMaxTotalConnections() < maxConcurrentQueries) {
+                    // the connection pool must not be the limit, connections are held by open query results as well
+                    params.setDefaultMaxConnectionsPerHost(maxConcurrentQueries);
+                    params.setMaxTotalConnections(maxConcurrentQueries);
+                }
+                httpClient = new WellBehavedHttpClient(httpClient.getParams(), connectionManager);
                 configureProxySettings(httpClient);
             }
         }
 
+        /**
+         * Returns a query method which requests and decompresses gzip compressed responses if compression is enabled;
+         * commons-httpclient 3 doesn't decompress responses itself.
+         * Methods other than POST are left unchanged and request uncompressed responses.
+         */
+        @Override
+        protected HttpMethod getQueryMethod(QueryLanguage ql, String query, String baseURI, Dataset dataset,
+                boolean includeInferred, int maxQueryTime, Binding... bindings) {
+            HttpMethod method = super.getQueryMethod(ql, query, baseURI, dataset, includeInferred, maxQueryTime, bindings);
+            if (compressionEnabled && method instanceof PostMethod) {
+                try {
+                    return DecompressingPostMethod.copyOf((PostMethod) method);
+                } catch (URIException e) {
+                    LOG.warn("Cannot request compressed response from {}", method.getPath(), e);
+                }
+            }
+            return method;
+        }
+
         private void configureProxySettings(HttpClient httpClient) {
             String proxyHostName = System.getProperty("http.proxyHost");
             if (proxyHostName != null && proxyHostName.length() > 0) {
@@ -79,11 +185,9 @@ public class WellBehavedSPARQLRepository extends SPARQLRepository {
     }
     
     /**
-     * Implementation of {@link HttpClient} limiting the frequency of requests.
+     * Implementation of {@link HttpClient} limiting the frequency and concurrency of requests.
      */
     protected class WellBehavedHttpClient extends HttpClient {
-        private long lastQueryTime = 0;
-
         /**
          * @param httpConnectionManager The {@link HttpConnectionManager connection manager} to use.
          */
@@ -91,19 +195,42 @@ public class WellBehavedSPARQLRepository extends SPARQLRepository {
             super(httpConnectionManager);
         }
 
+        /**
+         * @param params client parameters
+         * @param httpConnectionManager The {@link HttpConnectionManager connection manager} to use.
+         */
+        public WellBehavedHttpClient(HttpClientParams params, HttpConnectionManager httpConnectionManager) {
+            super(params, httpConnectionManager);
+        }
+
         @Override
         public int executeMethod(HostConfiguration hostconfig, HttpMethod method, HttpState state) throws IOException {
-            long now = System.currentTimeMillis();
-            long waitPeriod = minQueryIntervalMs - (now - lastQueryTime);
-            lastQueryTime = now;
-            if (waitPeriod > 0) {
+            if (rateLimiter != null) {
                 try {
-                    Thread.sleep(waitPeriod);
+                    rateLimiter.acquire();
                 } catch (InterruptedException e) {
-                    // nothing
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the query rate limit");
                 }
             }
-            return super.executeMethod(hostconfig, method, state);
+            return executeWithPermit(hostconfig, method, state);
+        }
+
+        private int executeWithPermit(HostConfiguration hostconfig, HttpMethod method, HttpState state) throws IOException {
+            if (queryPermits == null) {
+                return super.executeMethod(hostconfig, method, state);
+            }
+            try {
+                queryPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the concurrent query limit");
+            }
+            try {
+                return super.executeMethod(hostconfig, method, state);
+            } finally {
+                queryPermits.release();
+            }
         }
 
         @Override
@@ -116,4 +243,63 @@ public class WellBehavedSPARQLRepository extends SPARQLRepository {
             return executeMethod(hostConfiguration, method, null);
         }
     }
+
+    /**
+     * POST method which requests a gzip compressed response and decompresses the response body
+     * if the server compressed it, so that response parsers read the decompressed body.
+     */
+    static class DecompressingPostMethod extends PostMethod {
+        private InputStream compressedStream;
+        private InputStream decompressedStream;
+
+        /**
+         * @param uri request URI
+         */
+        DecompressingPostMethod(String uri) {
+            super(uri);
+            setRequestHeader(ACCEPT_ENCODING_HEADER, GZIP_ENCODING);
+        }
+
+        /**
+         * Creates a copy of the given (not executed) method which requests a compressed response.
+         * @param method method to copy
+         * @return new method with the same request
+         * @throws URIException invalid request URI
+         */
+        static DecompressingPostMethod copyOf(PostMethod method) throws URIException {
+            DecompressingPostMethod copy = new DecompressingPostMethod(method.getURI().toString());
+            for (Header header : method.getRequestHeaders()) {
+                copy.setRequestHeader(header);
+            }
+            copy.setRequestHeader(ACCEPT_ENCODING_HEADER, GZIP_ENCODING);
+            copy.setQueryString(method.getQueryString());
+            copy.setParams(method.getParams());
+            copy.setDoAuthentication(method.getDoAuthentication());
+            if (method.getRequestEntity() != null) {
+                copy.setRequestEntity(method.getRequestEntity());
+            } else {
+                copy.setRequestBody(method.getParameters());
+            }
+            return copy;
+        }
+
+        @Override
+        public InputStream getResponseBodyAsStream() throws IOException {
+            InputStream stream = super.getResponseBodyAsStream();
+            if (stream == null || !isGzipEncoded()) {
+                return stream;
+            }
+            if (decompressedStream == null) {
+                compressedStream = stream;
+                decompressedStream = new GZIPInputStream(stream);
+            }
+            // once the body is read to a buffer by getResponseBody(), the buffer already contains decompressed data
+            return stream == compressedStream ? decompressedStream : stream;
+        }
+
+        private boolean isGzipEncoded() {
+            Header contentEncoding = getResponseHeader(CONTENT_ENCODING_HEADER);
+            return contentEncoding != null && GZIP_ENCODING.equalsIgnoreCase(contentEncoding.getValue().trim());
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package cz.cuni.mff.odcleanstore.fusiontool.loaders;
 
 import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.MappedStatement;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescription;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.ResourceDescriptionImpl;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
@@ -73,6 +74,7 @@ public class ExternalSortingInputLoader implements InputLoader {
     private final Set<URI> canonicalResourceDescriptionProperties = new HashSet<>();
     private final Set<URI> _resourceDescriptionProperties;
 
+    private UriMappingIterable uriMapping;
     private NTuplesParser dataFileIterator;
     private NTuplesParser mergedAttributeFileIterator;
     private final Collection<File> temporaryFiles = new ArrayList<File>();
@@ -111,6 +113,7 @@ public class ExternalSortingInputLoader implements InputLoader {
             LOG.info("  maximum memory limit is {} MB", String.format("%,.2f", maxMemoryLimit / (double) LDFusionToolUtils.MB_BYTES));
         }
 
+        this.uriMapping = uriMapping;
         canonicalResourceDescriptionProperties.clear();
         for (URI resourceDescriptionProperty : _resourceDescriptionProperties) {
             canonicalResourceDescriptionProperties.add((URI) uriMapping.mapResource(resourceDescriptionProperty));
@@ -179,13 +182,13 @@ public class ExternalSortingInputLoader implements InputLoader {
             // Read next record from dataFileIterator which represents the primary file
             // - the subject will determine the next cluster
             List<Value> nextTuple = dataFileIterator.next();
-            Statement firstStatement = createStatement(nextTuple);
             Resource firstCanonicalSubject = (Resource) nextTuple.get(0);
+            Statement firstStatement = createStatement(nextTuple, firstCanonicalSubject);
 
             // Add quads for the cluster from primary data file
             describingStatements.add(firstStatement);
             while (NTuplesParserUtils.hasMatchingRecord(dataFileIterator, firstCanonicalSubject)) {
-                describingStatements.add(createStatement(dataFileIterator.next()));
+                describingStatements.add(createStatement(dataFileIterator.next(), firstCanonicalSubject));
             }
 
             // Add additional quads from other files
@@ -193,7 +196,7 @@ public class ExternalSortingInputLoader implements InputLoader {
             boolean foundMatch = NTuplesParserUtils.skipLessThan(mergedAttributeFileIterator, firstCanonicalSubject, NTuplesParserUtils.VALUE_COMPARATOR);
             if (foundMatch) {
                 while (NTuplesParserUtils.hasMatchingRecord(mergedAttributeFileIterator, firstCanonicalSubject)) {
-                    describingStatements.add(createStatement(mergedAttributeFileIterator.next()));
+                    describingStatements.add(createStatement(mergedAttributeFileIterator.next(), null));
                     extendedDescriptionCount++;
                 }
             }
@@ -291,7 +294,16 @@ public class ExternalSortingInputLoader implements InputLoader {
         }
     }
 
-    private Statement createStatement(List<Value> tuple) throws LDFusionToolException {
+    /**
+     * Creates a statement from the last four elements of the given tuple.
+     * The statement is created together with its canonical version so that it doesn't need to be mapped again
+     * during conflict resolution.
+     * @param tuple tuple read from a temporary file
+     * @param canonicalSubject canonical subject of the statement if already known, null otherwise
+     * @return statement with precomputed canonical version
+     * @throws LDFusionToolException invalid format of the tuple
+     */
+    private Statement createStatement(List<Value> tuple, Resource canonicalSubject) throws LDFusionToolException {
         if (tuple == null || tuple.size() < 4) {
             throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.INVALID_TMP_FILE_FORMAT_TUPLE,
                     "Invalid format of temporary file, expected statement but found: " + tuple);
@@ -299,11 +311,23 @@ public class ExternalSortingInputLoader implements InputLoader {
         int size = tuple.size();
         try {
             // Take the last four elements from the tuple
-            return VF.createStatement(
-                    (Resource) tuple.get(size - 4),
-                    (URI) tuple.get(size - 3),
-                    tuple.get(size - 2),
-                    (Resource) tuple.get(size - 1));
+            Resource subject = (Resource) tuple.get(size - 4);
+            URI predicate = (URI) tuple.get(size - 3);
+            Value object = tuple.get(size - 2);
+            Resource context = (Resource) tuple.get(size - 1);
+            if (canonicalSubject == null) {
+                canonicalSubject = uriMapping.mapResource(subject);
+            } else if (canonicalSubject.equals(subject)) {
+                canonicalSubject = subject; // avoid creating a separate canonical statement for an equal instance
+            }
+            return new MappedStatement(
+                    subject,
+                    predicate,
+                    object,
+                    context,
+                    canonicalSubject,
+                    (URI) uriMapping.mapResource(predicate),
+                    object instanceof Resource ? uriMapping.mapResource((Resource) object) : object);
         } catch (ClassCastException e) {
             String message = "Invalid format of temporary file, expected statement but found: "
                     + tuple.subList(tuple.size() - 4, tuple.size());
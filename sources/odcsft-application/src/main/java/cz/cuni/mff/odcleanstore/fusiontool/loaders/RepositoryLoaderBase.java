@@ -3,7 +3,6 @@
  */
 package cz.cuni.mff.odcleanstore.fusiontool.loaders;
 
-import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestriction;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestrictionImpl;
 import cz.cuni.mff.odcleanstore.fusiontool.source.Source;
@@ -21,11 +20,6 @@ public abstract class RepositoryLoaderBase {
      */
     private static final Pattern BASE_PATTERN = Pattern.compile("^\\s*BASE\\s+<[^>]+>"); // TODO: replace with query parser
 
-    /**
-     * Maximum number of values in a generated argument for the "?var IN (...)" SPARQL construct .
-     */
-    protected static final int MAX_QUERY_LIST_LENGTH = LDFTConfigConstants.MAX_QUERY_LIST_LENGTH;
-
     /**
      * A random prefix for variables used in SPARQL queries so that they don't conflict
      * with variables used in named graph constraint pattern.
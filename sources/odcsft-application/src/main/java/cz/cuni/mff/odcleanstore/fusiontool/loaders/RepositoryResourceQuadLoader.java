@@ -1,6 +1,8 @@
 package cz.cuni.mff.odcleanstore.fusiontool.loaders;
 
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
 import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
+import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestriction;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.AlternativeUriNavigator;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
@@ -8,13 +10,14 @@ import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolQueryException;
 import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
-import cz.cuni.mff.odcleanstore.shared.util.LimitedURIListBuilder;
+import cz.cuni.mff.odcleanstore.fusiontool.util.OutputParamReader;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.query.BindingSet;
+import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.TupleQueryResult;
 import org.openrdf.repository.RepositoryConnection;
@@ -22,9 +25,12 @@ import org.openrdf.repository.RepositoryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * Loads triples containing statements about a given URI resource (having the URI as their subject)
@@ -60,31 +66,107 @@ public class RepositoryResourceQuadLoader extends RepositoryLoaderBase implement
      * SPARQL query that gets all quads having one of the given URIs as their subject.
      * Quads are loaded from named graphs optionally limited by named graph restriction pattern.
      * This query is to be used when there are multiple owl:sameAs alternatives.
-     * 
+     * The searched URIs are given in a VALUES block so that the store can use an index lookup for each of them.
+     *
+     * Must be formatted with arguments:
+     * (1) namespace prefixes declaration
+     * (2) named graph restriction pattern
+     * (3) named graph restriction variable
+     * (4) list of searched URIs (e.g. "<uri1> <uri2> <uri3>")
+     */
+    private static final String QUADS_QUERY_ALTERNATIVE_VALUES = "%1$s"
+            + "\n SELECT DISTINCT (?%3$s AS ?" + VAR_PREFIX + "g)  ?" + VAR_PREFIX + "s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o"
+            + "\n WHERE {"
+            + "\n   VALUES ?" + VAR_PREFIX + "s { %4$s }"
+            + "\n   %2$s"
+            + "\n   GRAPH ?%3$s {"
+            + "\n     ?" + VAR_PREFIX + "s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o"
+            + "\n   }"
+            + "\n }";
+
+    /**
+     * SPARQL query that gets all quads having one of the given URIs as their subject.
+     * Same as {@link #QUADS_QUERY_ALTERNATIVE_VALUES} but with a UNION of patterns for each URI
+     * for stores without support for VALUES.
+     *
+     * Must be formatted with arguments:
+     * (1) namespace prefixes declaration
+     * (2) named graph restriction pattern
+     * (3) named graph restriction variable
+     * (4) union of patterns for searched URIs (see {@link #UNION_PATTERN})
+     */
+    private static final String QUADS_QUERY_ALTERNATIVE_UNION = "%1$s"
+            + "\n SELECT DISTINCT (?%3$s AS ?" + VAR_PREFIX + "g)  ?" + VAR_PREFIX + "s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o"
+            + "\n WHERE {"
+            + "\n   %2$s"
+            + "\n   GRAPH ?%3$s {"
+            + "\n     %4$s"
+            + "\n   }"
+            + "\n }";
+
+    /**
+     * Pattern for a single URI in {@link #QUADS_QUERY_ALTERNATIVE_UNION}.
+     * Must be formatted with the searched URI as the only argument.
+     */
+    private static final String UNION_PATTERN = "{ <%1$s> ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o"
+            + " BIND(<%1$s> AS ?" + VAR_PREFIX + "s) }";
+
+    /**
+     * SPARQL query that gets all quads having one of the given URIs as their subject.
+     * Same as {@link #QUADS_QUERY_ALTERNATIVE_VALUES} but with a FILTER for SPARQL 1.0 stores.
+     *
      * Must be formatted with arguments:
      * (1) namespace prefixes declaration
      * (2) named graph restriction pattern
      * (3) named graph restriction variable
      * (4) list of searched URIs (e.g. "<uri1>,<uri2>,<uri3>")
      */
-    private static final String QUADS_QUERY_ALTERNATIVE = "%1$s"
+    private static final String QUADS_QUERY_ALTERNATIVE_FILTER = "%1$s"
             + "\n SELECT DISTINCT (?%3$s AS ?" + VAR_PREFIX + "g)  ?" + VAR_PREFIX + "s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o"
             + "\n WHERE {"
             + "\n   %2$s"
             + "\n   GRAPH ?%3$s {"
             + "\n     ?" + VAR_PREFIX + "s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o"
-            + "\n     FILTER (?" + VAR_PREFIX + "s IN (%4$s))" // TODO: replace by a large union for efficiency?
+            + "\n     FILTER (?" + VAR_PREFIX + "s IN (%4$s))"
             + "\n   }"
             + "\n }";
-    
+
     private static final String SUBJECT_VAR = VAR_PREFIX + "s";
     private static final String PROPERTY_VAR = VAR_PREFIX + "p";
     private static final String OBJECT_VAR = VAR_PREFIX + "o";
     private static final String GRAPH_VAR = VAR_PREFIX + "g";
+
+    /**
+     * Pattern of error messages which indicate that the endpoint rejected a query because it was too large
+     * or too expensive (e.g. HTTP 414 Request-URI Too Long, 413 Request Entity Too Large, query timeouts).
+     */
+    private static final Pattern QUERY_REJECTED_PATTERN = Pattern.compile(
+            "\\b(400|413|414|431)\\b|bad request|too (long|large|big|complex|many)|time ?out|timed out|exceed",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Number of consecutive successful queries with {@link #queryListLength} URIs after which the length is doubled
+     * again (up to the configured maximum) when it was decreased before.
+     */
+    static final int QUERY_LIST_GROWTH_INTERVAL = 16;
     
     private final AlternativeUriNavigator alternativeUriNavigator;
     private RepositoryConnection connection;
     private final DataSource dataSource;
+    private final EnumAlternativeUrisQueryType alternativeUrisQueryType;
+
+    /** Configured maximum number of URIs in a single query for owl:sameAs alternatives. */
+    private final int maxQueryListLength;
+
+    /**
+     * Current maximum number of URIs in a single query for owl:sameAs alternatives.
+     * The value is decreased when the endpoint rejects a query as too large and increased again after
+     * {@link #QUERY_LIST_GROWTH_INTERVAL} successful queries.
+     */
+    private int queryListLength;
+
+    /** Number of consecutive successful queries with {@link #queryListLength} URIs. */
+    private int successfulQueryCount = 0;
 
     /**
      * Creates a new instance.
@@ -95,6 +177,13 @@ public class RepositoryResourceQuadLoader extends RepositoryLoaderBase implement
         super(dataSource);
         this.dataSource = dataSource;
         this.alternativeUriNavigator = alternativeUriNavigator;
+        OutputParamReader paramReader = new OutputParamReader(dataSource);
+        this.alternativeUrisQueryType = EnumAlternativeUrisQueryType.parse(
+                paramReader.getStringValue(ConfigParameters.DATA_SOURCE_ALTERNATIVE_URIS_QUERY));
+        this.maxQueryListLength = Math.max(1, paramReader.getIntValue(
+                ConfigParameters.DATA_SOURCE_MAX_QUERY_LIST_LENGTH,
+                LDFTConfigConstants.DEFAULT_MAX_QUERY_LIST_LENGTH));
+        this.queryListLength = maxQueryListLength;
     }
 
     /**
@@ -127,15 +216,7 @@ public class RepositoryResourceQuadLoader extends RepositoryLoaderBase implement
                 throw new LDFusionToolQueryException(LDFusionToolErrorCodes.QUERY_QUADS, query, source.getName(), e);
             }
         } else {
-            Iterable<CharSequence> limitedURIListBuilder = new LimitedURIListBuilder(alternativeURIs, MAX_QUERY_LIST_LENGTH);
-            for (CharSequence uriList : limitedURIListBuilder) {
-                String query = formatQuery(QUADS_QUERY_ALTERNATIVE, restriction, uriList);
-                try {
-                    addQuadsFromQuery(query, quadCollection);
-                } catch (OpenRDFException e) {
-                    throw new LDFusionToolQueryException(LDFusionToolErrorCodes.QUERY_QUADS, query, source.getName(), e);
-                }
-            }
+            loadQuadsForAlternativeUris(alternativeURIs, restriction, quadCollection);
         }
 
         if (LOG.isTraceEnabled()) {
@@ -144,6 +225,76 @@ public class RepositoryResourceQuadLoader extends RepositoryLoaderBase implement
         }
     }
     
+    /**
+     * Loads quads for the given owl:sameAs alternatives in chunks of at most {@link #queryListLength} URIs.
+     * When the endpoint rejects a query for a chunk of more than one URI as too large (see {@link #isQueryRejected(OpenRDFException)}),
+     * the chunk size is halved for this and subsequent queries and the query is retried; after
+     * {@link #QUERY_LIST_GROWTH_INTERVAL} successful queries the chunk size is doubled again up to the configured maximum,
+     * so that the chunk size adapts to the limits of the queried endpoint. Other errors are reported immediately.
+     */
+    private void loadQuadsForAlternativeUris(List<String> alternativeURIs, SparqlRestriction restriction,
+            Collection<Statement> quadCollection) throws LDFusionToolException {
+        List<Statement> chunkQuads = new ArrayList<>();
+        int offset = 0;
+        while (offset < alternativeURIs.size()) {
+            int chunkSize = Math.min(queryListLength, alternativeURIs.size() - offset);
+            List<String> chunk = alternativeURIs.subList(offset, offset + chunkSize);
+            String query = formatQuery(alternativeUrisQueryType.getQuery(), restriction, alternativeUrisQueryType.formatUriList(chunk));
+            try {
+                chunkQuads.clear();
+                addQuadsFromQuery(query, chunkQuads);
+            } catch (OpenRDFException e) {
+                if (chunkSize <= 1 || !isQueryRejected(e)) {
+                    throw new LDFusionToolQueryException(LDFusionToolErrorCodes.QUERY_QUADS, query, source.getName(), e);
+                }
+                queryListLength = Math.max(1, chunkSize / 2);
+                successfulQueryCount = 0;
+                LOG.warn("Query for {} alternative URIs was rejected by source {}, retrying with at most {} URIs per query",
+                        new Object[] {chunkSize, source, queryListLength});
+                continue;
+            }
+            quadCollection.addAll(chunkQuads);
+            offset += chunkSize;
+            if (chunkSize == queryListLength) {
+                querySucceeded();
+            }
+        }
+    }
+
+    private void querySucceeded() {
+        if (queryListLength >= maxQueryListLength) {
+            return;
+        }
+        successfulQueryCount++;
+        if (successfulQueryCount >= QUERY_LIST_GROWTH_INTERVAL) {
+            queryListLength = (int) Math.min(maxQueryListLength, 2L * queryListLength);
+            successfulQueryCount = 0;
+            LOG.debug("Increased maximum number of alternative URIs per query for source {} to {}", source, queryListLength);
+        }
+    }
+
+    /**
+     * Returns true if the given error indicates that the endpoint rejected the query because it was too large or too expensive,
+     * i.e. that a query with fewer URIs may succeed; other errors (e.g. an unavailable endpoint) return false.
+     * @param e query error
+     * @return true if the query was rejected
+     */
+    private static boolean isQueryRejected(OpenRDFException e) {
+        if (e instanceof MalformedQueryException) {
+            return true; // some endpoints report queries exceeding their parser limits as syntax errors
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null && QUERY_REJECTED_PATTERN.matcher(message).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String formatQuery(String unformattedQuery, SparqlRestriction restriction, Object uriPart) {
         return String.format(Locale.ROOT, unformattedQuery,
                 getPrefixDecl(),
@@ -208,6 +359,58 @@ public class RepositoryResourceQuadLoader extends RepositoryLoaderBase implement
         }
     }
 
+    /**
+     * Type of query used to retrieve quads for multiple owl:sameAs alternatives.
+     */
+    private enum EnumAlternativeUrisQueryType {
+        /** List of URIs given in a VALUES block. */
+        VALUES(QUADS_QUERY_ALTERNATIVE_VALUES, "<%s>", " "),
+
+        /** A UNION of graph patterns for each URI. */
+        UNION(QUADS_QUERY_ALTERNATIVE_UNION, UNION_PATTERN, "\n     UNION "),
+
+        /** List of URIs given in a FILTER (?s IN (...)) construct. */
+        FILTER(QUADS_QUERY_ALTERNATIVE_FILTER, "<%s>", ",");
+
+        private final String query;
+        private final String uriPattern;
+        private final String separator;
+
+        EnumAlternativeUrisQueryType(String query, String uriPattern, String separator) {
+            this.query = query;
+            this.uriPattern = uriPattern;
+            this.separator = separator;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public String formatUriList(List<String> uris) {
+            StringBuilder result = new StringBuilder();
+            for (String uri : uris) {
+                if (result.length() > 0) {
+                    result.append(separator);
+                }
+                result.append(String.format(Locale.ROOT, uriPattern, uri));
+            }
+            return result.toString();
+        }
+
+        public static EnumAlternativeUrisQueryType parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return VALUES;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                LOG.error("Unknown value '{}' of parameter {}, using {}",
+                        new Object[] {value, ConfigParameters.DATA_SOURCE_ALTERNATIVE_URIS_QUERY, VALUES});
+                return VALUES;
+            }
+        }
+    }
+
     @Override
     public void close() throws LDFusionToolException {
         try {
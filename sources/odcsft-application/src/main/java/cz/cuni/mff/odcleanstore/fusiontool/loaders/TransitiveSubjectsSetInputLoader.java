@@ -4,6 +4,8 @@ import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
 import cz.cuni.mff.odcleanstore.core.ODCSUtils;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.UriMapping;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
 import cz.cuni.mff.odcleanstore.fusiontool.io.LargeCollectionFactory;
 import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
@@ -13,7 +15,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Set;
 
 /**
  * Input loader which loads quads for each subject contained in the given collection of subjects
@@ -75,14 +76,20 @@ public class TransitiveSubjectsSetInputLoader extends SubjectsSetInputLoader {
     }
 
     /**
-     * Creates a collection to hold subject URIs queued to be processed.
+     * Creates a FIFO queue to hold subject URIs queued to be processed so that resources are traversed
+     * in breadth-first order. URIs already added to the queue are not added again.
      * @param seedSubjects initial URIs to fill in the collection
      * @return collection of URIs
      * @throws cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException error
      */
     private UriCollection createBufferedSubjectsCollection(UriCollection seedSubjects) throws LDFusionToolException {
-        Set<String> buffer = largeCollectionFactory.createSet();
-        UriCollection queuedSubjects = new BufferedSubjectsCollection(buffer);
+        UriCollection queuedSubjects;
+        try {
+            queuedSubjects = largeCollectionFactory.createUriQueue();
+        } catch (IOException e) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.INPUT_LOADER_TMP_FILE_INIT,
+                    "Cannot create queue of subjects to be processed", e);
+        }
         UriMappingIterable uriMapping = getUriMapping();
         long count = 0;
         while (seedSubjects.hasNext()) {
@@ -0,0 +1,85 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.data;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Size of result pages requested from a SPARQL endpoint adapted to the observed query latency.
+ * The page size doubles while complete pages are loaded in less than half of the target latency,
+ * shrinks proportionally when a page takes longer than the target latency and halves when a query fails
+ * (typically because of a timeout).
+ * @author Jan Michelfeit
+ */
+class AdaptivePageSize {
+    private final long targetLatency;
+    private int minPageSize;
+    private int maxPageSize;
+    private int pageSize;
+
+    /**
+     * Creates a new instance.
+     * @param initialPageSize initial page size
+     * @param minPageSize minimum page size
+     * @param maxPageSize maximum page size
+     * @param targetLatency target time to load a single page in milliseconds
+     */
+    public AdaptivePageSize(int initialPageSize, int minPageSize, int maxPageSize, long targetLatency) {
+        Preconditions.checkArgument(minPageSize > 0);
+        Preconditions.checkArgument(maxPageSize >= minPageSize);
+        Preconditions.checkArgument(targetLatency > 0);
+        this.minPageSize = minPageSize;
+        this.maxPageSize = maxPageSize;
+        this.targetLatency = targetLatency;
+        this.pageSize = bound(initialPageSize);
+    }
+
+    /**
+     * Returns the number of rows to request in the next page.
+     * @return page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the current maximum page size.
+     * @return maximum page size
+     */
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    /**
+     * Adapts the page size to the latency of a successfully loaded page.
+     * @param requestedRows number of rows requested in the query
+     * @param loadedRows number of rows actually returned
+     * @param latency time to execute the query and fetch its results in milliseconds
+     */
+    public void pageLoaded(int requestedRows, int loadedRows, long latency) {
+        if (latency > targetLatency) {
+            pageSize = bound((int) (requestedRows * (double) targetLatency / latency));
+        } else if (latency < targetLatency / 2 && loadedRows >= requestedRows && requestedRows >= pageSize) {
+            pageSize = bound(pageSize <= Integer.MAX_VALUE / 2 ? pageSize * 2 : Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Shrinks the page size after a failed query.
+     */
+    public void pageFailed() {
+        pageSize = bound(pageSize / 2);
+    }
+
+    /**
+     * Lowers the maximum page size to the limit of rows returned by the endpoint.
+     * @param rowLimit maximum number of rows the endpoint returns for a single query
+     */
+    public void limitPageSize(int rowLimit) {
+        maxPageSize = Math.max(1, Math.min(maxPageSize, rowLimit));
+        minPageSize = Math.min(minPageSize, maxPageSize);
+        pageSize = bound(pageSize);
+    }
+
+    private int bound(int size) {
+        return Math.max(minPageSize, Math.min(maxPageSize, size));
+    }
+}
@@ -5,6 +5,7 @@ import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
 import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
 import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestriction;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolQueryException;
@@ -20,14 +21,17 @@ import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.TupleQueryResultHandlerBase;
+import org.openrdf.query.TupleQueryResultHandlerException;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
+import java.util.Random;
 import java.util.UUID;
 
 import static cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants.*;
@@ -52,6 +56,7 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
      * (3) named graph restriction variable
      * (4) result size limit
      * (5) result offset
+     * (6) ORDER BY clause or an empty string
      */
     private static final String LOAD_SPARQL_QUERY = "%1$s"
             + "\n SELECT (?%3$s AS ?" + GRAPH_VAR + ")"
@@ -62,15 +67,27 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
             + "\n     ?" + SUBJECT_VAR + " ?" + PROPERTY_VAR + " ?" + OBJECT_VAR
             + "\n   }"
             + "\n }"
+            + "%6$s"
             + "\n LIMIT %4$s OFFSET %5$s";
+
+    /**
+     * ORDER BY clause making pages given by LIMIT and OFFSET stable between queries
+     * (SPARQL doesn't guarantee any order of results without ORDER BY).
+     * The endpoint needs to sort all quads for every page, therefore ordering is used only if enabled
+     * by parameter {@link ConfigParameters#DATA_SOURCE_SPARQL_ORDERED_PAGING}.
+     * Must be formatted with the named graph restriction variable.
+     */
+    private static final String ORDER_BY_CLAUSE = "\n ORDER BY ?%s ?" + SUBJECT_VAR + " ?" + PROPERTY_VAR + " ?" + OBJECT_VAR;
     private RepositoryConnection connection;
 
     private final DataSource dataSource;
 
     private final URI defaultContext;
-    private final int maxSparqlResultsSize;
+    private final AdaptivePageSize pageSize;
+    private final ExponentialBackoff backoff;
+    private final boolean orderedPaging;
+    private PageOverlapCheck pageOverlapCheck;
     private int initialOffset = 0;
-    private int retryAttempts = 0;
 
     /**
      * Creates a new instance.
@@ -81,9 +98,33 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
         this.dataSource = dataSource;
         OutputParamReader paramReader = new OutputParamReader(dataSource);
         this.defaultContext = computeDefaultContext(paramReader);
-        this.maxSparqlResultsSize = paramReader.getIntValue(
+        int maxPageSize = paramReader.getIntValue(
                 ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS,
                 LDFTConfigConstants.DEFAULT_SPARQL_RESULT_MAX_ROWS);
+        int initialPageSize = paramReader.getIntValue(
+                ConfigParameters.DATA_SOURCE_SPARQL_INITIAL_PAGE_SIZE,
+                Math.min(maxPageSize, LDFTConfigConstants.DEFAULT_SPARQL_INITIAL_PAGE_SIZE));
+        long targetLatency = paramReader.getLongValue(
+                ConfigParameters.DATA_SOURCE_SPARQL_TARGET_PAGE_LATENCY,
+                LDFTConfigConstants.DEFAULT_SPARQL_TARGET_PAGE_LATENCY);
+        this.pageSize = new AdaptivePageSize(
+                initialPageSize,
+                Math.min(maxPageSize, LDFTConfigConstants.MIN_SPARQL_PAGE_SIZE),
+                maxPageSize,
+                targetLatency);
+        long retryInitialInterval = paramReader.getLongValue(
+                ConfigParameters.DATA_SOURCE_RETRY_INITIAL_INTERVAL,
+                LDFTConfigConstants.DEFAULT_RETRY_INITIAL_INTERVAL);
+        long retryMaxTime = paramReader.getLongValue(
+                ConfigParameters.DATA_SOURCE_RETRY_MAX_TIME,
+                LDFTConfigConstants.DEFAULT_RETRY_MAX_TIME);
+        this.backoff = new ExponentialBackoff(
+                retryInitialInterval,
+                Math.max(retryInitialInterval, LDFTConfigConstants.MAX_RETRY_INTERVAL),
+                retryMaxTime,
+                new Random());
+        this.orderedPaging = Boolean.parseBoolean(
+                paramReader.getStringValue(ConfigParameters.DATA_SOURCE_SPARQL_ORDERED_PAGING, "false"));
     }
 
     @Override
@@ -95,13 +136,54 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
             SparqlRestriction restriction = getSparqlRestriction();
             long totalStartTime = System.currentTimeMillis();
             int totalLoadedQuads = 0;
-            int lastLoadedQuads = Integer.MAX_VALUE;
-            for (int offset = initialOffset; lastLoadedQuads >= maxSparqlResultsSize; offset = initialOffset + totalLoadedQuads) {
-                query = formatQuery(LOAD_SPARQL_QUERY, restriction, maxSparqlResultsSize, offset);
+            int shortPageSize = -1;
+            int rowLimit = Integer.MAX_VALUE; // maximum number of rows the endpoint returns, once detected
+            int completePageSize = 0; // largest number of rows the endpoint returned for a complete page
+            PageOverlapCheck allPagesOverlapCheck = orderedPaging ? null : new PageOverlapCheck();
+            while (true) {
+                int offset = initialOffset + totalLoadedQuads;
+                int requestedQuads = pageSize.getPageSize();
+                query = formatQuery(LOAD_SPARQL_QUERY, restriction, requestedQuads, offset);
                 long lastStartTime = System.currentTimeMillis();
-                lastLoadedQuads = addQuadsFromQueryWithRetry(query, rdfHandler);
+                QuadForwardingHandler resultHandler = createResultHandler(rdfHandler, allPagesOverlapCheck);
+                try {
+                    addQuadsFromQuery(query, resultHandler);
+                } catch (OpenRDFException e) {
+                    // quads passed to the handler before the failure are not requested again
+                    totalLoadedQuads += resultHandler.getQuadCount();
+                    checkPageOverlap(resultHandler, offset);
+                    waitBeforeRetry(e);
+                    pageSize.pageFailed();
+                    continue;
+                }
+                checkPageOverlap(resultHandler, offset);
+                backoff.reset();
+                // time spent by the handler processing quads is not part of the latency of the endpoint
+                long latency = System.currentTimeMillis() - lastStartTime - resultHandler.getHandlerTime();
+                int lastLoadedQuads = resultHandler.getQuadCount();
                 totalLoadedQuads += lastLoadedQuads;
-                logProgress(lastLoadedQuads, totalLoadedQuads, lastStartTime, totalStartTime);
+                pageSize.pageLoaded(requestedQuads, lastLoadedQuads, latency);
+                logProgress(lastLoadedQuads, totalLoadedQuads, latency, totalStartTime);
+
+                if (shortPageSize > 0 && lastLoadedQuads > 0) {
+                    // the previous page was not the last one, the endpoint returns fewer rows than requested
+                    LOG.warn("SPARQL endpoint of source {} returned only {} rows for a query with a higher limit;"
+                                    + " the page size is limited to {} rows. Consider setting parameter {} to this value.",
+                            new Object[]{source, shortPageSize, shortPageSize, ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS});
+                    pageSize.limitPageSize(shortPageSize);
+                    rowLimit = shortPageSize;
+                }
+                shortPageSize = -1;
+                if (lastLoadedQuads >= Math.min(requestedQuads, rowLimit)) {
+                    completePageSize = Math.max(completePageSize, lastLoadedQuads);
+                } else if (lastLoadedQuads == 0 || lastLoadedQuads < completePageSize) {
+                    // the endpoint returned pages of completePageSize rows before, so a shorter page is not truncated
+                    break;
+                } else {
+                    // a page shorter than requested is either the last one or the result was truncated by the endpoint
+                    // to its maximum number of rows; the next page tells which case it was
+                    shortPageSize = lastLoadedQuads;
+                }
             }
             rdfHandler.endRDF();
         } catch (OpenRDFException | InterruptedException e) {
@@ -109,16 +191,48 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
         }
     }
 
-    private void logProgress(int lastLoadedQuads, int totalLoadedQuads, long lastStartTime, long totalStartTime) {
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("ODCS-FusionTool: Loaded {} quads from source {} in {} ms",
-                    new Object[] {lastLoadedQuads, source, System.currentTimeMillis() - lastStartTime});
+    /**
+     * Loads a single page of quads from the data source and passes them to the given handler.
+     * Pages are defined by the same query as in {@link #loadAllTriples(RDFHandler)}, so that pages at offsets
+     * k * limit for k = 0, 1, ... cover each quad exactly once as long as the data doesn't change, the endpoint
+     * doesn't return fewer rows than requested and the endpoint returns quads in the same order for each page.
+     * The order is guaranteed only with ordered paging enabled; otherwise quads loaded in more than one page
+     * are detected by the {@link PageOverlapCheck} shared by all pages (see {@link #setPageOverlapCheck(PageOverlapCheck)}).
+     * Failed queries are retried with exponential backoff; quads passed to the handler before a failure
+     * are not requested again.
+     * @param offset offset of the first quad of the page
+     * @param limit maximum number of quads in the page
+     * @param rdfHandler handler to which quads are passed; {@code startRDF()} and {@code endRDF()} are not called
+     * @return number of quads in the page; the page is the last one if it contains fewer than {@code limit} quads
+     * @throws LDFusionToolException error loading quads
+     */
+    public int loadPage(long offset, int limit, RDFHandler rdfHandler) throws LDFusionToolException {
+        String query = "";
+        int loadedQuads = 0;
+        try {
+            while (true) {
+                query = formatQuery(LOAD_SPARQL_QUERY, getSparqlRestriction(), limit - loadedQuads, offset + loadedQuads);
+                QuadForwardingHandler resultHandler = createResultHandler(rdfHandler, pageOverlapCheck);
+                try {
+                    addQuadsFromQuery(query, resultHandler);
+                    checkPageOverlap(resultHandler, offset);
+                    backoff.reset();
+                    return loadedQuads + resultHandler.getQuadCount();
+                } catch (OpenRDFException e) {
+                    loadedQuads += resultHandler.getQuadCount();
+                    checkPageOverlap(resultHandler, offset);
+                    waitBeforeRetry(e);
+                }
+            }
+        } catch (OpenRDFException | InterruptedException e) {
+            throw new LDFusionToolQueryException(LDFusionToolErrorCodes.ALL_TRIPLES_QUERY_QUADS, query, source.getName(), e);
         }
-        if (totalLoadedQuads == lastLoadedQuads && lastLoadedQuads < maxSparqlResultsSize) {
-            LOG.warn("Only one page of results with {} quads in total was loaded from query with limit {}."
-                            + "\n       If you expect more data, the SPARQL endpoint may have a lower limit of rows returned from a SPARQL query."
-                            + "\n       Try setting parameter {} to a value lower than {}.",
-                    new Object[] {lastLoadedQuads, maxSparqlResultsSize, ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, lastLoadedQuads});
+    }
+
+    private void logProgress(int lastLoadedQuads, int totalLoadedQuads, long latency, long totalStartTime) {
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("ODCS-FusionTool: Loaded {} quads from source {} in {} ms, next page size is {}",
+                    new Object[] {lastLoadedQuads, source, latency, pageSize.getPageSize()});
         }
         if ((totalLoadedQuads - lastLoadedQuads) / LOG_LOOP_SIZE != totalLoadedQuads / LOG_LOOP_SIZE) {
             // show the log when the number of required quads was exceeded somewhere within the newly loaded quads
@@ -153,14 +267,29 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
         }
     }
 
-    private String formatQuery(String unformattedQuery, SparqlRestriction restriction, int limit, int offset) {
+    private String formatQuery(String unformattedQuery, SparqlRestriction restriction, int limit, long offset) {
         return String.format(Locale.ROOT,
                 unformattedQuery,
                 getPrefixDecl(),
                 restriction.getPattern(),
                 restriction.getVar(),
                 limit,
-                offset);
+                offset,
+                orderedPaging ? String.format(Locale.ROOT, ORDER_BY_CLAUSE, restriction.getVar()) : "");
+    }
+
+    private QuadForwardingHandler createResultHandler(RDFHandler rdfHandler, PageOverlapCheck overlapCheck) {
+        return new QuadForwardingHandler(source.getRepository().getValueFactory(), rdfHandler, overlapCheck);
+    }
+
+    private void checkPageOverlap(QuadForwardingHandler resultHandler, long offset) throws LDFusionToolException {
+        if (resultHandler.getOverlappingQuadCount() > 0) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.ALL_TRIPLES_QUERY_QUADS, String.format(
+                    "Source %s returned quads already loaded in another page for the page at offset %d;"
+                            + " the endpoint doesn't return results in the same order for each page."
+                            + " Set parameter %s to true.",
+                    source, offset, ConfigParameters.DATA_SOURCE_SPARQL_ORDERED_PAGING));
+        }
     }
 
     protected SparqlRestriction getSparqlRestriction() {
@@ -174,56 +303,38 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
     }
 
 
-    private int addQuadsFromQueryWithRetry(String sparqlQuery, RDFHandler rdfHandler) throws OpenRDFException, InterruptedException {
-        while (true) { // TODO: move constants to Configuration
-            try {
-                return addQuadsFromQuery(sparqlQuery, rdfHandler);
-            } catch (OpenRDFException e) {
-                retryAttempts++;
-                if (retryAttempts <= REPOSITORY_RETRY_ATTEMPTS) {
-                    String message = String.format("Query to repository %s failed, retry %d of %d in %d s",
-                            source,
-                            retryAttempts,
-                            REPOSITORY_RETRY_ATTEMPTS,
-                            REPOSITORY_RETRY_INTERVAL / ODCSUtils.MILLISECONDS);
-                    LOG.warn(message, e);
-                    Thread.sleep(REPOSITORY_RETRY_INTERVAL);
-                } else {
-                    String message = String.format("Query to repository %s failed, maximum number of retries of %d exceeded", source, REPOSITORY_RETRY_ATTEMPTS);
-                    LOG.error(message, e);
-                    throw e;
-                }
-            }
+    private void waitBeforeRetry(OpenRDFException e) throws OpenRDFException, InterruptedException {
+        long delay = backoff.nextDelay();
+        if (delay < 0) {
+            String message = String.format("Query to repository %s failed, giving up after %d retries", source, backoff.getAttempts() - 1);
+            LOG.error(message, e);
+            throw e;
         }
+        String message = String.format("Query to repository %s failed, retry %d in %d ms",
+                source, backoff.getAttempts(), delay);
+        LOG.warn(message, e);
+        Thread.sleep(delay);
     }
 
     /**
-     * Execute the given SPARQL SELECT and constructs a collection of quads from the result.
+     * Execute the given SPARQL SELECT and passes quads from the result to the given handler.
+     * Results are streamed to the handler as they are parsed from the response.
      * The query must contain four variables in the result, exactly in this order: named graph, subject,
      * property, object
      * @param sparqlQuery a SPARQL SELECT query with four variables in the result: named graph, subject,
      * property, object (exactly in this order).
-     * @param rdfHandler handler to which retrieved quads are passed
-     * @return number of retrieved quads
+     * @param resultHandler handler to which query results are passed
      */
-    private int addQuadsFromQuery(String sparqlQuery, RDFHandler rdfHandler) throws OpenRDFException {
-        int quadCount = 0;
+    private void addQuadsFromQuery(String sparqlQuery, QuadForwardingHandler resultHandler) throws OpenRDFException {
         RepositoryConnection connection = getConnection();
-        TupleQueryResult resultSet = connection.prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery).evaluate();
         try {
-            ValueFactory valueFactory = source.getRepository().getValueFactory();
-            while (resultSet.hasNext()) {
-                BindingSet bindings = resultSet.next();
-                Statement quad = valueFactory.createStatement(
-                        (Resource) bindings.getValue(SUBJECT_VAR),
-                        (URI) bindings.getValue(PROPERTY_VAR),
-                        bindings.getValue(OBJECT_VAR),
-                        (Resource) bindings.getValue(GRAPH_VAR));
-                rdfHandler.handleStatement(quad);
-                quadCount++;
+            connection.prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery).evaluate(resultHandler);
+        } catch (TupleQueryResultHandlerException e) {
+            if (e.getCause() instanceof RDFHandlerException) {
+                throw (RDFHandlerException) e.getCause();
             }
+            throw e;
         } finally {
-            resultSet.close();
             if (source.getType() == EnumDataSourceType.VIRTUOSO) {
                 // Issue #1 fix ("Too many open statements") - Virtuoso doesn't release resources properly
                 try {
@@ -233,7 +344,6 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
                 }
             }
         }
-        return quadCount;
     }
 
     private RepositoryConnection getConnection() throws RepositoryException {
@@ -256,4 +366,69 @@ public class AllTriplesRepositoryLoader extends RepositoryLoaderBase implements
     public void setInitialOffset(int initialOffset) {
         this.initialOffset = initialOffset;
     }
+
+    /**
+     * Sets the check of overlapping pages shared by loaders of pages of the same query loaded by {@link #loadPage(long, int, RDFHandler)}.
+     * Has no effect with ordered paging enabled.
+     * @param pageOverlapCheck check of overlapping pages
+     */
+    public void setPageOverlapCheck(PageOverlapCheck pageOverlapCheck) {
+        if (!orderedPaging) {
+            this.pageOverlapCheck = pageOverlapCheck;
+        }
+    }
+
+    /**
+     * Result handler which creates quads from query solutions and passes them to an {@link RDFHandler}.
+     */
+    private static class QuadForwardingHandler extends TupleQueryResultHandlerBase {
+        private final ValueFactory valueFactory;
+        private final RDFHandler rdfHandler;
+        private final PageOverlapCheck pageOverlapCheck;
+        private int quadCount = 0;
+        private int overlappingQuadCount = 0;
+        private long handlerTime = 0;
+
+        public QuadForwardingHandler(ValueFactory valueFactory, RDFHandler rdfHandler, PageOverlapCheck pageOverlapCheck) {
+            this.valueFactory = valueFactory;
+            this.rdfHandler = rdfHandler;
+            this.pageOverlapCheck = pageOverlapCheck;
+        }
+
+        @Override
+        public void handleSolution(BindingSet bindings) throws TupleQueryResultHandlerException {
+            Statement quad = valueFactory.createStatement(
+                    (Resource) bindings.getValue(SUBJECT_VAR),
+                    (URI) bindings.getValue(PROPERTY_VAR),
+                    bindings.getValue(OBJECT_VAR),
+                    (Resource) bindings.getValue(GRAPH_VAR));
+            if (pageOverlapCheck != null && !pageOverlapCheck.add(quad)) {
+                overlappingQuadCount++;
+            }
+            long startTime = System.nanoTime();
+            try {
+                rdfHandler.handleStatement(quad);
+            } catch (RDFHandlerException e) {
+                throw new TupleQueryResultHandlerException(e);
+            }
+            handlerTime += System.nanoTime() - startTime;
+            quadCount++;
+        }
+
+        public int getQuadCount() {
+            return quadCount;
+        }
+
+        public int getOverlappingQuadCount() {
+            return overlappingQuadCount;
+        }
+
+        /**
+         * Returns the time spent by the handler processing quads.
+         * @return time in milliseconds
+         */
+        public long getHandlerTime() {
+            return handlerTime / 1_000_000;
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.data;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+
+/**
+ * Computes delays between retries of a failed operation.
+ * The delay doubles with each consecutive failure up to the given maximum and a random jitter
+ * of up to half of the delay is subtracted so that clients failing at the same time do not retry at the same time.
+ * Retrying gives up when the total delay since the last success would exceed the given limit.
+ * @author Jan Michelfeit
+ */
+class ExponentialBackoff {
+    private final long initialInterval;
+    private final long maxInterval;
+    private final long maxTotalDelay;
+    private final Random random;
+    private int attempts = 0;
+    private long totalDelay = 0;
+
+    /**
+     * Creates a new instance.
+     * @param initialInterval delay after the first failure in milliseconds
+     * @param maxInterval maximum delay between two attempts in milliseconds
+     * @param maxTotalDelay maximum total delay after consecutive failures in milliseconds
+     * @param random source of jitter
+     */
+    public ExponentialBackoff(long initialInterval, long maxInterval, long maxTotalDelay, Random random) {
+        Preconditions.checkArgument(initialInterval > 0);
+        Preconditions.checkArgument(maxInterval >= initialInterval);
+        this.initialInterval = initialInterval;
+        this.maxInterval = maxInterval;
+        this.maxTotalDelay = maxTotalDelay;
+        this.random = random;
+    }
+
+    /**
+     * Registers a failure and returns the delay before the next attempt.
+     * @return delay in milliseconds or -1 if the operation should not be retried any more
+     */
+    public long nextDelay() {
+        attempts++;
+        long interval = initialInterval;
+        for (int i = 1; i < attempts && interval < maxInterval; i++) {
+            interval *= 2;
+        }
+        interval = Math.min(interval, maxInterval);
+        long delay = interval - (long) (random.nextDouble() * (interval / 2));
+        if (totalDelay + delay > maxTotalDelay) {
+            return -1;
+        }
+        totalDelay += delay;
+        return delay;
+    }
+
+    /**
+     * Registers a success; the next failure starts with the initial interval again.
+     */
+    public void reset() {
+        attempts = 0;
+        totalDelay = 0;
+    }
+
+    /**
+     * Returns the number of consecutive failures since the last success.
+     * @return number of failures
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+}
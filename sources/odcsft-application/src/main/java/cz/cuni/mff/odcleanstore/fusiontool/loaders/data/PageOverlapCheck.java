@@ -0,0 +1,74 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.data;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects quads returned in more than one page of results of a query paged by LIMIT and OFFSET without ORDER BY.
+ * SPARQL doesn't guarantee the same order of results for repeated queries without ORDER BY; if the order changes,
+ * pages overlap and other quads are skipped instead.
+ * In order to keep memory bounded, only a deterministic sample of quads given by their hash is remembered,
+ * so that an overlap of many quads is detected with high probability while an overlap of a few quads may go unnoticed.
+ * The check is thread-safe.
+ * @author Jan Michelfeit
+ */
+public class PageOverlapCheck {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /** One of 2^DEFAULT_SAMPLE_BITS quads is remembered. */
+    private static final int DEFAULT_SAMPLE_BITS = 12;
+
+    private final long sampleMask;
+    private final Set<Long> sampledQuads = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    /**
+     * Creates a new instance.
+     */
+    public PageOverlapCheck() {
+        this(DEFAULT_SAMPLE_BITS);
+    }
+
+    /**
+     * Creates a new instance remembering one of 2^sampleBits quads.
+     * @param sampleBits binary logarithm of the inverse sampling rate
+     */
+    PageOverlapCheck(int sampleBits) {
+        Preconditions.checkArgument(sampleBits >= 0 && sampleBits < Long.SIZE);
+        this.sampleMask = (1L << sampleBits) - 1;
+    }
+
+    /**
+     * Records a quad loaded in a page.
+     * @param quad loaded quad
+     * @return false if the quad is known to have been loaded before, true otherwise
+     */
+    public boolean add(Statement quad) {
+        long hash = hash(quad);
+        return (hash & sampleMask) != 0 || sampledQuads.add(hash);
+    }
+
+    private static long hash(Statement quad) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putValue(hasher, quad.getSubject());
+        putValue(hasher, quad.getPredicate());
+        putValue(hasher, quad.getObject());
+        putValue(hasher, quad.getContext());
+        return hasher.hash().asLong();
+    }
+
+    private static void putValue(Hasher hasher, Value value) {
+        // toString() distinguishes URIs, blank nodes and literals including their datatype and language
+        String string = value == null ? "" : value.toString();
+        hasher.putInt(string.length());
+        hasher.putString(string, Charsets.UTF_8);
+    }
+}
@@ -5,6 +5,7 @@ import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
 import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
 import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
@@ -17,6 +18,7 @@ import java.util.NoSuchElementException;
  */
 public class FederatedSeedSubjectsLoader {
     private final Collection<DataSource> dataSources;
+    private final File spoolDirectory;
     
     /**
      * Iterator wrapping access to underlying iterators for each data source.
@@ -77,7 +79,7 @@ public class FederatedSeedSubjectsLoader {
             }
             if (dataSourceIt.hasNext()) {
                 DataSource source = dataSourceIt.next();
-                SeedSubjectsLoader loader = new SeedSubjectsLoader(source);
+                SeedSubjectsLoader loader = new SeedSubjectsLoader(source, spoolDirectory);
                 return loader.getTripleSubjectsCollection(seedResourceRestriction);
             } else {
                 return null;
@@ -106,9 +108,11 @@ public class FederatedSeedSubjectsLoader {
     /**
      * Creates a new instance for the given data sources.
      * @param dataSources initialized RDF data sources
+     * @param spoolDirectory directory where subjects loaded in pages are spooled
      */
-    public FederatedSeedSubjectsLoader(Collection<DataSource> dataSources) {
+    public FederatedSeedSubjectsLoader(Collection<DataSource> dataSources, File spoolDirectory) {
         this.dataSources = dataSources;
+        this.spoolDirectory = spoolDirectory;
     }
 
     /**
@@ -1,6 +1,9 @@
 package cz.cuni.mff.odcleanstore.fusiontool.loaders.entity;
 
 import cz.cuni.mff.odcleanstore.core.ODCSUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
+import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestriction;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestrictionImpl;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
@@ -9,8 +12,10 @@ import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolQueryException;
 import cz.cuni.mff.odcleanstore.fusiontool.loaders.RepositoryLoaderBase;
 import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.util.OutputParamReader;
 import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
 import org.openrdf.OpenRDFException;
+import org.openrdf.model.BNode;
 import org.openrdf.model.Value;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.QueryEvaluationException;
@@ -21,13 +26,19 @@ import org.openrdf.repository.RepositoryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.NoSuchElementException;
 
 /**
  * Loads subjects of triples to be processed.
  * If seed resource restriction is given, only subjects matching this restriction will be returned.
- * In the current implementation, the collection uses an open cursor in the database.
+ * If parameter {@link ConfigParameters#DATA_SOURCE_SEED_SUBJECTS_PAGE_SIZE} is positive (the default for
+ * SPARQL data sources), subjects are loaded in pages ordered by subject URI and spooled to a local file,
+ * otherwise the collection uses an open cursor in the database. Subjects are also loaded using an open cursor
+ * if some of them are blank nodes, because blank nodes cannot be used to continue with the next page.
  */
 public class SeedSubjectsLoader extends RepositoryLoaderBase {
     private static final Logger LOG = LoggerFactory.getLogger(SeedSubjectsLoader.class);
@@ -55,8 +66,6 @@ public class SeedSubjectsLoader extends RepositoryLoaderBase {
      * (4) seed resource restriction pattern
      * (5) seed resource restriction variable
      */
-    // TODO: preload matching named graphs
-    // TODO: add limit/offset clauses
     private static final String SUBJECTS_QUERY = "%1$s"
             + "\n SELECT DISTINCT (?%5$s AS ?" + SUBJECT_VARIABLE + ")"
             + "\n WHERE {"
@@ -67,15 +76,96 @@ public class SeedSubjectsLoader extends RepositoryLoaderBase {
             + "\n   }"
             + "\n }";
 
+    /**
+     * SPARQL query that gets a single page of distinct subjects of triples to be processed.
+     * Pages are ordered by subject and the next page starts after the last subject of the previous page
+     * (keyset paging) so that no database cursor needs to be kept open between pages and the database
+     * can read subjects in index order instead of sorting all of them for each page.
+     * The result contains a single variable {@value #SUBJECT_VARIABLE}.
+     *
+     * Must be formatted with arguments:
+     * (1) namespace prefixes declaration
+     * (2) named graph restriction pattern
+     * (3) named graph restriction variable
+     * (4) seed resource restriction pattern
+     * (5) seed resource restriction variable
+     * (6) filter restricting subjects to those after the last subject of the previous page
+     *      or an empty string for the first page
+     * (7) page size
+     */
+    private static final String SUBJECTS_PAGE_QUERY = "%1$s"
+            + "\n SELECT DISTINCT (?%5$s AS ?" + SUBJECT_VARIABLE + ")"
+            + "\n WHERE {"
+            + "\n   %2$s"
+            + "\n   GRAPH ?%3$s {"
+            + "\n     ?%5$s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o."
+            + "\n     %4$s"
+            + "\n   }"
+            + "\n   %6$s"
+            + "\n }"
+            + "\n ORDER BY ?%5$s"
+            + "\n LIMIT %7$s";
+
+    /**
+     * Filter for {@link #SUBJECTS_PAGE_QUERY} comparing subject URIs directly, as supported by Virtuoso.
+     * Must be formatted with arguments:
+     * (1) seed resource restriction variable
+     * (2) the last subject of the previous page (escaped for use in an IRI reference)
+     */
+    private static final String URI_KEYSET_FILTER = "FILTER (?%1$s > <%2$s>)";
+
+    /**
+     * Filter for {@link #SUBJECTS_PAGE_QUERY} for other SPARQL endpoints, where comparison
+     * operators are defined only for literals.
+     * Must be formatted with arguments:
+     * (1) seed resource restriction variable
+     * (2) the last subject of the previous page (escaped for use in a string literal)
+     */
+    private static final String STRING_KEYSET_FILTER = "FILTER (STR(?%1$s) > \"%2$s\")";
+
+    /**
+     * SPARQL query that gets the first subject of triples to be processed in the order of
+     * {@link #SUBJECTS_PAGE_QUERY}. Blank nodes are ordered before URIs, so the result is a blank node
+     * if and only if there is a blank node subject.
+     * The result contains a single variable {@value #SUBJECT_VARIABLE}.
+     *
+     * Must be formatted with arguments:
+     * (1) namespace prefixes declaration
+     * (2) named graph restriction pattern
+     * (3) named graph restriction variable
+     * (4) seed resource restriction pattern
+     * (5) seed resource restriction variable
+     */
+    private static final String FIRST_SUBJECT_QUERY = "%1$s"
+            + "\n SELECT (?%5$s AS ?" + SUBJECT_VARIABLE + ")"
+            + "\n WHERE {"
+            + "\n   %2$s"
+            + "\n   GRAPH ?%3$s {"
+            + "\n     ?%5$s ?" + VAR_PREFIX + "p ?" + VAR_PREFIX + "o."
+            + "\n     %4$s"
+            + "\n   }"
+            + "\n }"
+            + "\n ORDER BY ?%5$s"
+            + "\n LIMIT 1";
+
     private final DataSource dataSource;
-    
+    private final File spoolDirectory;
+    private final int pageSize;
+
     /**
      * Creates a new instance.
-     * @param dataSource an initialized data source  
+     * @param dataSource an initialized data source
+     * @param spoolDirectory directory where subjects loaded in pages are spooled
      */
-    public SeedSubjectsLoader(DataSource dataSource) {
+    public SeedSubjectsLoader(DataSource dataSource, File spoolDirectory) {
         super(dataSource);
         this.dataSource = dataSource;
+        this.spoolDirectory = spoolDirectory;
+        OutputParamReader paramReader = new OutputParamReader(dataSource);
+        int defaultPageSize = dataSource.getType() == EnumDataSourceType.SPARQL
+                ? paramReader.getIntValue(ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, LDFTConfigConstants.DEFAULT_SPARQL_RESULT_MAX_ROWS)
+                : 0;
+        this.pageSize = paramReader.getIntValue(ConfigParameters.DATA_SOURCE_SEED_SUBJECTS_PAGE_SIZE, defaultPageSize);
     }
 
     /**
@@ -105,17 +195,121 @@ public class SeedSubjectsLoader extends RepositoryLoaderBase {
                             + " variables in SPARQL patterns, both using ?" + seedRestriction.getVar());
         }
         
-        String query = String.format(Locale.ROOT, SUBJECTS_QUERY,
+        UriCollection result;
+        if (pageSize > 0 && !hasBlankNodeSubject(graphRestriction, seedRestriction)) {
+            SubjectsPageLoaderImpl pageLoader = new SubjectsPageLoaderImpl(graphRestriction, seedRestriction);
+            result = new SpooledSubjectsCollection(spoolDirectory, pageLoader, pageSize, dataSource.getName(),
+                    LDFTConfigConstants.REPOSITORY_RETRY_ATTEMPTS, LDFTConfigConstants.REPOSITORY_RETRY_INTERVAL);
+        } else {
+            String query = String.format(Locale.ROOT, SUBJECTS_QUERY,
+                    getPrefixDecl(),
+                    graphRestriction.getPattern(),
+                    graphRestriction.getVar(),
+                    seedRestriction.getPattern(),
+                    seedRestriction.getVar());
+            result = new UriCollectionImpl(query, dataSource);
+        }
+        LOG.debug("ODCS-FusionTool: Triple subjects collection initialized in {} ms", System.currentTimeMillis() - startTime);
+        return result;
+    }
+    
+    private boolean hasBlankNodeSubject(SparqlRestriction graphRestriction, SparqlRestriction seedRestriction)
+            throws LDFusionToolException {
+        String query = String.format(Locale.ROOT, FIRST_SUBJECT_QUERY,
                 getPrefixDecl(),
                 graphRestriction.getPattern(),
                 graphRestriction.getVar(),
                 seedRestriction.getPattern(),
                 seedRestriction.getVar());
-        UriCollection result = new UriCollectionImpl(query, dataSource);
-        LOG.debug("ODCS-FusionTool: Triple subjects collection initialized in {} ms", System.currentTimeMillis() - startTime);
-        return result;
+        try {
+            RepositoryConnection connection = dataSource.getRepository().getConnection();
+            try {
+                TupleQueryResult resultSet = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
+                try {
+                    if (resultSet.hasNext() && resultSet.next().getValue(SUBJECT_VARIABLE) instanceof BNode) {
+                        LOG.info("Source {} contains blank node subjects, seed subjects will not be loaded in pages",
+                                dataSource.getName());
+                        return true;
+                    }
+                    return false;
+                } finally {
+                    resultSet.close();
+                }
+            } finally {
+                connection.close();
+            }
+        } catch (OpenRDFException e) {
+            throw new LDFusionToolQueryException(LDFusionToolErrorCodes.QUERY_TRIPLE_SUBJECTS, query, dataSource.getName(), e);
+        }
     }
-    
+
+    /**
+     * Loader of pages of subjects using {@link #SUBJECTS_PAGE_QUERY}.
+     * Each page is loaded using a new connection.
+     */
+    private final class SubjectsPageLoaderImpl implements SpooledSubjectsCollection.SubjectsPageLoader {
+        private final SparqlRestriction graphRestriction;
+        private final SparqlRestriction seedRestriction;
+
+        public SubjectsPageLoaderImpl(SparqlRestriction graphRestriction, SparqlRestriction seedRestriction) {
+            this.graphRestriction = graphRestriction;
+            this.seedRestriction = seedRestriction;
+        }
+
+        @Override
+        public List<String> loadPage(String lastSubject) throws OpenRDFException {
+            String query = String.format(Locale.ROOT, SUBJECTS_PAGE_QUERY,
+                    getPrefixDecl(),
+                    graphRestriction.getPattern(),
+                    graphRestriction.getVar(),
+                    seedRestriction.getPattern(),
+                    seedRestriction.getVar(),
+                    lastSubject == null ? "" : getKeysetFilter(lastSubject),
+                    pageSize);
+            List<String> result = new ArrayList<>(pageSize);
+            RepositoryConnection connection = dataSource.getRepository().getConnection();
+            try {
+                TupleQueryResult resultSet = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
+                try {
+                    while (resultSet.hasNext()) {
+                        String uri = ODCSUtils.getNodeUri(resultSet.next().getValue(SUBJECT_VARIABLE));
+                        if (uri != null) {
+                            result.add(uri);
+                        }
+                    }
+                } finally {
+                    resultSet.close();
+                }
+            } finally {
+                connection.close();
+            }
+            return result;
+        }
+
+        private String getKeysetFilter(String lastSubject) {
+            return dataSource.getType() == EnumDataSourceType.VIRTUOSO
+                    ? String.format(Locale.ROOT, URI_KEYSET_FILTER, seedRestriction.getVar(), escapeIriReference(lastSubject))
+                    : String.format(Locale.ROOT, STRING_KEYSET_FILTER, seedRestriction.getVar(), escapeStringLiteral(lastSubject));
+        }
+    }
+
+    private static String escapeStringLiteral(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String escapeIriReference(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c <= ' ' || "<>\"{}|^`\\".indexOf(c) >= 0) {
+                result.append(String.format(Locale.ROOT, "\\u%04X", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
     /**
      * Collection of subjects of relevant triples.
      */
@@ -0,0 +1,273 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.entity;
+
+import com.google.common.base.Charsets;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
+import org.openrdf.OpenRDFException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Collection of subjects enumerated page by page in a background thread.
+ * Each page is loaded by a separate query and appended to a local spool file, from which subjects are read
+ * by the consumer. Enumeration therefore runs ahead of processing, no database cursor is kept open
+ * between pages and a failed page query is retried starting after the last subject spooled so far.
+ * @author Jan Michelfeit
+ */
+class SpooledSubjectsCollection implements UriCollection {
+    private static final Logger LOG = LoggerFactory.getLogger(SpooledSubjectsCollection.class);
+
+    /**
+     * Loader of a single page of subjects.
+     */
+    interface SubjectsPageLoader {
+        /**
+         * Returns subjects ordered by code points of their string value which follow after the given subject.
+         * @param lastSubject the last subject of the previous page or null for the first page
+         * @return page of subjects in ascending order; the page is the last one if it is smaller than the page size
+         * @throws OpenRDFException query error
+         */
+        List<String> loadPage(String lastSubject) throws OpenRDFException;
+    }
+
+    private final File spoolFile;
+    private final SubjectsPageLoader pageLoader;
+    private final int pageSize;
+    private final String sourceName;
+    private final int maxRetryAttempts;
+    private final long retryInterval;
+
+    private final Object lock = new Object();
+    private final DataInputStream input;
+    private final Thread spoolingThread;
+    private long spooledCount = 0;
+    private long readCount = 0;
+    private boolean finished = false;
+    private Exception error = null;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new instance and starts enumeration of subjects in a background thread.
+     * @param spoolDirectory directory where the spool file is created
+     * @param pageLoader loader of pages of subjects
+     * @param pageSize number of subjects requested in a single page
+     * @param sourceName name of the enumerated data source for diagnostic purposes
+     * @param maxRetryAttempts maximum number of retries of a failed page query
+     * @param retryInterval time between retry attempts in milliseconds
+     * @throws LDFusionToolException the spool file cannot be created
+     */
+    public SpooledSubjectsCollection(File spoolDirectory, SubjectsPageLoader pageLoader, int pageSize, String sourceName,
+            int maxRetryAttempts, long retryInterval) throws LDFusionToolException {
+        this.pageLoader = pageLoader;
+        this.pageSize = pageSize;
+        this.sourceName = sourceName;
+        this.maxRetryAttempts = maxRetryAttempts;
+        this.retryInterval = retryInterval;
+        DataOutputStream output = null;
+        try {
+            this.spoolFile = LDFusionToolUtils.createTempFile(spoolDirectory, "seeds");
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spoolFile)));
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(spoolFile)));
+        } catch (IOException e) {
+            closeQuietly(output);
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SEED_SUBJECTS_SPOOL,
+                    "Cannot create spool file for seed subjects", e);
+        }
+        this.spoolingThread = new Thread(new SpoolingTask(output), "seed-subjects-" + sourceName);
+        this.spoolingThread.setDaemon(true);
+        this.spoolingThread.start();
+    }
+
+    /**
+     * Returns {@code true} if the collection has more elements.
+     * Blocks until the next page is spooled if necessary.
+     * @return {@code true} if the collection has more elements
+     */
+    @Override
+    public boolean hasNext() {
+        synchronized (lock) {
+            while (readCount >= spooledCount && !finished && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = e;
+                    return true;
+                }
+            }
+            return !closed && (readCount < spooledCount || error != null);
+        }
+    }
+
+    /**
+     * Returns the next subject from the collection and removes it from the collection.
+     * @return the removed element
+     * @throws LDFusionToolException error loading or reading subjects
+     */
+    @Override
+    public String next() throws LDFusionToolException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        synchronized (lock) {
+            if (readCount >= spooledCount) {
+                throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.TRIPLE_SUBJECT_ITERATION,
+                        "Error while iterating over triple subjects from source " + sourceName, error);
+            }
+        }
+        try {
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            synchronized (lock) {
+                readCount++;
+            }
+            return new String(bytes, Charsets.UTF_8);
+        } catch (IOException e) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SEED_SUBJECTS_SPOOL,
+                    "Error reading spooled seed subjects", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        spoolingThread.interrupt();
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        closeQuietly(input);
+        if (!spoolFile.delete()) {
+            spoolFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    public void add(String node) {
+        // do nothing
+    }
+
+    /**
+     * Compares strings by their code points, i.e. in the order of IRIs in SPARQL ORDER BY.
+     * Unlike {@link String#compareTo(String)}, characters outside the Basic Multilingual Plane are ordered
+     * after all characters inside it.
+     * @param first first compared string
+     * @param second second compared string
+     * @return a negative integer, zero, or a positive integer as the first string is less than, equal to,
+     *      or greater than the second string
+     */
+    static int compareCodePoints(String first, String second) {
+        int i = 0;
+        while (i < first.length() && i < second.length()) {
+            int firstCodePoint = first.codePointAt(i);
+            int secondCodePoint = second.codePointAt(i);
+            if (firstCodePoint != secondCodePoint) {
+                return firstCodePoint < secondCodePoint ? -1 : 1;
+            }
+            i += Character.charCount(firstCodePoint);
+        }
+        return (first.length() - i) - (second.length() - i);
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Task loading pages of subjects and appending them to the spool file.
+     */
+    private class SpoolingTask implements Runnable {
+        private final DataOutputStream output;
+
+        public SpoolingTask(DataOutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.currentTimeMillis();
+            Exception pageError = null;
+            try {
+                spoolAllPages();
+            } catch (OpenRDFException | IOException | InterruptedException e) {
+                pageError = e;
+            } finally {
+                closeQuietly(output);
+                synchronized (lock) {
+                    finished = true;
+                    error = closed ? null : pageError;
+                    lock.notifyAll();
+                }
+            }
+            if (pageError != null && !closed) {
+                LOG.error("Enumeration of seed subjects from source " + sourceName + " failed", pageError);
+            } else {
+                LOG.debug("ODCS-FusionTool: Enumerated {} seed subjects from source {} in {} ms",
+                        new Object[] {spooledCount, sourceName, System.currentTimeMillis() - startTime});
+            }
+        }
+
+        private void spoolAllPages() throws OpenRDFException, IOException, InterruptedException {
+            String lastSubject = null;
+            int retryAttempts = 0;
+            while (!closed) {
+                List<String> page;
+                try {
+                    page = pageLoader.loadPage(lastSubject);
+                } catch (OpenRDFException e) {
+                    retryAttempts++;
+                    if (retryAttempts > maxRetryAttempts) {
+                        throw e;
+                    }
+                    LOG.warn(String.format("Query for seed subjects from %s failed, retry %d of %d in %d ms",
+                            sourceName, retryAttempts, maxRetryAttempts, retryInterval), e);
+                    Thread.sleep(retryInterval);
+                    continue;
+                }
+
+                for (String subject : page) {
+                    byte[] bytes = subject.getBytes(Charsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+                output.flush();
+                retryAttempts = 0;
+                synchronized (lock) {
+                    spooledCount += page.size();
+                    lock.notifyAll();
+                }
+
+                if (page.size() < pageSize) {
+                    return;
+                }
+                String pageLastSubject = page.get(page.size() - 1);
+                if (lastSubject != null && compareCodePoints(pageLastSubject, lastSubject) <= 0) {
+                    throw new IOException("Seed subjects from source " + sourceName + " are not returned in ascending order");
+                }
+                lastSubject = pageLastSubject;
+            }
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.SameAsLinkConsumer;
+import cz.cuni.mff.odcleanstore.fusiontool.io.ExternalSorter;
+import cz.cuni.mff.odcleanstore.fusiontool.io.MappedUriMapping;
+import cz.cuni.mff.odcleanstore.fusiontool.io.MappedUriMappingWriter;
+import cz.cuni.mff.odcleanstore.fusiontool.util.Closeable;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.OWL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Resolves owl:sameAs links to canonical URIs in external memory, for link sets that don't fit into memory.
+ * Links are written to a temporary edge file and connected components of the sameAs graph are computed
+ * by alternating large-star and small-star operations over externally sorted edge files (see Kiveris et al.,
+ * Connected Components in MapReduce and Beyond, 2014); each round contracts the graph until every component
+ * is a star around its minimum node, which takes a logarithmic number of rounds in practice.
+ * The result is written by {@link MappedUriMappingWriter} and can be opened by {@link MappedUriMapping#open(File)}.
+ *
+ * Unlike the in-memory mappings, the canonical URI doesn't depend on the order of links: it is
+ * the smallest preferred URI of a component or, if the component contains no preferred URI,
+ * the smallest URI of the component in the order of {@link MappedUriMapping#UTF8_ORDER}.
+ *
+ * All temporary files are tab-separated lines "key value" sorted as strings; nodes of the graph are URIs
+ * prefixed so that preferred URIs are the smallest. URIs containing whitespace or control characters
+ * are not valid IRIs and links with such URIs are ignored.
+ * @author Jan Michelfeit
+ */
+public class ExternalSameAsLinkResolver implements SameAsLinkConsumer, Closeable<IOException> {
+    private static final Logger LOG = LoggerFactory.getLogger(ExternalSameAsLinkResolver.class);
+
+    private static final String TEMP_FILE_PREFIX = "odcs-ft.sameas.";
+    private static final Charset CHARSET = Charsets.UTF_8;
+    private static final int GZIP_BUFFER_SIZE = 2048;
+    private static final char SEPARATOR = '\t';
+
+    /** Node prefix of preferred URIs; it makes preferred URIs smaller than other URIs. */
+    private static final char PREFERRED_NODE_PREFIX = '0';
+    private static final char NODE_PREFIX = '1';
+
+    /** Record type prefixes sorting the index of a URI before references to the URI. */
+    private static final char INDEX_RECORD = '0';
+    private static final char REFERENCE_RECORD = '1';
+
+    private final Set<String> preferredURIs;
+    private final File tempDirectory;
+    private final ExternalSorter externalSorter;
+    private final Collection<File> temporaryFiles = new ArrayList<>();
+    private final File edgeFile;
+    private BufferedWriter edgeWriter;
+    private long linkCount = 0;
+    private long ignoredLinkCount = 0;
+
+    /**
+     * Creates a new instance.
+     * @param preferredURIs set of URIs preferred as canonical URIs; can be null
+     * @param tempDirectory directory for temporary files
+     * @param maxMemoryLimit maximum memory amount to use for sorting
+     * @throws IOException error creating temporary files
+     */
+    public ExternalSameAsLinkResolver(Set<String> preferredURIs, File tempDirectory, long maxMemoryLimit) throws IOException {
+        Preconditions.checkNotNull(tempDirectory);
+        this.preferredURIs = preferredURIs != null ? preferredURIs : Collections.<String>emptySet();
+        this.tempDirectory = tempDirectory;
+        this.externalSorter = new ExternalSorter(MappedUriMapping.UTF8_ORDER, tempDirectory, true, maxMemoryLimit);
+        this.edgeFile = createTempFile();
+        this.edgeWriter = createTempFileWriter(edgeFile);
+    }
+
+    @Override
+    public void addLink(Statement link) {
+        if (!(link.getSubject() instanceof URI) || !(link.getObject() instanceof URI)) {
+            // Ignore sameAs links between everything but URI resources; see owl:sameAs syntax
+            // at http://www.w3.org/TR/2004/REC-owl-semantics-20040210/syntax.html
+            return;
+        }
+        if (!OWL.SAMEAS.equals(link.getPredicate())) {
+            LOG.warn("A triple with predicate {} passed as a sameAs link", link.getPredicate());
+        }
+        addLink(link.getSubject().stringValue(), link.getObject().stringValue());
+    }
+
+    /**
+     * Add an owl:sameAs mapping for two URIs given as strings.
+     * I/O errors writing the link are rethrown as {@link RuntimeException}.
+     * @param subjectURI subject of a triple with the owl:sameAs predicate
+     * @param objectURI object of a triple with the owl:sameAs predicate
+     */
+    @Override
+    public void addLink(String subjectURI, String objectURI) {
+        Preconditions.checkState(edgeWriter != null, "Links cannot be added after resolution");
+        if (!isValidUri(subjectURI) || !isValidUri(objectURI)) {
+            ignoredLinkCount++;
+            return;
+        }
+        if (subjectURI.equals(objectURI)) {
+            return;
+        }
+        try {
+            writeEdge(edgeWriter, getNode(subjectURI), getNode(objectURI));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        linkCount++;
+    }
+
+    /**
+     * Resolves all added links and writes the resulting URI mapping.
+     * @param outputFile file where the URI mapping is written
+     * @param fingerprint fingerprint of the mapping; see {@link MappedUriMapping#getFingerprint()}
+     * @throws IOException I/O error
+     */
+    public void resolve(File outputFile, long fingerprint) throws IOException {
+        Preconditions.checkState(edgeWriter != null, "Links have already been resolved");
+        edgeWriter.close();
+        edgeWriter = null;
+        if (ignoredLinkCount > 0) {
+            LOG.warn("Ignored {} sameAs links with invalid URIs", ignoredLinkCount);
+        }
+        LOG.info(String.format("Resolving %,d sameAs links in external memory", linkCount));
+        long startTime = System.currentTimeMillis();
+
+        File sortedEdgeFile = sortAndDeleteFile(edgeFile);
+        for (int round = 1; ; round++) {
+            File largeStarFile = largeStar(sortedEdgeFile);
+            File smallStarFile = smallStar(largeStarFile);
+            deleteFile(largeStarFile);
+            boolean isChanged = !hasSameContent(sortedEdgeFile, smallStarFile);
+            deleteFile(sortedEdgeFile);
+            sortedEdgeFile = smallStarFile;
+            if (!isChanged) {
+                LOG.info("Connected components of sameAs links found in {} rounds", round);
+                break;
+            }
+            LOG.debug("Finished round {} of sameAs link resolution", round);
+        }
+
+        File canonicalUriFile = createCanonicalUris(sortedEdgeFile);
+        deleteFile(sortedEdgeFile);
+        writeUriMapping(canonicalUriFile, outputFile, fingerprint);
+        deleteFile(canonicalUriFile);
+        LOG.info("Resolved sameAs links in external memory in {}",
+                LDFusionToolUtils.formatTime(System.currentTimeMillis() - startTime));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (edgeWriter != null) {
+                edgeWriter.close();
+                edgeWriter = null;
+            }
+        } finally {
+            for (File file : temporaryFiles) {
+                file.delete();
+            }
+            temporaryFiles.clear();
+        }
+    }
+
+    /**
+     * Connects all larger neighbors of each node to the minimum node of its neighborhood.
+     * @param sortedEdgeFile sorted edge file, deleted by this method
+     * @return new sorted edge file
+     */
+    private File largeStar(File sortedEdgeFile) throws IOException {
+        File outputFile = createTempFile();
+        try (BufferedReader edges = createTempFileReader(sortedEdgeFile);
+             BufferedWriter output = createTempFileWriter(outputFile)) {
+            String node = null;
+            String minNode = null;
+            String edge;
+            while ((edge = edges.readLine()) != null) {
+                String neighbor = getValue(edge);
+                if (node == null || !edge.startsWith(node + SEPARATOR)) {
+                    // neighbors are sorted, the first one is the minimum
+                    node = getKey(edge);
+                    minNode = isSmaller(neighbor, node) ? neighbor : node;
+                }
+                if (isSmaller(node, neighbor)) {
+                    writeEdge(output, neighbor, minNode);
+                }
+            }
+        }
+        return sortAndDeleteFile(outputFile);
+    }
+
+    /**
+     * Connects each node and all its smaller neighbors to the minimum node of its neighborhood.
+     * @param sortedEdgeFile sorted edge file, deleted by this method
+     * @return new sorted edge file
+     */
+    private File smallStar(File sortedEdgeFile) throws IOException {
+        File outputFile = createTempFile();
+        try (BufferedReader edges = createTempFileReader(sortedEdgeFile);
+             BufferedWriter output = createTempFileWriter(outputFile)) {
+            String node = null;
+            String minNode = null;
+            String edge;
+            while ((edge = edges.readLine()) != null) {
+                String neighbor = getValue(edge);
+                if (node == null || !edge.startsWith(node + SEPARATOR)) {
+                    node = getKey(edge);
+                    minNode = isSmaller(neighbor, node) ? neighbor : node;
+                    if (!minNode.equals(node)) {
+                        writeEdge(output, node, minNode);
+                    }
+                }
+                if (isSmaller(neighbor, node) && !neighbor.equals(minNode)) {
+                    writeEdge(output, neighbor, minNode);
+                }
+            }
+        }
+        return sortAndDeleteFile(outputFile);
+    }
+
+    /**
+     * Writes the canonical URI for each URI; in the final edge file each component is a star
+     * with the minimum node of the component in the center.
+     * @param sortedEdgeFile final sorted edge file
+     * @return file with URIs and their canonical URIs sorted by URI
+     */
+    private File createCanonicalUris(File sortedEdgeFile) throws IOException {
+        File canonicalUriFile = createTempFile();
+        try (BufferedReader edges = createTempFileReader(sortedEdgeFile);
+             BufferedWriter canonicalNodes = createTempFileWriter(canonicalUriFile)) {
+            String node = null;
+            String edge;
+            while ((edge = edges.readLine()) != null) {
+                if (node == null || !edge.startsWith(node + SEPARATOR)) {
+                    node = getKey(edge);
+                    String neighbor = getValue(edge);
+                    writeRecord(canonicalNodes, getNodeUri(node), getNodeUri(isSmaller(neighbor, node) ? neighbor : node));
+                }
+            }
+        }
+        return sortAndDeleteFile(canonicalUriFile);
+    }
+
+    private boolean hasSameContent(File file1, File file2) throws IOException {
+        try (BufferedReader reader1 = createTempFileReader(file1);
+             BufferedReader reader2 = createTempFileReader(file2)) {
+            String line1;
+            String line2;
+            do {
+                line1 = reader1.readLine();
+                line2 = reader2.readLine();
+                if (line1 == null ? line2 != null : !line1.equals(line2)) {
+                    return false;
+                }
+            } while (line1 != null);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the final URI mapping. URIs are numbered in the order of the canonical URI file; a reference file
+     * pairs the number of each URI with the number of its canonical URI.
+     * @param canonicalUriFile file with URIs and their canonical URIs sorted by URI
+     * @param outputFile file where the URI mapping is written
+     * @param fingerprint fingerprint of the mapping
+     */
+    private void writeUriMapping(File canonicalUriFile, File outputFile, long fingerprint) throws IOException {
+        long uriCount = 0;
+        try (BufferedReader canonicalUris = createTempFileReader(canonicalUriFile)) {
+            while (canonicalUris.readLine() != null) {
+                uriCount++;
+            }
+        }
+        if (uriCount > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Too many URIs in sameAs links (%,d)", uriCount));
+        }
+
+        File referenceFile = createTempFile();
+        try (MappedUriMappingWriter writer = new MappedUriMappingWriter(outputFile, (int) uriCount, fingerprint)) {
+            try (BufferedReader canonicalUris = createTempFileReader(canonicalUriFile);
+                 BufferedWriter references = createTempFileWriter(referenceFile)) {
+                String record;
+                while ((record = canonicalUris.readLine()) != null) {
+                    String uri = getKey(record);
+                    int index = writer.addUri(uri);
+                    writeRecord(references, uri, INDEX_RECORD + Integer.toString(index));
+                    writeRecord(references, getValue(record), REFERENCE_RECORD + Integer.toString(index));
+                }
+            }
+            File sortedReferenceFile = sortAndDeleteFile(referenceFile);
+            try (BufferedReader references = createTempFileReader(sortedReferenceFile)) {
+                int canonicalIndex = -1;
+                String record;
+                while ((record = references.readLine()) != null) {
+                    String value = getValue(record);
+                    int index = Integer.parseInt(value.substring(1));
+                    if (value.charAt(0) == INDEX_RECORD) {
+                        canonicalIndex = index;
+                    } else {
+                        writer.setCanonicalIndex(index, canonicalIndex);
+                    }
+                }
+            }
+            deleteFile(sortedReferenceFile);
+        }
+    }
+
+    private String getNode(String uri) {
+        return (preferredURIs.contains(uri) ? PREFERRED_NODE_PREFIX : NODE_PREFIX) + uri;
+    }
+
+    private static String getNodeUri(String node) {
+        return node.substring(1);
+    }
+
+    private static boolean isSmaller(String node1, String node2) {
+        return MappedUriMapping.UTF8_ORDER.compare(node1, node2) < 0;
+    }
+
+    private static boolean isValidUri(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            if (uri.charAt(i) <= ' ') {
+                return false;
+            }
+        }
+        return !uri.isEmpty();
+    }
+
+    private static String getKey(String record) {
+        return record.substring(0, record.indexOf(SEPARATOR));
+    }
+
+    private static String getValue(String record) {
+        return record.substring(record.indexOf(SEPARATOR) + 1);
+    }
+
+    private static void writeRecord(BufferedWriter writer, String key, String value) throws IOException {
+        writer.write(key);
+        writer.write(SEPARATOR);
+        writer.write(value);
+        writer.newLine();
+    }
+
+    private static void writeEdge(BufferedWriter writer, String node1, String node2) throws IOException {
+        writeRecord(writer, node1, node2);
+        writeRecord(writer, node2, node1);
+    }
+
+    private File sortAndDeleteFile(File inputFile) throws IOException {
+        File sortedFile = createTempFile();
+        try (BufferedReader reader = createTempFileReader(inputFile);
+             BufferedWriter writer = createTempFileWriter(sortedFile)) {
+            externalSorter.sort(reader, inputFile.length(), writer);
+        }
+        deleteFile(inputFile);
+        return sortedFile;
+    }
+
+    private File createTempFile() throws IOException {
+        File tempFile = LDFusionToolUtils.createTempFile(tempDirectory, TEMP_FILE_PREFIX);
+        temporaryFiles.add(tempFile); // register it so that we don't forget to delete it
+        return tempFile;
+    }
+
+    private void deleteFile(File file) {
+        file.delete();
+        temporaryFiles.remove(file);
+    }
+
+    private static BufferedReader createTempFileReader(File file) throws IOException {
+        InputStream inputStream = new GZIPInputStream(new FileInputStream(file), GZIP_BUFFER_SIZE);
+        return new BufferedReader(new InputStreamReader(inputStream, CHARSET));
+    }
+
+    private static BufferedWriter createTempFileWriter(File file) throws IOException {
+        OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file), GZIP_BUFFER_SIZE) {
+            {
+                this.def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        return new BufferedWriter(new OutputStreamWriter(outputStream, CHARSET));
+    }
+}
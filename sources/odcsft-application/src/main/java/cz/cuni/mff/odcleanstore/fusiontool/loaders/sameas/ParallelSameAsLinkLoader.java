@@ -0,0 +1,127 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CompactUriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.SameAsLinkConsumer;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loader of owl:sameAs links from multiple loaders (sources or chunks of sources) running in parallel.
+ * Each loader adds links to its own partial URI mapping, which only records which URIs are connected.
+ * Partial mappings are merged into the target mapping in the order of loaders, so the target mapping receives
+ * the same sequence of links (and chooses the same canonical URIs) regardless of the number of threads
+ * and timing of loaders.
+ * At most as many partial mappings as there are threads are held in memory at a time.
+ */
+public class ParallelSameAsLinkLoader implements SameAsLinkLoader {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelSameAsLinkLoader.class);
+
+    private final List<SameAsLinkLoader> loaders;
+    private final int threadCount;
+
+    /**
+     * Creates a new instance.
+     * @param loaders loaders of sameAs links
+     * @param threadCount number of loaders running in parallel
+     */
+    public ParallelSameAsLinkLoader(Collection<? extends SameAsLinkLoader> loaders, int threadCount) {
+        Preconditions.checkNotNull(loaders);
+        Preconditions.checkArgument(threadCount > 0);
+        this.loaders = new ArrayList<>(loaders);
+        this.threadCount = threadCount;
+    }
+
+    @Override
+    public long loadSameAsMappings(SameAsLinkConsumer uriMapping) throws LDFusionToolException {
+        long startTime = System.currentTimeMillis();
+        long loadedCount = 0;
+        // daemon threads so that a failed loader doesn't prevent the application from exiting
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sameas-loader-%d").build());
+        try {
+            Queue<Future<PartialMapping>> pendingResults = new ArrayDeque<>();
+            int nextLoader = 0;
+            while (nextLoader < loaders.size() || !pendingResults.isEmpty()) {
+                while (pendingResults.size() < threadCount && nextLoader < loaders.size()) {
+                    pendingResults.add(executor.submit(new LoadTask(loaders.get(nextLoader))));
+                    nextLoader++;
+                }
+                PartialMapping partialMapping = takeResult(pendingResults.remove());
+                partialMapping.mergeTo(uriMapping);
+                loadedCount += partialMapping.loadedCount;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LOG.info(String.format("Loaded %,d sameAs links from %d loaders using %d threads in %,d ms",
+                loadedCount, loaders.size(), threadCount, System.currentTimeMillis() - startTime));
+        return loadedCount;
+    }
+
+    private PartialMapping takeResult(Future<PartialMapping> result) throws LDFusionToolException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SAME_AS_LOAD,
+                    "Loading of sameAs links was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LDFusionToolException) {
+                throw (LDFusionToolException) e.getCause();
+            }
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SAME_AS_LOAD,
+                    "Error loading sameAs links", e.getCause());
+        }
+    }
+
+    private static class LoadTask implements Callable<PartialMapping> {
+        private final SameAsLinkLoader loader;
+
+        public LoadTask(SameAsLinkLoader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public PartialMapping call() throws LDFusionToolException {
+            CompactUriMappingImpl uriMapping = new CompactUriMappingImpl();
+            long loadedCount = loader.loadSameAsMappings(uriMapping);
+            return new PartialMapping(uriMapping, loadedCount);
+        }
+    }
+
+    private static class PartialMapping {
+        private final CompactUriMappingImpl uriMapping;
+        private final long loadedCount;
+
+        public PartialMapping(CompactUriMappingImpl uriMapping, long loadedCount) {
+            this.uriMapping = uriMapping;
+            this.loadedCount = loadedCount;
+        }
+
+        /**
+         * Adds a link from each URI to the representative of its component, which connects the same URIs
+         * as the original links.
+         */
+        public void mergeTo(SameAsLinkConsumer target) {
+            for (String uri : uriMapping) {
+                target.addLink(uri, uriMapping.getCanonicalURI(uri));
+            }
+        }
+    }
+}
@@ -1,66 +1,161 @@
 package cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas;
 
 import com.google.common.base.Preconditions;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
 import cz.cuni.mff.odcleanstore.fusiontool.config.LDFTConfigConstants;
 import cz.cuni.mff.odcleanstore.fusiontool.config.SourceConfig;
-import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.SameAsLinkConsumer;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.io.LineChunkInputStream;
 import cz.cuni.mff.odcleanstore.fusiontool.io.RdfFileLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.util.LDFusionToolUtils;
 import cz.cuni.mff.odcleanstore.fusiontool.util.OutputParamReader;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
 import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Loader of sameAs links from a file source.
  * Ignores construct pattern but loads all links of type matching
  * {@link cz.cuni.mff.odcleanstore.fusiontool.config.ConfigConflictResolution#getSameAsLinkTypes()}.
+ * Large uncompressed files in a line-based format (N-Triples, N-Quads) can be split by
+ * {@link #createChunkLoaders(SourceConfig, ParserConfig, Set, long)} into chunks loaded independently.
  * TODO test
  */
 public class SameAsLinkFileLoader implements SameAsLinkLoader {
     private static final Logger LOG = LoggerFactory.getLogger(SameAsLinkFileLoader.class);
     private final OutputParamReader paramReader;
     private final RdfFileLoader fileLoader;
+    private final ParserConfig parserConfig;
     private final Set<URI> sameAsLinkTypes;
 
+    /** Chunk of the file to load or null if the whole file should be loaded. */
+    private final FileChunk chunk;
+
     public SameAsLinkFileLoader(SourceConfig sourceConfig, ParserConfig parserConfig, Set<URI> sameAsLinkTypes) {
+        this(sourceConfig, parserConfig, sameAsLinkTypes, null);
+    }
+
+    private SameAsLinkFileLoader(SourceConfig sourceConfig, ParserConfig parserConfig, Set<URI> sameAsLinkTypes, FileChunk chunk) {
         Preconditions.checkNotNull(sourceConfig);
         Preconditions.checkNotNull(parserConfig);
         Preconditions.checkNotNull(sameAsLinkTypes);
         this.fileLoader = new RdfFileLoader(sourceConfig, parserConfig);
         this.paramReader = new OutputParamReader(sourceConfig);
+        this.parserConfig = parserConfig;
         this.sameAsLinkTypes = sameAsLinkTypes;
+        this.chunk = chunk;
+    }
+
+    /**
+     * Creates loaders of sameAs links from the given file source.
+     * Files in a line-based format larger than the given chunk size are split into chunks of complete lines
+     * with one loader for each chunk; other files are loaded by a single loader.
+     * @param sourceConfig file source configuration
+     * @param parserConfig parser configuration
+     * @param sameAsLinkTypes types of sameAs links
+     * @param chunkSize approximate size of a chunk in bytes
+     * @return loaders of all sameAs links from the file in the order of chunks in the file
+     * @throws LDFusionToolException error reading the file
+     */
+    public static List<SameAsLinkLoader> createChunkLoaders(
+            SourceConfig sourceConfig, ParserConfig parserConfig, Set<URI> sameAsLinkTypes, long chunkSize)
+            throws LDFusionToolException {
+        Preconditions.checkArgument(chunkSize > 0);
+        OutputParamReader paramReader = new OutputParamReader(sourceConfig);
+        File file = new File(paramReader.getRequiredStringValue(ConfigParameters.DATA_SOURCE_FILE_PATH));
+        RDFFormat format = LDFusionToolUtils.getSesameSerializationFormat(
+                paramReader.getStringValue(ConfigParameters.DATA_SOURCE_FILE_FORMAT), file.getName());
+        if (file.length() <= chunkSize || !isLineBasedFormat(format) || isCompressed(file)) {
+            return Collections.<SameAsLinkLoader>singletonList(new SameAsLinkFileLoader(sourceConfig, parserConfig, sameAsLinkTypes));
+        }
+        List<SameAsLinkLoader> loaders = new ArrayList<>();
+        long length = file.length();
+        for (long start = 0; start < length; start += chunkSize) {
+            FileChunk chunk = new FileChunk(file, format, start, Math.min(start + chunkSize, length));
+            loaders.add(new SameAsLinkFileLoader(sourceConfig, parserConfig, sameAsLinkTypes, chunk));
+        }
+        return loaders;
     }
 
     @Override
-    public long loadSameAsMappings(UriMappingImpl uriMapping) throws LDFusionToolException {
-        LOG.info("Parsing sameAs links from {}", paramReader.getLabel());
+    public long loadSameAsMappings(SameAsLinkConsumer uriMapping) throws LDFusionToolException {
+        String label = chunk == null ? paramReader.getLabel() : paramReader.getLabel() + " " + chunk;
+        LOG.info("Parsing sameAs links from {}", label);
         try {
             long startTime = System.currentTimeMillis();
-            SameAsLinkHandler linkHandler = new SameAsLinkHandler(uriMapping);
-            fileLoader.read(linkHandler);
+            SameAsLinkHandler linkHandler = new SameAsLinkHandler(uriMapping, label);
+            if (chunk == null) {
+                fileLoader.read(linkHandler);
+            } else {
+                readChunk(linkHandler);
+            }
             LOG.info(String.format("Loaded & resolved %,d sameAs links from %s in %,d ms",
-                    linkHandler.getLoadedCount(), paramReader.getLabel(), System.currentTimeMillis() - startTime));
+                    linkHandler.getLoadedCount(), label, System.currentTimeMillis() - startTime));
             return linkHandler.getLoadedCount();
         } catch (RDFHandlerException e) {
-            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SAME_AS_LOAD, "Error processing sameAs links from " + paramReader.getLabel(), e);
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SAME_AS_LOAD, "Error processing sameAs links from " + label, e);
+        }
+    }
+
+    private void readChunk(SameAsLinkHandler linkHandler) throws LDFusionToolException, RDFHandlerException {
+        RDFParser parser = Rio.createParser(chunk.format);
+        parser.setParserConfig(parserConfig);
+        parser.setRDFHandler(linkHandler);
+        try (InputStream inputStream = new LineChunkInputStream(chunk.file, chunk.start, chunk.end)) {
+            parser.parse(inputStream, chunk.file.toURI().toString());
+        } catch (IOException e) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.RDF_FILE_LOADER_READ,
+                    "I/O Error while reading input file " + chunk.file.getPath(), e);
+        } catch (RDFParseException e) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.RDF_FILE_LOADER_PARSE,
+                    "Error parsing input file " + chunk.file.getPath(), e);
+        }
+    }
+
+    private static boolean isLineBasedFormat(RDFFormat format) {
+        return RDFFormat.NTRIPLES.equals(format) || RDFFormat.NQUADS.equals(format);
+    }
+
+    private static boolean isCompressed(File file) throws LDFusionToolException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int b1 = inputStream.read();
+            int b2 = inputStream.read();
+            return (b1 == 0x1f && b2 == 0x8b) // GZip
+                    || (b1 == 'P' && b2 == 'K'); // Zip
+        } catch (IOException e) {
+            throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.RDF_FILE_LOADER_READ,
+                    "I/O Error while reading input file " + file.getPath(), e);
         }
     }
 
     private class SameAsLinkHandler extends RDFHandlerBase {
-        private final UriMappingImpl uriMapping;
+        private final SameAsLinkConsumer uriMapping;
+        private final String label;
         private long loadedCount = 0;
 
-        public SameAsLinkHandler(UriMappingImpl uriMapping) {
+        public SameAsLinkHandler(SameAsLinkConsumer uriMapping, String label) {
             this.uriMapping = uriMapping;
+            this.label = label;
         }
 
         @Override
@@ -74,7 +169,7 @@ public class SameAsLinkFileLoader implements SameAsLinkLoader {
                 loadedCount++;
 
                 if (loadedCount % LDFTConfigConstants.LOG_LOOP_SIZE == 0) {
-                    LOG.info("... loaded {} sameAs links from {}", loadedCount, paramReader.getLabel());
+                    LOG.info("... loaded {} sameAs links from {}", loadedCount, label);
                 }
             }
         }
@@ -83,4 +178,23 @@ public class SameAsLinkFileLoader implements SameAsLinkLoader {
             return loadedCount;
         }
     }
+
+    private static class FileChunk {
+        private final File file;
+        private final RDFFormat format;
+        private final long start;
+        private final long end;
+
+        public FileChunk(File file, RDFFormat format, long start, long end) {
+            this.file = file;
+            this.format = format;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(bytes %,d-%,d)", start, end);
+        }
+    }
 }
@@ -55,10 +55,10 @@ public class CanonicalUriFileHelper {
      * Do nothing if canonicalUrisFileName is empty.
      * @param canonicalUrisFile file with canonical URIs or null;
      *        this file will be looked up in the base directory given in constructor
-     * @param canonicalUris canonical URIs to write
+     * @param canonicalUris distinct canonical URIs to write
      * @throws IOException I/O error
      */
-    public void writeCanonicalUris(File canonicalUrisFile, Set<String> canonicalUris) throws IOException {
+    public void writeCanonicalUris(File canonicalUrisFile, Iterable<String> canonicalUris) throws IOException {
         if (canonicalUrisFile == null) {
             return;
         }
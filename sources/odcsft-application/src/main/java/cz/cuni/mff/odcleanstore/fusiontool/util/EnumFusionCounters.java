@@ -33,5 +33,14 @@ public enum EnumFusionCounters {
     META_INITIALIZATION,
 
     /** Time spent filtering input data. */
-    INPUT_FILTERING
+    INPUT_FILTERING,
+
+    /** Time the loading stage of pipelined execution spent waiting for other stages. */
+    QUAD_LOADING_IDLE,
+
+    /** Time the conflict resolution stage of pipelined execution spent waiting for other stages. */
+    CONFLICT_RESOLUTION_IDLE,
+
+    /** Time the output writing stage of pipelined execution spent waiting for other stages. */
+    OUTPUT_WRITING_IDLE
 }
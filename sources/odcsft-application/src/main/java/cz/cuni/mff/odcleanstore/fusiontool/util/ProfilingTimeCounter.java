@@ -3,9 +3,12 @@
  */
 package cz.cuni.mff.odcleanstore.fusiontool.util;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Class providing methods for measurement of time spent by operations.
  * Counter are identified by values of enum &lt;E&gt;.
+ * Time is measured with {@link System#nanoTime()} so that many short measurements add up precisely.
  * @param <E> enum for identification of counters that can measure time
  * @author Jan Michelfeit
  */
@@ -42,7 +45,7 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
      * @param counterId counter to start
      */
     public void startCounter(E counterId) {
-        starts[counterId.ordinal()] = System.currentTimeMillis();
+        starts[counterId.ordinal()] = System.nanoTime();
     }
     
     /**
@@ -50,7 +53,7 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
      * @param counterId counter to stop
      */
     public void stopSetCounter(E counterId) {
-        lengths[counterId.ordinal()] = System.currentTimeMillis() - starts[counterId.ordinal()];
+        lengths[counterId.ordinal()] = System.nanoTime() - starts[counterId.ordinal()];
     }
     
     /**
@@ -58,7 +61,7 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
      * @param counterId counter to stop
      */
     public void stopAddCounter(E counterId) {
-        lengths[counterId.ordinal()] += System.currentTimeMillis() - starts[counterId.ordinal()];
+        lengths[counterId.ordinal()] += System.nanoTime() - starts[counterId.ordinal()];
     }
     
     /**
@@ -67,7 +70,7 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
      * @return time in milliseconds
      */
     public long getCounter(E counterId) {
-        return lengths[counterId.ordinal()];
+        return TimeUnit.NANOSECONDS.toMillis(lengths[counterId.ordinal()]);
     }
 
     /**
@@ -76,7 +79,7 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
      * @return formatted time
      */
     public String formatCounter(E counterId) {
-        long timeInMs = lengths[counterId.ordinal()];
+        long timeInMs = getCounter(counterId);
         return LDFusionToolUtils.formatTime(timeInMs);
     }
 
@@ -90,6 +93,16 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
         }
     }
 
+    /**
+     * Returns a new instance with the same counters which measures the time iff this instance does.
+     * Useful for measurements in other threads, which can be added to this counter later
+     * with {@link #addProfilingTimeCounter(ProfilingTimeCounter)}.
+     * @return a new instance of {@link ProfilingTimeCounter}
+     */
+    public ProfilingTimeCounter<E> createSimilarInstance() {
+        return new ProfilingTimeCounter<E>(countersEnum);
+    }
+
     /**
      * Child class which doesn't perform any measurements for use when profiling is turned off.
      * @param <E> see {@link ProfilingTimeCounter}
@@ -113,6 +126,11 @@ public class ProfilingTimeCounter<E extends Enum<E>> {
         public void stopAddCounter(E counterId) {
             // do nothing 
         }
+
+        @Override
+        public ProfilingTimeCounter<E> createSimilarInstance() {
+            return new DummyProfilingTimeCounter<E>(super.countersEnum);
+        }
     }
     
 }
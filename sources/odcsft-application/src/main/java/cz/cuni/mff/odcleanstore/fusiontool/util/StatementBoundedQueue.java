@@ -0,0 +1,143 @@
+package cz.cuni.mff.odcleanstore.fusiontool.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking FIFO queue whose capacity is given in statements rather than in items.
+ * Each item is put to the queue together with the number of statements it holds and
+ * {@link #put(Object, int)} blocks while the queue holds too many statements.
+ * An empty queue accepts any item so that items with more statements than the capacity can pass.
+ * The queue can be closed in order to release threads blocked on it.
+ * This class is thread-safe.
+ * @param <E> type of items
+ */
+public class StatementBoundedQueue<E> {
+    private final long capacity;
+    private final ArrayDeque<Entry<E>> entries = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long statementCount = 0;
+    private boolean isClosed = false;
+
+    /**
+     * @param capacity maximum number of statements in the queue
+     */
+    public StatementBoundedQueue(long capacity) {
+        Preconditions.checkArgument(capacity > 0);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an item to the end of the queue, waiting until the queue has enough free capacity if necessary.
+     * The item is discarded if the queue is closed.
+     * @param item item to add
+     * @param itemStatementCount number of statements held by the item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void put(E item, int itemStatementCount) throws InterruptedException {
+        Preconditions.checkNotNull(item);
+        lock.lockInterruptibly();
+        try {
+            while (!isClosed && !entries.isEmpty() && statementCount + itemStatementCount > capacity) {
+                notFull.await();
+            }
+            if (!isClosed) {
+                enqueue(item, itemStatementCount);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an item which holds no statements to the end of the queue without waiting for free capacity
+     * (e.g. a marker of end of input).
+     * The item is discarded if the queue is closed.
+     * @param item item to add
+     */
+    public void putMarker(E item) {
+        Preconditions.checkNotNull(item);
+        lock.lock();
+        try {
+            if (!isClosed) {
+                enqueue(item, 0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the first item of the queue, waiting until an item is available if necessary.
+     * @return the first item or null if the queue is closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!isClosed && entries.isEmpty()) {
+                notEmpty.await();
+            }
+            if (isClosed) {
+                return null;
+            }
+            Entry<E> entry = entries.poll();
+            statementCount -= entry.statementCount;
+            notFull.signalAll();
+            return entry.item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all items from the queue and releases all threads waiting for it.
+     * Items added to a closed queue are discarded and {@link #take()} returns null.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            isClosed = true;
+            entries.clear();
+            statementCount = 0;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of statements held by items in the queue.
+     * @return number of statements
+     */
+    public long getStatementCount() {
+        lock.lock();
+        try {
+            return statementCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(E item, int itemStatementCount) {
+        entries.add(new Entry<>(item, itemStatementCount));
+        statementCount += itemStatementCount;
+        notEmpty.signal();
+    }
+
+    private static class Entry<E> {
+        private final E item;
+        private final int statementCount;
+
+        public Entry(E item, int statementCount) {
+            this.item = item;
+            this.statementCount = statementCount;
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package cz.cuni.mff.odcleanstore.fusiontool.writers;
 
+import com.google.common.collect.AbstractIterator;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.AlternativeUriIndex;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.IndexedUriMapping;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
 import cz.cuni.mff.odcleanstore.fusiontool.util.CanonicalUriFileHelper;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.AbstractList;
+import java.util.Iterator;
 
+/**
+ * Writes canonical URIs of a URI mapping to a file.
+ * Canonical URIs are streamed so that no set of canonical URIs needs to be collected in memory:
+ * from groups of the {@link AlternativeUriIndex} of an {@link IndexedUriMapping}, where each canonical URI
+ * heads exactly one group, or from mapped URIs which are their own canonical URI for other mappings.
+ */
 public class CanonicalUriFileWriter implements UriMappingWriter {
 
     public static final CanonicalUriFileHelper CANONICAL_URI_FILE_HELPER = new CanonicalUriFileHelper();
@@ -19,11 +28,55 @@ public class CanonicalUriFileWriter implements UriMappingWriter {
     }
 
     @Override
-    public void write(UriMappingIterable uriMapping) throws IOException {
-        Set<String> canonicalUris = new HashSet<>();
-        for (String mappedUri : uriMapping) {
-            canonicalUris.add(uriMapping.getCanonicalURI(mappedUri));
+    public void write(final UriMappingIterable uriMapping) throws IOException {
+        if (outputFile == null) {
+            return;
+        }
+        if (uriMapping instanceof IndexedUriMapping) {
+            final AlternativeUriIndex alternativeUriIndex = ((IndexedUriMapping) uriMapping).getAlternativeUriIndex();
+            CANONICAL_URI_FILE_HELPER.writeCanonicalUris(outputFile, new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return alternativeUriIndex.getGroup(index).get(0).stringValue();
+                }
+
+                @Override
+                public int size() {
+                    return alternativeUriIndex.getGroupCount();
+                }
+            });
+        } else {
+            CANONICAL_URI_FILE_HELPER.writeCanonicalUris(outputFile, new Iterable<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return new MappingCanonicalUriIterator(uriMapping);
+                }
+            });
+        }
+    }
+
+    /**
+     * Iterator over mapped URIs of a mapping which are their own canonical URI; a canonical URI
+     * is always one of the mapped URIs, so each canonical URI is returned exactly once.
+     */
+    private static class MappingCanonicalUriIterator extends AbstractIterator<String> {
+        private final UriMappingIterable uriMapping;
+        private final Iterator<String> uriIterator;
+
+        public MappingCanonicalUriIterator(UriMappingIterable uriMapping) {
+            this.uriMapping = uriMapping;
+            this.uriIterator = uriMapping.iterator();
+        }
+
+        @Override
+        protected String computeNext() {
+            while (uriIterator.hasNext()) {
+                String uri = uriIterator.next();
+                if (uriMapping.getCanonicalURI(uri).equals(uri)) {
+                    return uri;
+                }
+            }
+            return endOfData();
         }
-        CANONICAL_URI_FILE_HELPER.writeCanonicalUris(outputFile, canonicalUris);
     }
 }
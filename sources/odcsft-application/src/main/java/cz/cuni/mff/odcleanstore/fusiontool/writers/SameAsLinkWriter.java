@@ -1,26 +1,46 @@
 package cz.cuni.mff.odcleanstore.fusiontool.writers;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
 import cz.cuni.mff.odcleanstore.fusiontool.config.EnumOutputType;
 import cz.cuni.mff.odcleanstore.fusiontool.config.Output;
 import cz.cuni.mff.odcleanstore.fusiontool.config.OutputImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.AlternativeUriIndex;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.IndexedUriMapping;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
 import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
-import cz.cuni.mff.odcleanstore.fusiontool.util.UriToSameAsIterator;
 import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.model.vocabulary.OWL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Writes owl:sameAs links from each non-canonical URI of a URI mapping to its canonical URI to sameAs outputs.
+ * For an {@link IndexedUriMapping}, links are streamed in a single pass over groups of its {@link AlternativeUriIndex}
+ * and multiple outputs are written concurrently.
+ * Other mappings are not indexed, because the index would need to be built on the heap just for writing the links;
+ * links are streamed directly from the mapping instead, one output after another.
+ */
 public class SameAsLinkWriter implements UriMappingWriter {
     private static final Logger LOG = LoggerFactory.getLogger(SameAsLinkWriter.class);
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
 
     /** An instance of {@link CloseableRDFWriterFactory}. */
     private static final CloseableRDFWriterFactory rdfWriterFactory = new CloseableRDFWriterFactory();
@@ -37,20 +57,28 @@ public class SameAsLinkWriter implements UriMappingWriter {
         List<CloseableRDFWriter> writers = null;
         try {
             writers = createOutputWriters();
-
-            for (CloseableRDFWriter writer : writers) {
-                final Iterator<String> uriIterator = uriMapping.iterator();
-                Iterator<Statement> sameAsTripleIterator = new UriToSameAsIterator(uriIterator, uriMapping, ValueFactoryImpl.getInstance());
-                writer.writeQuads(sameAsTripleIterator);
+            if (writers.isEmpty()) {
+                return;
             }
-
-            if (!writers.isEmpty() && LOG.isInfoEnabled()) {
-                int linkCounter = 0;
-                for (String ignored : uriMapping) {
-                    linkCounter++;
+            long linkCount;
+            if (uriMapping instanceof IndexedUriMapping) {
+                AlternativeUriIndex alternativeUriIndex = ((IndexedUriMapping) uriMapping).getAlternativeUriIndex();
+                if (writers.size() == 1) {
+                    writers.get(0).writeQuads(new SameAsLinkIterator(alternativeUriIndex));
+                } else {
+                    writeConcurrently(writers, alternativeUriIndex);
+                }
+                linkCount = alternativeUriIndex.size() - alternativeUriIndex.getGroupCount();
+            } else {
+                // lookups in a mutable mapping are not thread-safe, outputs are written sequentially
+                linkCount = 0;
+                for (CloseableRDFWriter writer : writers) {
+                    MappingSameAsLinkIterator linkIterator = new MappingSameAsLinkIterator(uriMapping);
+                    writer.writeQuads(linkIterator);
+                    linkCount = linkIterator.linkCount;
                 }
-                LOG.info("Written {} owl:sameAs links", linkCounter);
             }
+            LOG.info(String.format("Written %,d owl:sameAs links", linkCount));
         } catch (LDFusionToolException e) {
             throw new IOException(e);
         } finally {
@@ -62,6 +90,41 @@ public class SameAsLinkWriter implements UriMappingWriter {
         }
     }
 
+    /**
+     * Writes links to each output in a separate thread; each thread makes a single pass over the shared index.
+     */
+    private void writeConcurrently(List<CloseableRDFWriter> writers, final AlternativeUriIndex alternativeUriIndex)
+            throws IOException {
+        // daemon threads so that a failed writer doesn't prevent the application from exiting
+        ExecutorService executor = Executors.newFixedThreadPool(writers.size(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sameas-writer-%d").build());
+        try {
+            List<Future<Void>> results = new ArrayList<>(writers.size());
+            for (final CloseableRDFWriter writer : writers) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        writer.writeQuads(new SameAsLinkIterator(alternativeUriIndex));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Writing of owl:sameAs links was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error writing owl:sameAs links", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private List<CloseableRDFWriter> createOutputWriters() throws IOException, LDFusionToolException {
         List<CloseableRDFWriter> writers = new LinkedList<>();
         for (Output output : outputs) {
@@ -86,4 +149,69 @@ public class SameAsLinkWriter implements UriMappingWriter {
             writer.addNamespace(entry.getKey(), entry.getValue());
         }
     }
+
+    /**
+     * Iterates over owl:sameAs links from each non-canonical URI to its canonical URI, group by group.
+     */
+    private static class SameAsLinkIterator implements Iterator<Statement> {
+        private final AlternativeUriIndex alternativeUriIndex;
+        private int group = 0;
+        private int position = 1;
+
+        public SameAsLinkIterator(AlternativeUriIndex alternativeUriIndex) {
+            this.alternativeUriIndex = alternativeUriIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return group < alternativeUriIndex.getGroupCount();
+        }
+
+        @Override
+        public Statement next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<URI> uris = alternativeUriIndex.getGroup(group);
+            Statement link = VF.createStatement(uris.get(position), OWL.SAMEAS, uris.get(0));
+            position++;
+            if (position == uris.size()) {
+                group++;
+                position = 1;
+            }
+            return link;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Iterates over owl:sameAs links from each non-canonical URI to its canonical URI in the order of the URI mapping.
+     */
+    private static class MappingSameAsLinkIterator extends AbstractIterator<Statement> {
+        private final UriMappingIterable uriMapping;
+        private final Iterator<String> uriIterator;
+        private long linkCount = 0;
+
+        public MappingSameAsLinkIterator(UriMappingIterable uriMapping) {
+            this.uriMapping = uriMapping;
+            this.uriIterator = uriMapping.iterator();
+        }
+
+        @Override
+        protected Statement computeNext() {
+            while (uriIterator.hasNext()) {
+                String uri = uriIterator.next();
+                String canonicalUri = uriMapping.getCanonicalURI(uri);
+                if (!canonicalUri.equals(uri)) {
+                    linkCount++;
+                    return VF.createStatement(VF.createURI(uri), OWL.SAMEAS, VF.createURI(canonicalUri));
+                }
+            }
+            return endOfData();
+        }
+    }
 }
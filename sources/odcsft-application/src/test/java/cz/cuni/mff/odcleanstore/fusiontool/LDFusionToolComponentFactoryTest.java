@@ -2,6 +2,15 @@ package cz.cuni.mff.odcleanstore.fusiontool;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConstructSourceConfig;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConstructSourceConfigImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterable;
 import cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -9,11 +18,17 @@ import org.junit.rules.TemporaryFolder;
 import org.openrdf.model.URI;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
 
 public class LDFusionToolComponentFactoryTest {
@@ -53,4 +68,118 @@ public class LDFusionToolComponentFactoryTest {
                 LDFusionToolTestUtils.createHttpUri("p2").stringValue());
         assertThat(actualUris, is(expectedUris));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void reusesPersistedUriMappingWhenSameAsFileIsUnchanged() throws Exception {
+        // Arrange
+        File sameAsFile = temporaryFolder.newFile("sameAs.nt");
+        writeLines(sameAsFile, "<http://a1> <http://www.w3.org/2002/07/owl#sameAs> <http://a2> .");
+        ConfigImpl config = createConfig(createFileSameAsSource(sameAsFile));
+        new LDFusionToolComponentFactory(config).getUriMapping();
+        File uriMappingFile = config.getUriMappingFile();
+        long lastModified = uriMappingFile.lastModified() - 10000;
+        assertThat(uriMappingFile.setLastModified(lastModified), is(true));
+
+        // Act
+        UriMappingIterable uriMapping = new LDFusionToolComponentFactory(config).getUriMapping();
+
+        // Assert
+        assertThat(uriMappingFile.lastModified(), equalTo(lastModified));
+        assertThat(uriMapping.getCanonicalURI("http://a1"), equalTo(uriMapping.getCanonicalURI("http://a2")));
+    }
+
+    @Test
+    public void resolvesUriMappingAgainWhenSameAsFileChanges() throws Exception {
+        // Arrange
+        File sameAsFile = temporaryFolder.newFile("sameAs.nt");
+        writeLines(sameAsFile, "<http://a1> <http://www.w3.org/2002/07/owl#sameAs> <http://a2> .");
+        ConfigImpl config = createConfig(createFileSameAsSource(sameAsFile));
+        new LDFusionToolComponentFactory(config).getUriMapping();
+        writeLines(sameAsFile,
+                "<http://a1> <http://www.w3.org/2002/07/owl#sameAs> <http://a2> .",
+                "<http://b1> <http://www.w3.org/2002/07/owl#sameAs> <http://b2> .");
+
+        // Act
+        UriMappingIterable uriMapping = new LDFusionToolComponentFactory(config).getUriMapping();
+
+        // Assert
+        assertThat(uriMapping.getCanonicalURI("http://a1"), equalTo(uriMapping.getCanonicalURI("http://a2")));
+        assertThat(uriMapping.getCanonicalURI("http://b1"), equalTo(uriMapping.getCanonicalURI("http://b2")));
+    }
+
+    @Test
+    public void resolvesUriMappingAgainWhenSameAsFileIsReplacedWithFileOfSameContent() throws Exception {
+        // Arrange
+        File sameAsFile = temporaryFolder.newFile("sameAs.nt");
+        writeLines(sameAsFile, "<http://a1> <http://www.w3.org/2002/07/owl#sameAs> <http://a2> .");
+        ConfigImpl config = createConfig(createFileSameAsSource(sameAsFile));
+        new LDFusionToolComponentFactory(config).getUriMapping();
+        File uriMappingFile = config.getUriMappingFile();
+        long lastModified = uriMappingFile.lastModified() - 10000;
+        assertThat(uriMappingFile.setLastModified(lastModified), is(true));
+        assertThat(sameAsFile.setLastModified(sameAsFile.lastModified() - 10000), is(true));
+
+        // Act
+        new LDFusionToolComponentFactory(config).getUriMapping();
+
+        // Assert
+        assertThat(uriMappingFile.lastModified(), not(equalTo(lastModified)));
+    }
+
+    @Test(timeout = 20000)
+    public void doesNotReusePersistedUriMappingOfRemoteSameAsSource() throws Exception {
+        // Arrange
+        final AtomicInteger requestCount = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/sparql", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                byte[] body = "<http://a1> <http://www.w3.org/2002/07/owl#sameAs> <http://a2> .\n".getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+        });
+        server.start();
+        try {
+            ConstructSourceConfigImpl sameAsSource = new ConstructSourceConfigImpl(EnumDataSourceType.SPARQL, "sparql",
+                    "CONSTRUCT { ?s <http://www.w3.org/2002/07/owl#sameAs> ?o } "
+                            + "WHERE { ?s <http://www.w3.org/2002/07/owl#sameAs> ?o }");
+            sameAsSource.getParams().put(ConfigParameters.DATA_SOURCE_SPARQL_ENDPOINT,
+                    "http://localhost:" + server.getAddress().getPort() + "/sparql");
+            ConfigImpl config = createConfig(sameAsSource);
+            new LDFusionToolComponentFactory(config).getUriMapping();
+
+            // Act
+            UriMappingIterable uriMapping = new LDFusionToolComponentFactory(config).getUriMapping();
+
+            // Assert
+            assertThat(requestCount.get(), equalTo(2));
+            assertThat(uriMapping.getCanonicalURI("http://a1"), equalTo(uriMapping.getCanonicalURI("http://a2")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private ConfigImpl createConfig(ConstructSourceConfig sameAsSource) throws IOException {
+        ConfigImpl config = new ConfigImpl();
+        config.setSameAsSources(ImmutableList.of(sameAsSource));
+        config.setUriMappingFile(new File(temporaryFolder.getRoot(), "uriMapping.bin"));
+        config.setTempDirectory(temporaryFolder.newFolder());
+        return config;
+    }
+
+    private static ConstructSourceConfig createFileSameAsSource(File file) {
+        ConstructSourceConfigImpl sameAsSource = new ConstructSourceConfigImpl(EnumDataSourceType.FILE, "sameAs", null);
+        sameAsSource.getParams().put(ConfigParameters.DATA_SOURCE_FILE_PATH, file.getAbsolutePath());
+        sameAsSource.getParams().put(ConfigParameters.DATA_SOURCE_FILE_FORMAT, "ntriples");
+        return sameAsSource;
+    }
+
+    private static void writeLines(File file, String... lines) throws IOException {
+        Files.write(file.toPath(), ImmutableList.copyOf(lines), Charset.forName("UTF-8"));
+    }
+}
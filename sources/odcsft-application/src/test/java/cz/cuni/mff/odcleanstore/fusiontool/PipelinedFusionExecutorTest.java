@@ -0,0 +1,214 @@
+package cz.cuni.mff.odcleanstore.fusiontool;
+
+import com.google.common.collect.ImmutableList;
+import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescription;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescriptionConflictResolver;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl.ResourceDescriptionImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.InputLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.fiter.NoOpFilter;
+import cz.cuni.mff.odcleanstore.fusiontool.testutil.TestConflictResolver;
+import cz.cuni.mff.odcleanstore.fusiontool.testutil.TestInputLoader;
+import cz.cuni.mff.odcleanstore.fusiontool.testutil.TestIsCanceledCallback;
+import cz.cuni.mff.odcleanstore.fusiontool.testutil.TestRDFWriter;
+import cz.cuni.mff.odcleanstore.fusiontool.util.EnumFusionCounters;
+import cz.cuni.mff.odcleanstore.fusiontool.util.MemoryProfiler;
+import cz.cuni.mff.odcleanstore.fusiontool.util.ProfilingTimeCounter;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openrdf.model.Statement;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.ContextAwareStatementIsEqual.contextAwareStatementIsEqual;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class PipelinedFusionExecutorTest {
+    @Test
+    public void processesAllInputStatementsInOrder() throws Exception {
+        // Arrange
+        FusionExecutor executor = getPipelinedFusionExecutor(Long.MAX_VALUE, true);
+        ImmutableList<Collection<Statement>> inputStatements = createInputStatements(100);
+        TestInputLoader inputLoader = new TestInputLoader(inputStatements);
+        TestRDFWriter rdfWriter = new TestRDFWriter();
+
+        // Act
+        executor.fuse(new TestConflictResolver(), inputLoader, rdfWriter);
+
+        // Assert
+        List<ResolvedStatement> resolvedStatements = rdfWriter.getCollectedResolvedStatements();
+        assertThat(resolvedStatements.size(), equalTo(200));
+        int i = 0;
+        for (Collection<Statement> resourceStatements : inputStatements) {
+            for (Statement statement : resourceStatements) {
+                assertThat(resolvedStatements.get(i++).getStatement(), contextAwareStatementIsEqual(statement));
+            }
+        }
+        assertThat(inputLoader.getCollectedResolvedStatements(), equalTo(rdfWriter.collectedResolvedStatements));
+    }
+
+    @Test
+    public void processesAllInputStatementsWhenUnordered() throws Exception {
+        // Arrange
+        FusionExecutor executor = getPipelinedFusionExecutor(Long.MAX_VALUE, false);
+        ImmutableList<Collection<Statement>> inputStatements = createInputStatements(100);
+        TestInputLoader inputLoader = new TestInputLoader(inputStatements);
+        TestRDFWriter rdfWriter = new TestRDFWriter();
+
+        // Act
+        executor.fuse(new TestConflictResolver(), inputLoader, rdfWriter);
+
+        // Assert
+        Set<Statement> expectedStatements = new HashSet<>();
+        for (Collection<Statement> resourceStatements : inputStatements) {
+            expectedStatements.addAll(resourceStatements);
+        }
+        Set<Statement> actualStatements = new HashSet<>();
+        for (ResolvedStatement resolvedStatement : rdfWriter.getCollectedResolvedStatements()) {
+            actualStatements.add(resolvedStatement.getStatement());
+        }
+        assertThat(rdfWriter.getCollectedResolvedStatements().size(), equalTo(200));
+        assertThat(actualStatements, equalTo(expectedStatements));
+    }
+
+    @Test
+    public void respectsMaxOutputTriples() throws Exception {
+        // Arrange
+        long maxOutputTriples = 51;
+        ImmutableList<Collection<Statement>> inputStatements = createInputStatements(100);
+        TestRDFWriter sequentialRdfWriter = new TestRDFWriter();
+        TestInputLoader sequentialInputLoader = new TestInputLoader(inputStatements);
+        new LDFusionToolExecutor(false, maxOutputTriples, new NoOpFilter(),
+                ProfilingTimeCounter.createInstance(EnumFusionCounters.class, false), MemoryProfiler.createInstance(false)).fuse(new TestConflictResolver(), sequentialInputLoader, sequentialRdfWriter);
+        TestRDFWriter rdfWriter = new TestRDFWriter();
+        TestInputLoader inputLoader = new TestInputLoader(inputStatements);
+
+        // Act
+        getPipelinedFusionExecutor(maxOutputTriples, true).fuse(new TestConflictResolver(), inputLoader, rdfWriter);
+
+        // Assert
+        List<ResolvedStatement> resolvedStatements = rdfWriter.getCollectedResolvedStatements();
+        assertThat(resolvedStatements.size(), equalTo(50));
+        for (int i = 0; i < resolvedStatements.size(); i++) {
+            assertThat(resolvedStatements.get(i).getStatement(),
+                    contextAwareStatementIsEqual(sequentialRdfWriter.getCollectedResolvedStatements().get(i).getStatement()));
+        }
+        assertThat(inputLoader.getCollectedResolvedStatements(), equalTo(rdfWriter.collectedResolvedStatements));
+    }
+
+    @Test
+    public void cancelsExecution() throws Exception {
+        // Arrange
+        final TestIsCanceledCallback callback = new TestIsCanceledCallback();
+        PipelinedFusionExecutor executor = getPipelinedFusionExecutor(Long.MAX_VALUE, true);
+        executor.setIsCanceledCallback(callback);
+        final InputLoader inputLoader = Mockito.mock(InputLoader.class);
+        Mockito.when(inputLoader.hasNext()).thenReturn(true);
+        Mockito.when(inputLoader.next()).thenAnswer(new Answer<ResourceDescription>() {
+            @Override
+            public ResourceDescription answer(InvocationOnMock invocation) throws Throwable {
+                callback.cancel();
+                return new ResourceDescriptionImpl(createHttpUri("a"), ImmutableList.of(createHttpStatement("a", "b", "c")));
+            }
+        });
+        TestRDFWriter rdfWriter = new TestRDFWriter();
+
+        // Act
+        executor.fuse(new TestConflictResolver(), inputLoader, rdfWriter);
+
+        // Assert
+        Mockito.verify(inputLoader, Mockito.times(1)).next();
+        assertThat(rdfWriter.getCollectedResolvedStatements().size(), equalTo(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void propagatesConflictResolutionError() throws Exception {
+        // Arrange
+        FusionExecutor executor = getPipelinedFusionExecutor(Long.MAX_VALUE, true);
+        TestInputLoader inputLoader = new TestInputLoader(createInputStatements(100));
+        ResourceDescriptionConflictResolver conflictResolver = Mockito.mock(ResourceDescriptionConflictResolver.class);
+        Mockito.when(conflictResolver.resolveConflicts(Mockito.any(ResourceDescription.class))).thenThrow(new IllegalStateException());
+
+        // Act
+        executor.fuse(conflictResolver, inputLoader, new TestRDFWriter());
+    }
+
+    @Test
+    public void boundsStatementsInProgressWhenOutputIsSlow() throws Exception {
+        // Arrange
+        PipelinedFusionExecutor executor = new PipelinedFusionExecutor(
+                false,
+                Long.MAX_VALUE,
+                new NoOpFilter(),
+                2,
+                true,
+                4,
+                ProfilingTimeCounter.createInstance(EnumFusionCounters.class, false),
+                MemoryProfiler.createInstance(false));
+        final AtomicInteger readCount = new AtomicInteger();
+        TestInputLoader inputLoader = new TestInputLoader(createInputStatements(50)) {
+            @Override
+            public ResourceDescription next() throws LDFusionToolException {
+                readCount.incrementAndGet();
+                return super.next();
+            }
+        };
+        final AtomicInteger maxInProgressCount = new AtomicInteger();
+        TestRDFWriter rdfWriter = new TestRDFWriter() {
+            private int writtenCount = 0;
+
+            @Override
+            public void writeResolvedStatements(Iterable<ResolvedStatement> resolvedStatements) throws IOException {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                maxInProgressCount.set(Math.max(maxInProgressCount.get(), readCount.get() - writtenCount));
+                writtenCount++;
+                super.writeResolvedStatements(resolvedStatements);
+            }
+        };
+
+        // Act
+        executor.fuse(new TestConflictResolver(), inputLoader, rdfWriter);
+
+        // Assert
+        assertThat(rdfWriter.getCollectedResolvedStatements().size(), equalTo(100));
+        assertThat(maxInProgressCount.get(), lessThanOrEqualTo(5)); // 2 in the output queue, 1 being written and 1 being read
+    }
+
+    private static ImmutableList<Collection<Statement>> createInputStatements(int resourceCount) {
+        ImmutableList.Builder<Collection<Statement>> result = ImmutableList.builder();
+        for (int i = 0; i < resourceCount; i++) {
+            result.add(ImmutableList.of(
+                    createHttpStatement("s" + i, "p1", "o1", "g1"),
+                    createHttpStatement("s" + i, "p1", "o" + i, "g2")));
+        }
+        return result.build();
+    }
+
+    private PipelinedFusionExecutor getPipelinedFusionExecutor(long maxOutputTriples, boolean isOrderedOutput) {
+        return new PipelinedFusionExecutor(
+                false,
+                maxOutputTriples,
+                new NoOpFilter(),
+                4,
+                isOrderedOutput,
+                10,
+                ProfilingTimeCounter.createInstance(EnumFusionCounters.class, false),
+                MemoryProfiler.createInstance(false));
+    }
+}
@@ -0,0 +1,170 @@
+package cz.cuni.mff.odcleanstore.fusiontool.dump;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSourceImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Statement;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.openrdf.sail.memory.MemoryStore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.loaders.AllTriplesRepositoryLoaderTest.EMPTY_SPARQL_RESTRICTION;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DataSourceDumperTest {
+    private static final Collection<Statement> STATEMENTS = ImmutableSet.of(
+            createHttpStatement("s1", "p", "o", "g1"),
+            createHttpStatement("s2", "p", "o", "g2"),
+            createHttpStatement("s3", "p", "o", "g3"),
+            createHttpStatement("s4", "p", "o", "g4"),
+            createHttpStatement("s5", "p", "o", "g5")
+    );
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void dumpsAllQuadsOfDataSource() throws Exception {
+        // Arrange
+        DataSource dataSource = createDataSource(STATEMENTS, 2);
+        File outputFile = new File(testDir.getRoot(), "dump.nq");
+
+        // Act
+        new DataSourceDumper(dataSource, 3, false, 0).dump(outputFile);
+
+        // Assert
+        List<Statement> result = parseQuads(new FileInputStream(outputFile));
+        assertThat(result.size(), equalTo(STATEMENTS.size()));
+        assertThat(new HashSet<>(result), is(STATEMENTS));
+        dataSource.getRepository().shutDown();
+    }
+
+    @Test
+    public void resumesInterruptedDump() throws Exception {
+        // Arrange
+        DataSource dataSource = createDataSource(STATEMENTS, 2);
+        File outputFile = new File(testDir.getRoot(), "dump.nq");
+        new DataSourceDumper(dataSource, 1, false, 0).dump(outputFile);
+
+        // simulate a crash after the first page: keep only the first page in the journal, leave garbage in the output
+        File journalFile = new File(outputFile.getPath() + DataSourceDumper.JOURNAL_FILE_SUFFIX);
+        List<String> journalLines = Files.readLines(journalFile, Charsets.UTF_8);
+        Files.write(journalLines.get(0) + "\n" + journalLines.get(1) + "\npage 2 2 0", journalFile, Charsets.UTF_8);
+        Files.append("<http://garbage", outputFile, Charsets.UTF_8);
+
+        // Act
+        new DataSourceDumper(dataSource, 2, false, 0).dump(outputFile);
+
+        // Assert
+        List<Statement> result = parseQuads(new FileInputStream(outputFile));
+        assertThat(result.size(), equalTo(STATEMENTS.size()));
+        assertThat(new HashSet<>(result), is(STATEMENTS));
+        dataSource.getRepository().shutDown();
+    }
+
+    @Test
+    public void writesCompressedSplitOutput() throws Exception {
+        // Arrange
+        DataSource dataSource = createDataSource(STATEMENTS, 2);
+        File outputFile = new File(testDir.getRoot(), "dump.nq.gz");
+
+        // Act
+        new DataSourceDumper(dataSource, 2, true, 1).dump(outputFile);
+
+        // Assert
+        DumpFileWriter fileNames = new DumpFileWriter(outputFile, 1);
+        List<Statement> result = new ArrayList<>();
+        for (int part = 1; part <= 3; part++) {
+            File partFile = fileNames.getPartFile(part);
+            assertTrue(partFile.isFile());
+            result.addAll(parseQuads(new GZIPInputStream(new FileInputStream(partFile))));
+        }
+        assertThat(result.size(), equalTo(STATEMENTS.size()));
+        assertThat(new HashSet<>(result), is(STATEMENTS));
+        dataSource.getRepository().shutDown();
+    }
+
+    @Test(expected = LDFusionToolException.class, timeout = 10000)
+    public void failsAsSoonAsShortPageIsFollowedByMoreQuads() throws Exception {
+        // Arrange
+        DataSource dataSource = createDataSource(STATEMENTS, 2);
+        File outputFile = new File(testDir.getRoot(), "dump.nq");
+        // endpoint truncating the first page and returning full pages indefinitely afterwards
+        DataSourceDumper dumper = new DataSourceDumper(dataSource, 2, false, 0) {
+            @Override
+            protected int loadPage(long offset, int limit, RDFHandler rdfHandler) throws LDFusionToolException {
+                int quadCount = offset == 0 ? limit - 1 : limit;
+                try {
+                    for (int i = 0; i < quadCount; i++) {
+                        rdfHandler.handleStatement(createHttpStatement("s" + (offset + i), "p", "o", "g"));
+                    }
+                } catch (RDFHandlerException e) {
+                    throw new IllegalStateException(e);
+                }
+                return quadCount;
+            }
+        };
+
+        // Act
+        try {
+            dumper.dump(outputFile);
+        } finally {
+            dataSource.getRepository().shutDown();
+        }
+    }
+
+    private static List<Statement> parseQuads(InputStream inputStream) throws Exception {
+        List<Statement> result = new ArrayList<>();
+        RDFParser parser = Rio.createParser(RDFFormat.NQUADS);
+        parser.setRDFHandler(new StatementCollector(result));
+        try (InputStream input = inputStream) {
+            parser.parse(input, "http://base");
+        }
+        return result;
+    }
+
+    private static DataSource createDataSource(Collection<Statement> statements, int pageSize) throws Exception {
+        Repository repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+        RepositoryConnection connection = repository.getConnection();
+        connection.add(statements);
+        connection.close();
+        return new DataSourceImpl(
+                repository,
+                new HashMap<String, String>(),
+                "test",
+                EnumDataSourceType.SPARQL,
+                ImmutableMap.of(ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, Integer.toString(pageSize)),
+                EMPTY_SPARQL_RESTRICTION);
+    }
+}
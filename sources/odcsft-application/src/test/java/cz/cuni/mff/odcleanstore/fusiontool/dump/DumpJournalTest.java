@@ -0,0 +1,74 @@
+package cz.cuni.mff.odcleanstore.fusiontool.dump;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DumpJournalTest {
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void restoresRecordedPagesWhenReopened() throws Exception {
+        // Arrange
+        File journalFile = new File(testDir.getRoot(), "dump.journal");
+        DumpJournal journal = new DumpJournal(journalFile, 10);
+        journal.pageCompleted(10, 10, 1, 200);
+        journal.pageCompleted(0, 10, 2, 100);
+        journal.close();
+
+        // Act
+        DumpJournal reopenedJournal = new DumpJournal(journalFile, 10);
+
+        // Assert
+        assertThat(reopenedJournal.getCompletedPages(), equalTo((Map<Long, Integer>) ImmutableMap.of(0L, 10, 10L, 10)));
+        assertThat(reopenedJournal.getLastPart(), equalTo(2));
+        assertThat(reopenedJournal.getLastPartLength(), equalTo(100L));
+        assertFalse(reopenedJournal.isFinished());
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void ignoresIncompleteLastRecord() throws Exception {
+        // Arrange
+        File journalFile = new File(testDir.getRoot(), "dump.journal");
+        DumpJournal journal = new DumpJournal(journalFile, 10);
+        journal.pageCompleted(0, 10, 0, 100);
+        journal.close();
+        Files.append("page 10 10 0 2", journalFile, Charsets.UTF_8);
+
+        // Act
+        DumpJournal reopenedJournal = new DumpJournal(journalFile, 10);
+        reopenedJournal.dumpFinished();
+        reopenedJournal.close();
+        DumpJournal finishedJournal = new DumpJournal(journalFile, 10);
+
+        // Assert
+        assertThat(finishedJournal.getCompletedPages(), equalTo((Map<Long, Integer>) ImmutableMap.of(0L, 10)));
+        assertThat(finishedJournal.getLastPartLength(), equalTo(100L));
+        assertTrue(finishedJournal.isFinished());
+        finishedJournal.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void throwsWhenPageSizeDiffers() throws Exception {
+        // Arrange
+        File journalFile = new File(testDir.getRoot(), "dump.journal");
+        new DumpJournal(journalFile, 10).close();
+
+        // Act
+        new DumpJournal(journalFile, 20);
+    }
+}
@@ -0,0 +1,89 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilteredSetTest {
+    @Test
+    public void containsAddedElementsWhenInitialCapacityExceeded() throws Exception {
+        // Arrange
+        Set<String> set = new BloomFilteredSet<>(new HashSet<String>(), 10);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add("http://example.com/" + i));
+        }
+
+        // Assert
+        assertThat(set.size(), equalTo(1000));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.contains("http://example.com/" + i));
+            assertFalse(set.add("http://example.com/" + i));
+        }
+        assertFalse(set.contains("http://example.com/1000"));
+    }
+
+    @Test
+    public void mostNegativeLookupsDoNotAccessUnderlyingSet() throws Exception {
+        // Arrange
+        CountingSet<String> delegate = new CountingSet<>();
+        Set<String> set = new BloomFilteredSet<>(delegate, 1000);
+        for (int i = 0; i < 10_000; i++) {
+            set.add("http://example.com/a" + i);
+        }
+        delegate.containsCount = 0;
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(set.contains("http://example.com/b" + i));
+        }
+
+        // Assert
+        assertThat(delegate.containsCount, lessThan(500));
+    }
+
+    @Test
+    public void includesElementsOfUnderlyingSet() throws Exception {
+        // Arrange
+        Set<String> delegate = new HashSet<>();
+        delegate.add("http://example.com/a");
+
+        // Act
+        Set<String> set = new BloomFilteredSet<>(delegate, 10);
+
+        // Assert
+        assertTrue(set.contains("http://example.com/a"));
+    }
+
+    @Test
+    public void clearRemovesAllElements() throws Exception {
+        // Arrange
+        Set<String> set = new BloomFilteredSet<>(new HashSet<String>(), 10);
+        set.add("http://example.com/a");
+
+        // Act
+        set.clear();
+
+        // Assert
+        assertFalse(set.contains("http://example.com/a"));
+        assertTrue(set.add("http://example.com/a"));
+    }
+
+    private static class CountingSet<T> extends HashSet<T> {
+        private int containsCount = 0;
+
+        @Override
+        public boolean contains(Object o) {
+            containsCount++;
+            return super.contains(o);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.sail.memory.MemoryStore;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class CachingRepositoryTest {
+    private static final ValueFactoryImpl VF = ValueFactoryImpl.getInstance();
+    private static final String QUERY = "SELECT ?s ?o WHERE { ?s ?p ?o }";
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private Repository delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = new SailRepository(new MemoryStore());
+        delegate.initialize();
+        addStatement(createHttpStatement("s1", "p", "o1", "g1"));
+        RepositoryConnection connection = delegate.getConnection();
+        try {
+            connection.add(VF.createURI("http://example.com/s2"), VF.createURI("http://example.com/p"),
+                    VF.createLiteral("a \"quoted\"\nliteral", "en"), VF.createURI("http://example.com/g1"));
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void returnsCachedResultWhenSameQueryIsRepeated() throws Exception {
+        // Arrange
+        SparqlResponseCache cache = new SparqlResponseCache(testDir.getRoot(), 60_000, 1_000_000);
+        Repository repository = new CachingRepository(delegate, cache, "http://example.com/sparql");
+
+        // Act
+        Set<BindingSet> firstResult = evaluate(repository, QUERY);
+        addStatement(createHttpStatement("s3", "p", "o3", "g1"));
+        Set<BindingSet> secondResult = evaluate(repository, "  SELECT ?s ?o\n  WHERE {\n ?s ?p ?o\n }");
+
+        // Assert
+        assertThat(firstResult.size(), equalTo(2));
+        assertThat(secondResult, equalTo(firstResult));
+    }
+
+    @Test
+    public void queriesDelegateWhenCachedResponseExpired() throws Exception {
+        // Arrange
+        SparqlResponseCache cache = new SparqlResponseCache(testDir.getRoot(), 1, 1_000_000);
+        Repository repository = new CachingRepository(delegate, cache, "http://example.com/sparql");
+
+        // Act
+        Set<BindingSet> firstResult = evaluate(repository, QUERY);
+        addStatement(createHttpStatement("s3", "p", "o3", "g1"));
+        Thread.sleep(10);
+        Set<BindingSet> secondResult = evaluate(repository, QUERY);
+
+        // Assert
+        assertThat(secondResult.size(), equalTo(3));
+        assertThat(secondResult, not(equalTo(firstResult)));
+    }
+
+    @Test
+    public void doesNotShareResponsesBetweenEndpoints() throws Exception {
+        // Arrange
+        SparqlResponseCache cache = new SparqlResponseCache(testDir.getRoot(), 60_000, 1_000_000);
+
+        // Act
+        evaluate(new CachingRepository(delegate, cache, "http://example.com/sparql1"), QUERY);
+        addStatement(createHttpStatement("s3", "p", "o3", "g1"));
+        Set<BindingSet> result = evaluate(new CachingRepository(delegate, cache, "http://example.com/sparql2"), QUERY);
+
+        // Assert
+        assertThat(result.size(), equalTo(3));
+    }
+
+    @Test
+    public void doesNotCacheIncompletelyReadResult() throws Exception {
+        // Arrange
+        SparqlResponseCache cache = new SparqlResponseCache(testDir.getRoot(), 60_000, 1_000_000);
+        Repository repository = new CachingRepository(delegate, cache, "http://example.com/sparql");
+
+        // Act
+        RepositoryConnection connection = repository.getConnection();
+        TupleQueryResult partialResult = connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate();
+        partialResult.next();
+        partialResult.close();
+        connection.close();
+        addStatement(createHttpStatement("s3", "p", "o3", "g1"));
+        Set<BindingSet> result = evaluate(repository, QUERY);
+
+        // Assert
+        assertThat(result.size(), equalTo(3));
+    }
+
+    @Test
+    public void normalizesWhitespaceOutsideOfLiterals() throws Exception {
+        assertThat(SparqlResponseCache.normalizeQuery(" SELECT  ?s\n WHERE { ?s ?p \"a  b\" } "),
+                equalTo("SELECT ?s WHERE { ?s ?p \"a  b\" }"));
+        assertThat(SparqlResponseCache.normalizeQuery("SELECT * WHERE { <http://a b>  ?p ?o }"),
+                equalTo("SELECT * WHERE { <http://a b> ?p ?o }"));
+    }
+
+    private void addStatement(Statement statement) throws Exception {
+        RepositoryConnection connection = delegate.getConnection();
+        try {
+            connection.add(statement);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static Set<BindingSet> evaluate(Repository repository, String query) throws Exception {
+        Set<BindingSet> result = new HashSet<>();
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            TupleQueryResult queryResult = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
+            try {
+                while (queryResult.hasNext()) {
+                    result.add(copyOf(queryResult.next()));
+                }
+            } finally {
+                queryResult.close();
+            }
+        } finally {
+            connection.close();
+        }
+        return result;
+    }
+
+    private static BindingSet copyOf(BindingSet bindingSet) {
+        MapBindingSet copy = new MapBindingSet();
+        for (String name : bindingSet.getBindingNames()) {
+            Value value = bindingSet.getValue(name);
+            copy.addBinding(name, value);
+        }
+        return copy;
+    }
+}
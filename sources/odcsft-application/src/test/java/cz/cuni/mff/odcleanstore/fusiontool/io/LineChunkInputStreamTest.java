@@ -0,0 +1,66 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LineChunkInputStreamTest {
+    private static final String CONTENT = "line1\nline22\n\nline4444\nline55555";
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void readsLinesStartingInRange() throws Exception {
+        // Arrange
+        File file = createFile(CONTENT);
+
+        // Act
+        String firstChunk = readChunk(file, 0, 3);
+        String middleChunk = readChunk(file, 3, 14);
+        String lastChunk = readChunk(file, 14, CONTENT.length());
+
+        // Assert
+        assertThat(firstChunk, equalTo("line1\n"));
+        assertThat(middleChunk, equalTo("line22\n\n"));
+        assertThat(lastChunk, equalTo("line4444\nline55555"));
+    }
+
+    @Test
+    public void consecutiveChunksContainWholeFile() throws Exception {
+        // Arrange
+        File file = createFile(CONTENT);
+
+        for (int chunkSize = 1; chunkSize <= CONTENT.length() + 1; chunkSize++) {
+            // Act
+            StringBuilder result = new StringBuilder();
+            for (int start = 0; start < CONTENT.length(); start += chunkSize) {
+                result.append(readChunk(file, start, Math.min(start + chunkSize, CONTENT.length())));
+            }
+
+            // Assert
+            assertThat("chunk size " + chunkSize, result.toString(), equalTo(CONTENT));
+        }
+    }
+
+    private File createFile(String content) throws Exception {
+        File file = testDir.newFile();
+        Files.write(content, file, Charsets.UTF_8);
+        return file;
+    }
+
+    private String readChunk(File file, long start, long end) throws Exception {
+        try (InputStream inputStream = new LineChunkInputStream(file, start, end)) {
+            return new String(ByteStreams.toByteArray(inputStream), Charsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public class MappedFileUriQueueTest {
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void returnsUrisInInsertionOrder() throws Exception {
+        // Arrange
+        MappedFileUriQueue queue = new MappedFileUriQueue(testDir.getRoot());
+
+        // Act
+        queue.add("http://a");
+        queue.add("http://c");
+        queue.add("http://b");
+        List<String> result = drain(queue);
+        queue.close();
+
+        // Assert
+        assertThat(result, equalTo(Arrays.asList("http://a", "http://c", "http://b")));
+    }
+
+    @Test
+    public void ignoresUrisAddedBefore() throws Exception {
+        // Arrange
+        MappedFileUriQueue queue = new MappedFileUriQueue(testDir.getRoot());
+
+        // Act
+        queue.add("http://a");
+        queue.add("http://b");
+        queue.add("http://a");
+        String first = queue.next();
+        queue.add("http://a");
+        queue.add("http://c");
+        List<String> result = drain(queue);
+        queue.close();
+
+        // Assert
+        assertThat(first, equalTo("http://a"));
+        assertThat(result, equalTo(Arrays.asList("http://b", "http://c")));
+    }
+
+    @Test
+    public void spansMultipleSegmentsAndGrowsTable() throws Exception {
+        // Arrange
+        MappedFileUriQueue queue = new MappedFileUriQueue(testDir.getRoot(), 4096);
+        List<String> expectedResult = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            expectedResult.add("http://example.com/\u017elu\u0165ou\u010dk\u00fd/" + i);
+        }
+
+        // Act
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < expectedResult.size(); i++) {
+            queue.add(expectedResult.get(i));
+            queue.add(expectedResult.get(i / 2));
+            if (i % 3 == 0) {
+                result.add(queue.next());
+            }
+        }
+        result.addAll(drain(queue));
+
+        // Assert
+        assertThat(result, equalTo(expectedResult));
+        assertThat(queue.size(), equalTo(0L));
+        queue.close();
+    }
+
+    @Test
+    public void deletesSegmentFilesOnClose() throws Exception {
+        // Arrange
+        MappedFileUriQueue queue = new MappedFileUriQueue(testDir.getRoot(), 64);
+        for (int i = 0; i < 10; i++) {
+            queue.add("http://example.com/" + i);
+        }
+
+        // Act
+        queue.close();
+
+        // Assert
+        assertFalse(queue.hasNext());
+        assertThat(testDir.getRoot().listFiles().length, equalTo(0));
+    }
+
+    @Test
+    public void releasesConsumedSegments() throws Exception {
+        // Arrange
+        MappedFileUriQueue queue = new MappedFileUriQueue(testDir.getRoot(), 64);
+
+        // Act
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            queue.add("http://example.com/" + i);
+            result.add(queue.next());
+        }
+        int fileCount = testDir.getRoot().listFiles().length;
+        queue.add("http://example.com/0");
+        queue.close();
+
+        // Assert
+        assertThat(result.size(), equalTo(1000));
+        assertFalse(queue.hasNext());
+        // fingerprint table, segment being written and a spare segment
+        assertThat(fileCount <= 3, equalTo(true));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void throwsWhenEmpty() throws Exception {
+        MappedFileUriQueue queue = new MappedFileUriQueue(testDir.getRoot());
+        try {
+            queue.next();
+        } finally {
+            queue.close();
+        }
+    }
+
+    private static List<String> drain(MappedFileUriQueue queue) {
+        List<String> result = new ArrayList<>();
+        while (queue.hasNext()) {
+            result.add(queue.next());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CompactUriMappingImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class MappedUriMappingTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void mapsUrisSameAsWrittenMapping() throws Exception {
+        // Arrange
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl(ImmutableSet.of("http://ax", "http://bx"));
+        uriMapping.addLink("http://a1", "http://ax");
+        uriMapping.addLink("http://a2", "http://a1");
+        uriMapping.addLink("http://bx", "http://b1");
+        uriMapping.addLink("http://\u00e9", "http://\ud83d\ude00");
+        uriMapping.addLink("http://\ud83d\ude00", "http://\uffff");
+        File file = new File(testDir.getRoot(), "mapping.bin");
+
+        // Act
+        MappedUriMapping.write(uriMapping, file, 123);
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        for (String uri : new String[] {"http://a1", "http://a2", "http://ax", "http://b1", "http://bx",
+                "http://\u00e9", "http://\ud83d\ude00", "http://\uffff", "http://unknown"}) {
+            assertThat(result.getCanonicalURI(uri), equalTo(uriMapping.getCanonicalURI(uri)));
+            assertThat(result.mapResource(VF.createURI(uri)), equalTo(uriMapping.mapResource(VF.createURI(uri))));
+        }
+        assertThat(ImmutableSet.copyOf(result), equalTo(ImmutableSet.copyOf(uriMapping)));
+        assertThat(result.size(), equalTo(uriMapping.size()));
+        assertThat(result.getFingerprint(), equalTo(123L));
+    }
+
+    @Test
+    public void returnsSameInstanceForUnmappedResources() throws Exception {
+        // Arrange
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl(ImmutableSet.of("http://ax"));
+        uriMapping.addLink("http://a1", "http://ax");
+        File file = new File(testDir.getRoot(), "mapping.bin");
+        MappedUriMapping.write(uriMapping, file, 0);
+        MappedUriMapping mappedUriMapping = MappedUriMapping.open(file);
+        URI canonicalUri = VF.createURI("http://ax");
+        URI unknownUri = VF.createURI("http://unknown");
+
+        // Act
+        Resource mappedCanonicalUri = mappedUriMapping.mapResource(canonicalUri);
+        Resource mappedUnknownUri = mappedUriMapping.mapResource(unknownUri);
+
+        // Assert
+        assertThat(mappedCanonicalUri, sameInstance((Resource) canonicalUri));
+        assertThat(mappedUnknownUri, sameInstance((Resource) unknownUri));
+    }
+
+    @Test
+    public void replacesExistingMappingWithoutLeavingTemporaryFiles() throws Exception {
+        // Arrange
+        CompactUriMappingImpl oldUriMapping = new CompactUriMappingImpl(ImmutableSet.of("http://ax"));
+        oldUriMapping.addLink("http://a1", "http://ax");
+        CompactUriMappingImpl newUriMapping = new CompactUriMappingImpl(ImmutableSet.of("http://bx"));
+        newUriMapping.addLink("http://b1", "http://bx");
+        File file = new File(testDir.getRoot(), "mapping.bin");
+        MappedUriMapping.write(oldUriMapping, file, 1);
+
+        // Act
+        MappedUriMapping.write(newUriMapping, file, 2);
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        assertThat(result.getFingerprint(), equalTo(2L));
+        assertThat(result.getCanonicalURI("http://b1"), equalTo("http://bx"));
+        assertThat(result.getCanonicalURI("http://a1"), equalTo("http://a1"));
+        assertThat(testDir.getRoot().list(), equalTo(new String[] {"mapping.bin"}));
+    }
+
+    @Test
+    public void writesEmptyMapping() throws Exception {
+        // Arrange
+        File file = new File(testDir.getRoot(), "mapping.bin");
+
+        // Act
+        MappedUriMapping.write(new CompactUriMappingImpl(), file, 0);
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        assertThat(result.getCanonicalURI("http://a"), equalTo("http://a"));
+        assertThat(result.iterator().hasNext(), equalTo(false));
+    }
+
+    @Test(expected = IOException.class)
+    public void throwsWhenFileIsNotUriMapping() throws Exception {
+        // Arrange
+        File file = new File(testDir.getRoot(), "mapping.bin");
+        Files.write("<http://a> <http://b> <http://c> .\n", file, Charsets.UTF_8);
+
+        // Act
+        MappedUriMapping.open(file);
+    }
+}
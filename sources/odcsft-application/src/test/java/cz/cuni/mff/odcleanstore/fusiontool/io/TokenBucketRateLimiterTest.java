@@ -0,0 +1,118 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class TokenBucketRateLimiterTest {
+    @Test
+    public void allowsBurstWithoutWaiting() throws Exception {
+        // Arrange
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(60_000, 3);
+
+        // Act & Assert
+        assertThat(rateLimiter.reserve(), equalTo(0L));
+        assertThat(rateLimiter.reserve(), equalTo(0L));
+        assertThat(rateLimiter.reserve(), equalTo(0L));
+        assertThat(rateLimiter.reserve(), greaterThan(TimeUnit.SECONDS.toNanos(59)));
+    }
+
+    @Test
+    public void queuesReservationsWhenBucketIsEmpty() throws Exception {
+        // Arrange
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(60_000, 1);
+        rateLimiter.reserve();
+
+        // Act
+        long firstWait = rateLimiter.reserve();
+        long secondWait = rateLimiter.reserve();
+
+        // Assert
+        assertThat(firstWait, lessThanOrEqualTo(TimeUnit.SECONDS.toNanos(60)));
+        assertThat(secondWait, greaterThan(TimeUnit.SECONDS.toNanos(119)));
+    }
+
+    @Test
+    public void reservesDistinctTokensForConcurrentCallers() throws Exception {
+        // Arrange
+        final int threadCount = 6;
+        final long intervalMs = 20;
+        final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(intervalMs, 1, new Ticker() {
+            @Override
+            public long read() {
+                return 0; // time doesn't pass, each caller must get its own future token
+            }
+        });
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Set<Long> waits = Collections.synchronizedSet(new HashSet<Long>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    waits.add(rateLimiter.reserve());
+                }
+            });
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        Set<Long> expectedWaits = new HashSet<>();
+        for (int i = 0; i < threadCount; i++) {
+            expectedWaits.add(i * TimeUnit.MILLISECONDS.toNanos(intervalMs));
+        }
+        assertThat(waits, equalTo(expectedWaits));
+    }
+
+    @Test
+    public void refillsTokensAsTimePasses() throws Exception {
+        // Arrange
+        final AtomicLong time = new AtomicLong(0);
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 2, new Ticker() {
+            @Override
+            public long read() {
+                return time.get();
+            }
+        });
+        rateLimiter.reserve();
+        rateLimiter.reserve();
+
+        // Act
+        time.set(TimeUnit.MILLISECONDS.toNanos(15));
+        long firstWait = rateLimiter.reserve();
+        long secondWait = rateLimiter.reserve();
+        time.set(TimeUnit.SECONDS.toNanos(10));
+        long afterIdleWait = rateLimiter.reserve();
+
+        // Assert
+        assertThat(firstWait, equalTo(0L));
+        assertThat(secondWait, equalTo(TimeUnit.MILLISECONDS.toNanos(5)));
+        assertThat(afterIdleWait, equalTo(0L));
+    }
+}
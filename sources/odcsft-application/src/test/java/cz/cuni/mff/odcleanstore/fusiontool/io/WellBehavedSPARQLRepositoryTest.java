@@ -0,0 +1,275 @@
+package cz.cuni.mff.odcleanstore.fusiontool.io;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.repository.RepositoryConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class WellBehavedSPARQLRepositoryTest {
+    private static final String QUERY = "SELECT ?s WHERE { ?s ?p ?o }";
+    private static final String XML_RESULT = "<?xml version='1.0' encoding='UTF-8'?>"
+            + "<sparql xmlns='http://www.w3.org/2005/sparql-results#'>"
+            + "<head><variable name='s'/></head>"
+            + "<results><result><binding name='s'><uri>http://example.com/s1</uri></binding></result></results>"
+            + "</sparql>";
+
+    private HttpServer server;
+    private String endpointUrl;
+    private volatile HttpHandler endpointHandler = new SparqlResultHandler();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/sparql", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                endpointHandler.handle(exchange);
+            }
+        });
+        server.start();
+        endpointUrl = "http://localhost:" + server.getAddress().getPort() + "/sparql";
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test(timeout = 10000)
+    public void allowsQueryWhileResultOfAnotherQueryIsOpen() throws Exception {
+        // Arrange
+        WellBehavedSPARQLRepository repository = new WellBehavedSPARQLRepository(endpointUrl, -1, 1, 1);
+        repository.initialize();
+        RepositoryConnection connection = repository.getConnection();
+
+        // Act
+        TupleQueryResult openResult = connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate();
+        int count = countResults(connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate());
+        int openCount = countResults(openResult);
+
+        // Assert
+        assertThat(count, equalTo(1));
+        assertThat(openCount, equalTo(1));
+        connection.close();
+        repository.shutDown();
+    }
+
+    @Test(timeout = 10000)
+    public void limitsConcurrentlyExecutedQueries() throws Exception {
+        // Arrange
+        final CountDownLatch firstRequestLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final AtomicInteger activeRequests = new AtomicInteger();
+        final AtomicInteger maxActiveRequests = new AtomicInteger();
+        final AtomicInteger requestCount = new AtomicInteger();
+        endpointHandler = new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int active = activeRequests.incrementAndGet();
+                maxActiveRequests.set(Math.max(maxActiveRequests.get(), active));
+                requestCount.incrementAndGet();
+                firstRequestLatch.countDown();
+                try {
+                    releaseLatch.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                activeRequests.decrementAndGet();
+                new SparqlResultHandler().handle(exchange);
+            }
+        };
+        final WellBehavedSPARQLRepository repository = new WellBehavedSPARQLRepository(endpointUrl, -1, 1, 1);
+        repository.initialize();
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        RepositoryConnection connection = repository.getConnection();
+                        countResults(connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate());
+                        connection.close();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        firstRequestLatch.await();
+        while (!repository.hasQueuedQueries()) {
+            Thread.yield();
+        }
+        boolean secondQueryQueued = requestCount.get() == 1;
+        releaseLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertTrue(secondQueryQueued);
+        assertThat(requestCount.get(), equalTo(2));
+        assertThat(maxActiveRequests.get(), equalTo(1));
+        repository.shutDown();
+    }
+
+    @Test(timeout = 10000)
+    public void requestsAndDecompressesGzipResponseWhenCompressionIsEnabled() throws Exception {
+        // Arrange
+        final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+        endpointHandler = new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (OutputStream gzipOutput = new GZIPOutputStream(compressed)) {
+                    gzipOutput.write(XML_RESULT.getBytes(Charsets.UTF_8));
+                }
+                byte[] body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Type", "application/sparql-results+xml");
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+        };
+        WellBehavedSPARQLRepository repository = new WellBehavedSPARQLRepository(endpointUrl, -1, 1, 1);
+        repository.setCompressionEnabled(true);
+        repository.initialize();
+        RepositoryConnection connection = repository.getConnection();
+
+        // Act
+        int count = countResults(connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate());
+
+        // Assert
+        assertThat(acceptEncoding.get(), equalTo("gzip"));
+        assertThat(count, equalTo(1));
+        connection.close();
+        repository.shutDown();
+    }
+
+    @Test(timeout = 10000)
+    public void doesNotRequestCompressionWhenCompressionIsDisabled() throws Exception {
+        // Arrange
+        final AtomicReference<String> acceptEncoding = new AtomicReference<>("not requested");
+        endpointHandler = new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                new SparqlResultHandler().handle(exchange);
+            }
+        };
+        WellBehavedSPARQLRepository repository = new WellBehavedSPARQLRepository(endpointUrl, -1, 1, 1);
+        repository.setCompressionEnabled(false);
+        repository.initialize();
+        RepositoryConnection connection = repository.getConnection();
+
+        // Act
+        int count = countResults(connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate());
+
+        // Assert
+        assertThat(acceptEncoding.get(), nullValue());
+        assertThat(count, equalTo(1));
+        connection.close();
+        repository.shutDown();
+    }
+
+    @Test(timeout = 10000)
+    public void prefersConfiguredResultFormat() throws Exception {
+        // Arrange
+        final AtomicReference<String> accept = new AtomicReference<>();
+        endpointHandler = new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                accept.set(exchange.getRequestHeaders().getFirst("Accept"));
+                new SparqlResultHandler().handle(exchange);
+            }
+        };
+        WellBehavedSPARQLRepository repository = new WellBehavedSPARQLRepository(endpointUrl, -1, 1, 1);
+        repository.setPreferredResultFormat(TupleQueryResultFormat.BINARY);
+        repository.initialize();
+        RepositoryConnection connection = repository.getConnection();
+
+        // Act
+        int count = countResults(connection.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate());
+
+        // Assert
+        assertThat(getMostPreferredMimeType(accept.get()), equalTo(TupleQueryResultFormat.BINARY.getDefaultMIMEType()));
+        assertThat(count, equalTo(1));
+        connection.close();
+        repository.shutDown();
+    }
+
+    private static String getMostPreferredMimeType(String acceptHeader) {
+        String result = null;
+        double resultQuality = -1;
+        for (String mediaRange : acceptHeader.split(",")) {
+            String[] parts = mediaRange.split(";");
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    quality = Double.parseDouble(parameter.substring(2));
+                }
+            }
+            if (quality > resultQuality) {
+                result = parts[0].trim();
+                resultQuality = quality;
+            }
+        }
+        return result;
+    }
+
+    private static int countResults(TupleQueryResult result) throws Exception {
+        int count = 0;
+        try {
+            while (result.hasNext()) {
+                result.next();
+                count++;
+            }
+        } finally {
+            result.close();
+        }
+        return count;
+    }
+
+    private static class SparqlResultHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            byte[] body = XML_RESULT.getBytes(Charsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/sparql-results+xml");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
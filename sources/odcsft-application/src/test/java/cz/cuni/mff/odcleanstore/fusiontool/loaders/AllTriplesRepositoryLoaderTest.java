@@ -10,7 +10,6 @@ import cz.cuni.mff.odcleanstore.fusiontool.loaders.data.AllTriplesRepositoryLoad
 import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
 import cz.cuni.mff.odcleanstore.fusiontool.source.DataSourceImpl;
 import org.hamcrest.Matchers;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -188,7 +187,6 @@ public class AllTriplesRepositoryLoaderTest {
         assertTrue(ODCSUtils.isValidIRI(defaultContext.stringValue()));
     }
 
-    @Ignore("Until retry timout is given in Configuration, ignore so that the tests aren't too slow")
     @Test
     public void retriesQueryOnError() throws Exception {
         // Arrange
@@ -199,7 +197,10 @@ public class AllTriplesRepositoryLoaderTest {
                 createHttpStatement("s4", "p", "o", "g4"),
                 createHttpStatement("s5", "p", "o", "g5")
         );
-        DataSource dataSource = createDataSource(statements, 2);
+        Map<String, String> params = ImmutableMap.of(
+                ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, "2",
+                ConfigParameters.DATA_SOURCE_RETRY_INITIAL_INTERVAL, "100");
+        DataSource dataSource = createDataSource(statements, EMPTY_SPARQL_RESTRICTION, new HashMap<String, String>(), params, "test");
         final SailRepository repository = (SailRepository) dataSource.getRepository();
         RepositoryConnection mockRepositoryConnection = mock(RepositoryConnection.class);
         Answer<TupleQuery> answer = new Answer<TupleQuery>() {
@@ -235,10 +236,168 @@ public class AllTriplesRepositoryLoaderTest {
 
         // Assert
         assertThat(result, is(statements));
-        assertThat(endTime - startTime, Matchers.greaterThanOrEqualTo(2L * LDFTConfigConstants.REPOSITORY_RETRY_INTERVAL));
+        // the first retry waits at least 50 ms, the second one at least 100 ms
+        assertThat(endTime - startTime, Matchers.greaterThanOrEqualTo(150L));
+        dataSource.getRepository().shutDown();
+    }
+
+    @Test
+    public void loadsAllTriplesWhenEndpointTruncatesResults() throws Exception {
+        // Arrange
+        Collection<Statement> statements = ImmutableSet.of(
+                createHttpStatement("s1", "p", "o", "g1"),
+                createHttpStatement("s2", "p", "o", "g2"),
+                createHttpStatement("s3", "p", "o", "g3"),
+                createHttpStatement("s4", "p", "o", "g4"),
+                createHttpStatement("s5", "p", "o", "g5"),
+                createHttpStatement("s6", "p", "o", "g6"),
+                createHttpStatement("s7", "p", "o", "g7")
+        );
+        DataSource dataSource = createDataSource(statements, 100);
+        final SailRepository repository = (SailRepository) dataSource.getRepository();
+        final List<String> executedQueries = new ArrayList<>();
+        RepositoryConnection mockRepositoryConnection = mock(RepositoryConnection.class);
+        when(mockRepositoryConnection.prepareTupleQuery(any(QueryLanguage.class), anyString())).thenAnswer(new Answer<TupleQuery>() {
+            @Override
+            public TupleQuery answer(InvocationOnMock invocation) throws Throwable {
+                Object[] arguments = invocation.getArguments();
+                String query = (String) arguments[1];
+                executedQueries.add(query);
+                // simulate an endpoint returning at most 3 rows
+                String truncatedQuery = query.replaceAll("LIMIT \\d+", "LIMIT 3");
+                return repository.getConnection().prepareTupleQuery((QueryLanguage) arguments[0], truncatedQuery);
+            }
+        });
+        Repository mockRepository = mock(Repository.class);
+        when(mockRepository.getValueFactory()).thenReturn(repository.getValueFactory());
+        when(mockRepository.getConnection()).thenReturn(mockRepositoryConnection);
+        DataSource mockDataSource = new DataSourceImpl(
+                mockRepository,
+                dataSource.getPrefixes(),
+                dataSource.getName(),
+                dataSource.getType(),
+                dataSource.getParams(),
+                dataSource.getNamedGraphRestriction());
+
+        // Act
+        Collection<Statement> result = new HashSet<>();
+        AllTriplesLoader loader = new AllTriplesRepositoryLoader(mockDataSource);
+        loader.loadAllTriples(new StatementCollector(result));
+        loader.close();
+
+        // Assert
+        assertThat(result, is(statements));
+        assertThat(executedQueries.get(executedQueries.size() - 1), containsString("LIMIT 3 "));
         dataSource.getRepository().shutDown();
     }
 
+    @Test
+    public void stopsLoadingAfterPageShorterThanRequested() throws Exception {
+        // Arrange
+        Collection<Statement> statements = ImmutableSet.of(
+                createHttpStatement("s1", "p", "o", "g1"),
+                createHttpStatement("s2", "p", "o", "g2"),
+                createHttpStatement("s3", "p", "o", "g3"),
+                createHttpStatement("s4", "p", "o", "g4"),
+                createHttpStatement("s5", "p", "o", "g5"),
+                createHttpStatement("s6", "p", "o", "g6"),
+                createHttpStatement("s7", "p", "o", "g7")
+        );
+        DataSource dataSource = createDataSource(statements, 3);
+        final SailRepository repository = (SailRepository) dataSource.getRepository();
+        final List<String> executedQueries = new ArrayList<>();
+        RepositoryConnection mockRepositoryConnection = mock(RepositoryConnection.class);
+        when(mockRepositoryConnection.prepareTupleQuery(any(QueryLanguage.class), anyString())).thenAnswer(new Answer<TupleQuery>() {
+            @Override
+            public TupleQuery answer(InvocationOnMock invocation) throws Throwable {
+                Object[] arguments = invocation.getArguments();
+                String query = (String) arguments[1];
+                executedQueries.add(query);
+                return repository.getConnection().prepareTupleQuery((QueryLanguage) arguments[0], query);
+            }
+        });
+        Repository mockRepository = mock(Repository.class);
+        when(mockRepository.getValueFactory()).thenReturn(repository.getValueFactory());
+        when(mockRepository.getConnection()).thenReturn(mockRepositoryConnection);
+        DataSource mockDataSource = new DataSourceImpl(
+                mockRepository,
+                dataSource.getPrefixes(),
+                dataSource.getName(),
+                dataSource.getType(),
+                dataSource.getParams(),
+                dataSource.getNamedGraphRestriction());
+
+        // Act
+        Collection<Statement> result = new HashSet<>();
+        AllTriplesLoader loader = new AllTriplesRepositoryLoader(mockDataSource);
+        loader.loadAllTriples(new StatementCollector(result));
+        loader.close();
+
+        // Assert
+        assertThat(result, is(statements));
+        // pages of 3, 3 and 1 quads; no query follows the short page
+        assertThat(executedQueries.size(), equalTo(3));
+        assertThat(executedQueries.get(2), containsString("OFFSET 6"));
+        dataSource.getRepository().shutDown();
+    }
+
+    @Test
+    public void ordersPagesOnlyWhenOrderedPagingIsEnabled() throws Exception {
+        // Arrange
+        Collection<Statement> statements = ImmutableSet.of(
+                createHttpStatement("s1", "p", "o", "g1"),
+                createHttpStatement("s2", "p", "o", "g2"));
+        Map<String, String> orderedParams = ImmutableMap.of(ConfigParameters.DATA_SOURCE_SPARQL_ORDERED_PAGING, "true");
+        DataSource unorderedDataSource = createDataSource(
+                statements, EMPTY_SPARQL_RESTRICTION, new HashMap<String, String>(), new HashMap<String, String>(), "test");
+        DataSource orderedDataSource = createDataSource(
+                statements, EMPTY_SPARQL_RESTRICTION, new HashMap<String, String>(), orderedParams, "test");
+        List<String> unorderedQueries = new ArrayList<>();
+        List<String> orderedQueries = new ArrayList<>();
+
+        // Act
+        Collection<Statement> unorderedResult = new HashSet<>();
+        AllTriplesLoader unorderedLoader = new AllTriplesRepositoryLoader(createQueryRecordingDataSource(unorderedDataSource, unorderedQueries));
+        unorderedLoader.loadAllTriples(new StatementCollector(unorderedResult));
+        unorderedLoader.close();
+        Collection<Statement> orderedResult = new HashSet<>();
+        AllTriplesLoader orderedLoader = new AllTriplesRepositoryLoader(createQueryRecordingDataSource(orderedDataSource, orderedQueries));
+        orderedLoader.loadAllTriples(new StatementCollector(orderedResult));
+        orderedLoader.close();
+
+        // Assert
+        assertThat(unorderedResult, is(statements));
+        assertThat(orderedResult, is(statements));
+        assertThat(unorderedQueries.get(0), not(containsString("ORDER BY")));
+        assertThat(orderedQueries.get(0), containsString("ORDER BY"));
+        unorderedDataSource.getRepository().shutDown();
+        orderedDataSource.getRepository().shutDown();
+    }
+
+    private static DataSource createQueryRecordingDataSource(DataSource dataSource, final List<String> executedQueries)
+            throws RepositoryException {
+        final Repository repository = dataSource.getRepository();
+        RepositoryConnection mockRepositoryConnection = mock(RepositoryConnection.class);
+        when(mockRepositoryConnection.prepareTupleQuery(any(QueryLanguage.class), anyString())).thenAnswer(new Answer<TupleQuery>() {
+            @Override
+            public TupleQuery answer(InvocationOnMock invocation) throws Throwable {
+                Object[] arguments = invocation.getArguments();
+                executedQueries.add((String) arguments[1]);
+                return repository.getConnection().prepareTupleQuery((QueryLanguage) arguments[0], (String) arguments[1]);
+            }
+        });
+        Repository mockRepository = mock(Repository.class);
+        when(mockRepository.getValueFactory()).thenReturn(repository.getValueFactory());
+        when(mockRepository.getConnection()).thenReturn(mockRepositoryConnection);
+        return new DataSourceImpl(
+                mockRepository,
+                dataSource.getPrefixes(),
+                dataSource.getName(),
+                dataSource.getType(),
+                dataSource.getParams(),
+                dataSource.getNamedGraphRestriction());
+    }
+
     private DataSource createDataSource(Collection<Statement> statements, int maxSparqlResultRows) throws RepositoryException {
         return createDataSource(
                 statements,
@@ -255,12 +414,22 @@ public class AllTriplesRepositoryLoaderTest {
             int maxSparqlResultRows,
             String name)
             throws RepositoryException {
+        Map<String, String> params = ImmutableMap.of(ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, Integer.toString(maxSparqlResultRows));
+        return createDataSource(statements, namedGraphRestriction, prefixes, params, name);
+    }
+
+    private DataSource createDataSource(
+            Collection<Statement> statements,
+            SparqlRestriction namedGraphRestriction,
+            Map<String, String> prefixes,
+            Map<String, String> params,
+            String name)
+            throws RepositoryException {
         Repository repository = new SailRepository(new MemoryStore());
         repository.initialize();
         RepositoryConnection connection = repository.getConnection();
         connection.add(statements);
         connection.close();
-        Map<String, String> params = ImmutableMap.of(ConfigParameters.DATA_SOURCE_SPARQL_RESULT_MAX_ROWS, Integer.toString(maxSparqlResultRows));
         return new DataSourceImpl(repository, prefixes, name, EnumDataSourceType.SPARQL, params, namedGraphRestriction);
     }
 }
\ No newline at end of file
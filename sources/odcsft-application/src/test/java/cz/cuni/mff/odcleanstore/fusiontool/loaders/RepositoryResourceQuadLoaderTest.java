@@ -0,0 +1,242 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.AlternativeUriNavigator;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterableImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSourceImpl;
+import org.junit.Test;
+import org.openrdf.model.Statement;
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQuery;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.base.RepositoryConnectionWrapper;
+import org.openrdf.repository.base.RepositoryWrapper;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.sail.memory.MemoryStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RepositoryResourceQuadLoaderTest {
+    private static final Collection<Statement> STATEMENTS = ImmutableList.of(
+            createHttpStatement("a1", "p", "o1", "g1"),
+            createHttpStatement("a2", "p", "o2", "g1"),
+            createHttpStatement("a3", "p", "o3", "g2"),
+            createHttpStatement("a4", "p", "o4", "g2"),
+            createHttpStatement("a5", "p", "o5", "g3"),
+            createHttpStatement("b1", "p", "o6", "g1"),
+            createHttpStatement("b2", "p", "o7", "g1"));
+
+    private static final Set<Statement> EXPECTED_STATEMENTS = ImmutableSet.of(
+            createHttpStatement("a1", "p", "o1", "g1"),
+            createHttpStatement("a2", "p", "o2", "g1"),
+            createHttpStatement("a3", "p", "o3", "g2"),
+            createHttpStatement("a4", "p", "o4", "g2"),
+            createHttpStatement("a5", "p", "o5", "g3"));
+
+    private static final Pattern ALTERNATIVE_URI_PATTERN = Pattern.compile("<http://a\\d+>");
+
+    @Test
+    public void loadsQuadsForAllAlternativeUrisWhenValuesQueryUsed() throws Exception {
+        assertLoadsAlternativeUris("values", 2);
+    }
+
+    @Test
+    public void loadsQuadsForAllAlternativeUrisWhenUnionQueryUsed() throws Exception {
+        assertLoadsAlternativeUris("union", 2);
+    }
+
+    @Test
+    public void loadsQuadsForAllAlternativeUrisWhenFilterQueryUsed() throws Exception {
+        assertLoadsAlternativeUris("filter", 2);
+    }
+
+    @Test
+    public void loadsQuadsForAllAlternativeUrisWhenAllAlternativesFitInOneQuery() throws Exception {
+        assertLoadsAlternativeUris("values", 100);
+    }
+
+    @Test
+    public void loadsQuadsWhenUriHasNoAlternatives() throws Exception {
+        // Arrange
+        DataSource dataSource = createDataSource("values", 2);
+        AlternativeUriNavigator navigator = new AlternativeUriNavigator(new UriMappingIterableImpl());
+
+        // Act
+        Set<Statement> result = new HashSet<>();
+        RepositoryResourceQuadLoader loader = new RepositoryResourceQuadLoader(dataSource, navigator);
+        loader.loadQuadsForURI("http://b1", result);
+        loader.close();
+
+        // Assert
+        assertThat(result, equalTo((Set<Statement>) ImmutableSet.of(createHttpStatement("b1", "p", "o6", "g1"))));
+        dataSource.getRepository().shutDown();
+    }
+
+    @Test
+    public void halvesQueryListLengthAndRetriesWhenEndpointRejectsQuery() throws Exception {
+        // Arrange
+        LimitedRepository repository = new LimitedRepository(createRepository(), 2, "HTTP 414 Request-URI Too Long");
+        DataSource dataSource = createDataSource(repository, "values", 4);
+        RepositoryResourceQuadLoader loader = new RepositoryResourceQuadLoader(dataSource, createAlternativeUriNavigator());
+
+        // Act
+        Set<Statement> result = new HashSet<>();
+        loader.loadQuadsForURI("http://a3", result);
+        loader.close();
+
+        // Assert
+        assertThat(result, equalTo(EXPECTED_STATEMENTS));
+        assertThat(repository.queryListLengths, equalTo((List<Integer>) ImmutableList.of(4, 2, 2, 1)));
+        repository.shutDown();
+    }
+
+    @Test
+    public void doesNotRetryWhenQueryFailsForReasonOtherThanItsSize() throws Exception {
+        // Arrange
+        LimitedRepository repository = new LimitedRepository(createRepository(), 2, "Connection refused");
+        DataSource dataSource = createDataSource(repository, "values", 4);
+        RepositoryResourceQuadLoader loader = new RepositoryResourceQuadLoader(dataSource, createAlternativeUriNavigator());
+
+        // Act
+        try {
+            loader.loadQuadsForURI("http://a3", new HashSet<Statement>());
+            fail("Expected exception");
+        } catch (LDFusionToolException e) {
+            // expected
+        }
+        loader.close();
+
+        // Assert
+        assertThat(repository.queryListLengths, equalTo((List<Integer>) ImmutableList.of(4)));
+        repository.shutDown();
+    }
+
+    @Test
+    public void increasesQueryListLengthAgainAfterSuccessfulQueries() throws Exception {
+        // Arrange
+        LimitedRepository repository = new LimitedRepository(createRepository(), 2, "HTTP 414 Request-URI Too Long");
+        DataSource dataSource = createDataSource(repository, "values", 4);
+        RepositoryResourceQuadLoader loader = new RepositoryResourceQuadLoader(dataSource, createAlternativeUriNavigator());
+        loader.loadQuadsForURI("http://a3", new HashSet<Statement>());
+        repository.maxQueryListLength = Integer.MAX_VALUE;
+
+        // Act
+        // each load of the 5 alternatives with at most 2 URIs per query makes two queries with 2 URIs
+        for (int i = 0; i < RepositoryResourceQuadLoader.QUERY_LIST_GROWTH_INTERVAL / 2; i++) {
+            loader.loadQuadsForURI("http://a3", new HashSet<Statement>());
+        }
+        repository.queryListLengths.clear();
+        Set<Statement> result = new HashSet<>();
+        loader.loadQuadsForURI("http://a3", result);
+        loader.close();
+
+        // Assert
+        assertThat(result, equalTo(EXPECTED_STATEMENTS));
+        assertThat(repository.queryListLengths, equalTo((List<Integer>) ImmutableList.of(4, 1)));
+        repository.shutDown();
+    }
+
+    private void assertLoadsAlternativeUris(String queryType, int maxQueryListLength) throws Exception {
+        // Arrange
+        DataSource dataSource = createDataSource(queryType, maxQueryListLength);
+        AlternativeUriNavigator navigator = createAlternativeUriNavigator();
+
+        // Act
+        Set<Statement> result = new HashSet<>();
+        RepositoryResourceQuadLoader loader = new RepositoryResourceQuadLoader(dataSource, navigator);
+        loader.loadQuadsForURI("http://a3", result);
+        loader.close();
+
+        // Assert
+        assertThat(result, equalTo(EXPECTED_STATEMENTS));
+        dataSource.getRepository().shutDown();
+    }
+
+    private DataSource createDataSource(String queryType, int maxQueryListLength) throws Exception {
+        return createDataSource(createRepository(), queryType, maxQueryListLength);
+    }
+
+    private static AlternativeUriNavigator createAlternativeUriNavigator() {
+        UriMappingIterableImpl uriMapping = new UriMappingIterableImpl();
+        uriMapping.addLink("http://a1", "http://a2");
+        uriMapping.addLink("http://a2", "http://a3");
+        uriMapping.addLink("http://a4", "http://a1");
+        uriMapping.addLink("http://a5", "http://a3");
+        return new AlternativeUriNavigator(uriMapping);
+    }
+
+    private static Repository createRepository() throws Exception {
+        Repository repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+        RepositoryConnection connection = repository.getConnection();
+        connection.add(STATEMENTS);
+        connection.close();
+        return repository;
+    }
+
+    private static DataSource createDataSource(Repository repository, String queryType, int maxQueryListLength) {
+        Map<String, String> params = ImmutableMap.of(
+                ConfigParameters.DATA_SOURCE_ALTERNATIVE_URIS_QUERY, queryType,
+                ConfigParameters.DATA_SOURCE_MAX_QUERY_LIST_LENGTH, Integer.toString(maxQueryListLength));
+        return new DataSourceImpl(repository, new HashMap<String, String>(), "test", EnumDataSourceType.SPARQL, params,
+                AllTriplesRepositoryLoaderTest.EMPTY_SPARQL_RESTRICTION);
+    }
+
+    /**
+     * Repository which records the number of alternative URIs in each query and rejects queries with too many of them.
+     */
+    private static class LimitedRepository extends RepositoryWrapper {
+        private final List<Integer> queryListLengths = new ArrayList<>();
+        private final String errorMessage;
+        private int maxQueryListLength;
+
+        private LimitedRepository(Repository delegate, int maxQueryListLength, String errorMessage) {
+            super(delegate);
+            this.maxQueryListLength = maxQueryListLength;
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        public RepositoryConnection getConnection() throws RepositoryException {
+            return new RepositoryConnectionWrapper(this, getDelegate().getConnection()) {
+                @Override
+                public TupleQuery prepareTupleQuery(QueryLanguage ql, String query, String baseURI)
+                        throws MalformedQueryException, RepositoryException {
+                    int queryListLength = 0;
+                    Matcher matcher = ALTERNATIVE_URI_PATTERN.matcher(query);
+                    while (matcher.find()) {
+                        queryListLength++;
+                    }
+                    queryListLengths.add(queryListLength);
+                    if (queryListLength > maxQueryListLength) {
+                        throw new RepositoryException(errorMessage);
+                    }
+                    return super.prepareTupleQuery(ql, query, baseURI);
+                }
+            };
+        }
+    }
+}
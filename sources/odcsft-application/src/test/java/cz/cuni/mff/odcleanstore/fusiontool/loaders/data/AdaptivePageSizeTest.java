@@ -0,0 +1,78 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.data;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class AdaptivePageSizeTest {
+    @Test
+    public void growsPageSizeWhileLatencyIsLow() throws Exception {
+        // Arrange
+        AdaptivePageSize pageSize = new AdaptivePageSize(100, 10, 1000, 1000);
+
+        // Act
+        pageSize.pageLoaded(100, 100, 100);
+        int afterFirstPage = pageSize.getPageSize();
+        pageSize.pageLoaded(200, 200, 100);
+        pageSize.pageLoaded(400, 400, 100);
+        pageSize.pageLoaded(800, 800, 100);
+
+        // Assert
+        assertThat(afterFirstPage, equalTo(200));
+        assertThat(pageSize.getPageSize(), equalTo(1000));
+    }
+
+    @Test
+    public void doesNotGrowPageSizeAfterIncompletePage() throws Exception {
+        // Arrange
+        AdaptivePageSize pageSize = new AdaptivePageSize(100, 10, 1000, 1000);
+
+        // Act
+        pageSize.pageLoaded(100, 50, 100);
+
+        // Assert
+        assertThat(pageSize.getPageSize(), equalTo(100));
+    }
+
+    @Test
+    public void shrinksPageSizeProportionallyWhenLatencyIsHigh() throws Exception {
+        // Arrange
+        AdaptivePageSize pageSize = new AdaptivePageSize(800, 10, 1000, 1000);
+
+        // Act
+        pageSize.pageLoaded(800, 800, 4000);
+
+        // Assert
+        assertThat(pageSize.getPageSize(), equalTo(200));
+    }
+
+    @Test
+    public void halvesPageSizeOnFailureDownToMinimum() throws Exception {
+        // Arrange
+        AdaptivePageSize pageSize = new AdaptivePageSize(100, 30, 1000, 1000);
+
+        // Act
+        pageSize.pageFailed();
+        int afterFirstFailure = pageSize.getPageSize();
+        pageSize.pageFailed();
+
+        // Assert
+        assertThat(afterFirstFailure, equalTo(50));
+        assertThat(pageSize.getPageSize(), equalTo(30));
+    }
+
+    @Test
+    public void limitsPageSizeBelowMinimum() throws Exception {
+        // Arrange
+        AdaptivePageSize pageSize = new AdaptivePageSize(100, 50, 1000, 1000);
+
+        // Act
+        pageSize.limitPageSize(20);
+        pageSize.pageLoaded(20, 20, 1);
+
+        // Assert
+        assertThat(pageSize.getPageSize(), equalTo(20));
+        assertThat(pageSize.getMaxPageSize(), equalTo(20));
+    }
+}
@@ -0,0 +1,72 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.data;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class ExponentialBackoffTest {
+    private static final Random NO_JITTER = new Random() {
+        @Override
+        public double nextDouble() {
+            return 0;
+        }
+    };
+
+    @Test
+    public void doublesDelayWithJitterUpToMaximum() throws Exception {
+        // Arrange
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 400, Long.MAX_VALUE, new Random(1));
+
+        // Act
+        long[] delays = new long[4];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = backoff.nextDelay();
+        }
+
+        // Assert
+        assertThat(delays[0], allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(100L)));
+        assertThat(delays[1], allOf(greaterThanOrEqualTo(100L), lessThanOrEqualTo(200L)));
+        assertThat(delays[2], allOf(greaterThanOrEqualTo(200L), lessThanOrEqualTo(400L)));
+        assertThat(delays[3], allOf(greaterThanOrEqualTo(200L), lessThanOrEqualTo(400L)));
+        assertThat(backoff.getAttempts(), equalTo(4));
+    }
+
+    @Test
+    public void givesUpWhenMaxTotalDelayIsExceeded() throws Exception {
+        // Arrange
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 100, 250, NO_JITTER);
+
+        // Act
+        long first = backoff.nextDelay();
+        long second = backoff.nextDelay();
+        long third = backoff.nextDelay();
+
+        // Assert
+        assertThat(first, equalTo(100L));
+        assertThat(second, equalTo(100L));
+        assertThat(third, equalTo(-1L));
+    }
+
+    @Test
+    public void startsWithInitialIntervalAfterReset() throws Exception {
+        // Arrange
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 10_000, Long.MAX_VALUE, new Random(1));
+        backoff.nextDelay();
+        backoff.nextDelay();
+        backoff.nextDelay();
+
+        // Act
+        backoff.reset();
+        long delay = backoff.nextDelay();
+
+        // Assert
+        assertThat(delay, lessThanOrEqualTo(100L));
+        assertThat(backoff.getAttempts(), equalTo(1));
+    }
+}
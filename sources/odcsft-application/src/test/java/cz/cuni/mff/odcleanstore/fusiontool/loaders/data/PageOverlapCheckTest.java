@@ -0,0 +1,65 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.data;
+
+import org.junit.Test;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PageOverlapCheckTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    @Test
+    public void acceptsDistinctQuads() throws Exception {
+        // Arrange
+        PageOverlapCheck check = new PageOverlapCheck(0);
+
+        // Act
+        boolean first = check.add(createHttpStatement("s", "p", "o", "g1"));
+        boolean otherGraph = check.add(createHttpStatement("s", "p", "o", "g2"));
+        boolean literalObject = check.add(VF.createStatement(
+                createHttpUri("s"), createHttpUri("p"), VF.createLiteral(createHttpUri("o").stringValue()), createHttpUri("g1")));
+
+        // Assert
+        assertThat(first, equalTo(true));
+        assertThat(otherGraph, equalTo(true));
+        assertThat(literalObject, equalTo(true));
+    }
+
+    @Test
+    public void detectsRepeatedQuad() throws Exception {
+        // Arrange
+        PageOverlapCheck check = new PageOverlapCheck(0);
+        check.add(createHttpStatement("s1", "p", "o", "g"));
+        check.add(createHttpStatement("s2", "p", "o", "g"));
+
+        // Act
+        boolean result = check.add(createHttpStatement("s1", "p", "o", "g"));
+
+        // Assert
+        assertThat(result, equalTo(false));
+    }
+
+    @Test
+    public void detectsOverlapOfManyQuadsWithDefaultSampling() throws Exception {
+        // Arrange
+        PageOverlapCheck check = new PageOverlapCheck();
+        for (int i = 0; i < 100_000; i++) {
+            check.add(createHttpStatement("s" + i, "p", "o", "g"));
+        }
+
+        // Act
+        int overlappingQuads = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (!check.add(createHttpStatement("s" + i, "p", "o", "g"))) {
+                overlappingQuads++;
+            }
+        }
+
+        // Assert
+        assertThat(overlappingQuads > 0, equalTo(true));
+    }
+}
@@ -0,0 +1,142 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.entity;
+
+import com.google.common.collect.ImmutableMap;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.EnumDataSourceType;
+import cz.cuni.mff.odcleanstore.fusiontool.config.SparqlRestrictionImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.loaders.AllTriplesRepositoryLoaderTest;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSource;
+import cz.cuni.mff.odcleanstore.fusiontool.source.DataSourceImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.util.UriCollection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.sail.memory.MemoryStore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SeedSubjectsLoaderTest {
+    private static final int SUBJECT_COUNT = 25;
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private Repository repository;
+    private Set<String> expectedSubjects;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+        expectedSubjects = new HashSet<>();
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            for (int i = 0; i < SUBJECT_COUNT; i++) {
+                connection.add(createHttpStatement("s" + i, "p", "o" + i, "g" + (i % 3)));
+                connection.add(createHttpStatement("s" + i, "p2", "o" + i, "g" + (i % 2)));
+                expectedSubjects.add(createHttpUri("s" + i).stringValue());
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutDown();
+    }
+
+    @Test
+    public void returnsAllDistinctSubjectsWhenLoadedInPages() throws Exception {
+        for (int pageSize : new int[] {1, 7, SUBJECT_COUNT, 100}) {
+            // Act
+            Set<String> result = loadSubjects(createDataSource(pageSize), null);
+
+            // Assert
+            assertThat("page size " + pageSize, result, equalTo(expectedSubjects));
+        }
+    }
+
+    @Test
+    public void returnsAllSubjectsWhenLoadedByASingleQuery() throws Exception {
+        // Act
+        Set<String> result = loadSubjects(createDataSource(0), null);
+
+        // Assert
+        assertThat(result, equalTo(expectedSubjects));
+    }
+
+    @Test
+    public void appliesSeedResourceRestrictionWhenLoadedInPages() throws Exception {
+        // Arrange
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            connection.add(createHttpUri("s3"), RDF.TYPE, createHttpUri("c"), createHttpUri("g0"));
+            connection.add(createHttpUri("s11"), RDF.TYPE, createHttpUri("c"), createHttpUri("g1"));
+        } finally {
+            connection.close();
+        }
+        SparqlRestrictionImpl seedRestriction = new SparqlRestrictionImpl(
+                "?x <" + RDF.TYPE + "> <" + createHttpUri("c") + ">", "x");
+
+        // Act
+        Set<String> result = loadSubjects(createDataSource(1), seedRestriction);
+
+        // Assert
+        Set<String> expectedResult = new HashSet<>();
+        expectedResult.add(createHttpUri("s3").stringValue());
+        expectedResult.add(createHttpUri("s11").stringValue());
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void returnsBlankNodeSubjectsWhenPageSizeIsSet() throws Exception {
+        // Arrange
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            connection.add(connection.getValueFactory().createBNode("b1"), createHttpUri("p"), createHttpUri("o"), createHttpUri("g0"));
+        } finally {
+            connection.close();
+        }
+
+        // Act
+        Set<String> result = loadSubjects(createDataSource(1), null);
+
+        // Assert
+        assertThat(result.size(), equalTo(SUBJECT_COUNT + 1));
+        assertThat(result.containsAll(expectedSubjects), equalTo(true));
+    }
+
+    private Set<String> loadSubjects(DataSource dataSource, SparqlRestrictionImpl seedRestriction) throws Exception {
+        SeedSubjectsLoader loader = new SeedSubjectsLoader(dataSource, testDir.getRoot());
+        Set<String> result = new HashSet<>();
+        UriCollection collection = loader.getTripleSubjectsCollection(seedRestriction);
+        try {
+            while (collection.hasNext()) {
+                result.add(collection.next());
+            }
+        } finally {
+            collection.close();
+        }
+        return result;
+    }
+
+    private DataSource createDataSource(int pageSize) {
+        return new DataSourceImpl(repository, new HashMap<String, String>(), "test", EnumDataSourceType.SPARQL,
+                ImmutableMap.of(ConfigParameters.DATA_SOURCE_SEED_SUBJECTS_PAGE_SIZE, Integer.toString(pageSize)),
+                AllTriplesRepositoryLoaderTest.EMPTY_SPARQL_RESTRICTION);
+    }
+}
@@ -0,0 +1,136 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.entity;
+
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.RepositoryException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SpooledSubjectsCollectionTest {
+    private static final List<String> SUBJECTS = Arrays.asList(
+            "http://a", "http://b", "http://c", "http://d", "http://e", "http://f", "http://g");
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void resumesAfterLastSpooledSubjectWhenPageQueryFails() throws Exception {
+        // Arrange
+        FailingPageLoader pageLoader = new FailingPageLoader(SUBJECTS, 3, 2, false);
+
+        // Act
+        SpooledSubjectsCollection collection = new SpooledSubjectsCollection(testDir.getRoot(), pageLoader, 3, "test", 5, 1);
+        List<String> result = readAll(collection);
+
+        // Assert
+        assertThat(result, equalTo(SUBJECTS));
+        assertThat(pageLoader.requestedPages, equalTo(Arrays.asList(null, "http://c", "http://c", "http://c", "http://f")));
+    }
+
+    @Test(expected = LDFusionToolException.class)
+    public void throwsWhenMaxRetryAttemptsExceeded() throws Exception {
+        // Arrange
+        FailingPageLoader pageLoader = new FailingPageLoader(SUBJECTS, 3, 2, false);
+
+        // Act
+        SpooledSubjectsCollection collection = new SpooledSubjectsCollection(testDir.getRoot(), pageLoader, 3, "test", 1, 1);
+        readAll(collection);
+    }
+
+    @Test
+    public void resetsRetryAttemptsAfterSuccessfulPage() throws Exception {
+        // Arrange
+        FailingPageLoader pageLoader = new FailingPageLoader(SUBJECTS, 3, 1, true);
+
+        // Act
+        SpooledSubjectsCollection collection = new SpooledSubjectsCollection(testDir.getRoot(), pageLoader, 3, "test", 1, 1);
+        List<String> result = readAll(collection);
+
+        // Assert
+        assertThat(result, equalTo(SUBJECTS));
+        assertThat(pageLoader.requestedPages, equalTo(Arrays.asList(null, "http://c", "http://c", "http://f", "http://f")));
+    }
+
+    @Test
+    public void acceptsSubjectsOrderedByCodePoints() throws Exception {
+        // Arrange
+        List<String> subjects = Arrays.asList("http://a", "http://\uFFFD", "http://\uD83D\uDE00");
+        FailingPageLoader pageLoader = new FailingPageLoader(subjects, 1, 0, false);
+
+        // Act
+        SpooledSubjectsCollection collection = new SpooledSubjectsCollection(testDir.getRoot(), pageLoader, 1, "test", 0, 1);
+        List<String> result = readAll(collection);
+
+        // Assert
+        assertThat(result, equalTo(subjects));
+    }
+
+    @Test
+    public void deletesSpoolFileOnClose() throws Exception {
+        // Act
+        SpooledSubjectsCollection collection = new SpooledSubjectsCollection(
+                testDir.getRoot(), new FailingPageLoader(SUBJECTS, 3, 0, false), 3, "test", 0, 1);
+        collection.next();
+        collection.close();
+
+        // Assert
+        assertThat(testDir.getRoot().listFiles().length, equalTo(0));
+    }
+
+    private static List<String> readAll(SpooledSubjectsCollection collection) throws LDFusionToolException {
+        List<String> result = new ArrayList<>();
+        try {
+            while (collection.hasNext()) {
+                result.add(collection.next());
+            }
+        } finally {
+            collection.close();
+        }
+        return result;
+    }
+
+    /**
+     * Page loader over the given subjects which fails the given number of times when the second page is requested,
+     * or each page after the first one if failEachPage is true.
+     */
+    private static class FailingPageLoader implements SpooledSubjectsCollection.SubjectsPageLoader {
+        private final List<String> subjects;
+        private final int pageSize;
+        private final int failures;
+        private final boolean failEachPage;
+        private int failuresLeft;
+        private String failingPage = null;
+        private final List<String> requestedPages = new ArrayList<>();
+
+        public FailingPageLoader(List<String> subjects, int pageSize, int failures, boolean failEachPage) {
+            this.subjects = subjects;
+            this.pageSize = pageSize;
+            this.failures = failures;
+            this.failEachPage = failEachPage;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public List<String> loadPage(String lastSubject) throws OpenRDFException {
+            requestedPages.add(lastSubject);
+            int start = lastSubject == null ? 0 : subjects.indexOf(lastSubject) + 1;
+            if (failEachPage && start > 0 && !lastSubject.equals(failingPage)) {
+                failingPage = lastSubject;
+                failuresLeft = failures;
+            }
+            if (start > 0 && failuresLeft > 0) {
+                failuresLeft--;
+                throw new RepositoryException("Connection reset");
+            }
+            return subjects.subList(start, Math.min(start + pageSize, subjects.size()));
+        }
+    }
+}
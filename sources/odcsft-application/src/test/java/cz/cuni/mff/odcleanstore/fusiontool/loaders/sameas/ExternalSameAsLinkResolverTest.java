@@ -0,0 +1,125 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas;
+
+import com.google.common.collect.ImmutableSet;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CompactUriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.io.MappedUriMapping;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ExternalSameAsLinkResolverTest {
+    private static final long MEMORY_LIMIT = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void resolvesSameComponentsAsInMemoryMapping() throws Exception {
+        // Arrange
+        Random random = new Random(0);
+        CompactUriMappingImpl expectedMapping = new CompactUriMappingImpl();
+        File file = new File(testDir.getRoot(), "mapping.bin");
+
+        // Act
+        try (ExternalSameAsLinkResolver resolver = createResolver(Collections.<String>emptySet())) {
+            for (int i = 0; i < 500; i++) {
+                String subject = "http://x/" + random.nextInt(400);
+                String object = "http://x/" + random.nextInt(400);
+                resolver.addLink(subject, object);
+                expectedMapping.addLink(subject, object);
+            }
+            resolver.resolve(file, 1);
+        }
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        for (int i = 0; i < 400; i++) {
+            for (int j = 0; j < 400; j += 7) {
+                String uri1 = "http://x/" + i;
+                String uri2 = "http://x/" + j;
+                boolean expected = expectedMapping.getCanonicalURI(uri1).equals(expectedMapping.getCanonicalURI(uri2));
+                assertThat(result.getCanonicalURI(uri1).equals(result.getCanonicalURI(uri2)), equalTo(expected));
+            }
+        }
+        assertThat(result.getFingerprint(), equalTo(1L));
+    }
+
+    @Test
+    public void choosesPreferredOrSmallestUriAsCanonical() throws Exception {
+        // Arrange
+        File file = new File(testDir.getRoot(), "mapping.bin");
+
+        // Act
+        try (ExternalSameAsLinkResolver resolver = createResolver(ImmutableSet.of("http://b2"))) {
+            resolver.addLink("http://a3", "http://a2");
+            resolver.addLink("http://a1", "http://a3");
+            resolver.addLink("http://b1", "http://b2");
+            resolver.addLink("http://b3", "http://b1");
+            resolver.resolve(file, 0);
+        }
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        assertThat(result.getCanonicalURI("http://a1"), equalTo("http://a1"));
+        assertThat(result.getCanonicalURI("http://a2"), equalTo("http://a1"));
+        assertThat(result.getCanonicalURI("http://a3"), equalTo("http://a1"));
+        assertThat(result.getCanonicalURI("http://b1"), equalTo("http://b2"));
+        assertThat(result.getCanonicalURI("http://b3"), equalTo("http://b2"));
+        assertThat(result.getCanonicalURI("http://c"), equalTo("http://c"));
+        assertThat(ImmutableSet.copyOf(result), equalTo(ImmutableSet.of("http://a2", "http://a3", "http://b1", "http://b3")));
+    }
+
+    @Test
+    public void resolvesLongChains() throws Exception {
+        // Arrange
+        File file = new File(testDir.getRoot(), "mapping.bin");
+
+        // Act
+        try (ExternalSameAsLinkResolver resolver = createResolver(Collections.<String>emptySet())) {
+            for (int i = 1000; i > 0; i--) {
+                resolver.addLink("http://x/" + i, "http://x/" + (i - 1));
+            }
+            resolver.resolve(file, 0);
+        }
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        Set<String> canonicalUris = new HashSet<>();
+        for (int i = 0; i <= 1000; i++) {
+            canonicalUris.add(result.getCanonicalURI("http://x/" + i));
+        }
+        assertThat(canonicalUris, equalTo((Set<String>) ImmutableSet.of("http://x/0")));
+        assertThat(result.size(), equalTo(1001));
+    }
+
+    @Test
+    public void ignoresInvalidUris() throws Exception {
+        // Arrange
+        File file = new File(testDir.getRoot(), "mapping.bin");
+
+        // Act
+        try (ExternalSameAsLinkResolver resolver = createResolver(Collections.<String>emptySet())) {
+            resolver.addLink("http://a", "http://invalid uri");
+            resolver.addLink("http://b", "http://a");
+            resolver.resolve(file, 0);
+        }
+        MappedUriMapping result = MappedUriMapping.open(file);
+
+        // Assert
+        assertThat(result.getCanonicalURI("http://b"), equalTo("http://a"));
+        assertThat(result.size(), equalTo(2));
+    }
+
+    private ExternalSameAsLinkResolver createResolver(Set<String> preferredURIs) throws Exception {
+        return new ExternalSameAsLinkResolver(preferredURIs, testDir.getRoot(), MEMORY_LIMIT);
+    }
+}
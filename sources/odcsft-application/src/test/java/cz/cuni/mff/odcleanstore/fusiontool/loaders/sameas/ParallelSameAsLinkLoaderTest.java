@@ -0,0 +1,107 @@
+package cz.cuni.mff.odcleanstore.fusiontool.loaders.sameas;
+
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CompactUriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.SameAsLinkConsumer;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolApplicationException;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolErrorCodes;
+import cz.cuni.mff.odcleanstore.fusiontool.exceptions.LDFusionToolException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ParallelSameAsLinkLoaderTest {
+    private static final int URI_COUNT = 300;
+
+    @Test
+    public void givesSameCanonicalUrisRegardlessOfThreadCount() throws Exception {
+        // Arrange
+        List<SameAsLinkLoader> loaders = createRandomLoaders(10);
+        CompactUriMappingImpl singleThreadMapping = new CompactUriMappingImpl();
+        CompactUriMappingImpl multiThreadMapping = new CompactUriMappingImpl();
+
+        // Act
+        long singleThreadCount = new ParallelSameAsLinkLoader(loaders, 1).loadSameAsMappings(singleThreadMapping);
+        long multiThreadCount = new ParallelSameAsLinkLoader(loaders, 4).loadSameAsMappings(multiThreadMapping);
+
+        // Assert
+        for (int i = 0; i < URI_COUNT; i++) {
+            String uri = createUri(i);
+            assertThat(multiThreadMapping.getCanonicalURI(uri), equalTo(singleThreadMapping.getCanonicalURI(uri)));
+        }
+        assertThat(multiThreadCount, equalTo(singleThreadCount));
+    }
+
+    @Test
+    public void connectsSameUrisAsSequentialLoading() throws Exception {
+        // Arrange
+        List<SameAsLinkLoader> loaders = createRandomLoaders(7);
+        CompactUriMappingImpl expectedMapping = new CompactUriMappingImpl();
+        for (SameAsLinkLoader loader : loaders) {
+            loader.loadSameAsMappings(expectedMapping);
+        }
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl();
+
+        // Act
+        new ParallelSameAsLinkLoader(loaders, 3).loadSameAsMappings(uriMapping);
+
+        // Assert
+        for (int i = 0; i < URI_COUNT; i++) {
+            for (int j = 0; j < URI_COUNT; j += 11) {
+                boolean expected = expectedMapping.getCanonicalURI(createUri(i)).equals(expectedMapping.getCanonicalURI(createUri(j)));
+                boolean actual = uriMapping.getCanonicalURI(createUri(i)).equals(uriMapping.getCanonicalURI(createUri(j)));
+                assertThat(actual, equalTo(expected));
+            }
+        }
+    }
+
+    @Test(expected = LDFusionToolException.class)
+    public void propagatesLoaderErrors() throws Exception {
+        // Arrange
+        List<SameAsLinkLoader> loaders = createRandomLoaders(3);
+        loaders.add(new SameAsLinkLoader() {
+            @Override
+            public long loadSameAsMappings(SameAsLinkConsumer uriMapping) throws LDFusionToolException {
+                throw new LDFusionToolApplicationException(LDFusionToolErrorCodes.SAME_AS_LOAD, "test");
+            }
+        });
+
+        // Act
+        new ParallelSameAsLinkLoader(loaders, 2).loadSameAsMappings(new CompactUriMappingImpl());
+    }
+
+    private static List<SameAsLinkLoader> createRandomLoaders(int count) {
+        Random random = new Random(0);
+        List<SameAsLinkLoader> loaders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int[] links = new int[60];
+            for (int j = 0; j < links.length; j++) {
+                links[j] = random.nextInt(URI_COUNT);
+            }
+            final int delay = random.nextInt(20);
+            loaders.add(new SameAsLinkLoader() {
+                @Override
+                public long loadSameAsMappings(SameAsLinkConsumer uriMapping) throws LDFusionToolException {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < links.length; j += 2) {
+                        uriMapping.addLink(createUri(links[j]), createUri(links[j + 1]));
+                    }
+                    return links.length / 2;
+                }
+            });
+        }
+        return loaders;
+    }
+
+    private static String createUri(int i) {
+        return "http://uri/" + i;
+    }
+}
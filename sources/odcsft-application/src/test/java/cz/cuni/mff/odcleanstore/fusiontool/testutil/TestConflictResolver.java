@@ -18,7 +18,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class TestConflictResolver implements ResourceDescriptionConflictResolver {
     private AtomicInteger callCounter = new AtomicInteger(0);
 
-    private final List<Collection<Statement>> collectedStatements = new ArrayList<Collection<Statement>>();
+    private final List<Collection<Statement>> collectedStatements = Collections.synchronizedList(new ArrayList<Collection<Statement>>());
 
     public List<Collection<Statement>> getCollectedStatements() {
         return collectedStatements;
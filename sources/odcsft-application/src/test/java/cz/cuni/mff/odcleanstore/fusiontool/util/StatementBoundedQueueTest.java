@@ -0,0 +1,84 @@
+package cz.cuni.mff.odcleanstore.fusiontool.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StatementBoundedQueueTest {
+    @Test
+    public void acceptsItemLargerThanCapacityWhenEmpty() throws Exception {
+        // Arrange
+        StatementBoundedQueue<String> queue = new StatementBoundedQueue<>(10);
+
+        // Act
+        queue.put("a", 100);
+
+        // Assert
+        assertThat(queue.getStatementCount(), equalTo(100L));
+        assertThat(queue.take(), equalTo("a"));
+        assertThat(queue.getStatementCount(), equalTo(0L));
+    }
+
+    @Test
+    public void blocksWhenCapacityIsExceeded() throws Exception {
+        // Arrange
+        final StatementBoundedQueue<String> queue = new StatementBoundedQueue<>(10);
+        queue.put("a", 6);
+        final CountDownLatch putFinished = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.put("b", 6);
+                    putFinished.countDown();
+                } catch (InterruptedException e) {
+                    // end
+                }
+            }
+        });
+
+        // Act
+        producer.start();
+        boolean finishedBeforeTake = putFinished.await(100, TimeUnit.MILLISECONDS);
+        String first = queue.take();
+        boolean finishedAfterTake = putFinished.await(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(finishedBeforeTake, equalTo(false));
+        assertThat(first, equalTo("a"));
+        assertThat(finishedAfterTake, equalTo(true));
+        assertThat(queue.take(), equalTo("b"));
+    }
+
+    @Test
+    public void releasesWaitingThreadsWhenClosed() throws Exception {
+        // Arrange
+        final StatementBoundedQueue<String> queue = new StatementBoundedQueue<>(10);
+        final String[] taken = {"not taken"};
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    taken[0] = queue.take();
+                } catch (InterruptedException e) {
+                    // end
+                }
+            }
+        });
+        consumer.start();
+
+        // Act
+        queue.close();
+        consumer.join(10_000);
+        queue.put("a", 1);
+
+        // Assert
+        assertThat(taken[0], nullValue());
+        assertThat(queue.take(), nullValue());
+    }
+}
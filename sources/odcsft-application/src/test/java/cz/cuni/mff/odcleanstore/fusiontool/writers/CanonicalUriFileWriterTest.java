@@ -0,0 +1,58 @@
+package cz.cuni.mff.odcleanstore.fusiontool.writers;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.CompactUriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.IndexedUriMapping;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CanonicalUriFileWriterTest {
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void writesEachCanonicalUriOnce() throws Exception {
+        // Arrange
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl(ImmutableSet.of("http://ax", "http://bx"));
+        uriMapping.addLink("http://a1", "http://ax");
+        uriMapping.addLink("http://a2", "http://a1");
+        uriMapping.addLink("http://b1", "http://bx");
+        uriMapping.addLink("http://c1", "http://c1");
+        File outputFile = new File(testDir.getRoot(), "canonical.txt");
+
+        // Act
+        new CanonicalUriFileWriter(outputFile).write(new IndexedUriMapping(uriMapping.freeze(), 2));
+
+        // Assert
+        List<String> lines = Files.readLines(outputFile, Charsets.UTF_8);
+        assertThat(lines.size(), equalTo(2));
+        assertThat(ImmutableSet.copyOf(lines), equalTo(ImmutableSet.of("http://ax", "http://bx")));
+    }
+
+    @Test
+    public void writesEachCanonicalUriOnceWithoutIndex() throws Exception {
+        // Arrange
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl(ImmutableSet.of("http://ax", "http://bx"));
+        uriMapping.addLink("http://a1", "http://ax");
+        uriMapping.addLink("http://a2", "http://a1");
+        uriMapping.addLink("http://b1", "http://bx");
+        File outputFile = new File(testDir.getRoot(), "canonical.txt");
+
+        // Act
+        new CanonicalUriFileWriter(outputFile).write(uriMapping.freeze());
+
+        // Assert
+        List<String> lines = Files.readLines(outputFile, Charsets.UTF_8);
+        assertThat(lines.size(), equalTo(2));
+        assertThat(ImmutableSet.copyOf(lines), equalTo(ImmutableSet.of("http://ax", "http://bx")));
+    }
+}
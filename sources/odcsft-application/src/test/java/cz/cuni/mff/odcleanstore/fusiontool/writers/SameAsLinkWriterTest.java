@@ -0,0 +1,136 @@
+package cz.cuni.mff.odcleanstore.fusiontool.writers;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import cz.cuni.mff.odcleanstore.fusiontool.config.ConfigParameters;
+import cz.cuni.mff.odcleanstore.fusiontool.config.EnumOutputType;
+import cz.cuni.mff.odcleanstore.fusiontool.config.Output;
+import cz.cuni.mff.odcleanstore.fusiontool.config.OutputImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.IndexedUriMapping;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingIterableImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.OWL;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SameAsLinkWriterTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void writesLinkFromEachNonCanonicalUriToCanonicalUri() throws Exception {
+        // Arrange
+        UriMappingIterableImpl uriMapping = createUriMapping();
+        File outputFile = new File(testDir.getRoot(), "sameAs.nt");
+
+        // Act
+        new SameAsLinkWriter(ImmutableList.of(createOutput(outputFile)), Collections.<String, String>emptyMap())
+                .write(uriMapping);
+
+        // Assert
+        Set<Statement> expectedLinks = new HashSet<>();
+        for (String uri : uriMapping) {
+            String canonicalUri = uriMapping.getCanonicalURI(uri);
+            if (!canonicalUri.equals(uri)) {
+                expectedLinks.add(VF.createStatement(VF.createURI(uri), OWL.SAMEAS, VF.createURI(canonicalUri)));
+            }
+        }
+        List<Statement> links = parseTriples(outputFile);
+        assertThat(links.size(), equalTo(4));
+        assertThat(new HashSet<>(links), equalTo(expectedLinks));
+    }
+
+    @Test
+    public void writesSameLinksForIndexedAndNotIndexedMapping() throws Exception {
+        // Arrange
+        File notIndexedOutputFile = new File(testDir.getRoot(), "sameAs-notIndexed.nt");
+        File indexedOutputFile = new File(testDir.getRoot(), "sameAs-indexed.nt");
+
+        // Act
+        new SameAsLinkWriter(ImmutableList.of(createOutput(notIndexedOutputFile)), Collections.<String, String>emptyMap())
+                .write(createUriMapping());
+        new SameAsLinkWriter(ImmutableList.of(createOutput(indexedOutputFile)), Collections.<String, String>emptyMap())
+                .write(new IndexedUriMapping(createUriMapping(), 1));
+
+        // Assert
+        List<Statement> indexedLinks = parseTriples(indexedOutputFile);
+        assertThat(indexedLinks.size(), equalTo(4));
+        assertThat(new HashSet<>(indexedLinks), equalTo(new HashSet<>(parseTriples(notIndexedOutputFile))));
+    }
+
+    @Test
+    public void writesAllLinksToEachOfMultipleOutputs() throws Exception {
+        // Arrange
+        File referenceOutputFile = new File(testDir.getRoot(), "sameAs-reference.nt");
+        List<File> outputFiles = ImmutableList.of(
+                new File(testDir.getRoot(), "sameAs1.nt"),
+                new File(testDir.getRoot(), "sameAs2.nt"),
+                new File(testDir.getRoot(), "sameAs3.nt"));
+        List<Output> outputs = new ArrayList<>();
+        for (File outputFile : outputFiles) {
+            outputs.add(createOutput(outputFile));
+        }
+        new SameAsLinkWriter(ImmutableList.of(createOutput(referenceOutputFile)), Collections.<String, String>emptyMap())
+                .write(createUriMapping());
+
+        // Act
+        new SameAsLinkWriter(outputs, Collections.<String, String>emptyMap())
+                .write(new IndexedUriMapping(createUriMapping(), 1));
+
+        // Assert
+        Set<Statement> expectedLinks = new HashSet<>(parseTriples(referenceOutputFile));
+        for (File outputFile : outputFiles) {
+            List<Statement> links = parseTriples(outputFile);
+            assertThat(links.size(), equalTo(expectedLinks.size()));
+            assertThat(new HashSet<>(links), equalTo(expectedLinks));
+        }
+    }
+
+    private static UriMappingIterableImpl createUriMapping() {
+        UriMappingIterableImpl uriMapping = new UriMappingIterableImpl(ImmutableSet.of("http://ax", "http://bx"));
+        uriMapping.addLink("http://a1", "http://ax");
+        uriMapping.addLink("http://a2", "http://a1");
+        uriMapping.addLink("http://a3", "http://a2");
+        uriMapping.addLink("http://b1", "http://bx");
+        uriMapping.addLink("http://c1", "http://c1");
+        return uriMapping;
+    }
+
+    private static Output createOutput(File sameAsFile) {
+        OutputImpl output = new OutputImpl(EnumOutputType.FILE, sameAsFile.getName());
+        output.getParams().put(ConfigParameters.OUTPUT_SAME_AS_FILE, sameAsFile.getAbsolutePath());
+        output.getParams().put(ConfigParameters.OUTPUT_FORMAT, "ntriples");
+        return output;
+    }
+
+    private static List<Statement> parseTriples(File file) throws Exception {
+        List<Statement> result = new ArrayList<>();
+        RDFParser parser = Rio.createParser(RDFFormat.NTRIPLES);
+        parser.setRDFHandler(new StatementCollector(result));
+        try (InputStream input = new FileInputStream(file)) {
+            parser.parse(input, "http://base");
+        }
+        return result;
+    }
+}
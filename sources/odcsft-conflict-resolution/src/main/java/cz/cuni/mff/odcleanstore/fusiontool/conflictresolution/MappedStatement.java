@@ -0,0 +1,50 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.ContextStatementImpl;
+
+/**
+ * Statement with its original terms which also carries its canonical version, i.e. the statement
+ * with subject, predicate and object mapped to their canonical URIs.
+ * The canonical version is computed only once (e.g. when the statement is loaded)
+ * and reused during conflict resolution instead of mapping the statement repeatedly.
+ * The statement behaves as the original statement with regard to {@link #equals(Object)} and {@link #hashCode()}.
+ */
+public class MappedStatement extends ContextStatementImpl {
+    private static final long serialVersionUID = 6427355871206358112L;
+
+    private final Statement canonicalStatement;
+
+    /**
+     * Creates a new statement.
+     * @param subject original subject
+     * @param predicate original predicate
+     * @param object original object
+     * @param context context
+     * @param canonicalSubject canonical version of {@code subject}
+     * @param canonicalPredicate canonical version of {@code predicate}
+     * @param canonicalObject canonical version of {@code object}
+     */
+    public MappedStatement(
+            Resource subject, URI predicate, Value object, Resource context,
+            Resource canonicalSubject, URI canonicalPredicate, Value canonicalObject) {
+        super(subject, predicate, object, context);
+        // Intentionally !=
+        if (subject != canonicalSubject || predicate != canonicalPredicate || object != canonicalObject) {
+            this.canonicalStatement = new ContextStatementImpl(canonicalSubject, canonicalPredicate, canonicalObject, context);
+        } else {
+            this.canonicalStatement = this;
+        }
+    }
+
+    /**
+     * Returns the statement with canonical subject, predicate and object and the original context.
+     * @return canonical version of this statement; may be this statement if no term is mapped
+     */
+    public Statement getCanonicalStatement() {
+        return canonicalStatement;
+    }
+}
@@ -0,0 +1,98 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
+import cz.cuni.mff.odcleanstore.conflictresolution.exceptions.ConflictResolutionException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Group of independent conflict cluster resolution tasks executed in parallel.
+ * The calling thread takes part in the execution and threads of the given executor only help it if they are available,
+ * so that all tasks are finished even when no helper thread can be started (e.g. all threads resolve other resource descriptions).
+ */
+class ConflictClusterTaskGroup implements Runnable {
+    private final List<? extends ConflictClusterTask> tasks;
+    private final Collection<ResolvedStatement>[] results;
+    private final AtomicInteger nextTask = new AtomicInteger();
+    private final CountDownLatch finishedTasks;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    @SuppressWarnings("unchecked")
+    private ConflictClusterTaskGroup(List<? extends ConflictClusterTask> tasks) {
+        this.tasks = tasks;
+        this.results = (Collection<ResolvedStatement>[]) new Collection[tasks.size()];
+        this.finishedTasks = new CountDownLatch(tasks.size());
+    }
+
+    /**
+     * Executes the given tasks in the calling thread and up to {@code maxHelperThreads} threads of {@code executor}.
+     * @param tasks tasks to execute
+     * @param executor executor providing helper threads; tasks not accepted by the executor are executed in the calling thread
+     * @param maxHelperThreads maximum number of threads of {@code executor} to use
+     * @return results of tasks in the order of {@code tasks}
+     * @throws ConflictResolutionException error thrown by any of the tasks
+     */
+    public static List<Collection<ResolvedStatement>> executeAll(
+            List<? extends ConflictClusterTask> tasks, ParallelResolutionExecutor executor, int maxHelperThreads)
+            throws ConflictResolutionException {
+        ConflictClusterTaskGroup taskGroup = new ConflictClusterTaskGroup(tasks);
+        int helperThreads = Math.min(maxHelperThreads, tasks.size() - 1);
+        for (int i = 0; i < helperThreads; i++) {
+            if (!executor.tryExecute(taskGroup)) {
+                break; // no more threads available, the calling thread will do the rest
+            }
+        }
+        taskGroup.run();
+        return taskGroup.getResults();
+    }
+
+    @Override
+    public void run() {
+        int taskIndex;
+        while ((taskIndex = nextTask.getAndIncrement()) < tasks.size()) {
+            try {
+                if (error.get() == null) {
+                    results[taskIndex] = tasks.get(taskIndex).resolve();
+                }
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+            } finally {
+                finishedTasks.countDown();
+            }
+        }
+    }
+
+    private List<Collection<ResolvedStatement>> getResults() throws ConflictResolutionException {
+        // Tasks still executed by helper threads may share non-thread-safe state with the caller, wait for them even if interrupted
+        Uninterruptibles.awaitUninterruptibly(finishedTasks);
+        Throwable e = error.get();
+        if (e instanceof ConflictResolutionException) {
+            throw (ConflictResolutionException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new IllegalStateException(e);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Resolution of a single conflict cluster.
+     */
+    interface ConflictClusterTask {
+        /**
+         * Resolves conflicts in the conflict cluster.
+         * @return resolved statements
+         * @throws ConflictResolutionException CR error
+         */
+        Collection<ResolvedStatement> resolve() throws ConflictResolutionException;
+    }
+}
@@ -1,64 +1,378 @@
 package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
 
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimaps;
+import cz.cuni.mff.odcleanstore.conflictresolution.impl.util.CRUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.MappedStatement;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.UriMapping;
-import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.util.LDFusionToolCRUtils;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.util.StatementMapper;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.ValueFactoryImpl;
 
 import java.util.*;
 
-// TODO: more efficient representation, e.g. using binary search
+/**
+ * Statements of a resource description grouped into conflict clusters by canonical subject and canonical property.
+ * Statements are kept in a single array sorted by (canonical subject, canonical property) and conflict clusters
+ * are located by binary search; maps and lists returned by this class are views backed by the array.
+ * Statements in a conflict cluster keep their original order.
+ * Statements are converted to {@link MappedStatement}s so that they are URI-mapped only once during conflict resolution.
+ */
 public class ConflictClustersMap {
+    private final MappedStatement[] statements;
+    private final Resource[] canonicalSubjects;
+    private final URI[] canonicalProperties;
+
     /**
-     * Map of canonical subject -> canonical property -> statements
+     * Creates a new instance grouping the given statements.
+     * @param statements statements to group; instances of {@link MappedStatement} must be mapped with {@code uriMapping}
+     * @param uriMapping canonical URI mapping
+     * @return conflict clusters map
      */
-    private final Map<Resource, ListMultimap<URI, Statement>> canonicalSubjectPropertyMap;
-
     public static ConflictClustersMap fromCollection(Collection<Statement> statements, UriMapping uriMapping) {
-        Map<Resource, ListMultimap<URI, Statement>> map = new HashMap<Resource, ListMultimap<URI, Statement>>();
+        StatementMapper statementMapper = new StatementMapper(uriMapping, ValueFactoryImpl.getInstance());
+        int size = statements.size();
+        MappedStatement[] unsortedStatements = new MappedStatement[size];
+        Resource[] unsortedSubjects = new Resource[size];
+        URI[] unsortedProperties = new URI[size];
+        int index = 0;
         for (Statement statement : statements) {
-            Resource canonicalSubject = uriMapping.mapResource(statement.getSubject());
-            URI canonicalProperty = (URI) uriMapping.mapResource(statement.getPredicate());
-            ListMultimap<URI, Statement> subjectMap = getOrCreateSubjectMultimap(canonicalSubject, map);
-            subjectMap.put(canonicalProperty, statement);
+            MappedStatement mappedStatement = statementMapper.toMappedStatement(statement);
+            unsortedStatements[index] = mappedStatement;
+            unsortedSubjects[index] = mappedStatement.getCanonicalStatement().getSubject();
+            unsortedProperties[index] = mappedStatement.getCanonicalStatement().getPredicate();
+            index++;
         }
-        return new ConflictClustersMap(map);
-    }
 
-    private static ListMultimap<URI, Statement> getOrCreateSubjectMultimap(Resource canonicalSubject, Map<Resource, ListMultimap<URI, Statement>> map) {
-        ListMultimap<URI, Statement> subjectMultimap = map.get(canonicalSubject);
-        if (subjectMultimap == null) {
-            subjectMultimap = LDFusionToolCRUtils.newStatementMultimap();
-            map.put(canonicalSubject, subjectMultimap);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
         }
-        return subjectMultimap;
+        new ClusterIndexSorter(unsortedSubjects, unsortedProperties).sort(order);
+
+        MappedStatement[] sortedStatements = new MappedStatement[size];
+        Resource[] sortedSubjects = new Resource[size];
+        URI[] sortedProperties = new URI[size];
+        for (int i = 0; i < size; i++) {
+            sortedStatements[i] = unsortedStatements[order[i]];
+            sortedSubjects[i] = unsortedSubjects[order[i]];
+            sortedProperties[i] = unsortedProperties[order[i]];
+        }
+        return new ConflictClustersMap(sortedStatements, sortedSubjects, sortedProperties);
     }
 
-    private ConflictClustersMap(Map<Resource, ListMultimap<URI, Statement>> canonicalSubjectPropertyMap) {
-        this.canonicalSubjectPropertyMap = canonicalSubjectPropertyMap;
+    private ConflictClustersMap(MappedStatement[] statements, Resource[] canonicalSubjects, URI[] canonicalProperties) {
+        this.statements = statements;
+        this.canonicalSubjects = canonicalSubjects;
+        this.canonicalProperties = canonicalProperties;
     }
 
+    /**
+     * Returns statements with the given canonical subject grouped by canonical property.
+     * @param canonicalSubject canonical subject
+     * @return map canonical property -> statements with the property (unmodifiable view)
+     */
     public Map<URI, List<Statement>> getResourceStatementsMap(Resource canonicalSubject) {
-        ListMultimap<URI, Statement> subjectSubMap = canonicalSubjectPropertyMap.get(canonicalSubject);
-        if (subjectSubMap == null) {
+        int from = lowerBound(canonicalSubjects, 0, statements.length, canonicalSubject);
+        int to = upperBound(canonicalSubjects, from, statements.length, canonicalSubject);
+        if (from == to) {
             return Collections.emptyMap();
         }
-        return Multimaps.asMap(subjectSubMap);
+        return new PropertyClustersMap(new int[] {from}, new int[] {to});
     }
 
+    /**
+     * Returns statements with any of the given canonical subjects grouped by canonical property.
+     * @param canonicalSubjects canonical subjects
+     * @return map canonical property -> statements with the property (unmodifiable view)
+     */
     public Map<URI, List<Statement>> getUnionStatementsMap(Set<Resource> canonicalSubjects) {
-        ListMultimap<URI, Statement> result = LDFusionToolCRUtils.newStatementMultimap();
+        int[] rangeStarts = new int[canonicalSubjects.size()];
+        int[] rangeEnds = new int[canonicalSubjects.size()];
+        int rangeCount = 0;
         for (Resource canonicalSubject : canonicalSubjects) {
-            ListMultimap<URI, Statement> subjectSubMap = canonicalSubjectPropertyMap.get(canonicalSubject);
-            if (subjectSubMap == null) {
-                continue;
+            int from = lowerBound(this.canonicalSubjects, 0, statements.length, canonicalSubject);
+            int to = upperBound(this.canonicalSubjects, from, statements.length, canonicalSubject);
+            if (from < to) {
+                rangeStarts[rangeCount] = from;
+                rangeEnds[rangeCount] = to;
+                rangeCount++;
+            }
+        }
+        if (rangeCount == 0) {
+            return Collections.emptyMap();
+        }
+        return new PropertyClustersMap(Arrays.copyOf(rangeStarts, rangeCount), Arrays.copyOf(rangeEnds, rangeCount));
+    }
+
+    /**
+     * Returns the first index in [from, to) whose value is not less than {@code key}, or {@code to} if there is none.
+     */
+    private static int lowerBound(Value[] sortedValues, int from, int to, Value key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(sortedValues[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
-            result.putAll(subjectSubMap);
         }
-        return Multimaps.asMap(result);
+        return low;
     }
 
+    /**
+     * Returns the first index in [from, to) whose value is greater than {@code key}, or {@code to} if there is none.
+     */
+    private static int upperBound(Value[] sortedValues, int from, int to, Value key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(sortedValues[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(Value value1, Value value2) {
+        // canonical URIs are usually shared instances
+        return value1 == value2 ? 0 : CRUtils.compareValues(value1, value2);
+    }
+
+    /**
+     * Stable merge sort of statement indexes by (canonical subject, canonical property).
+     * Sorting indexes into arrays of canonical terms avoids dereferencing canonical statements in every comparison.
+     */
+    private static class ClusterIndexSorter {
+        private static final int INSERTION_SORT_THRESHOLD = 16;
+        private final Resource[] subjects;
+        private final URI[] properties;
+
+        public ClusterIndexSorter(Resource[] subjects, URI[] properties) {
+            this.subjects = subjects;
+            this.properties = properties;
+        }
+
+        public void sort(int[] indexes) {
+            if (isSorted(indexes)) {
+                return;
+            }
+            int[] buffer = indexes.clone();
+            mergeSort(buffer, indexes, 0, indexes.length);
+        }
+
+        /** Sorts {@code dest[from, to)}; {@code src} holds the same elements on input and is used as a buffer. */
+        private void mergeSort(int[] src, int[] dest, int from, int to) {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(dest, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            mergeSort(dest, src, from, mid);
+            mergeSort(dest, src, mid, to);
+            int left = from;
+            int right = mid;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < mid && compareIndexes(src[left], src[right]) <= 0)) {
+                    dest[i] = src[left++];
+                } else {
+                    dest[i] = src[right++];
+                }
+            }
+        }
+
+        private void insertionSort(int[] indexes, int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int index = indexes[i];
+                int j = i - 1;
+                while (j >= from && compareIndexes(indexes[j], index) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+                indexes[j + 1] = index;
+            }
+        }
+
+        private boolean isSorted(int[] indexes) {
+            for (int i = 1; i < indexes.length; i++) {
+                if (compareIndexes(indexes[i - 1], indexes[i]) > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int compareIndexes(int index1, int index2) {
+            int subjectComparison = compare(subjects[index1], subjects[index2]);
+            return subjectComparison != 0
+                    ? subjectComparison
+                    : compare(properties[index1], properties[index2]);
+        }
+    }
+
+    /**
+     * View of statements in the given ranges of the statements array grouped by canonical property.
+     * Each range must contain statements of a single canonical subject.
+     */
+    private class PropertyClustersMap extends AbstractMap<URI, List<Statement>> {
+        private final int[] rangeStarts;
+        private final int[] rangeEnds;
+        private List<URI> properties;
+
+        public PropertyClustersMap(int[] rangeStarts, int[] rangeEnds) {
+            this.rangeStarts = rangeStarts;
+            this.rangeEnds = rangeEnds;
+        }
+
+        @Override
+        public List<Statement> get(Object key) {
+            if (!(key instanceof URI)) {
+                return null;
+            }
+            URI property = (URI) key;
+            if (rangeStarts.length == 1) {
+                int from = lowerBound(canonicalProperties, rangeStarts[0], rangeEnds[0], property);
+                int to = upperBound(canonicalProperties, from, rangeEnds[0], property);
+                return from < to ? new StatementRangeList(new int[] {from}, new int[] {to}, to - from) : null;
+            }
+
+            int[] clusterStarts = new int[rangeStarts.length];
+            int[] clusterEnds = new int[rangeStarts.length];
+            int clusterCount = 0;
+            int size = 0;
+            for (int i = 0; i < rangeStarts.length; i++) {
+                int from = lowerBound(canonicalProperties, rangeStarts[i], rangeEnds[i], property);
+                int to = upperBound(canonicalProperties, from, rangeEnds[i], property);
+                if (from < to) {
+                    clusterStarts[clusterCount] = from;
+                    clusterEnds[clusterCount] = to;
+                    clusterCount++;
+                    size += to - from;
+                }
+            }
+            if (clusterCount == 0) {
+                return null;
+            }
+            return new StatementRangeList(Arrays.copyOf(clusterStarts, clusterCount), Arrays.copyOf(clusterEnds, clusterCount), size);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return getProperties().size();
+        }
+
+        @Override
+        public Set<Entry<URI, List<Statement>>> entrySet() {
+            return new AbstractSet<Entry<URI, List<Statement>>>() {
+                @Override
+                public Iterator<Entry<URI, List<Statement>>> iterator() {
+                    final Iterator<URI> propertyIterator = getProperties().iterator();
+                    return new Iterator<Entry<URI, List<Statement>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return propertyIterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<URI, List<Statement>> next() {
+                            URI property = propertyIterator.next();
+                            return new SimpleImmutableEntry<>(property, get(property));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return getProperties().size();
+                }
+            };
+        }
+
+        /**
+         * Returns distinct canonical properties in the ranges in sorted order.
+         */
+        private List<URI> getProperties() {
+            if (properties == null) {
+                List<URI> result = new ArrayList<>();
+                for (int i = 0; i < rangeStarts.length; i++) {
+                    for (int j = rangeStarts[i]; j < rangeEnds[i]; j = upperBound(canonicalProperties, j, rangeEnds[i], canonicalProperties[j])) {
+                        result.add(canonicalProperties[j]);
+                    }
+                }
+                if (rangeStarts.length > 1) {
+                    result = mergeProperties(result);
+                }
+                properties = result;
+            }
+            return properties;
+        }
+
+        private List<URI> mergeProperties(List<URI> properties) {
+            Collections.sort(properties, new Comparator<URI>() {
+                @Override
+                public int compare(URI uri1, URI uri2) {
+                    return ConflictClustersMap.compare(uri1, uri2);
+                }
+            });
+            List<URI> result = new ArrayList<>(properties.size());
+            for (URI property : properties) {
+                if (result.isEmpty() || compare(result.get(result.size() - 1), property) != 0) {
+                    result.add(property);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Unmodifiable view of statements in the given ranges of the statements array.
+     */
+    private class StatementRangeList extends AbstractList<Statement> implements RandomAccess {
+        private final int[] rangeStarts;
+        private final int[] rangeEnds;
+        private final int size;
+
+        public StatementRangeList(int[] rangeStarts, int[] rangeEnds, int size) {
+            this.rangeStarts = rangeStarts;
+            this.rangeEnds = rangeEnds;
+            this.size = size;
+        }
+
+        @Override
+        public Statement get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException();
+            }
+            int offset = index;
+            for (int i = 0; i < rangeStarts.length; i++) {
+                int rangeSize = rangeEnds[i] - rangeStarts[i];
+                if (offset < rangeSize) {
+                    return statements[rangeStarts[i] + offset];
+                }
+                offset -= rangeSize;
+            }
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor of threads helping with resolution of large resource descriptions which shares a limit on the number
+ * of threads with threads resolving resource descriptions.
+ * Conflict resolvers count themselves as active threads while they resolve a resource description and a helper
+ * is only started when the number of active resolving and helper threads is below the limit, i.e. helpers
+ * use only threads which would be otherwise idle (e.g. when other threads of a pipeline wait for input)
+ * instead of oversubscribing the CPU.
+ * The executor may be shared by conflict resolvers of multiple threads.
+ */
+public class ParallelResolutionExecutor {
+    private final Executor executor;
+    private final int maxThreads;
+    private final AtomicInteger activeThreads = new AtomicInteger();
+
+    /**
+     * @param executor executor providing helper threads; tasks rejected by the executor are executed by the resolving thread
+     * @param maxThreads maximum number of threads resolving resource descriptions and helper threads active at the time
+     *      a helper is started
+     */
+    public ParallelResolutionExecutor(Executor executor, int maxThreads) {
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkArgument(maxThreads > 0);
+        this.executor = executor;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Registers the calling thread as active while it resolves a resource description;
+     * must be followed by {@link #resolutionFinished()}.
+     */
+    void resolutionStarted() {
+        activeThreads.incrementAndGet();
+    }
+
+    /**
+     * Unregisters a thread registered by {@link #resolutionStarted()}.
+     */
+    void resolutionFinished() {
+        activeThreads.decrementAndGet();
+    }
+
+    /**
+     * Executes the given task in a helper thread if the thread limit allows it.
+     * @param task task to execute
+     * @return true if the task was passed to a helper thread, false if the calling thread needs to execute it
+     */
+    boolean tryExecute(final Runnable task) {
+        if (!tryAcquireThread()) {
+            return false;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        activeThreads.decrementAndGet();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            activeThreads.decrementAndGet();
+            return false;
+        }
+    }
+
+    private boolean tryAcquireThread() {
+        while (true) {
+            int current = activeThreads.get();
+            if (current >= maxThreads) {
+                return false;
+            }
+            if (activeThreads.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+}
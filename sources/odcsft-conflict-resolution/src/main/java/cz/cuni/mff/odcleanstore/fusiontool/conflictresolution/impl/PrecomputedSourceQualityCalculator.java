@@ -0,0 +1,59 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.SourceQualityCalculator;
+import org.openrdf.model.Model;
+import org.openrdf.model.Resource;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Source quality calculator which computes quality of all source graphs described in the metadata in advance.
+ * Quality of each graph is computed by the wrapped calculator only once and later looked up in a hash table
+ * instead of matching the metadata model for every conflicting statement.
+ * Graphs without any metadata share the same quality.
+ * The calculator is immutable and therefore may be shared by multiple threads.
+ */
+public class PrecomputedSourceQualityCalculator implements SourceQualityCalculator {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    private final SourceQualityCalculator sourceQualityCalculator;
+    private final Model metadata;
+    private final Map<Resource, Double> sourceQualityTable;
+    private final double unknownSourceQuality;
+
+    /**
+     * Creates a new instance and computes quality of all source graphs in {@code metadata}.
+     * @param sourceQualityCalculator calculator used to compute quality of source graphs
+     * @param metadata metadata for conflict resolution; must not be modified afterwards
+     */
+    public PrecomputedSourceQualityCalculator(SourceQualityCalculator sourceQualityCalculator, Model metadata) {
+        this.sourceQualityCalculator = sourceQualityCalculator;
+        this.metadata = metadata;
+        // every graph with any metadata (e.g. its score or publisher) is a subject in the metadata model
+        this.sourceQualityTable = new HashMap<>();
+        for (Resource source : metadata.subjects()) {
+            sourceQualityTable.put(source, sourceQualityCalculator.getSourceQuality(source, metadata));
+        }
+        this.unknownSourceQuality = sourceQualityCalculator.getSourceQuality(VF.createBNode(), metadata);
+    }
+
+    @Override
+    public double getSourceQuality(Resource source, Model metadata) {
+        if (metadata != this.metadata) { // intentionally !=
+            return sourceQualityCalculator.getSourceQuality(source, metadata);
+        }
+        Double sourceQuality = sourceQualityTable.get(source);
+        return sourceQuality != null ? sourceQuality : unknownSourceQuality;
+    }
+
+    /**
+     * Returns the number of source graphs with precomputed quality.
+     * @return number of source graphs with precomputed quality
+     */
+    public int size() {
+        return sourceQualityTable.size();
+    }
+}
@@ -1,5 +1,6 @@
 package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Table;
 import cz.cuni.mff.odcleanstore.conflictresolution.*;
 import cz.cuni.mff.odcleanstore.conflictresolution.exceptions.ConflictResolutionException;
@@ -25,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * TODO
@@ -46,11 +48,21 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
 
     private final Model metadataModel;
     private final UriMapping uriMapping;
-    private final ConflictResolutionPolicy effectiveResolutionPolicy;
     private final ResolutionFunctionRegistry resolutionFunctionRegistry;
     private final NestedResourceDescriptionQualityCalculator nestedResourceDescriptionQualityCalculator;
+    private final SingleValueClusterResolution singleValueClusterResolution;
+    private final StatementMapper statementMapper;
     private final ResolvedStatementFactoryImpl resolvedStatementFactory;
-    private final AlternativeUriNavigator dependentPropertyMapping;
+    private final Map<URI, PropertyResolutionPlan> propertyResolutionPlans;
+    private final PropertyResolutionPlan defaultResolutionPlan;
+    private final String resolvedGraphsURIPrefix;
+    private final ParallelResolutionExecutor parallelResolutionExecutor;
+    private final ResolutionFunctionRegistryFactory parallelRegistryFactory;
+    private final int parallelResolutionHelperThreads;
+    private final int parallelResolutionThreshold;
+    private final AtomicInteger parallelStatementFactoryCounter = new AtomicInteger();
+    private final ThreadLocal<ResolvedStatementFactoryImpl> parallelStatementFactory = new ThreadLocal<>();
+    private final ThreadLocal<ResolutionFunctionRegistry> parallelRegistry = new ThreadLocal<>();
 
     /**
      * Creates a new instance with the given settings.
@@ -67,21 +79,70 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
             Model metadata,
             String resolvedGraphsURIPrefix, // TODO: replace with UriGenerator class generating uris both for contexts and generated dependent resources
             NestedResourceDescriptionQualityCalculator nestedResourceDescriptionQualityCalculator) {
+        this(resolutionFunctionRegistry, conflictResolutionPolicy, uriMapping, metadata, resolvedGraphsURIPrefix,
+                nestedResourceDescriptionQualityCalculator, null, null, 0, 0, null);
+    }
+
+    /**
+     * Creates a new instance with the given settings which resolves conflict clusters of large resource descriptions in parallel.
+     * Only conflict clusters which don't need to resolve nested resources are resolved in parallel,
+     * other conflict clusters are resolved in the calling thread.
+     * @param resolutionFunctionRegistry registry for obtaining conflict resolution function implementations
+     * @param conflictResolutionPolicy conflict resolution parameters
+     * @param uriMapping mapping of URIs to their canonical URI (based on owl:sameAs links)
+     * @param metadata additional metadata for use by resolution functions (e.g. source quality etc.)
+     * @param resolvedGraphsURIPrefix prefix of graph names where resolved quads are placed
+     * @param nestedResourceDescriptionQualityCalculator quality calculator for nested resource descriptions
+     * @param parallelResolutionExecutor executor providing threads helping with resolution of large resource descriptions;
+     *      may be shared by multiple conflict resolvers; null disables parallel resolution
+     * @param parallelRegistryFactory factory creating a registry of resolution functions for each thread resolving
+     *      conflict clusters in parallel; resolution functions are not thread-safe and therefore are not shared between threads
+     * @param parallelResolutionHelperThreads maximum number of threads of {@code parallelResolutionExecutor}
+     *      helping with resolution of a single resource description
+     * @param parallelResolutionThreshold minimum number of statements in a resource description
+     *      for its conflict clusters to be resolved in parallel; 0 disables parallel resolution
+     * @param singleValueClusterResolution shortcut for resolution of conflict clusters with a single value
+     *      without the resolution function; null disables the shortcut
+     */
+    public ResourceDescriptionConflictResolverImpl(
+            ResolutionFunctionRegistry resolutionFunctionRegistry,
+            ConflictResolutionPolicy conflictResolutionPolicy,
+            UriMapping uriMapping,
+            Model metadata,
+            String resolvedGraphsURIPrefix,
+            NestedResourceDescriptionQualityCalculator nestedResourceDescriptionQualityCalculator,
+            ParallelResolutionExecutor parallelResolutionExecutor,
+            ResolutionFunctionRegistryFactory parallelRegistryFactory,
+            int parallelResolutionHelperThreads,
+            int parallelResolutionThreshold,
+            SingleValueClusterResolution singleValueClusterResolution) {
         this.resolutionFunctionRegistry = resolutionFunctionRegistry;
         this.nestedResourceDescriptionQualityCalculator = nestedResourceDescriptionQualityCalculator;
-        this.effectiveResolutionPolicy = ResourceDescriptionConflictResolverUtils.getEffectiveResolutionPolicy(conflictResolutionPolicy, uriMapping);
-        this.dependentPropertyMapping = new AlternativeUriNavigator(ResourceDescriptionConflictResolverUtils.getDependentPropertyMapping(
+        this.singleValueClusterResolution = singleValueClusterResolution;
+        ConflictResolutionPolicy effectiveResolutionPolicy = ResourceDescriptionConflictResolverUtils.getEffectiveResolutionPolicy(
+                conflictResolutionPolicy, uriMapping);
+        AlternativeUriNavigator dependentPropertyMapping = new AlternativeUriNavigator(ResourceDescriptionConflictResolverUtils.getDependentPropertyMapping(
                 effectiveResolutionPolicy,
                 uriMapping));
         this.uriMapping = uriMapping != null
                 ? uriMapping
                 : EmptyUriMappingIterable.getInstance();
+        this.statementMapper = new StatementMapper(this.uriMapping, VF);
+        this.propertyResolutionPlans = compileResolutionPlans(effectiveResolutionPolicy, dependentPropertyMapping);
+        this.defaultResolutionPlan = compileResolutionPlan(effectiveResolutionPolicy.getDefaultResolutionStrategy(), null);
         this.metadataModel = metadata != null
                 ? metadata
                 : new EmptyMetadataModel();
-        this.resolvedStatementFactory = resolvedGraphsURIPrefix != null
-                ? new ResolvedStatementFactoryImpl(resolvedGraphsURIPrefix)
-                : new ResolvedStatementFactoryImpl(DEFAULT_RESOLVED_GRAPHS_URI_PREFIX);
+        this.resolvedGraphsURIPrefix = resolvedGraphsURIPrefix != null
+                ? resolvedGraphsURIPrefix
+                : DEFAULT_RESOLVED_GRAPHS_URI_PREFIX;
+        this.resolvedStatementFactory = new ResolvedStatementFactoryImpl(this.resolvedGraphsURIPrefix);
+        Preconditions.checkArgument(parallelResolutionExecutor == null || parallelRegistryFactory != null,
+                "Parallel resolution requires a factory of resolution function registries");
+        this.parallelResolutionExecutor = parallelResolutionExecutor;
+        this.parallelRegistryFactory = parallelRegistryFactory;
+        this.parallelResolutionHelperThreads = parallelResolutionHelperThreads;
+        this.parallelResolutionThreshold = parallelResolutionThreshold;
     }
 
     /**
@@ -95,19 +156,37 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
      */
     @Override
     public Collection<ResolvedStatement> resolveConflicts(ResourceDescription resourceDescription) throws ConflictResolutionException {
+        if (parallelResolutionExecutor == null) {
+            return resolveConflictsInternal(resourceDescription);
+        }
+        // the thread counts towards the thread limit of the executor shared with resolvers of other threads
+        parallelResolutionExecutor.resolutionStarted();
+        try {
+            return resolveConflictsInternal(resourceDescription);
+        } finally {
+            parallelResolutionExecutor.resolutionFinished();
+        }
+    }
+
+    private Collection<ResolvedStatement> resolveConflictsInternal(ResourceDescription resourceDescription) throws ConflictResolutionException {
         int inputStatementCount = resourceDescription.getDescribingStatements().size();
         long startTime = logStarted(inputStatementCount);
 
         ConflictClustersMap conflictClustersMap = ConflictClustersMap.fromCollection(resourceDescription.getDescribingStatements(), uriMapping);
         ResolvedResult totalResult = new ResolvedResult();
+        ResourceDescriptionConflictResolverContext resolverContext = new ResourceDescriptionConflictResolverContext(
+                conflictClustersMap, totalResult, new HashSet<Resource>(1));
 
         Resource canonicalResource = uriMapping.mapResource(resourceDescription.getResource());
+        boolean resolveInParallel = parallelResolutionExecutor != null
+                && parallelResolutionHelperThreads > 0
+                && parallelResolutionThreshold > 0
+                && inputStatementCount >= parallelResolutionThreshold;
         Collection<ResolvedStatement> resourceResolvedStatements = resolveResource(
                 conflictClustersMap.getResourceStatementsMap(canonicalResource),
                 canonicalResource,
-                totalResult,
-                conflictClustersMap,
-                new HashSet<Resource>(1));
+                resolverContext,
+                resolveInParallel);
         totalResult.addToResult(resourceResolvedStatements);
 
         logFinished(startTime, inputStatementCount, totalResult);
@@ -118,19 +197,20 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
      * Resolve conflicts in statements contained in {@code conflictClustersMap} for the given {@code canonicalResource}.
      * @param statementsToResolveByProperty statements to be resolved as a map canonical property -> (unmapped) statements with the property
      * @param canonicalResource
-     * @param totalResult collector of result; note that the return value is <b>not</b> added to the result when this method returns
-     * (only result of resolution of other resources within the resource description may be added)
-     * @param conflictClustersMap
-     * @param resolvedResources set of already resolved resources for cycle detection
-     * @return result of conflict resolution for the respective resource; note that the result is <b>not</b> added to {@code totalResult}
+     * @param resolverContext state of resolution of the whole resource description: the collector of result
+     * (note that the return value is <b>not</b> added to the result when this method returns, only result of resolution
+     * of other resources within the resource description may be added) and set of already resolved resources for cycle detection
+     * @param resolveInParallel whether conflict clusters which don't need to resolve nested resources should be resolved
+     * in parallel; {@code resolverContext} is only accessed from the calling thread even then
+     * @return result of conflict resolution for the respective resource; note that the result is <b>not</b> added to the total result
      */
     private Collection<ResolvedStatement> resolveResource(
             Map<URI, List<Statement>> statementsToResolveByProperty,
             Resource canonicalResource,
-            ResolvedResult totalResult,
-            ConflictClustersMap conflictClustersMap,
-            Set<Resource> resolvedResources) throws ConflictResolutionException {
+            ResourceDescriptionConflictResolverContext resolverContext,
+            boolean resolveInParallel) throws ConflictResolutionException {
 
+        Set<Resource> resolvedResources = resolverContext.resolvedResources;
         if (resolvedResources.contains(canonicalResource)) { // FIXME: does it work for generated resources?
             LOG.warn("Detected cycle in resource description: resource {} was already resolved", canonicalResource);
             return Collections.emptySet(); // TODO: think through
@@ -140,27 +220,55 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
 
         Set<URI> resolvedProperties = new HashSet<>();
         Set<URI> canonicalProperties = statementsToResolveByProperty.keySet();
-        Collection<ResolvedStatement> result = new ArrayList<>();
+        // results for properties in the order of canonicalProperties; null for clusters resolved by parallelTasks
+        List<Collection<ResolvedStatement>> propertyResults = new ArrayList<>();
+        List<ParallelConflictClusterTask> parallelTasks = new ArrayList<>();
         for (URI canonicalProperty : canonicalProperties) {
             if (resolvedProperties.contains(canonicalProperty)) {
                 continue;
             }
 
-            List<URI> dependentProperties = getDependentProperties(canonicalProperty);
+            PropertyResolutionPlan resolutionPlan = getResolutionPlan(canonicalProperty);
+            List<URI> dependentProperties = resolutionPlan.dependentProperties;
             if (dependentProperties == null) {
                 List<Statement> conflictClusterStatements = statementsToResolveByProperty.get(canonicalProperty);
-                Model conflictClusterModel = createMappedModel(conflictClusterStatements);
-                Collection<ResolvedStatement> resolvedStatements = resolveConflictCluster(
-                        conflictClusterModel, canonicalResource, canonicalProperty, conflictClusterModel, conflictClustersMap, totalResult, resolvedResources);
-                result.addAll(resolvedStatements);
+                Collection<ResolvedStatement> singleValueResult = resolutionPlan.isSingleValueResolutionApplicable
+                        ? resolveSingleValueConflictCluster(conflictClusterStatements, canonicalResource, canonicalProperty, resolutionPlan)
+                        : null;
+                if (singleValueResult != null) {
+                    propertyResults.add(singleValueResult);
+                } else if (resolveInParallel && !resolutionPlan.isNestedResourceResolution) {
+                    parallelTasks.add(new ParallelConflictClusterTask(
+                            conflictClusterStatements, canonicalResource, canonicalProperty, resolutionPlan.resolutionStrategy,
+                            propertyResults.size()));
+                    propertyResults.add(null);
+                } else {
+                    Model conflictClusterModel = createMappedModel(conflictClusterStatements);
+                    Collection<ResolvedStatement> resolvedStatements = resolveConflictCluster(
+                            conflictClusterModel, canonicalResource, canonicalProperty, conflictClusterModel, resolverContext);
+                    propertyResults.add(resolvedStatements);
+                }
                 resolvedProperties.add(canonicalProperty);
             } else {
                 Collection<ResolvedStatement> resolvedStatements = resolveResourceDependentProperties(
-                        statementsToResolveByProperty, canonicalResource, dependentProperties, conflictClustersMap, totalResult, resolvedResources);
-                result.addAll(resolvedStatements);
+                        statementsToResolveByProperty, canonicalResource, dependentProperties, resolverContext);
+                propertyResults.add(resolvedStatements);
                 resolvedProperties.addAll(dependentProperties);
             }
         }
+
+        if (!parallelTasks.isEmpty()) {
+            List<Collection<ResolvedStatement>> parallelResults = ConflictClusterTaskGroup.executeAll(
+                    parallelTasks, parallelResolutionExecutor, parallelResolutionHelperThreads);
+            for (int i = 0; i < parallelTasks.size(); i++) {
+                propertyResults.set(parallelTasks.get(i).resultIndex, parallelResults.get(i));
+            }
+        }
+
+        Collection<ResolvedStatement> result = new ArrayList<>();
+        for (Collection<ResolvedStatement> resolvedStatements : propertyResults) {
+            result.addAll(resolvedStatements);
+        }
         return result;
     }
 
@@ -175,17 +283,14 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
      * @param statementsToResolveByProperty statements to be resolved as a map canonical property -> (unmapped) statements with the property
      * @param canonicalResource
      * @param dependentProperties list of mutually dependent properties to be resolved
-     * @param conflictClustersMap
-     * @param totalResult @throws ConflictResolutionException CR error
-     * @param resolvedResources
+     * @param resolverContext state of resolution of the whole resource description
+     * @throws ConflictResolutionException CR error
      */
     private Collection<ResolvedStatement> resolveResourceDependentProperties(
             Map<URI, List<Statement>> statementsToResolveByProperty,
             Resource canonicalResource,
             List<URI> dependentProperties,
-            ConflictClustersMap conflictClustersMap,
-            ResolvedResult totalResult,
-            Set<Resource> resolvedResources) throws ConflictResolutionException {
+            ResourceDescriptionConflictResolverContext resolverContext) throws ConflictResolutionException {
 
         // Step 1: resolve conflicts for each (non-canonical) subject and property
         Table<Resource, URI, Collection<ResolvedStatement>> conflictClustersTable = LDFusionToolCRUtils.newHashTable();
@@ -194,14 +299,15 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
             if (conflictingStatements == null) {
                 continue;
             }
-            Collection<Statement> mappedConflictingStatements = new StatementMapper(uriMapping, VF).mapStatements(conflictingStatements); // FIXME: this may contain duplicates!
+            // the model removes duplicates which may arise from mapping
+            Collection<Statement> mappedConflictingStatements = createMappedModel(conflictingStatements);
             ClusterIterator<Statement> subjectClusterIterator = new ClusterIterator<>(conflictingStatements, StatementBySubjectComparator.getInstance());
             while (subjectClusterIterator.hasNext()) {
                 List<Statement> statements = subjectClusterIterator.next();
                 Resource notMappedSubject = statements.get(0).getSubject();
                 Model conflictClusterModel = createMappedModel(statements);
                 Collection<ResolvedStatement> resolvedConflictCluster = resolveConflictCluster(
-                        conflictClusterModel, canonicalResource, property, mappedConflictingStatements, conflictClustersMap, totalResult, resolvedResources);
+                        conflictClusterModel, canonicalResource, property, mappedConflictingStatements, resolverContext);
                 conflictClustersTable.put(notMappedSubject, property, resolvedConflictCluster);
             }
         }
@@ -248,24 +354,75 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
      * @param canonicalSubject canonical subject for the conflict cluster
      * @param canonicalProperty canonical property for the conflict cluster
      * @param conflictingMappedStatements conflicting statements to be considered during quality calculation.
-     * @param totalResult @return resolved statements produced by conflict resolution function
-     * @param resolvedResources @throws ConflictResolutionException CR error
+     * @param resolverContext state of resolution of the whole resource description
+     * @return resolved statements produced by conflict resolution function
+     * @throws ConflictResolutionException CR error
      */
     private Collection<ResolvedStatement> resolveConflictCluster(
             Model conflictClusterToResolve,
             Resource canonicalSubject,
             URI canonicalProperty,
             Collection<Statement> conflictingMappedStatements,
-            ConflictClustersMap conflictClustersMap,
-            ResolvedResult totalResult,
-            Set<Resource> resolvedResources) throws ConflictResolutionException {
+            ResourceDescriptionConflictResolverContext resolverContext) throws ConflictResolutionException {
 
         if (conflictClusterToResolve.isEmpty()) {
             return Collections.emptyList();
         }
 
-        ResolutionStrategy resolutionStrategy = getResolutionStrategy(canonicalProperty);
-        ResolutionFunction resolutionFunction = getResolutionFunction(resolutionStrategy, conflictClustersMap, totalResult, resolvedResources);
+        PropertyResolutionPlan resolutionPlan = getResolutionPlan(canonicalProperty);
+        ResolutionFunction resolutionFunction = getResolutionFunction(resolutionPlan, resolverContext);
+        return resolveConflictCluster(conflictClusterToResolve, canonicalSubject, canonicalProperty, conflictingMappedStatements,
+                resolutionPlan.resolutionStrategy, resolutionFunction, resolvedStatementFactory);
+    }
+
+    /**
+     * Resolves a conflict cluster whose statements all have the same canonical value by {@link #singleValueClusterResolution}
+     * without sorting the cluster and calling the resolution function.
+     * @param conflictClusterStatements (unmapped) statements in the conflict cluster
+     * @param canonicalSubject canonical subject for the conflict cluster
+     * @param canonicalProperty canonical property for the conflict cluster
+     * @param resolutionPlan resolution plan for {@code canonicalProperty}
+     * @return resolved statements or null if the conflict cluster contains more values or is too large
+     */
+    private Collection<ResolvedStatement> resolveSingleValueConflictCluster(
+            List<Statement> conflictClusterStatements,
+            Resource canonicalSubject,
+            URI canonicalProperty,
+            PropertyResolutionPlan resolutionPlan) {
+
+        int size = conflictClusterStatements.size();
+        if (size == 0 || size > SingleValueClusterResolution.MAX_CLUSTER_SIZE) {
+            return null;
+        }
+        Value value = statementMapper.mapStatement(conflictClusterStatements.get(0)).getObject();
+        List<Statement> uniqueMappedStatements = new ArrayList<>(size);
+        List<Resource> sources = new ArrayList<>(size);
+        for (Statement statement : conflictClusterStatements) {
+            Statement mappedStatement = statementMapper.mapStatement(statement);
+            if (!value.equals(mappedStatement.getObject())) {
+                return null;
+            }
+            // statements with the same value in the same graph are duplicates
+            if (!sources.contains(mappedStatement.getContext())) {
+                sources.add(mappedStatement.getContext());
+                uniqueMappedStatements.add(mappedStatement);
+            }
+        }
+
+        CRContext context = new CRContextImpl(uniqueMappedStatements, metadataModel, resolutionPlan.resolutionStrategy,
+                resolvedStatementFactory, canonicalSubject, canonicalProperty);
+        return singleValueClusterResolution.resolve(value, sources, context);
+    }
+
+    private Collection<ResolvedStatement> resolveConflictCluster(
+            Model conflictClusterToResolve,
+            Resource canonicalSubject,
+            URI canonicalProperty,
+            Collection<Statement> conflictingMappedStatements,
+            ResolutionStrategy resolutionStrategy,
+            ResolutionFunction resolutionFunction,
+            ResolvedStatementFactory resolvedStatementFactory) throws ConflictResolutionException {
+
         CRContext context = new CRContextImpl(
                 conflictingMappedStatements, metadataModel, resolutionStrategy, resolvedStatementFactory, canonicalSubject, canonicalProperty);
 
@@ -284,6 +441,8 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
 
     /**
      * Apply uri mapping to given statements and create a model from them.
+     * Statements canonicalized in advance (see {@link cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.MappedStatement})
+     * are not mapped again.
      * @param statements statements
      * @return model created from mapped {@code statements}
      */
@@ -293,33 +452,102 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
     }
 
     protected ResolutionFunction getResolutionFunction(
-            ResolutionStrategy resolutionStrategy, ConflictClustersMap conflictClustersMap,
-            ResolvedResult totalResult, Set<Resource> resolvedResources) throws ResolutionFunctionNotRegisteredException {
+            PropertyResolutionPlan resolutionPlan, ResourceDescriptionConflictResolverContext resolverContext)
+            throws ResolutionFunctionNotRegisteredException {
 
-        if (NestedResourceDescriptionResolution.getName().equals(resolutionStrategy.getResolutionFunctionName())) {
+        if (resolutionPlan.isNestedResourceResolution) {
             // a special case for nested resource resolution, which needs an extra context
-            ResourceDescriptionConflictResolverContext resolverContext = new ResourceDescriptionConflictResolverContext(
-                    conflictClustersMap, totalResult, resolvedResources);
-            return new NestedResourceDescriptionResolution(nestedResourceDescriptionQualityCalculator, resolverContext);
+            return resolverContext.getNestedResourceDescriptionResolution();
+        } else if (resolutionPlan.resolutionFunction != null) {
+            return resolutionPlan.resolutionFunction;
         } else {
-            return resolutionFunctionRegistry.get(resolutionStrategy.getResolutionFunctionName());
+            // throws the exception if the function was not registered when the plan was compiled
+            resolutionPlan.resolutionFunction = resolutionFunctionRegistry.get(resolutionPlan.resolutionStrategy.getResolutionFunctionName());
+            return resolutionPlan.resolutionFunction;
+        }
+    }
+
+    private PropertyResolutionPlan getResolutionPlan(URI canonicalProperty) {
+        PropertyResolutionPlan resolutionPlan = propertyResolutionPlans.get(canonicalProperty);
+        return resolutionPlan != null ? resolutionPlan : defaultResolutionPlan;
+    }
+
+    /**
+     * Compiles resolution plans for all properties with a resolution strategy or a dependent property in the given policy;
+     * other properties are resolved according to the default plan.
+     */
+    private Map<URI, PropertyResolutionPlan> compileResolutionPlans(
+            ConflictResolutionPolicy effectiveResolutionPolicy, AlternativeUriNavigator dependentPropertyMapping) {
+
+        Set<URI> properties = new HashSet<>();
+        for (Map.Entry<URI, ResolutionStrategy> entry : effectiveResolutionPolicy.getPropertyResolutionStrategies().entrySet()) {
+            properties.add(entry.getKey());
+            if (entry.getValue().getDependsOn() != null) {
+                properties.add((URI) uriMapping.mapResource(entry.getValue().getDependsOn()));
+            }
         }
+
+        Map<URI, PropertyResolutionPlan> resolutionPlans = new HashMap<>(properties.size());
+        for (URI property : properties) {
+            ResolutionStrategy resolutionStrategy = effectiveResolutionPolicy.getPropertyResolutionStrategies().get(property);
+            if (resolutionStrategy == null) {
+                resolutionStrategy = effectiveResolutionPolicy.getDefaultResolutionStrategy();
+            }
+            List<URI> dependentProperties = dependentPropertyMapping.hasAlternativeUris(property)
+                    ? dependentPropertyMapping.listAlternativeUris(property)
+                    : null;
+            resolutionPlans.put(property, compileResolutionPlan(resolutionStrategy, dependentProperties));
+        }
+        return resolutionPlans;
     }
 
-    private ResolutionStrategy getResolutionStrategy(URI canonicalProperty) {
-        ResolutionStrategy resolutionStrategy = effectiveResolutionPolicy.getPropertyResolutionStrategies().get(canonicalProperty);
-        if (resolutionStrategy == null) {
-            resolutionStrategy = effectiveResolutionPolicy.getDefaultResolutionStrategy();
+    private PropertyResolutionPlan compileResolutionPlan(ResolutionStrategy resolutionStrategy, List<URI> dependentProperties) {
+        boolean isNestedResourceResolution = NestedResourceDescriptionResolution.getName().equals(resolutionStrategy.getResolutionFunctionName());
+        ResolutionFunction resolutionFunction = null;
+        if (!isNestedResourceResolution) {
+            try {
+                resolutionFunction = resolutionFunctionRegistry.get(resolutionStrategy.getResolutionFunctionName());
+            } catch (ResolutionFunctionNotRegisteredException e) {
+                // reported when a conflict cluster with the property is resolved
+            }
         }
-        return resolutionStrategy;
+        boolean isSingleValueResolutionApplicable = singleValueClusterResolution != null
+                && !isNestedResourceResolution
+                && singleValueClusterResolution.isApplicable(resolutionStrategy);
+        return new PropertyResolutionPlan(
+                resolutionStrategy, isNestedResourceResolution, isSingleValueResolutionApplicable, resolutionFunction, dependentProperties);
     }
 
-    private List<URI> getDependentProperties(URI property) {
-        if (dependentPropertyMapping.hasAlternativeUris(property)) {
-            return dependentPropertyMapping.listAlternativeUris(property);
-        } else {
-            return null;
+    /**
+     * Returns factory for resolved statements to be used by the current thread when resolving conflict clusters in parallel.
+     * Factories are not thread-safe, therefore each thread has its own factory with a distinct prefix of resolved graph names.
+     * @return factory for resolved statements
+     */
+    private ResolvedStatementFactory getParallelResolvedStatementFactory() {
+        ResolvedStatementFactoryImpl factory = parallelStatementFactory.get();
+        if (factory == null) {
+            factory = new ResolvedStatementFactoryImpl(resolvedGraphsURIPrefix + "p" + parallelStatementFactoryCounter.incrementAndGet() + "/");
+            parallelStatementFactory.set(factory);
+        }
+        return factory;
+    }
+
+    /**
+     * Returns resolution function to be used by the current thread when resolving conflict clusters in parallel.
+     * Resolution functions and quality calculators they use are not thread-safe, therefore each thread
+     * obtains them from its own registry.
+     * @param resolutionStrategy resolution strategy
+     * @return resolution function
+     * @throws ResolutionFunctionNotRegisteredException the function is not registered
+     */
+    private ResolutionFunction getParallelResolutionFunction(ResolutionStrategy resolutionStrategy)
+            throws ResolutionFunctionNotRegisteredException {
+        ResolutionFunctionRegistry registry = parallelRegistry.get();
+        if (registry == null) {
+            registry = parallelRegistryFactory.createRegistry();
+            parallelRegistry.set(registry);
         }
+        return registry.get(resolutionStrategy.getResolutionFunctionName());
     }
 
     private long logStarted(int inputStatementCount) {
@@ -343,6 +571,7 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
         private final ConflictClustersMap conflictClustersMap;
         private final ResolvedResult totalResult;
         private final Set<Resource> resolvedResources;
+        private NestedResourceDescriptionResolution nestedResourceDescriptionResolution;
 
         private ResourceDescriptionConflictResolverContext(
                 ConflictClustersMap conflictClustersMap,
@@ -357,14 +586,92 @@ public class ResourceDescriptionConflictResolverImpl implements ResourceDescript
             return ResourceDescriptionConflictResolverImpl.this.generateUniqueUri();
         }
 
+        private NestedResourceDescriptionResolution getNestedResourceDescriptionResolution() {
+            if (nestedResourceDescriptionResolution == null) {
+                nestedResourceDescriptionResolution = new NestedResourceDescriptionResolution(nestedResourceDescriptionQualityCalculator, this);
+            }
+            return nestedResourceDescriptionResolution;
+        }
+
         public Collection<ResolvedStatement> resolveNestedResource(Set<Resource> nestedResourceSubjects, URI canonicalResource)
                 throws ConflictResolutionException {
 
             Map<URI, List<Statement>> statementsToResolveByProperty = conflictClustersMap.getUnionStatementsMap(nestedResourceSubjects);
             Collection<ResolvedStatement> resolvedNestedResource = ResourceDescriptionConflictResolverImpl.this.resolveResource(
-                    statementsToResolveByProperty, canonicalResource, totalResult, conflictClustersMap, resolvedResources);
+                    statementsToResolveByProperty, canonicalResource, this, false);
             totalResult.addToResult(new SubjectMappingIterator(resolvedNestedResource.iterator(), canonicalResource, resolvedStatementFactory));
             return resolvedNestedResource;
         }
     }
+
+    /**
+     * Factory creating registries of resolution functions for threads resolving conflict clusters in parallel.
+     */
+    public interface ResolutionFunctionRegistryFactory {
+        /**
+         * Creates a new registry with resolution functions not shared with any other registry.
+         * @return resolution function registry
+         */
+        ResolutionFunctionRegistry createRegistry();
+    }
+
+    /**
+     * Resolution settings of a canonical property compiled in advance from the effective conflict resolution policy
+     * so that no strategy or resolution function lookups are necessary for individual conflict clusters.
+     */
+    protected static class PropertyResolutionPlan {
+        private final ResolutionStrategy resolutionStrategy;
+        private final boolean isNestedResourceResolution;
+        private final boolean isSingleValueResolutionApplicable;
+        private final List<URI> dependentProperties;
+        private ResolutionFunction resolutionFunction;
+
+        private PropertyResolutionPlan(
+                ResolutionStrategy resolutionStrategy,
+                boolean isNestedResourceResolution,
+                boolean isSingleValueResolutionApplicable,
+                ResolutionFunction resolutionFunction,
+                List<URI> dependentProperties) {
+            this.resolutionStrategy = resolutionStrategy;
+            this.isNestedResourceResolution = isNestedResourceResolution;
+            this.isSingleValueResolutionApplicable = isSingleValueResolutionApplicable;
+            this.resolutionFunction = resolutionFunction;
+            this.dependentProperties = dependentProperties;
+        }
+    }
+
+    /**
+     * Resolution of a conflict cluster which doesn't access state shared with other conflict clusters
+     * and can be therefore executed in parallel; the resolution function is obtained from the registry of the executing thread.
+     */
+    private class ParallelConflictClusterTask implements ConflictClusterTaskGroup.ConflictClusterTask {
+        private final List<Statement> conflictClusterStatements;
+        private final Resource canonicalSubject;
+        private final URI canonicalProperty;
+        private final ResolutionStrategy resolutionStrategy;
+        private final int resultIndex;
+
+        private ParallelConflictClusterTask(
+                List<Statement> conflictClusterStatements,
+                Resource canonicalSubject,
+                URI canonicalProperty,
+                ResolutionStrategy resolutionStrategy,
+                int resultIndex) {
+            this.conflictClusterStatements = conflictClusterStatements;
+            this.canonicalSubject = canonicalSubject;
+            this.canonicalProperty = canonicalProperty;
+            this.resolutionStrategy = resolutionStrategy;
+            this.resultIndex = resultIndex;
+        }
+
+        @Override
+        public Collection<ResolvedStatement> resolve() throws ConflictResolutionException {
+            Model conflictClusterModel = createMappedModel(conflictClusterStatements);
+            if (conflictClusterModel.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return resolveConflictCluster(conflictClusterModel, canonicalSubject, canonicalProperty, conflictClusterModel,
+                    resolutionStrategy, getParallelResolutionFunction(resolutionStrategy), getParallelResolvedStatementFactory());
+        }
+    }
 }
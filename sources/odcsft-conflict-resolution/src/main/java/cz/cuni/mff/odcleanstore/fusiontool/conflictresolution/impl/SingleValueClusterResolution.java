@@ -0,0 +1,64 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import cz.cuni.mff.odcleanstore.conflictresolution.CRContext;
+import cz.cuni.mff.odcleanstore.conflictresolution.ResolutionStrategy;
+import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.FQualityCalculator;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Value;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Shortcut for resolution of conflict clusters where all quads have the same value, i.e. clusters with a single quad
+ * or the same value coming from several graphs.
+ * For deciding resolution functions such as {@link cz.cuni.mff.odcleanstore.conflictresolution.resolution.AllResolution},
+ * the result of such cluster is the single value with all graphs of the cluster as its sources and F-quality
+ * given by the F-quality calculator of the function. The result can be computed directly without sorting the cluster
+ * and running the resolution function.
+ */
+public class SingleValueClusterResolution {
+    /** Maximum size of a conflict cluster resolved by this shortcut. */
+    public static final int MAX_CLUSTER_SIZE = 32;
+
+    private final FQualityCalculator fQualityCalculator;
+    private final Set<String> resolutionFunctionNames;
+
+    /**
+     * Creates a new instance.
+     * @param fQualityCalculator calculator of F-quality used by the resolution functions in {@code resolutionFunctionNames}
+     * @param resolutionFunctionNames names of resolution functions which return the single value of the conflict cluster
+     * with its F-quality computed by {@code fQualityCalculator}
+     */
+    public SingleValueClusterResolution(FQualityCalculator fQualityCalculator, Collection<String> resolutionFunctionNames) {
+        this.fQualityCalculator = fQualityCalculator;
+        this.resolutionFunctionNames = new HashSet<>(resolutionFunctionNames);
+    }
+
+    /**
+     * Indicates whether conflict clusters with a single value resolved with the given strategy can be resolved
+     * by {@link #resolve(Value, Collection, CRContext)} instead of the resolution function.
+     * @param resolutionStrategy conflict resolution strategy
+     * @return true iff the shortcut gives the same result as the resolution function of {@code resolutionStrategy}
+     */
+    public boolean isApplicable(ResolutionStrategy resolutionStrategy) {
+        return resolutionFunctionNames.contains(resolutionStrategy.getResolutionFunctionName());
+    }
+
+    /**
+     * Resolves a conflict cluster where all quads have the same value.
+     * @param value the value of all quads in the conflict cluster
+     * @param sources distinct named graphs of quads in the conflict cluster
+     * @param crContext context of the conflict cluster; conflicting statements must not contain duplicate quads
+     * @return resolved quads
+     */
+    public Collection<ResolvedStatement> resolve(Value value, Collection<Resource> sources, CRContext crContext) {
+        double fQuality = fQualityCalculator.getFQuality(value, crContext.getConflictingStatements(), sources, crContext);
+        ResolvedStatement resolvedStatement = crContext.getResolvedStatementFactory().create(
+                crContext.getCanonicalSubject(), crContext.getCanonicalProperty(), value, fQuality, sources);
+        return Collections.singletonList(resolvedStatement);
+    }
+}
@@ -0,0 +1,52 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import com.google.common.base.Preconditions;
+import cz.cuni.mff.odcleanstore.conflictresolution.ResolvedStatement;
+import cz.cuni.mff.odcleanstore.conflictresolution.exceptions.ConflictResolutionException;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescription;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescriptionConflictResolver;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ResourceDescriptionConflictResolver} which delegates to a separate conflict resolver for each thread,
+ * so that conflicts can be resolved by multiple threads even though conflict resolvers are not thread-safe.
+ * A delegate is created by the given factory when a thread resolves its first resource description.
+ */
+public class ThreadConfinedConflictResolver implements ResourceDescriptionConflictResolver {
+    private final ConflictResolverFactory conflictResolverFactory;
+    private final AtomicInteger resolverCounter = new AtomicInteger();
+    private final ThreadLocal<ResourceDescriptionConflictResolver> threadResolver = new ThreadLocal<>();
+
+    /**
+     * @param conflictResolverFactory factory creating conflict resolvers for individual threads
+     */
+    public ThreadConfinedConflictResolver(ConflictResolverFactory conflictResolverFactory) {
+        Preconditions.checkNotNull(conflictResolverFactory);
+        this.conflictResolverFactory = conflictResolverFactory;
+    }
+
+    @Override
+    public Collection<ResolvedStatement> resolveConflicts(ResourceDescription resourceDescription) throws ConflictResolutionException {
+        ResourceDescriptionConflictResolver conflictResolver = threadResolver.get();
+        if (conflictResolver == null) {
+            conflictResolver = conflictResolverFactory.createConflictResolver(resolverCounter.getAndIncrement());
+            threadResolver.set(conflictResolver);
+        }
+        return conflictResolver.resolveConflicts(resourceDescription);
+    }
+
+    /**
+     * Factory creating conflict resolvers for individual threads.
+     */
+    public interface ConflictResolverFactory {
+        /**
+         * Creates a new conflict resolver.
+         * @param index index of the created resolver, distinct for each created resolver
+         *      (may be used e.g. for distinct names of resolved graphs)
+         * @return conflict resolver
+         */
+        ResourceDescriptionConflictResolver createConflictResolver(int index);
+    }
+}
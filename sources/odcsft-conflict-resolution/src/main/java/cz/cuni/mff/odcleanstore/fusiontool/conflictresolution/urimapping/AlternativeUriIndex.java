@@ -0,0 +1,448 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cz.cuni.mff.odcleanstore.fusiontool.util.AtomicFiles;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Immutable inverse index of a URI mapping listing all URIs mapped to the same canonical URI.
+ * URIs are grouped by their canonical URI and stored encoded in UTF-8 in a {@link Utf8UriStore}, where IDs are assigned
+ * group by group with the canonical URI first; the group of URIs is then given by a range of IDs in an offset array.
+ * URIs are looked up by an open-addressing hash table of IDs. Only URIs having an alternative are contained in the index.
+ *
+ * The index takes only the encoded URIs and a few integers per URI of heap; lists of alternatives are lightweight
+ * views which create {@link URI} instances only when their elements are accessed.
+ * The index is thread-safe.
+ */
+public final class AlternativeUriIndex {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+    private static final long MAGIC = 0x4C44465441555231L; // "LDFTAUR1"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    /** All contained URIs; URIs of each group have consecutive IDs. */
+    private final Utf8UriStore uris;
+
+    /** Hash table of (ID + 1) values; zero means an empty slot. */
+    private final int[] table;
+
+    /** URIs of group g have IDs from groupOffsets[g] (the canonical URI) to groupOffsets[g + 1] exclusive. */
+    private final int[] groupOffsets;
+
+    private AlternativeUriIndex(Utf8UriStore uris, int[] groupOffsets) {
+        uris.trimToSize();
+        this.uris = uris;
+        this.groupOffsets = groupOffsets;
+        this.table = new int[tableSizeFor(uris.size())];
+        int mask = table.length - 1;
+        for (int id = 0; id < uris.size(); id++) {
+            int slot = spread(uris.hashCode(id)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Builds the index for the given URI mapping.
+     * Canonical URIs are computed by the given number of threads; if more than one thread is used,
+     * lookups in the URI mapping must be thread-safe (e.g. {@link FrozenUriMapping}).
+     * @param uriMapping URI mapping
+     * @param threadCount number of threads used to build the index
+     * @return built index
+     */
+    public static AlternativeUriIndex build(final UriMappingIterable uriMapping, int threadCount) {
+        Preconditions.checkArgument(threadCount > 0);
+        List<String> mappedUriList = new ArrayList<>();
+        for (String mappedUri : uriMapping) {
+            mappedUriList.add(mappedUri);
+        }
+        final String[] mappedUris = mappedUriList.toArray(new String[mappedUriList.size()]);
+        mappedUriList = null;
+
+        final String[] canonicalUris = new String[mappedUris.length];
+        runInParallel(mappedUris.length, threadCount, new RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    canonicalUris[i] = uriMapping.getCanonicalURI(mappedUris[i]);
+                }
+            }
+        });
+
+        UriDictionary groupDictionary = new UriDictionary(mappedUris.length / 2);
+        int[] mappedUriGroups = new int[mappedUris.length];
+        for (int i = 0; i < mappedUris.length; i++) {
+            mappedUriGroups[i] = canonicalUris[i].equals(mappedUris[i]) ? -1 : groupDictionary.add(canonicalUris[i]);
+        }
+        int groupCount = groupDictionary.size();
+
+        // counting sort of URIs by group, the canonical URI goes first
+        int[] groupOffsets = new int[groupCount + 1];
+        for (int group : mappedUriGroups) {
+            if (group >= 0) {
+                groupOffsets[group + 1]++;
+            }
+        }
+        int[] nextPositions = new int[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            groupOffsets[group + 1] += groupOffsets[group] + 1;
+            nextPositions[group] = groupOffsets[group] + 1;
+        }
+        String[] groupedUris = new String[groupOffsets[groupCount]];
+        for (int group = 0; group < groupCount; group++) {
+            groupedUris[groupOffsets[group]] = groupDictionary.getUri(group);
+        }
+        for (int i = 0; i < mappedUris.length; i++) {
+            if (mappedUriGroups[i] >= 0) {
+                groupedUris[nextPositions[mappedUriGroups[i]]++] = mappedUris[i];
+            }
+        }
+        Utf8UriStore uris = new Utf8UriStore(groupedUris.length);
+        for (int i = 0; i < groupedUris.length; i++) {
+            uris.add(groupedUris[i]);
+            groupedUris[i] = null;
+        }
+        return new AlternativeUriIndex(uris, groupOffsets);
+    }
+
+    /**
+     * Returns the index shared by all users of the given mapping if the mapping is an {@link IndexedUriMapping},
+     * otherwise builds a new index.
+     * A new index is built on the heap and takes memory proportional to the number of mapped URIs
+     * (all mapped URIs are held during the build), in addition to the mapping itself.
+     * @param uriMapping URI mapping
+     * @return index of alternative URIs of the mapping
+     */
+    public static AlternativeUriIndex of(UriMappingIterable uriMapping) {
+        return (uriMapping instanceof IndexedUriMapping)
+                ? ((IndexedUriMapping) uriMapping).getAlternativeUriIndex()
+                : build(uriMapping, 1);
+    }
+
+    /**
+     * Reads an index written by {@link #write(File, long)}.
+     * @param file index file
+     * @param fingerprint expected fingerprint of the index
+     * @return read index or null if the fingerprint of the file doesn't match
+     * @throws IOException I/O error or the file is not a valid index file
+     */
+    public static AlternativeUriIndex read(File file, long fingerprint) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (input.readLong() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("File " + file.getPath() + " is not a valid alternative URI index file");
+            }
+            if (input.readLong() != fingerprint) {
+                return null;
+            }
+            int groupCount = input.readInt();
+            int uriCount = input.readInt();
+            if (groupCount < 0 || uriCount < 0) {
+                throw new IOException("File " + file.getPath() + " is not a valid alternative URI index file");
+            }
+            int[] groupOffsets = new int[groupCount + 1];
+            for (int i = 0; i <= groupCount; i++) {
+                groupOffsets[i] = input.readInt();
+                if (i == 0 ? groupOffsets[i] != 0 : groupOffsets[i] <= groupOffsets[i - 1] || groupOffsets[i] > uriCount) {
+                    throw new IOException("File " + file.getPath() + " is not a valid alternative URI index file");
+                }
+            }
+            if (groupOffsets[groupCount] != uriCount) {
+                throw new IOException("File " + file.getPath() + " is not a valid alternative URI index file");
+            }
+            Utf8UriStore uris = new Utf8UriStore(uriCount);
+            for (int i = 0; i < uriCount; i++) {
+                uris.read(input);
+            }
+            AlternativeUriIndex index = new AlternativeUriIndex(uris, groupOffsets);
+            if (index.containsDuplicates()) {
+                throw new IOException("File " + file.getPath() + " is not a valid alternative URI index file");
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Writes the index to a file so that it can be read by {@link #read(File, long)}.
+     * The file is written to a uniquely named temporary file in the target directory which atomically replaces
+     * the target file when complete.
+     * @param file output file
+     * @param fingerprint value identifying the URI mapping the index was built for
+     * @throws IOException I/O error
+     */
+    public void write(File file, long fingerprint) throws IOException {
+        File tempFile = AtomicFiles.createTempFile(file);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+            output.writeLong(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(fingerprint);
+            output.writeInt(groupOffsets.length - 1);
+            output.writeInt(uris.size());
+            for (int groupOffset : groupOffsets) {
+                output.writeInt(groupOffset);
+            }
+            for (int id = 0; id < uris.size(); id++) {
+                uris.write(id, output);
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        try {
+            AtomicFiles.replace(tempFile, file);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw new IOException("Cannot move alternative URI index to " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * Returns the list of all URIs mapped to the same canonical URI as the given URI, including the URI itself.
+     * @param uri URI
+     * @return unmodifiable list of alternative URIs
+     */
+    public List<URI> listAlternativeUris(URI uri) {
+        int id = getId(uri.stringValue());
+        if (id < 0) {
+            return Collections.singletonList(uri);
+        }
+        int group = getGroupOf(id);
+        return new AlternativeUriList(uris, groupOffsets[group], groupOffsets[group + 1], id, uri);
+    }
+
+    /**
+     * Returns the list of all URIs mapped to the same canonical URI as the given URI, including the URI itself.
+     * @param uri URI
+     * @return unmodifiable list of alternative URIs
+     */
+    public List<String> listAlternativeUris(String uri) {
+        int id = getId(uri);
+        if (id < 0) {
+            return Collections.singletonList(uri);
+        }
+        int group = getGroupOf(id);
+        return new AlternativeStringList(uris, groupOffsets[group], groupOffsets[group + 1]);
+    }
+
+    /**
+     * Indicates whether there exist other distinct URIs that map to the same canonical URI as the given URI.
+     * @param uri URI
+     * @return true if the URI has an alternative URI
+     */
+    public boolean hasAlternativeUris(String uri) {
+        return getId(uri) >= 0;
+    }
+
+    /**
+     * Returns the number of URIs having an alternative URI.
+     * @return number of URIs in the index
+     */
+    public int size() {
+        return uris.size();
+    }
+
+    /**
+     * Returns the number of groups of URIs mapped to the same canonical URI.
+     * Each group contains the canonical URI and at least one other URI.
+     * @return number of groups
+     */
+    public int getGroupCount() {
+        return groupOffsets.length - 1;
+    }
+
+    /**
+     * Returns URIs of the given group; the canonical URI is always the first one.
+     * @param group index of the group between 0 and {@link #getGroupCount()} exclusive
+     * @return unmodifiable list of URIs mapped to the same canonical URI
+     */
+    public List<URI> getGroup(int group) {
+        Preconditions.checkElementIndex(group, getGroupCount());
+        return new AlternativeUriList(uris, groupOffsets[group], groupOffsets[group + 1], -1, null);
+    }
+
+    private int getId(String uri) {
+        int mask = table.length - 1;
+        for (int slot = spread(uri.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            } else if (uris.equals(entry - 1, uri)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the group containing the URI with the given ID by a binary search in group offsets.
+     */
+    private int getGroupOf(int id) {
+        int low = 0;
+        int high = groupOffsets.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (groupOffsets[middle] <= id) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean containsDuplicates() {
+        for (int id = 0; id < uris.size(); id++) {
+            if (getId(uris.get(id)) != id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int tableSizeFor(int count) {
+        int tableSize = Integer.highestOneBit(Math.max(count, 8) * 2 - 1) * 2;
+        if (tableSize > MAX_TABLE_SIZE || tableSize <= count) {
+            throw new IllegalStateException("Too many URIs in alternative URI index");
+        }
+        return tableSize;
+    }
+
+    private static int spread(int hash) {
+        // spread the bits of String.hashCode(), URIs often share long prefixes
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Runs the given task for consecutive ranges of [0, count) by the given number of threads.
+     * Results are visible to the calling thread after the method returns.
+     */
+    private static void runInParallel(int count, int threadCount, RangeTask task) {
+        int chunkCount = (int) Math.min(threadCount * 4L, Math.max(1, count / 1024));
+        if (chunkCount <= 1 || threadCount == 1) {
+            task.run(0, count);
+            return;
+        }
+        // daemon threads so that a failure doesn't prevent the application from exiting
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("alternative-uri-index-%d").build());
+        try {
+            List<Future<?>> results = new ArrayList<>(chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                results.add(executor.submit(new RangeRunnable(task,
+                        (int) ((long) count * chunk / chunkCount),
+                        (int) ((long) count * (chunk + 1) / chunkCount))));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Building of alternative URI index was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error building alternative URI index", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private abstract static class RangeTask {
+        public abstract void run(int from, int to);
+    }
+
+    private static class RangeRunnable implements Runnable {
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+
+        public RangeRunnable(RangeTask task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            task.run(from, to);
+        }
+    }
+
+    /**
+     * List of URIs with consecutive IDs; URI instances are created when accessed, except for the URI
+     * the list was requested for.
+     */
+    private static final class AlternativeUriList extends AbstractList<URI> implements RandomAccess {
+        private final Utf8UriStore uris;
+        private final int start;
+        private final int end;
+        private final int knownId;
+        private final URI knownUri;
+
+        public AlternativeUriList(Utf8UriStore uris, int start, int end, int knownId, URI knownUri) {
+            this.uris = uris;
+            this.start = start;
+            this.end = end;
+            this.knownId = knownId;
+            this.knownUri = knownUri;
+        }
+
+        @Override
+        public URI get(int index) {
+            Preconditions.checkElementIndex(index, end - start);
+            return start + index == knownId ? knownUri : VF.createURI(uris.get(start + index));
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+
+    private static final class AlternativeStringList extends AbstractList<String> implements RandomAccess {
+        private final Utf8UriStore uris;
+        private final int start;
+        private final int end;
+
+        public AlternativeStringList(Utf8UriStore uris, int start, int end) {
+            this.uris = uris;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String get(int index) {
+            Preconditions.checkElementIndex(index, end - start);
+            return uris.get(start + index);
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
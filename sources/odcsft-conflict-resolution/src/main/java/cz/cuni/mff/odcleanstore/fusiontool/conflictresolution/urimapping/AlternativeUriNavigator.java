@@ -3,24 +3,20 @@
  */
 package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
 
-import cz.cuni.mff.odcleanstore.fusiontool.util.ConvertingIterator;
 import org.openrdf.model.URI;
-import org.openrdf.model.ValueFactory;
-import org.openrdf.model.impl.ValueFactoryImpl;
-import org.openrdf.util.iterators.Iterators;
 
-import java.util.*;
+import java.util.List;
 
 /**
  * Class for listing of alternative URIs based on a given mapping of URIs to canonical URIs.
- * When {@link #listAlternativeUris(String)} is called for the first time, the map of alternative
- * URIs is build in O(N log N) time and O(N) space where N is number of mapped URIs.
+ * When an alternative URI is requested for the first time, an {@link AlternativeUriIndex} of the mapping
+ * is built in O(N) expected time where N is number of mapped URIs, unless the mapping is an {@link IndexedUriMapping}
+ * which provides a shared (possibly persisted) index.
+ * The class is thread-safe if lookups in the URI mapping are thread-safe.
  */
 public class AlternativeUriNavigator {
-    private static final int EXPECTED_ALTERNATIVES = 3;
-
     private final UriMappingIterable uriMapping;
-    private Map<String, List<String>> alternativeURIMap;
+    private volatile AlternativeUriIndex alternativeUriIndex;
 
     /**
      * @param uriMapping mapping of URIs to their canonical equivalent
@@ -31,96 +27,58 @@ public class AlternativeUriNavigator {
 
     /**
      * Returns iterator over all URIs that map to the same canonical URIs.
-     * First call of this method may have O(N log N) complexity (N is number of mapped URIs).
+     * First call of this method may have O(N) complexity (N is number of mapped URIs).
      * @param uri URI
      * @return iterator over alternative URIs
      */
     @Deprecated
     public List<String> listAlternativeUris(String uri) {
-        String canonicalURI = uriMapping.getCanonicalURI(uri);
-        List<String> alternativeURIs = getAlternativeUriMap().get(canonicalURI);
-        if (alternativeURIs == null) {
-            return Collections.singletonList(uri);
-        } else {
-            return alternativeURIs;
-        }
+        return getAlternativeUriIndex().listAlternativeUris(uri);
     }
 
     /**
      * Returns iterator over all URIs that map to the same canonical URIs.
-     * First call of this method may have O(N log N) complexity (N is number of mapped URIs).
+     * The returned list is shared by all calls for URIs mapped to the same canonical URI.
+     * First call of this method may have O(N) complexity (N is number of mapped URIs).
      * @param uri URI
      * @return iterator over alternative URIs
      */
     public List<URI> listAlternativeUris(URI uri) {
-        String canonicalURI = uriMapping.getCanonicalURI(uri.stringValue());
-        final List<String> alternativeURIs = getAlternativeUriMap().get(canonicalURI);
-        if (alternativeURIs == null) {
-            return Collections.singletonList(uri);
-        } else {
-            List<URI> result = new ArrayList<URI>(alternativeURIs.size());
-            Iterators.addAll(new StringURIConvertingIterator(alternativeURIs), result);
-            return result;
-        }
+        return getAlternativeUriIndex().listAlternativeUris(uri);
     }
 
     /**
      * Indicates whether there exist other distinct URIs that map to the same canonical URIs as {@code uri}.
-     * First call of this method may have O(N log N) complexity (N is number of mapped URIs).
+     * First call of this method may have O(N) complexity (N is number of mapped URIs).
      * @param uri URI
      * @return iterator over alternative URIs
      */
     @Deprecated
     public boolean hasAlternativeUris(String uri) {
-        String canonicalURI = uriMapping.getCanonicalURI(uri);
-        List<String> alternativeURIs = getAlternativeUriMap().get(canonicalURI);
-        return alternativeURIs != null && alternativeURIs.size() > 1;
+        return getAlternativeUriIndex().hasAlternativeUris(uri);
     }
 
     /**
      * Indicates whether there exist other distinct URIs that map to the same canonical URIs as {@code uri}.
-     * First call of this method may have O(N log N) complexity (N is number of mapped URIs).
+     * First call of this method may have O(N) complexity (N is number of mapped URIs).
      * @param uri URI
      * @return iterator over alternative URIs
      */
     public boolean hasAlternativeUris(URI uri) {
-        return hasAlternativeUris(uri.toString());
+        return hasAlternativeUris(uri.stringValue());
     }
 
-    private Map<String, List<String>> getAlternativeUriMap() {
-        if (alternativeURIMap == null) {
-            alternativeURIMap = findAlternativeUris();
-        }
-        return alternativeURIMap;
-    }
-
-    private Map<String, List<String>> findAlternativeUris() {
-        HashMap<String, List<String>> alternativeURIMap = new HashMap<String, List<String>>();
-
-        for (String mappedURI : uriMapping) {
-            String canonicalURI = uriMapping.getCanonicalURI(mappedURI);
-            List<String> alternativeURIs = alternativeURIMap.get(canonicalURI);
-            if (alternativeURIs == null) {
-                alternativeURIs = new ArrayList<String>(EXPECTED_ALTERNATIVES);
-                alternativeURIs.add(canonicalURI); // don't forget canonical URI, it won't show up in the iteration
-                alternativeURIMap.put(canonicalURI, alternativeURIs);
+    private AlternativeUriIndex getAlternativeUriIndex() {
+        AlternativeUriIndex result = alternativeUriIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = alternativeUriIndex;
+                if (result == null) {
+                    result = AlternativeUriIndex.of(uriMapping);
+                    alternativeUriIndex = result;
+                }
             }
-            alternativeURIs.add(mappedURI);
-        }
-
-        return alternativeURIMap;
-    }
-
-    private static class StringURIConvertingIterator extends ConvertingIterator<String, URI> {
-        private static final ValueFactory VF = ValueFactoryImpl.getInstance();
-
-        public StringURIConvertingIterator(List<String> alternativeURIs) {
-            super(alternativeURIs.iterator());
-        }
-
-        @Override
-        public URI convert(String uri) {
-            return VF.createURI(uri);
         }
+        return result;
     }
 }
@@ -0,0 +1,109 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of {@link URI} instances for canonical URIs returned by URI mappings.
+ * A URI mapping hands out the same instance for all URIs mapped to the same canonical URI while the
+ * instance stays in the cache, so the result is not allocated again for each mapped statement
+ * and its hash code is computed only once.
+ *
+ * The cache is a direct-mapped table of fixed size, i.e. a newly cached URI replaces the URI cached
+ * in the same slot, which keeps the memory bounded for mappings with a huge number of canonical URIs.
+ * Canonical URIs are identified either by an integer ID assigned by the mapping or by their string value.
+ * The cache is thread-safe.
+ */
+public final class CanonicalUriCache {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    /** Default maximum number of cached URIs. */
+    public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+
+    /**
+     * Creates a cache with at most {@link #DEFAULT_MAX_SIZE} entries.
+     * @param canonicalUriCount expected number of canonical URIs
+     */
+    public CanonicalUriCache(int canonicalUriCount) {
+        this(canonicalUriCount, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param canonicalUriCount expected number of canonical URIs
+     * @param maxSize maximum number of cached URIs
+     */
+    public CanonicalUriCache(int canonicalUriCount, int maxSize) {
+        int size = Integer.highestOneBit(Math.max(1, Math.min(canonicalUriCount, maxSize)) * 2 - 1);
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the URI instance for a canonical URI identified by an integer ID.
+     * The string value of the URI is retrieved only if the URI is not cached.
+     * @param id ID of the canonical URI
+     * @param uriSource source of the string value for the ID
+     * @return URI instance
+     */
+    public URI getURI(int id, UriSource uriSource) {
+        int slot = spread(id) & mask;
+        Entry entry = table.get(slot);
+        if (entry != null && entry.id == id) {
+            return entry.uri;
+        }
+        URI uri = VF.createURI(uriSource.getUri(id));
+        table.lazySet(slot, new Entry(id, uri));
+        return uri;
+    }
+
+    /**
+     * Returns the URI instance for a canonical URI.
+     * @param canonicalUri canonical URI
+     * @return URI instance
+     */
+    public URI getURI(String canonicalUri) {
+        int hash = canonicalUri.hashCode();
+        int slot = spread(hash) & mask;
+        Entry entry = table.get(slot);
+        if (entry != null && entry.id == hash && entry.uri.stringValue().equals(canonicalUri)) {
+            return entry.uri;
+        }
+        URI uri = VF.createURI(canonicalUri);
+        table.lazySet(slot, new Entry(hash, uri));
+        return uri;
+    }
+
+    private static int spread(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Source of string values of canonical URIs identified by an integer ID.
+     */
+    public interface UriSource {
+        /**
+         * Returns the URI with the given ID.
+         * @param id ID of the URI
+         * @return URI
+         */
+        String getUri(int id);
+    }
+
+    private static final class Entry {
+        private final int id;
+        private final URI uri;
+
+        public Entry(int id, URI uri) {
+            this.id = id;
+            this.uri = uri;
+        }
+    }
+}
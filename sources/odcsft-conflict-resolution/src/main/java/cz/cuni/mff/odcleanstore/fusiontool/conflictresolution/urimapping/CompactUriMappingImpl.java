@@ -0,0 +1,288 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.OWL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Memory efficient alternative to {@link UriMappingIterableImpl} for large sets of owl:sameAs links.
+ * URIs are assigned integer IDs by a {@link UriDictionary} and the disjoint-set data structure (DFU)
+ * is kept in primitive arrays with union by rank and iterative path halving.
+ *
+ * Because the shape of the DFU trees is decided by rank, the canonical URI of each component is kept
+ * separately for the root of the component. It is chosen by {@link #chooseCanonicalURI(String, String)}
+ * in the same order as in {@link UriMappingImpl}, therefore both implementations
+ * give the same canonical URIs for the same sequence of links.
+ */
+public class CompactUriMappingImpl implements UriMappingIterable, MutableUriMapping {
+    private static final Logger LOG = LoggerFactory.getLogger(CompactUriMappingImpl.class);
+
+    /** Set of URIs preferred as canonical URIs. */
+    private final Set<String> preferredURIs;
+
+    /** Dictionary of all URIs contained in the DFU. */
+    private final UriDictionary dictionary;
+
+    /** Parent of each URI ID in the DFU; a root is its own parent. */
+    private int[] parent;
+
+    /** Upper bound on height of each DFU subtree; meaningful only for roots. */
+    private byte[] rank;
+
+    /** ID of the canonical URI of the component; meaningful only for roots. */
+    private int[] canonical;
+
+    /** Shared instances of canonical URIs; created on the first lookup. */
+    private CanonicalUriCache canonicalUriCache;
+
+    /** True if the mapping has been frozen and shares the dictionary with a {@link FrozenUriMapping}. */
+    private boolean frozen = false;
+
+    /**
+     * Creates an instance with no preferred URIs.
+     */
+    public CompactUriMappingImpl() {
+        this(Collections.<String>emptySet());
+    }
+
+    /**
+     * Creates an instance with the selected preferred URIs.
+     * @param preferredURIs set of URIs preferred as canonical URIs; can be null
+     */
+    public CompactUriMappingImpl(Set<String> preferredURIs) {
+        this.preferredURIs = (preferredURIs != null)
+                ? preferredURIs
+                : Collections.<String>emptySet();
+        this.dictionary = new UriDictionary();
+        this.parent = new int[0];
+        this.rank = new byte[0];
+        this.canonical = new int[0];
+    }
+
+    /**
+     * Adds owl:sameAs mappings as RDF triples.
+     * @param sameAsLinks iterator over triples with owl:sameAs as a predicate
+     */
+    public void addLinks(Iterator<Statement> sameAsLinks) {
+        while (sameAsLinks.hasNext()) {
+            addLink(sameAsLinks.next());
+        }
+    }
+
+    @Override
+    public void addLink(Statement link) {
+        if (!(link.getSubject() instanceof URI) || !(link.getObject() instanceof URI)) {
+            // Ignore sameAs links between everything but URI resources; see owl:sameAs syntax
+            // at see http://www.w3.org/TR/2004/REC-owl-semantics-20040210/syntax.html
+            return;
+        }
+        if (!OWL.SAMEAS.equals(link.getPredicate())) {
+            LOG.warn("A triple with predicate {} passed as a sameAs link", link.getPredicate());
+        }
+        addLink(link.getSubject().stringValue(), link.getObject().stringValue());
+    }
+
+    @Override
+    public void addLink(String subjectURI, String objectURI) {
+        dfuUnion(addUri(subjectURI), addUri(objectURI));
+    }
+
+    /**
+     * Add an owl:sameAs mapping for the given two URIs.
+     * @param subjectUri subject of a triple with the owl:sameAs predicate
+     * @param objectUri object of a triple with the owl:sameAs predicate
+     */
+    public void addLink(URI subjectUri, URI objectUri) {
+        addLink(subjectUri.stringValue(), objectUri.stringValue());
+    }
+
+    @Override
+    public String getCanonicalURI(String uri) {
+        int id = dictionary.getId(uri);
+        if (id < 0) {
+            return uri;
+        }
+        return dictionary.getUri(canonical[dfuRoot(id)]);
+    }
+
+    @Override
+    public URI mapURI(URI uriNode) {
+        return (URI) mapResource(uriNode);
+    }
+
+    @Override
+    public Resource mapResource(Resource resource) {
+        if (resource instanceof URI) {
+            int id = dictionary.getId(resource.stringValue());
+            if (id >= 0) {
+                int canonicalId = canonical[dfuRoot(id)];
+                return canonicalId == id ? resource : getCanonicalUriCache().getURI(canonicalId, dictionary);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Returns iterator over URIs mapped to a different canonical URI.
+     * Canonical URIs themselves are not included, consistently with {@link UriMappingIterableImpl}.
+     * @return iterator over contained non-canonical URIs
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new NonCanonicalUriIterator();
+    }
+
+    /**
+     * Returns the number of URIs contained in the mapping, including canonical URIs.
+     * @return number of URIs
+     */
+    public int size() {
+        return dictionary.size();
+    }
+
+    @Override
+    public FrozenUriMapping freeze() {
+        int size = dictionary.size();
+        int[] flatCanonical = new int[size];
+        for (int id = 0; id < size; id++) {
+            flatCanonical[id] = canonical[dfuRoot(id)];
+        }
+        frozen = true;
+        return new FrozenUriMapping(dictionary, flatCanonical);
+    }
+
+    /**
+     * Returns true if the given URI is a preferred canonical URI.
+     * @param uri URI to check
+     * @return true if the given URI is a preferred canonical URI
+     */
+    protected boolean isPreferredURI(String uri) {
+        return preferredURIs.contains(uri);
+    }
+
+    /**
+     * Chooses the preferred canonical URI from two options.
+     * @param uri1 first candidate for canonical URI
+     * @param uri2 second candidate for canonical URI
+     * @return either uri1 or uri2 (must be exactly one of these two objects)
+     */
+    protected String chooseCanonicalURI(String uri1, String uri2) {
+        return isPreferredURI(uri2) ? uri2 : uri1;
+    }
+
+    private CanonicalUriCache getCanonicalUriCache() {
+        if (canonicalUriCache == null) {
+            canonicalUriCache = new CanonicalUriCache(dictionary.size());
+        }
+        return canonicalUriCache;
+    }
+
+    private int addUri(String uri) {
+        if (frozen) {
+            throw new IllegalStateException("URI mapping has been frozen");
+        }
+        int size = dictionary.size();
+        int id = dictionary.add(uri);
+        if (id == size) {
+            // new URI forms a singleton component
+            if (id == parent.length) {
+                int capacity = UriDictionary.newCapacity(parent.length);
+                parent = Arrays.copyOf(parent, capacity);
+                rank = Arrays.copyOf(rank, capacity);
+                canonical = Arrays.copyOf(canonical, capacity);
+            }
+            parent[id] = id;
+            canonical[id] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the root of the DFU subtree containing the given URI ID.
+     * Uses path halving, i.e. every other node on the path is linked to its grandparent.
+     * @param id URI ID
+     * @return ID of the root
+     */
+    private int dfuRoot(int id) {
+        int node = id;
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Joins components of the given URI IDs.
+     * @param id1 ID of a resource URI
+     * @param id2 ID of a resource URI
+     */
+    private void dfuUnion(int id1, int id2) {
+        int root1 = dfuRoot(id1);
+        int root2 = dfuRoot(id2);
+        if (root1 == root2) {
+            return;
+        }
+        String canonical1 = dictionary.getUri(canonical[root1]);
+        String canonical2 = dictionary.getUri(canonical[root2]);
+        String canonicalURI = chooseCanonicalURI(canonical1, canonical2);
+        int canonicalId = canonicalURI == canonical1 ? canonical[root1] : canonical[root2]; // intentionally ==
+
+        int newRoot;
+        if (rank[root1] < rank[root2]) {
+            parent[root1] = root2;
+            newRoot = root2;
+        } else if (rank[root1] > rank[root2]) {
+            parent[root2] = root1;
+            newRoot = root1;
+        } else {
+            parent[root2] = root1;
+            rank[root1]++;
+            newRoot = root1;
+        }
+        canonical[newRoot] = canonicalId;
+    }
+
+    private class NonCanonicalUriIterator implements Iterator<String> {
+        private int nextId = -1;
+
+        public NonCanonicalUriIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextId < dictionary.size();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String uri = dictionary.getUri(nextId);
+            advance();
+            return uri;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advance() {
+            do {
+                nextId++;
+            } while (nextId < dictionary.size() && canonical[dfuRoot(nextId)] == nextId);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable snapshot of a resolved URI mapping created by {@link MutableUriMapping#freeze()}.
+ * Every URI points directly to its canonical URI, so a lookup is a single hash table probe and an array access.
+ * Unlike the mutable mappings, which compress paths in the DFU even on reads, lookups never modify
+ * the snapshot and the snapshot can be shared by any number of threads without locking.
+ * Mapped resources are shared {@link URI} instances from a {@link CanonicalUriCache}.
+ */
+public final class FrozenUriMapping implements UriMappingIterable {
+    /** Dictionary of all URIs contained in the mapping; never modified. */
+    private final UriDictionary dictionary;
+
+    /** ID of the canonical URI for each URI ID; never modified. */
+    private final int[] canonical;
+
+    /** Shared instances of canonical URIs. */
+    private final CanonicalUriCache canonicalUriCache;
+
+    /**
+     * Creates a new instance.
+     * The caller must not modify the given dictionary or array afterwards.
+     * @param dictionary dictionary of all URIs
+     * @param canonical ID of the canonical URI for each URI ID
+     */
+    FrozenUriMapping(UriDictionary dictionary, int[] canonical) {
+        if (canonical.length != dictionary.size()) {
+            throw new IllegalArgumentException("Canonical URI must be given for each URI");
+        }
+        dictionary.trimToSize();
+        this.dictionary = dictionary;
+        this.canonical = canonical;
+        int canonicalUriCount = 0;
+        for (int id = 0; id < canonical.length; id++) {
+            if (canonical[id] == id) {
+                canonicalUriCount++;
+            }
+        }
+        this.canonicalUriCache = new CanonicalUriCache(canonicalUriCount);
+    }
+
+    @Override
+    public String getCanonicalURI(String uri) {
+        int id = dictionary.getId(uri);
+        return id < 0 ? uri : dictionary.getUri(canonical[id]);
+    }
+
+    @Override
+    public URI mapURI(URI uriNode) {
+        return (URI) mapResource(uriNode);
+    }
+
+    @Override
+    public Resource mapResource(Resource resource) {
+        if (resource instanceof URI) {
+            int id = dictionary.getId(resource.stringValue());
+            if (id >= 0 && canonical[id] != id) {
+                return canonicalUriCache.getURI(canonical[id], dictionary);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Returns iterator over URIs mapped to a different canonical URI.
+     * @return iterator over contained non-canonical URIs
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int nextId = findNonCanonical(0);
+
+            @Override
+            public boolean hasNext() {
+                return nextId < canonical.length;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String uri = dictionary.getUri(nextId);
+                nextId = findNonCanonical(nextId + 1);
+                return uri;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of URIs contained in the mapping, including canonical URIs.
+     * @return number of URIs
+     */
+    public int size() {
+        return canonical.length;
+    }
+
+    private int findNonCanonical(int fromId) {
+        int id = fromId;
+        while (id < canonical.length && canonical[id] == id) {
+            id++;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,126 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.base.Preconditions;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * {@link UriMappingIterable} decorator holding an {@link AlternativeUriIndex} of the decorated mapping,
+ * so that all {@link AlternativeUriNavigator navigators} created for the mapping share a single index.
+ * The index is built in parallel when it is requested for the first time. If an index file is given,
+ * the index is read from the file if it was written for a mapping with the same fingerprint, or
+ * it is written to the file after it is built.
+ * The decorated mapping must support concurrent lookups if more than one thread is used.
+ */
+public class IndexedUriMapping implements UriMappingIterable {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedUriMapping.class);
+
+    private final UriMappingIterable uriMapping;
+    private final int threadCount;
+    private final File indexFile;
+    private final long fingerprint;
+    private AlternativeUriIndex alternativeUriIndex;
+
+    /**
+     * Creates an instance whose index is not persisted.
+     * @param uriMapping decorated URI mapping
+     * @param threadCount number of threads used to build the index
+     */
+    public IndexedUriMapping(UriMappingIterable uriMapping, int threadCount) {
+        this(uriMapping, threadCount, null, 0);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param uriMapping decorated URI mapping
+     * @param threadCount number of threads used to build the index
+     * @param indexFile file where the index is persisted or null
+     * @param fingerprint value identifying the decorated mapping; see {@link AlternativeUriIndex#write(File, long)}
+     */
+    public IndexedUriMapping(UriMappingIterable uriMapping, int threadCount, File indexFile, long fingerprint) {
+        Preconditions.checkNotNull(uriMapping);
+        Preconditions.checkArgument(threadCount > 0);
+        this.uriMapping = uriMapping;
+        this.threadCount = threadCount;
+        this.indexFile = indexFile;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Returns the index of alternative URIs of the mapping; the index is read or built on the first call.
+     * @return index of alternative URIs
+     */
+    public synchronized AlternativeUriIndex getAlternativeUriIndex() {
+        if (alternativeUriIndex == null) {
+            alternativeUriIndex = readIndex();
+        }
+        if (alternativeUriIndex == null) {
+            long startTime = System.currentTimeMillis();
+            alternativeUriIndex = AlternativeUriIndex.build(uriMapping, threadCount);
+            LOG.info(String.format("Built index of %,d alternative URIs in %,d ms",
+                    alternativeUriIndex.size(), System.currentTimeMillis() - startTime));
+            writeIndex();
+        }
+        return alternativeUriIndex;
+    }
+
+    @Override
+    public String getCanonicalURI(String uri) {
+        return uriMapping.getCanonicalURI(uri);
+    }
+
+    @Override
+    public URI mapURI(URI uri) {
+        return uriMapping.mapURI(uri);
+    }
+
+    @Override
+    public Resource mapResource(Resource resource) {
+        return uriMapping.mapResource(resource);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return uriMapping.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return uriMapping.toString();
+    }
+
+    private AlternativeUriIndex readIndex() {
+        if (indexFile == null || !indexFile.isFile()) {
+            return null;
+        }
+        try {
+            AlternativeUriIndex index = AlternativeUriIndex.read(indexFile, fingerprint);
+            if (index == null) {
+                LOG.info("Persisted alternative URI index {} is out of date, it will be built again", indexFile.getPath());
+            } else {
+                LOG.info(String.format("Using %,d URIs from persisted alternative URI index %s", index.size(), indexFile.getPath()));
+            }
+            return index;
+        } catch (IOException e) {
+            LOG.warn("Cannot read persisted alternative URI index {}, it will be built again: {}", indexFile.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeIndex() {
+        if (indexFile == null) {
+            return;
+        }
+        try {
+            alternativeUriIndex.write(indexFile, fingerprint);
+        } catch (IOException e) {
+            LOG.warn("Cannot persist alternative URI index to {}: {}", indexFile.getPath(), e.getMessage());
+        }
+    }
+}
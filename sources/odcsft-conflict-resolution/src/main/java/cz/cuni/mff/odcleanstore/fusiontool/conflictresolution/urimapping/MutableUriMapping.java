@@ -0,0 +1,16 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.UriMapping;
+
+/**
+ * {@link UriMapping} built incrementally from owl:sameAs links.
+ */
+public interface MutableUriMapping extends UriMapping, SameAsLinkConsumer {
+    /**
+     * Creates an immutable snapshot of the mapping where each URI points directly to its canonical URI.
+     * Lookups in the snapshot don't modify any state and the snapshot can be safely shared between threads.
+     * No more links can be added to this mapping after it is frozen.
+     * @return immutable snapshot of the mapping
+     */
+    FrozenUriMapping freeze();
+}
@@ -0,0 +1,22 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import org.openrdf.model.Statement;
+
+/**
+ * Consumer of owl:sameAs (or equivalent) links, e.g. a URI mapping being built from the links.
+ */
+public interface SameAsLinkConsumer {
+    /**
+     * Adds owl:sameAs mappings as an RDF triples.
+     * owl:sameAs links between RDF nodes other than URIs are ignored.
+     * @param link statement with URI mapping
+     */
+    void addLink(Statement link);
+
+    /**
+     * Add an owl:sameAs mapping for two URIs given as strings.
+     * @param subjectURI subject of a triple with the owl:sameAs predicate
+     * @param objectURI object of a triple with the owl:sameAs predicate
+     */
+    void addLink(String subjectURI, String objectURI);
+}
@@ -0,0 +1,148 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning consecutive integer IDs (starting from 0) to URIs.
+ * The implementation is an open-addressing hash table with linear probing over a plain {@code int[]}
+ * and an array of URIs indexed by ID, which avoids entry objects and boxed integers of a {@link java.util.HashMap}.
+ */
+final class UriDictionary implements CanonicalUriCache.UriSource {
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int NO_ID = -1;
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    /** URIs indexed by their ID. */
+    private String[] uris;
+
+    /** Hash table of (ID + 1) values; zero means an empty slot. */
+    private int[] table;
+
+    private int size = 0;
+
+    /**
+     * Creates an empty dictionary.
+     */
+    public UriDictionary() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty dictionary.
+     * @param initialCapacity expected number of URIs
+     */
+    public UriDictionary(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.uris = new String[capacity];
+        this.table = new int[tableSizeFor(capacity)];
+    }
+
+    /**
+     * Returns the number of URIs in the dictionary.
+     * @return number of URIs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ID of the given URI.
+     * @param uri URI
+     * @return ID of the URI or -1 if the URI is not contained in the dictionary
+     */
+    public int getId(String uri) {
+        int mask = table.length - 1;
+        for (int slot = hash(uri) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return NO_ID;
+            } else if (uris[entry - 1].equals(uri)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the ID of the given URI, adding the URI to the dictionary if it isn't contained yet.
+     * @param uri URI
+     * @return ID of the URI
+     */
+    public int add(String uri) {
+        int mask = table.length - 1;
+        int slot = hash(uri) & mask;
+        while (table[slot] != 0) {
+            if (uris[table[slot] - 1].equals(uri)) {
+                return table[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == table.length - 1) {
+            throw new IllegalStateException("Too many URIs");
+        }
+        int id = size++;
+        if (id == uris.length) {
+            uris = Arrays.copyOf(uris, newCapacity(uris.length));
+        }
+        uris[id] = uri;
+        table[slot] = id + 1;
+        if (size > table.length / 2 && table.length < MAX_TABLE_SIZE) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the URI with the given ID.
+     * @param id ID of the URI
+     * @return URI
+     */
+    @Override
+    public String getUri(int id) {
+        return uris[id];
+    }
+
+    /**
+     * Releases unused capacity of the array of URIs; used when no more URIs will be added.
+     */
+    public void trimToSize() {
+        if (uris.length > size) {
+            uris = Arrays.copyOf(uris, size);
+        }
+    }
+
+    private void rehash(int tableSize) {
+        int[] newTable = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(uris[id]) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id + 1;
+        }
+        table = newTable;
+    }
+
+    /**
+     * Returns capacity for an array growing beyond the given capacity.
+     * @param capacity current capacity
+     * @return new capacity
+     */
+    static int newCapacity(int capacity) {
+        if (capacity >= Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many URIs");
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, capacity + (capacity >> 1) + 1L);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) * 2;
+    }
+
+    private static int hash(String uri) {
+        // spread the bits of String.hashCode(), URIs often share long prefixes
+        int h = uri.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,11 +1,8 @@
 package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
 
-import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.UriMapping;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
-import org.openrdf.model.ValueFactory;
-import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.model.vocabulary.OWL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,9 +23,8 @@ import java.util.Set;
  *
  * The implementation is based on a disjoint-set data structure (DFU) with path compression.
  */
-public class UriMappingImpl implements UriMapping {
+public class UriMappingImpl implements MutableUriMapping {
     private static final Logger LOG = LoggerFactory.getLogger(UriMappingImpl.class);
-    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
 
     /** Set of URIs preferred as canonical URIs. */
     private Set<String> preferredURIs = null;
@@ -39,6 +35,12 @@ public class UriMappingImpl implements UriMapping {
      */
     private final Map<String, String> uriDFUParent;
 
+    /** Shared instances of canonical URIs; created on the first lookup. */
+    private CanonicalUriCache canonicalUriCache;
+
+    /** True if the mapping has been frozen. */
+    private boolean frozen = false;
+
     /**
      * Creates an instance with no preferred URIs.
      */
@@ -82,6 +84,7 @@ public class UriMappingImpl implements UriMapping {
      * Adds owl:sameAs mappings as an RDF triples.
      * @param link statement with URI mapping
      */
+    @Override
     public void addLink(Statement link) {
         if (!(link.getSubject() instanceof URI) || !(link.getObject() instanceof URI)) {
             // Ignore sameAs links between everything but URI resources; see owl:sameAs syntax
@@ -103,6 +106,7 @@ public class UriMappingImpl implements UriMapping {
      * @param subjectURI subject of a triple with the owl:sameAs predicate
      * @param objectURI object of a triple with the owl:sameAs predicate
      */
+    @Override
     public void addLink(String subjectURI, String objectURI) {
         dfuUnion(subjectURI, objectURI);
     }
@@ -123,18 +127,43 @@ public class UriMappingImpl implements UriMapping {
         }
 
         String canonicalURI = dfuRoot(uri);
-        return canonicalURI.equals(uri) ? null : VF.createURI(canonicalURI);
+        return canonicalURI.equals(uri) ? null : getCanonicalUriCache().getURI(canonicalURI);
     }
 
     @Override
     public Resource mapResource(Resource resource) {
         if (resource instanceof URI && uriDFUParent.containsKey(resource.stringValue())) {
             String canonicalUri = dfuRoot(resource.stringValue());
-            return VF.createURI(canonicalUri);
+            return getCanonicalUriCache().getURI(canonicalUri);
         }
         return resource;
     }
 
+    @Override
+    public FrozenUriMapping freeze() {
+        UriDictionary dictionary = new UriDictionary(uriDFUParent.size());
+        for (String uri : uriDFUParent.keySet()) {
+            dictionary.add(uri);
+        }
+        int uriCount = dictionary.size();
+        for (int id = 0; id < uriCount; id++) {
+            dictionary.add(dfuRoot(dictionary.getUri(id)));
+        }
+        int[] canonical = new int[dictionary.size()];
+        for (int id = 0; id < canonical.length; id++) {
+            canonical[id] = dictionary.getId(dfuRoot(dictionary.getUri(id)));
+        }
+        frozen = true;
+        return new FrozenUriMapping(dictionary, canonical);
+    }
+
+    private CanonicalUriCache getCanonicalUriCache() {
+        if (canonicalUriCache == null) {
+            canonicalUriCache = new CanonicalUriCache(uriDFUParent.size());
+        }
+        return canonicalUriCache;
+    }
+
     /**
      * Returns the URI at the root of a subtree in DFU for the argument, i.e.
      * the respective canonical URI.
@@ -166,6 +195,9 @@ public class UriMappingImpl implements UriMapping {
      * @param uri2 a resource URI
      */
     private void dfuUnion(String uri1, String uri2) {
+        if (frozen) {
+            throw new IllegalStateException("URI mapping has been frozen");
+        }
         String root1 = dfuRoot(uri1);
         String root2 = dfuRoot(uri2);
         if (!root1.equals(root2)) {
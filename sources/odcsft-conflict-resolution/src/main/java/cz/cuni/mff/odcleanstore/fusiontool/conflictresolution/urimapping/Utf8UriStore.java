@@ -0,0 +1,260 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.base.Charsets;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Append-only store of URIs encoded in UTF-8 in large byte pages, where each URI is addressed by an offset.
+ * A URI takes its encoded length plus 12 bytes of heap instead of a {@link String} object with a char array,
+ * and URIs can be hashed and compared with strings without decoding them to new objects.
+ * Hashes are equal to {@link String#hashCode()} of the decoded URI.
+ * URIs must be valid UTF-16 strings (i.e. without unpaired surrogates), which holds for URIs parsed from RDF.
+ * The store is not thread-safe while URIs are added.
+ */
+final class Utf8UriStore {
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int LENGTH_SIZE = 4;
+
+    private byte[][] pages = new byte[0][];
+
+    /** Position of each URI; the upper 32 bits are the page index and the lower 32 bits the offset in the page. */
+    private long[] positions;
+
+    private int size = 0;
+    private int pageCount = 0;
+    private int pageOffset = PAGE_SIZE;
+
+    /**
+     * Creates an empty store.
+     * @param initialCapacity expected number of URIs
+     */
+    Utf8UriStore(int initialCapacity) {
+        this.positions = new long[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * Returns the number of URIs in the store.
+     * @return number of URIs
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a URI to the store.
+     * @param uri URI
+     * @return ID of the added URI
+     */
+    int add(String uri) {
+        byte[] bytes = uri.getBytes(Charsets.UTF_8);
+        int id = allocate(bytes.length);
+        System.arraycopy(bytes, 0, pages[pageIndex(id)], pageOffset(id) + LENGTH_SIZE, bytes.length);
+        return id;
+    }
+
+    /**
+     * Adds a URI read from the given input, where it is encoded in UTF-8 and prefixed by its length.
+     * @param input input to read from
+     * @return ID of the added URI
+     * @throws IOException I/O error or invalid encoding of the URI
+     */
+    int read(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length of URI");
+        }
+        int id = allocate(length);
+        byte[] page = pages[pageIndex(id)];
+        int start = pageOffset(id) + LENGTH_SIZE;
+        input.readFully(page, start, length);
+        if (!isValidUtf8(page, start, start + length)) {
+            throw new IOException("Invalid UTF-8 encoding of URI");
+        }
+        return id;
+    }
+
+    /**
+     * Writes the URI with the given ID encoded in UTF-8 and prefixed by its length.
+     * @param id ID of the URI
+     * @param output output to write to
+     * @throws IOException I/O error
+     */
+    void write(int id, DataOutput output) throws IOException {
+        byte[] page = pages[pageIndex(id)];
+        int offset = pageOffset(id);
+        int length = readLength(page, offset);
+        output.writeInt(length);
+        output.write(page, offset + LENGTH_SIZE, length);
+    }
+
+    /**
+     * Decodes the URI with the given ID.
+     * @param id ID of the URI
+     * @return URI
+     */
+    String get(int id) {
+        byte[] page = pages[pageIndex(id)];
+        int offset = pageOffset(id);
+        return new String(page, offset + LENGTH_SIZE, readLength(page, offset), Charsets.UTF_8);
+    }
+
+    /**
+     * Returns {@link String#hashCode()} of the URI with the given ID.
+     * @param id ID of the URI
+     * @return hash code of the URI
+     */
+    int hashCode(int id) {
+        byte[] page = pages[pageIndex(id)];
+        int offset = pageOffset(id);
+        int position = offset + LENGTH_SIZE;
+        int end = position + readLength(page, offset);
+        int hash = 0;
+        while (position < end) {
+            int codePoint = codePointAt(page, position);
+            position += sequenceLength(page[position]);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                hash = 31 * hash + codePoint;
+            } else {
+                hash = 31 * hash + Character.highSurrogate(codePoint);
+                hash = 31 * hash + Character.lowSurrogate(codePoint);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Indicates whether the URI with the given ID is equal to the given string.
+     * @param id ID of the URI
+     * @param uri string to compare to
+     * @return true if the URI is equal to {@code uri}
+     */
+    boolean equals(int id, String uri) {
+        byte[] page = pages[pageIndex(id)];
+        int offset = pageOffset(id);
+        int length = readLength(page, offset);
+        if (length < uri.length() || length > uri.length() * 3) {
+            return false; // a char takes one to three bytes (a surrogate pair takes four bytes)
+        }
+        int position = offset + LENGTH_SIZE;
+        int end = position + length;
+        int index = 0;
+        while (position < end) {
+            int codePoint = codePointAt(page, position);
+            position += sequenceLength(page[position]);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (index >= uri.length() || uri.charAt(index) != codePoint) {
+                    return false;
+                }
+                index++;
+            } else {
+                if (index + 1 >= uri.length()
+                        || uri.charAt(index) != Character.highSurrogate(codePoint)
+                        || uri.charAt(index + 1) != Character.lowSurrogate(codePoint)) {
+                    return false;
+                }
+                index += 2;
+            }
+        }
+        return index == uri.length();
+    }
+
+    /**
+     * Releases unused capacity; used when no more URIs will be added.
+     */
+    void trimToSize() {
+        if (positions.length > size) {
+            positions = Arrays.copyOf(positions, size);
+        }
+        if (pageCount > 0 && pageOffset < pages[pageCount - 1].length) {
+            pages[pageCount - 1] = Arrays.copyOf(pages[pageCount - 1], pageOffset);
+        }
+        if (pages.length > pageCount) {
+            pages = Arrays.copyOf(pages, pageCount);
+        }
+    }
+
+    private int allocate(int length) {
+        int recordSize = LENGTH_SIZE + length;
+        if (pageOffset + recordSize > PAGE_SIZE) {
+            // records don't span pages; a record larger than a page gets a page of its own
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(16, pageCount * 2));
+            }
+            pages[pageCount++] = new byte[Math.max(PAGE_SIZE, recordSize)];
+            pageOffset = 0;
+        }
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, UriDictionary.newCapacity(positions.length));
+        }
+        byte[] page = pages[pageCount - 1];
+        page[pageOffset] = (byte) (length >>> 24);
+        page[pageOffset + 1] = (byte) (length >>> 16);
+        page[pageOffset + 2] = (byte) (length >>> 8);
+        page[pageOffset + 3] = (byte) length;
+        positions[size] = ((long) (pageCount - 1) << 32) | pageOffset;
+        pageOffset += recordSize;
+        return size++;
+    }
+
+    private int pageIndex(int id) {
+        return (int) (positions[id] >>> 32);
+    }
+
+    private int pageOffset(int id) {
+        return (int) positions[id];
+    }
+
+    private static int readLength(byte[] page, int offset) {
+        return ((page[offset] & 0xFF) << 24) | ((page[offset + 1] & 0xFF) << 16)
+                | ((page[offset + 2] & 0xFF) << 8) | (page[offset + 3] & 0xFF);
+    }
+
+    private static boolean isValidUtf8(byte[] bytes, int start, int end) {
+        int position = start;
+        while (position < end) {
+            int length = sequenceLength(bytes[position]);
+            if ((bytes[position] & 0xC0) == 0x80 || (bytes[position] & 0xF8) == 0xF8 || position + length > end) {
+                return false;
+            }
+            for (int i = 1; i < length; i++) {
+                if ((bytes[position + i] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            position += length;
+        }
+        return true;
+    }
+
+    private static int sequenceLength(byte firstByte) {
+        if ((firstByte & 0x80) == 0) {
+            return 1;
+        } else if ((firstByte & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((firstByte & 0xF0) == 0xE0) {
+            return 3;
+        } else {
+            return 4;
+        }
+    }
+
+    private static int codePointAt(byte[] bytes, int position) {
+        int b0 = bytes[position] & 0xFF;
+        switch (sequenceLength(bytes[position])) {
+            case 1:
+                return b0;
+            case 2:
+                return ((b0 & 0x1F) << 6) | (bytes[position + 1] & 0x3F);
+            case 3:
+                return ((b0 & 0x0F) << 12) | ((bytes[position + 1] & 0x3F) << 6) | (bytes[position + 2] & 0x3F);
+            default:
+                return ((b0 & 0x07) << 18) | ((bytes[position + 1] & 0x3F) << 12)
+                        | ((bytes[position + 2] & 0x3F) << 6) | (bytes[position + 3] & 0x3F);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.util;
 
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.MappedStatement;
 import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.UriMapping;
 import org.openrdf.model.*;
 
@@ -26,7 +27,35 @@ public class StatementMapper {
         return result;
     }
 
+    /**
+     * Returns the given statement with its canonical version precomputed so that it doesn't need to be mapped again.
+     * @param statement statement
+     * @return {@code statement} if it already is a {@link MappedStatement}, a new {@link MappedStatement} otherwise
+     */
+    public MappedStatement toMappedStatement(Statement statement) {
+        if (statement instanceof MappedStatement) {
+            return (MappedStatement) statement;
+        }
+        return new MappedStatement(
+                statement.getSubject(),
+                statement.getPredicate(),
+                statement.getObject(),
+                statement.getContext(),
+                (Resource) mapUriNode(statement.getSubject()),
+                (URI) mapUriNode(statement.getPredicate()),
+                mapUriNode(statement.getObject()));
+    }
+
+    /**
+     * Returns the statement with canonical subject, predicate and object.
+     * The precomputed canonical version is returned for instances of {@link MappedStatement}.
+     * @param statement statement to map
+     * @return mapped statement; {@code statement} itself if no term is mapped
+     */
     public Statement mapStatement(Statement statement) {
+        if (statement instanceof MappedStatement) {
+            return ((MappedStatement) statement).getCanonicalStatement();
+        }
         Resource subject = statement.getSubject();
         Resource mappedSubject = (Resource) mapUriNode(subject);
         URI predicate = statement.getPredicate();
@@ -0,0 +1,106 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.MappedStatement;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+
+import java.util.*;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ConflictClustersMapTest {
+    private UriMappingImpl uriMapping;
+
+    @Before
+    public void setUp() throws Exception {
+        // map sa, sb -> sx; pa, pb -> px
+        uriMapping = new UriMappingImpl(ImmutableSet.of(createHttpUri("sx").toString(), createHttpUri("px").toString()));
+        uriMapping.addLink(createHttpUri("sa").toString(), createHttpUri("sx").toString());
+        uriMapping.addLink(createHttpUri("sb").toString(), createHttpUri("sx").toString());
+        uriMapping.addLink(createHttpUri("pa").toString(), createHttpUri("px").toString());
+        uriMapping.addLink(createHttpUri("pb").toString(), createHttpUri("px").toString());
+    }
+
+    @Test
+    public void groupsStatementsByCanonicalSubjectAndProperty() throws Exception {
+        // Arrange
+        Statement statement1 = createHttpStatement("sa", "pa", "o1", "g1");
+        Statement statement2 = createHttpStatement("s2", "p1", "o1", "g1");
+        Statement statement3 = createHttpStatement("sb", "p1", "o2", "g1");
+        Statement statement4 = createHttpStatement("sx", "pb", "o3", "g2");
+        Statement statement5 = createHttpStatement("sb", "px", "o4", "g2");
+        Collection<Statement> statements = ImmutableList.of(statement1, statement2, statement3, statement4, statement5);
+
+        // Act
+        ConflictClustersMap conflictClustersMap = ConflictClustersMap.fromCollection(statements, uriMapping);
+        Map<URI, List<Statement>> result = conflictClustersMap.getResourceStatementsMap(createHttpUri("sx"));
+
+        // Assert
+        assertThat(result.keySet(), containsInAnyOrder(createHttpUri("px"), createHttpUri("p1")));
+        assertThat(result.get(createHttpUri("px")), contains(statement1, statement4, statement5));
+        assertThat(result.get(createHttpUri("p1")), contains(statement3));
+        assertThat(result.get(createHttpUri("p2")), nullValue());
+    }
+
+    @Test
+    public void returnsEmptyMapForUnknownSubject() throws Exception {
+        // Arrange
+        Collection<Statement> statements = ImmutableList.of(createHttpStatement("s1", "p1", "o1", "g1"));
+
+        // Act
+        ConflictClustersMap conflictClustersMap = ConflictClustersMap.fromCollection(statements, uriMapping);
+        Map<URI, List<Statement>> result = conflictClustersMap.getResourceStatementsMap(createHttpUri("s2"));
+
+        // Assert
+        assertThat(result.isEmpty(), is(true));
+    }
+
+    @Test
+    public void usesPrecomputedCanonicalVersionOfMappedStatements() throws Exception {
+        // Arrange
+        MappedStatement statement = new MappedStatement(
+                createHttpUri("s1"), createHttpUri("p1"), createHttpUri("o1"), createHttpUri("g1"),
+                createHttpUri("s2"), createHttpUri("p2"), createHttpUri("o1"));
+        Collection<Statement> statements = ImmutableList.<Statement>of(statement);
+
+        // Act
+        ConflictClustersMap conflictClustersMap = ConflictClustersMap.fromCollection(statements, uriMapping);
+        Map<URI, List<Statement>> result = conflictClustersMap.getResourceStatementsMap(createHttpUri("s2"));
+
+        // Assert
+        assertThat(result.keySet(), contains(createHttpUri("p2")));
+        assertThat(result.get(createHttpUri("p2")), contains((Statement) statement));
+        assertThat(conflictClustersMap.getResourceStatementsMap(createHttpUri("s1")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void unionStatementsMapContainsStatementsOfAllSubjects() throws Exception {
+        // Arrange
+        Statement statement1 = createHttpStatement("s1", "p1", "o1", "g1");
+        Statement statement2 = createHttpStatement("s2", "p1", "o2", "g1");
+        Statement statement3 = createHttpStatement("s2", "p2", "o3", "g1");
+        Statement statement4 = createHttpStatement("s3", "p1", "o4", "g1");
+        Statement statement5 = createHttpStatement("s1", "p3", "o5", "g1");
+        Collection<Statement> statements = ImmutableList.of(statement1, statement2, statement3, statement4, statement5);
+        Set<Resource> subjects = new LinkedHashSet<Resource>(ImmutableList.of(createHttpUri("s2"), createHttpUri("s1"), createHttpUri("s4")));
+
+        // Act
+        ConflictClustersMap conflictClustersMap = ConflictClustersMap.fromCollection(statements, uriMapping);
+        Map<URI, List<Statement>> result = conflictClustersMap.getUnionStatementsMap(subjects);
+
+        // Assert
+        assertThat(result.size(), is(3));
+        assertThat(result.get(createHttpUri("p1")), contains(statement2, statement1));
+        assertThat(result.get(createHttpUri("p2")), contains(statement3));
+        assertThat(result.get(createHttpUri("p3")), contains(statement5));
+    }
+}
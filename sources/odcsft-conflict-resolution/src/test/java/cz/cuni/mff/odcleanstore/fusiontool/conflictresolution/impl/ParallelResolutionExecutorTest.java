@@ -0,0 +1,71 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ParallelResolutionExecutorTest {
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Test
+    public void startsHelpersOnlyForThreadsNotResolving() throws Exception {
+        // Arrange
+        PendingTaskExecutor executor = new PendingTaskExecutor();
+        ParallelResolutionExecutor parallelResolutionExecutor = new ParallelResolutionExecutor(executor, 3);
+        parallelResolutionExecutor.resolutionStarted();
+        parallelResolutionExecutor.resolutionStarted();
+
+        // Act
+        boolean firstHelperStarted = parallelResolutionExecutor.tryExecute(NOOP);
+        boolean secondHelperStarted = parallelResolutionExecutor.tryExecute(NOOP);
+
+        // Assert
+        assertThat(firstHelperStarted, is(true));
+        assertThat(secondHelperStarted, is(false));
+        assertThat(executor.tasks.size(), is(1));
+    }
+
+    @Test
+    public void releasesThreadWhenHelperOrResolutionFinishes() throws Exception {
+        // Arrange
+        PendingTaskExecutor executor = new PendingTaskExecutor();
+        ParallelResolutionExecutor parallelResolutionExecutor = new ParallelResolutionExecutor(executor, 2);
+        parallelResolutionExecutor.resolutionStarted();
+        parallelResolutionExecutor.resolutionStarted();
+        boolean startedWhenBusy = parallelResolutionExecutor.tryExecute(NOOP);
+
+        // Act
+        parallelResolutionExecutor.resolutionFinished();
+        boolean startedAfterResolutionFinished = parallelResolutionExecutor.tryExecute(NOOP);
+        boolean startedWhileHelperRuns = parallelResolutionExecutor.tryExecute(NOOP);
+        executor.tasks.get(0).run();
+        boolean startedAfterHelperFinished = parallelResolutionExecutor.tryExecute(NOOP);
+
+        // Assert
+        assertThat(startedWhenBusy, is(false));
+        assertThat(startedAfterResolutionFinished, is(true));
+        assertThat(startedWhileHelperRuns, is(false));
+        assertThat(startedAfterHelperFinished, is(true));
+    }
+
+    /**
+     * Executor which only collects tasks so that the test decides when they finish.
+     */
+    private static class PendingTaskExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    }
+}
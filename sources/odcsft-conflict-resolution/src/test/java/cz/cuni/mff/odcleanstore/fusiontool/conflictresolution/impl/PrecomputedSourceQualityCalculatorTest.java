@@ -0,0 +1,81 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.SourceQualityCalculator;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.Resource;
+import org.openrdf.model.impl.TreeModel;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PrecomputedSourceQualityCalculatorTest {
+    private static final double EPSILON = 1e-9;
+
+    private Model metadata;
+    private SourceQualityCalculator sourceQualityCalculator;
+
+    @Before
+    public void setUp() throws Exception {
+        metadata = new TreeModel();
+        metadata.add(createHttpStatement("g1", "score", "s1", "m"));
+        metadata.add(createHttpStatement("g2", "score", "s2", "m"));
+        metadata.add(createHttpStatement("g2", "publishedBy", "p1", "m"));
+
+        sourceQualityCalculator = mock(SourceQualityCalculator.class);
+        when(sourceQualityCalculator.getSourceQuality(any(Resource.class), any(Model.class))).thenReturn(0.5);
+        when(sourceQualityCalculator.getSourceQuality(eq(createHttpUri("g1")), any(Model.class))).thenReturn(0.9);
+        when(sourceQualityCalculator.getSourceQuality(eq(createHttpUri("g2")), any(Model.class))).thenReturn(0.7);
+    }
+
+    @Test
+    public void returnsQualityOfWrappedCalculator() throws Exception {
+        // Act
+        PrecomputedSourceQualityCalculator calculator = new PrecomputedSourceQualityCalculator(sourceQualityCalculator, metadata);
+
+        // Assert
+        assertThat(calculator.getSourceQuality(createHttpUri("g1"), metadata), closeTo(0.9, EPSILON));
+        assertThat(calculator.getSourceQuality(createHttpUri("g2"), metadata), closeTo(0.7, EPSILON));
+        assertThat(calculator.getSourceQuality(createHttpUri("g3"), metadata), closeTo(0.5, EPSILON));
+        assertThat(calculator.size(), is(2));
+    }
+
+    @Test
+    public void computesQualityOfEachGraphOnlyOnce() throws Exception {
+        // Arrange
+        PrecomputedSourceQualityCalculator calculator = new PrecomputedSourceQualityCalculator(sourceQualityCalculator, metadata);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            calculator.getSourceQuality(createHttpUri("g1"), metadata);
+            calculator.getSourceQuality(createHttpUri("g2"), metadata);
+            calculator.getSourceQuality(createHttpUri("g3"), metadata);
+        }
+
+        // Assert
+        verify(sourceQualityCalculator, times(1)).getSourceQuality(eq(createHttpUri("g1")), any(Model.class));
+        verify(sourceQualityCalculator, times(1)).getSourceQuality(eq(createHttpUri("g2")), any(Model.class));
+        verify(sourceQualityCalculator, never()).getSourceQuality(eq(createHttpUri("g3")), any(Model.class));
+    }
+
+    @Test
+    public void delegatesToWrappedCalculatorForOtherMetadata() throws Exception {
+        // Arrange
+        PrecomputedSourceQualityCalculator calculator = new PrecomputedSourceQualityCalculator(sourceQualityCalculator, metadata);
+        Model otherMetadata = new TreeModel();
+        when(sourceQualityCalculator.getSourceQuality(createHttpUri("g1"), otherMetadata)).thenReturn(0.1);
+
+        // Act
+        double result = calculator.getSourceQuality(createHttpUri("g1"), otherMetadata);
+
+        // Assert
+        assertThat(result, closeTo(0.1, EPSILON));
+    }
+}
@@ -3,6 +3,7 @@ package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
 import com.google.common.base.Supplier;
 import com.google.common.collect.*;
 import cz.cuni.mff.odcleanstore.conflictresolution.*;
+import cz.cuni.mff.odcleanstore.conflictresolution.exceptions.ConflictResolutionException;
 import cz.cuni.mff.odcleanstore.conflictresolution.exceptions.ResolutionFunctionNotRegisteredException;
 import cz.cuni.mff.odcleanstore.conflictresolution.impl.ConflictResolutionPolicyImpl;
 import cz.cuni.mff.odcleanstore.conflictresolution.impl.ResolutionStrategyImpl;
@@ -15,13 +16,17 @@ import cz.cuni.mff.odcleanstore.fusiontool.testutil.*;
 import cz.cuni.mff.odcleanstore.fusiontool.util.Pair;
 import org.junit.Before;
 import org.junit.Test;
+import org.openrdf.model.Model;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
+import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.ValueFactoryImpl;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
 import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
@@ -30,8 +35,7 @@ import static cz.cuni.mff.odcleanstore.fusiontool.testutil.ResolvedStatementMatc
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class ResourceDescriptionConflictResolverImplTest {
     private static final ValueFactory VF = ValueFactoryImpl.getInstance();
@@ -282,6 +286,43 @@ public class ResourceDescriptionConflictResolverImplTest {
         assertThat(actualResolutionStrategies, is(expectedResolutionStrategies));
     }
 
+    @Test
+    public void looksUpResolutionFunctionsOnlyOnce() throws Exception {
+        // Arrange
+        ConflictResolutionPolicyImpl conflictResolutionPolicy = new ConflictResolutionPolicyImpl();
+        conflictResolutionPolicy.setDefaultResolutionStrategy(new ResolutionStrategyImpl("DEFAULT"));
+        conflictResolutionPolicy.setPropertyResolutionStrategy(new HashMap<>(ImmutableMap.<URI, ResolutionStrategy>of(
+                createHttpUri("p1"), new ResolutionStrategyImpl("P1"),
+                RESOURCE_DESCRIPTION_URI, new ResolutionStrategyImpl(NestedResourceDescriptionResolution.getName()))));
+        ResolutionFunctionRegistry resolutionFunctionRegistry = mock(ResolutionFunctionRegistry.class);
+        when(resolutionFunctionRegistry.get(anyString())).thenReturn(new MockNoneResolutionFunction());
+        ResourceDescriptionConflictResolver resolver = new ResourceDescriptionConflictResolverImpl(
+                resolutionFunctionRegistry,
+                conflictResolutionPolicy,
+                uriMapping,
+                new EmptyMetadataModel(),
+                "http://cr/",
+                new NestedResourceDescriptionQualityCalculatorImpl(new DummyFQualityCalculator()));
+        Collection<Statement> testInput = ImmutableList.of(
+                createHttpStatement("s1", "p1", "o1", "g1"),
+                createHttpStatement("s1", "p1", "o2", "g2"),
+                createHttpStatement("s1", "p2", "o1", "g3"),
+                createHttpStatement("s1", "p3", "o1", "g3"),
+                createHttpStatement("s1", "resourceDescriptionProperty", "s2", "g1"),
+                createHttpStatement("s2", "p1", "o1", "g1"),
+                createHttpStatement("s2", "p2", "o1", "g1")
+        );
+
+        // Act
+        resolver.resolveConflicts(new ResourceDescriptionImpl(createHttpUri("s1"), testInput));
+        resolver.resolveConflicts(new ResourceDescriptionImpl(createHttpUri("s1"), testInput));
+
+        // Assert
+        verify(resolutionFunctionRegistry, times(1)).get("P1");
+        verify(resolutionFunctionRegistry, times(1)).get("DEFAULT");
+        verify(resolutionFunctionRegistry, never()).get(NestedResourceDescriptionResolution.getName());
+    }
+
     @Test
     public void resolvesEmptyInput() throws Exception {
         // Arrange
@@ -672,6 +713,39 @@ public class ResourceDescriptionConflictResolverImplTest {
         return null;
     }
 
+    @Test
+    public void resolvesLargeResourceDescriptionInParallelWithSameResult() throws Exception {
+        // Arrange
+        Resource resource = createHttpUri("s1");
+        List<Statement> testInput = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            testInput.add(createHttpStatement("s1", "p" + i, "o" + i, "g1"));
+            testInput.add(createHttpStatement("s1", "p" + i, "o" + (i + 1), "g2"));
+        }
+        testInput.add(createHttpStatement("s1", "pa", "oa", "g1"));
+        testInput.add(createHttpStatement("sb", "pb", "ob", "g2"));
+        testInput.add(createHttpStatement("s1", RESOURCE_DESCRIPTION_URI.stringValue(), "n1", "g1"));
+        testInput.add(createHttpStatement("n1", "p1", "o1", "g1"));
+        testInput.add(createHttpStatement("n1", RESOURCE_DESCRIPTION_URI.stringValue(), "s1", "g1"));
+        ResourceDescriptionConflictResolver sequentialResolver = createResolver();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // Act
+        Collection<ResolvedStatement> expectedResult;
+        Collection<ResolvedStatement> result;
+        try {
+            ResourceDescriptionConflictResolver parallelResolver = createParallelResolver(executor, testInput.size());
+            expectedResult = sequentialResolver.resolveConflicts(new ResourceDescriptionImpl(resource, testInput));
+            result = parallelResolver.resolveConflicts(new ResourceDescriptionImpl(resource, testInput));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assert
+        assertThat(getTriplesWithNormalizedGeneratedUris(result), is(getTriplesWithNormalizedGeneratedUris(expectedResult)));
+        assertThat(result.size(), greaterThan(40));
+    }
+
     private ResourceDescriptionConflictResolver createResolver() throws ResolutionFunctionNotRegisteredException {
         ConflictResolutionPolicy policy = new ConflictResolutionPolicyBuilder()
                 .with(RESOURCE_DESCRIPTION_URI, new ResolutionStrategyImpl(NestedResourceDescriptionResolution.getName()))
@@ -695,6 +769,98 @@ public class ResourceDescriptionConflictResolverImplTest {
         );
     }
 
+    @Test
+    public void resolvesConflictClustersInParallelThreadsWithSeparateResolutionFunctions() throws Exception {
+        // Arrange
+        Resource resource = createHttpUri("s1");
+        List<Statement> testInput = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            testInput.add(createHttpStatement("s1", "p" + i, "o" + i, "g1"));
+            testInput.add(createHttpStatement("s1", "p" + i, "o" + (i + 1), "g2"));
+        }
+        final SetMultimap<ResolutionFunction, Thread> functionThreads = Multimaps.synchronizedSetMultimap(
+                HashMultimap.<ResolutionFunction, Thread>create());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // Act
+        Collection<ResolvedStatement> result;
+        try {
+            ResourceDescriptionConflictResolver parallelResolver = createParallelResolver(executor, 1, functionThreads);
+            result = parallelResolver.resolveConflicts(new ResourceDescriptionImpl(resource, testInput));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assert
+        assertThat(result.size(), equalTo(testInput.size()));
+        for (ResolutionFunction resolutionFunction : functionThreads.keySet()) {
+            assertThat(functionThreads.get(resolutionFunction).size(), equalTo(1));
+        }
+    }
+
+    private ResourceDescriptionConflictResolver createParallelResolver(ExecutorService executor, int parallelResolutionThreshold)
+            throws ResolutionFunctionNotRegisteredException {
+        return createParallelResolver(executor, parallelResolutionThreshold,
+                HashMultimap.<ResolutionFunction, Thread>create());
+    }
+
+    private ResourceDescriptionConflictResolver createParallelResolver(
+            ExecutorService executor, int parallelResolutionThreshold, final SetMultimap<ResolutionFunction, Thread> functionThreads)
+            throws ResolutionFunctionNotRegisteredException {
+        ResourceDescriptionConflictResolverImpl.ResolutionFunctionRegistryFactory registryFactory =
+                new ResourceDescriptionConflictResolverImpl.ResolutionFunctionRegistryFactory() {
+                    @Override
+                    public ResolutionFunctionRegistry createRegistry() {
+                        ResolutionFunctionRegistry registry = mock(ResolutionFunctionRegistry.class);
+                        try {
+                            when(registry.get(anyString())).thenReturn(new ThreadRecordingResolutionFunction(functionThreads));
+                        } catch (ResolutionFunctionNotRegisteredException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return registry;
+                    }
+                };
+        ConflictResolutionPolicy conflictResolutionPolicy = new ConflictResolutionPolicyBuilder()
+                .with(RESOURCE_DESCRIPTION_URI, new ResolutionStrategyImpl(NestedResourceDescriptionResolution.getName()))
+                .build();
+        return new ResourceDescriptionConflictResolverImpl(
+                registryFactory.createRegistry(),
+                conflictResolutionPolicy,
+                uriMapping,
+                new EmptyMetadataModel(),
+                "http://cr/",
+                new NestedResourceDescriptionQualityCalculatorImpl(new DummyFQualityCalculator()),
+                new ParallelResolutionExecutor(executor, 4),
+                registryFactory,
+                3,
+                parallelResolutionThreshold,
+                null
+        );
+    }
+
+    private List<Statement> getTriplesWithNormalizedGeneratedUris(Collection<ResolvedStatement> resolvedStatements) {
+        Map<Value, URI> generatedUris = new HashMap<>();
+        List<Statement> result = new ArrayList<>();
+        for (ResolvedStatement resolvedStatement : resolvedStatements) {
+            Statement statement = resolvedStatement.getStatement();
+            result.add(VF.createStatement(
+                    (Resource) normalizeGeneratedUri(statement.getSubject(), generatedUris),
+                    statement.getPredicate(),
+                    normalizeGeneratedUri(statement.getObject(), generatedUris)));
+        }
+        return result;
+    }
+
+    private Value normalizeGeneratedUri(Value value, Map<Value, URI> generatedUris) {
+        if (!value.stringValue().startsWith(ResourceDescriptionConflictResolverImpl.DEFAULT_RESOLVED_GRAPHS_URI_PREFIX)) {
+            return value;
+        }
+        if (!generatedUris.containsKey(value)) {
+            generatedUris.put(value, createHttpUri("generated" + generatedUris.size()));
+        }
+        return generatedUris.get(value);
+    }
+
     private Collection<Collection<MockResolvedStatement>> getConflictClusters(Collection<ResolvedStatement> resolvedStatements) {
         Multimap<Integer, MockResolvedStatement> result = Multimaps.newListMultimap(
                 new HashMap<Integer, Collection<MockResolvedStatement>>(), LIST_SUPPLIER);
@@ -711,4 +877,21 @@ public class ResourceDescriptionConflictResolverImplTest {
         return new ResolutionStrategyImpl("XXX123", EnumCardinality.MANYVALUED, EnumAggregationErrorStrategy.IGNORE,
                 Collections.<String, String>emptyMap(), dependsOn);
     }
-}
\ No newline at end of file
+
+    /**
+     * Resolution function recording threads in which it was executed.
+     */
+    private static class ThreadRecordingResolutionFunction extends MockNoneResolutionFunction {
+        private final SetMultimap<ResolutionFunction, Thread> functionThreads;
+
+        private ThreadRecordingResolutionFunction(SetMultimap<ResolutionFunction, Thread> functionThreads) {
+            this.functionThreads = functionThreads;
+        }
+
+        @Override
+        public Collection<ResolvedStatement> resolve(Model statements, CRContext crContext) throws ConflictResolutionException {
+            functionThreads.put(this, Thread.currentThread());
+            return super.resolve(statements, crContext);
+        }
+    }
+}
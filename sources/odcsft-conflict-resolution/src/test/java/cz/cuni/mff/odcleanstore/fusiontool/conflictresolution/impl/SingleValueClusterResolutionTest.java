@@ -0,0 +1,295 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import cz.cuni.mff.odcleanstore.conflictresolution.*;
+import cz.cuni.mff.odcleanstore.conflictresolution.impl.ConflictResolutionPolicyImpl;
+import cz.cuni.mff.odcleanstore.conflictresolution.impl.DistanceMeasureImpl;
+import cz.cuni.mff.odcleanstore.conflictresolution.impl.ResolutionStrategyImpl;
+import cz.cuni.mff.odcleanstore.conflictresolution.impl.util.EmptyMetadataModel;
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.DummyFQualityCalculator;
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.SourceQualityCalculator;
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.impl.DecidingConflictFQualityCalculator;
+import cz.cuni.mff.odcleanstore.conflictresolution.quality.impl.ODCSSourceQualityCalculator;
+import cz.cuni.mff.odcleanstore.conflictresolution.resolution.AllResolution;
+import cz.cuni.mff.odcleanstore.conflictresolution.resolution.BestResolution;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.ResourceDescriptionConflictResolver;
+import cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping.UriMappingImpl;
+import cz.cuni.mff.odcleanstore.fusiontool.testutil.MockNoneResolutionFunction;
+import cz.cuni.mff.odcleanstore.fusiontool.testutil.MockResolvedStatement;
+import cz.cuni.mff.odcleanstore.vocabulary.ODCS;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.TreeModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.util.*;
+
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpStatement;
+import static cz.cuni.mff.odcleanstore.fusiontool.testutil.LDFusionToolTestUtils.createHttpUri;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that {@link SingleValueClusterResolution} gives the same results as the respective resolution functions.
+ */
+public class SingleValueClusterResolutionTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+    private static final double AGREE_COEFFICIENT = 4;
+    private static final double EPSILON = 1e-9;
+
+    private UriMappingImpl uriMapping;
+    private ResolutionFunctionRegistry resolutionFunctionRegistry;
+    private DecidingConflictFQualityCalculator fQualityCalculator;
+    private Model metadata;
+
+    @Before
+    public void setUp() throws Exception {
+        // map sa -> sx; oa, ob -> ox
+        uriMapping = new UriMappingImpl(ImmutableSet.of(createHttpUri("sx").toString(), createHttpUri("ox").toString()));
+        uriMapping.addLink(createHttpUri("sa").toString(), createHttpUri("sx").toString());
+        uriMapping.addLink(createHttpUri("oa").toString(), createHttpUri("ox").toString());
+        uriMapping.addLink(createHttpUri("ob").toString(), createHttpUri("ox").toString());
+
+        SourceQualityCalculator sourceQualityCalculator = new ODCSSourceQualityCalculator(0.5, 0.2);
+        DistanceMeasureImpl distanceMeasure = new DistanceMeasureImpl();
+        resolutionFunctionRegistry = ConflictResolverFactory.createInitializedResolutionFunctionRegistry(
+                sourceQualityCalculator, AGREE_COEFFICIENT, distanceMeasure);
+        fQualityCalculator = new DecidingConflictFQualityCalculator(sourceQualityCalculator, AGREE_COEFFICIENT, distanceMeasure);
+        metadata = new EmptyMetadataModel();
+    }
+
+    @Test
+    public void resolvesSingleStatementAsResolutionFunction() throws Exception {
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1")));
+    }
+
+    @Test
+    public void resolvesSameValueFromMultipleGraphsAsResolutionFunction() throws Exception {
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g2"),
+                createHttpStatement("sx", "p1", "o1", "g3")));
+    }
+
+    @Test
+    public void resolvesDuplicateStatementsAsResolutionFunction() throws Exception {
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g2"),
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g2")));
+    }
+
+    @Test
+    public void resolvesMappedValuesAsResolutionFunction() throws Exception {
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sa", "p1", "oa", "g1"),
+                createHttpStatement("sx", "p1", "ob", "g2"),
+                createHttpStatement("sa", "p1", "ox", "g3"),
+                createHttpStatement("sx", "p1", "oa", "g1")));
+    }
+
+    @Test
+    public void resolvesLiteralValuesAsResolutionFunction() throws Exception {
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                VF.createStatement(createHttpUri("sx"), createHttpUri("p1"), VF.createLiteral("value"), createHttpUri("g1")),
+                VF.createStatement(createHttpUri("sx"), createHttpUri("p1"), VF.createLiteral("value"), createHttpUri("g2")),
+                VF.createStatement(createHttpUri("sx"), createHttpUri("p2"), VF.createLiteral(1), createHttpUri("g1"))));
+    }
+
+    @Test
+    public void resolvesWithBestResolutionAsResolutionFunction() throws Exception {
+        assertSameResult(BestResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g2"),
+                createHttpStatement("sx", "p2", "oa", "g1"),
+                createHttpStatement("sx", "p2", "ob", "g3")));
+    }
+
+    @Test
+    public void resolvesClustersWithMultipleValuesAsResolutionFunction() throws Exception {
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o2", "g2"),
+                createHttpStatement("sx", "p2", "o1", "g1"),
+                createHttpStatement("sx", "p2", "o1", "g2"),
+                createHttpStatement("sx", "p2", "o2", "g3")));
+    }
+
+    @Test
+    public void resolvesLargeClustersAsResolutionFunction() throws Exception {
+        List<Statement> statements = new ArrayList<>();
+        for (int i = 0; i <= SingleValueClusterResolution.MAX_CLUSTER_SIZE; i++) {
+            statements.add(createHttpStatement("sx", "p1", "o1", "g" + i));
+        }
+        assertSameResult(AllResolution.getName(), statements);
+    }
+
+    @Test
+    public void resolvesSameValueFromGraphsWithDifferentScoresAsResolutionFunction() throws Exception {
+        metadata = createScoredMetadata();
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g2"),
+                createHttpStatement("sx", "p2", "o1", "g2"),
+                createHttpStatement("sx", "p2", "o1", "g3"),
+                createHttpStatement("sx", "p3", "o1", "g5")));
+    }
+
+    @Test
+    public void resolvesSameValueFromGraphsOfDifferentPublishersAsResolutionFunction() throws Exception {
+        metadata = createScoredMetadata();
+        assertSameResult(AllResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g3"),
+                createHttpStatement("sx", "p1", "o1", "g4"),
+                createHttpStatement("sx", "p2", "o1", "g1"),
+                createHttpStatement("sx", "p2", "o1", "g4"),
+                createHttpStatement("sx", "p3", "o1", "g4")));
+    }
+
+    @Test
+    public void resolvesWithBestResolutionAndScoredGraphsAsResolutionFunction() throws Exception {
+        metadata = createScoredMetadata();
+        assertSameResult(BestResolution.getName(), ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g3"),
+                createHttpStatement("sx", "p2", "oa", "g2"),
+                createHttpStatement("sx", "p2", "ob", "g4"),
+                createHttpStatement("sx", "p3", "o1", "g5")));
+    }
+
+    @Test
+    public void computesQualityOfSingleValueClustersFromMetadata() throws Exception {
+        // Arrange
+        metadata = createScoredMetadata();
+        ResourceDescriptionConflictResolver resolver = createResolver(
+                resolutionFunctionRegistry,
+                AllResolution.getName(),
+                new SingleValueClusterResolution(fQualityCalculator, ImmutableList.of(AllResolution.getName())));
+        Collection<Statement> testInput = ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p2", "o1", "g2"),
+                createHttpStatement("sx", "p3", "o1", "g4"));
+
+        // Act
+        Collection<ResolvedStatement> result = resolver.resolveConflicts(new ResourceDescriptionImpl(createHttpUri("sx"), testInput));
+
+        // Assert
+        Map<Statement, ResolvedStatement> resultByTriple = getResolvedStatementsByTriple(result);
+        double highScoreQuality = resultByTriple.get(createTriple("sx", "p1", "o1")).getQuality();
+        double lowScoreQuality = resultByTriple.get(createTriple("sx", "p2", "o1")).getQuality();
+        double lowPublisherScoreQuality = resultByTriple.get(createTriple("sx", "p3", "o1")).getQuality();
+        assertThat(highScoreQuality, greaterThan(lowScoreQuality));
+        assertThat(highScoreQuality, greaterThan(lowPublisherScoreQuality));
+    }
+
+    @Test
+    public void resolvesSingleValueClustersWithoutResolutionFunction() throws Exception {
+        // Arrange
+        ResolutionFunctionRegistry mockRegistry = mock(ResolutionFunctionRegistry.class);
+        when(mockRegistry.get(anyString())).thenReturn(new MockNoneResolutionFunction());
+        ResourceDescriptionConflictResolver resolver = createResolver(
+                mockRegistry,
+                AllResolution.getName(),
+                new SingleValueClusterResolution(fQualityCalculator, ImmutableList.of(AllResolution.getName())));
+        Collection<Statement> testInput = ImmutableList.of(
+                createHttpStatement("sx", "p1", "o1", "g1"),
+                createHttpStatement("sx", "p1", "o1", "g2"),
+                createHttpStatement("sx", "p2", "o1", "g1"),
+                createHttpStatement("sx", "p2", "o2", "g2"));
+
+        // Act
+        Collection<ResolvedStatement> result = resolver.resolveConflicts(new ResourceDescriptionImpl(createHttpUri("sx"), testInput));
+
+        // Assert
+        for (ResolvedStatement resolvedStatement : result) {
+            boolean isSingleValueCluster = resolvedStatement.getStatement().getPredicate().equals(createHttpUri("p1"));
+            assertThat(resolvedStatement instanceof MockResolvedStatement, is(!isSingleValueCluster));
+        }
+        assertThat(result.size(), is(3));
+    }
+
+    private void assertSameResult(String resolutionFunctionName, Collection<Statement> testInput) throws Exception {
+        // Arrange
+        ResourceDescriptionConflictResolver fullResolver = createResolver(
+                resolutionFunctionRegistry, resolutionFunctionName, null);
+        ResourceDescriptionConflictResolver singleValueResolver = createResolver(
+                resolutionFunctionRegistry,
+                resolutionFunctionName,
+                new SingleValueClusterResolution(fQualityCalculator, ImmutableList.of(resolutionFunctionName)));
+
+        // Act
+        Collection<ResolvedStatement> expectedResult = fullResolver.resolveConflicts(new ResourceDescriptionImpl(createHttpUri("sx"), testInput));
+        Collection<ResolvedStatement> result = singleValueResolver.resolveConflicts(new ResourceDescriptionImpl(createHttpUri("sx"), testInput));
+
+        // Assert
+        Map<Statement, ResolvedStatement> expectedByTriple = getResolvedStatementsByTriple(expectedResult);
+        Map<Statement, ResolvedStatement> actualByTriple = getResolvedStatementsByTriple(result);
+        assertThat(expectedByTriple.isEmpty(), is(false));
+        assertThat(actualByTriple.keySet(), is(expectedByTriple.keySet()));
+        for (Map.Entry<Statement, ResolvedStatement> entry : expectedByTriple.entrySet()) {
+            ResolvedStatement expected = entry.getValue();
+            ResolvedStatement actual = actualByTriple.get(entry.getKey());
+            assertThat(actual.getQuality(), closeTo(expected.getQuality(), EPSILON));
+            assertThat(new HashSet<>(actual.getSourceGraphNames()), is(new HashSet<>(expected.getSourceGraphNames())));
+        }
+        assertThat(result.size(), is(expectedResult.size()));
+    }
+
+    private ResourceDescriptionConflictResolver createResolver(
+            ResolutionFunctionRegistry resolutionFunctionRegistry,
+            String resolutionFunctionName,
+            SingleValueClusterResolution singleValueClusterResolution) {
+        ResolutionStrategy resolutionStrategy = new ResolutionStrategyImpl(
+                resolutionFunctionName, EnumCardinality.MANYVALUED, EnumAggregationErrorStrategy.RETURN_ALL);
+        return new ResourceDescriptionConflictResolverImpl(
+                resolutionFunctionRegistry,
+                new ConflictResolutionPolicyImpl(resolutionStrategy, new HashMap<URI, ResolutionStrategy>()),
+                uriMapping,
+                metadata,
+                "http://cr/",
+                new NestedResourceDescriptionQualityCalculatorImpl(new DummyFQualityCalculator()),
+                null,
+                null,
+                0,
+                0,
+                singleValueClusterResolution);
+    }
+
+    /**
+     * Creates metadata where graphs g1 and g2 have different scores, graphs g3 and g4 have no score
+     * but different publishers with different scores and graph g5 has no metadata.
+     */
+    private static Model createScoredMetadata() {
+        Model metadata = new TreeModel();
+        metadata.add(createHttpUri("g1"), ODCS.SCORE, VF.createLiteral(0.9), createHttpUri("m"));
+        metadata.add(createHttpUri("g2"), ODCS.SCORE, VF.createLiteral(0.1), createHttpUri("m"));
+        metadata.add(createHttpUri("g3"), ODCS.PUBLISHED_BY, createHttpUri("publisher1"), createHttpUri("m"));
+        metadata.add(createHttpUri("g4"), ODCS.PUBLISHED_BY, createHttpUri("publisher2"), createHttpUri("m"));
+        metadata.add(createHttpUri("publisher1"), ODCS.PUBLISHER_SCORE, VF.createLiteral(0.8), createHttpUri("m"));
+        metadata.add(createHttpUri("publisher2"), ODCS.PUBLISHER_SCORE, VF.createLiteral(0.2), createHttpUri("m"));
+        return metadata;
+    }
+
+    private static Statement createTriple(String subject, String property, String object) {
+        return VF.createStatement(createHttpUri(subject), createHttpUri(property), createHttpUri(object));
+    }
+
+    private Map<Statement, ResolvedStatement> getResolvedStatementsByTriple(Collection<ResolvedStatement> resolvedStatements) {
+        Map<Statement, ResolvedStatement> result = new HashMap<>();
+        for (ResolvedStatement resolvedStatement : resolvedStatements) {
+            Statement statement = resolvedStatement.getStatement();
+            result.put(VF.createStatement(statement.getSubject(), statement.getPredicate(), statement.getObject()), resolvedStatement);
+        }
+        return result;
+    }
+}
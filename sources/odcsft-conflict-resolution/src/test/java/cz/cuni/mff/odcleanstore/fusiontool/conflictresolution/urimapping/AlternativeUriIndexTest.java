@@ -0,0 +1,149 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class AlternativeUriIndexTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+    private static final int URI_COUNT = 5000;
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void listsAllUrisWithSameCanonicalUri() throws Exception {
+        // Arrange
+        FrozenUriMapping uriMapping = createRandomMapping();
+
+        // Act
+        AlternativeUriIndex index = AlternativeUriIndex.build(uriMapping, 4);
+
+        // Assert
+        assertListsAlternatives(index, uriMapping);
+    }
+
+    @Test
+    public void returnsEqualListsForUrisOfSameGroup() throws Exception {
+        // Arrange
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl();
+        uriMapping.addLink(uri(1), uri(0));
+        uriMapping.addLink(uri(2), uri(0));
+        AlternativeUriIndex index = AlternativeUriIndex.build(uriMapping.freeze(), 1);
+        URI requestedUri = VF.createURI(uri(1));
+
+        // Act
+        List<URI> first = index.listAlternativeUris(requestedUri);
+        List<URI> second = index.listAlternativeUris(VF.createURI(uri(2)));
+
+        // Assert
+        assertThat(ImmutableSet.copyOf(first), equalTo(ImmutableSet.of(VF.createURI(uri(0)), VF.createURI(uri(1)), VF.createURI(uri(2)))));
+        assertThat(second, equalTo(first));
+        assertThat(first.get(first.indexOf(requestedUri)), sameInstance(requestedUri));
+        assertThat(index.hasAlternativeUris(uri(0)), equalTo(true));
+        assertThat(index.hasAlternativeUris(uri(3)), equalTo(false));
+        assertThat(index.listAlternativeUris(uri(3)), equalTo(Collections.singletonList(uri(3))));
+    }
+
+    @Test
+    public void listsAlternativesOfNonAsciiUris() throws Exception {
+        // Arrange
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl();
+        uriMapping.addLink("http://\u00e9", "http://\ud83d\ude00");
+        uriMapping.addLink("http://\uffff", "http://\u00e9");
+        AlternativeUriIndex index = AlternativeUriIndex.build(uriMapping.freeze(), 1);
+
+        // Act
+        List<String> alternatives = index.listAlternativeUris("http://\ud83d\ude00");
+
+        // Assert
+        assertThat(ImmutableSet.copyOf(alternatives), equalTo(ImmutableSet.of("http://\u00e9", "http://\ud83d\ude00", "http://\uffff")));
+        assertThat(index.hasAlternativeUris("http://\ud83d"), equalTo(false));
+        assertThat(index.hasAlternativeUris("http://e"), equalTo(false));
+    }
+
+    @Test
+    public void readsWrittenIndex() throws Exception {
+        // Arrange
+        FrozenUriMapping uriMapping = createRandomMapping();
+        File file = new File(testDir.getRoot(), "index");
+        AlternativeUriIndex.build(uriMapping, 2).write(file, 123);
+
+        // Act
+        AlternativeUriIndex index = AlternativeUriIndex.read(file, 123);
+        AlternativeUriIndex outdatedIndex = AlternativeUriIndex.read(file, 456);
+
+        // Assert
+        assertListsAlternatives(index, uriMapping);
+        assertThat(outdatedIndex, nullValue());
+        assertThat(testDir.getRoot().list(), equalTo(new String[] {"index"}));
+    }
+
+    @Test
+    public void indexedUriMappingPersistsIndex() throws Exception {
+        // Arrange
+        FrozenUriMapping uriMapping = createRandomMapping();
+        File file = new File(testDir.getRoot(), "index");
+        new IndexedUriMapping(uriMapping, 2, file, 123).getAlternativeUriIndex();
+
+        // Act
+        AlternativeUriIndex index = new IndexedUriMapping(new CompactUriMappingImpl(), 2, file, 123).getAlternativeUriIndex();
+
+        // Assert
+        assertListsAlternatives(index, uriMapping);
+    }
+
+    private static void assertListsAlternatives(AlternativeUriIndex index, UriMappingIterable uriMapping) {
+        Map<String, Set<String>> expectedAlternatives = new HashMap<>();
+        for (int i = 0; i < URI_COUNT + 10; i++) {
+            String canonicalUri = uriMapping.getCanonicalURI(uri(i));
+            Set<String> alternatives = expectedAlternatives.get(canonicalUri);
+            if (alternatives == null) {
+                alternatives = new HashSet<>();
+                expectedAlternatives.put(canonicalUri, alternatives);
+            }
+            alternatives.add(uri(i));
+        }
+        for (int i = 0; i < URI_COUNT + 10; i++) {
+            Set<String> expected = expectedAlternatives.get(uriMapping.getCanonicalURI(uri(i)));
+            Set<String> actual = new HashSet<>();
+            for (URI alternative : index.listAlternativeUris(VF.createURI(uri(i)))) {
+                actual.add(alternative.stringValue());
+            }
+            assertThat(actual, equalTo(expected));
+            assertThat(ImmutableSet.copyOf(index.listAlternativeUris(uri(i))), equalTo(expected));
+            assertThat(index.hasAlternativeUris(uri(i)), equalTo(expected.size() > 1));
+        }
+    }
+
+    private static FrozenUriMapping createRandomMapping() {
+        Random random = new Random(0);
+        CompactUriMappingImpl uriMapping = new CompactUriMappingImpl();
+        for (int i = 0; i < URI_COUNT / 2; i++) {
+            uriMapping.addLink(uri(random.nextInt(URI_COUNT)), uri(random.nextInt(URI_COUNT)));
+        }
+        return uriMapping.freeze();
+    }
+
+    private static String uri(int i) {
+        return "http://example.com/" + i;
+    }
+}
@@ -0,0 +1,100 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CanonicalUriCacheTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    private static final CanonicalUriCache.UriSource URI_SOURCE = new CanonicalUriCache.UriSource() {
+        @Override
+        public String getUri(int id) {
+            return uri(id);
+        }
+    };
+
+    @Test
+    public void returnsSameInstanceForSameId() throws Exception {
+        // Arrange
+        CanonicalUriCache cache = new CanonicalUriCache(100);
+
+        // Act
+        URI first = cache.getURI(42, URI_SOURCE);
+        URI second = cache.getURI(42, URI_SOURCE);
+
+        // Assert
+        assertThat(first, equalTo(VF.createURI(uri(42))));
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    public void returnsSameInstanceForSameString() throws Exception {
+        // Arrange
+        CanonicalUriCache cache = new CanonicalUriCache(100);
+
+        // Act
+        URI first = cache.getURI(uri(42));
+        URI second = cache.getURI(new String(uri(42)));
+
+        // Assert
+        assertThat(first, equalTo(VF.createURI(uri(42))));
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    public void returnsCorrectUrisWhenCapacityExceeded() throws Exception {
+        // Arrange
+        CanonicalUriCache cache = new CanonicalUriCache(10_000, 16);
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 10_000; i++) {
+                // Act
+                URI byId = cache.getURI(i, URI_SOURCE);
+                URI byString = cache.getURI(uri(i + 10_000));
+
+                // Assert
+                assertThat(byId, equalTo(VF.createURI(uri(i))));
+                assertThat(byString, equalTo(VF.createURI(uri(i + 10_000))));
+            }
+        }
+    }
+
+    @Test
+    public void mappingsShareCanonicalUriInstances() throws Exception {
+        // Arrange
+        CompactUriMappingImpl mapping = new CompactUriMappingImpl(ImmutableSet.of(uri(0)));
+        mapping.addLink(uri(1), uri(0));
+        mapping.addLink(uri(2), uri(0));
+        UriMappingIterableImpl uriMappingImpl = new UriMappingIterableImpl(ImmutableSet.of(uri(0)));
+        uriMappingImpl.addLink(uri(1), uri(0));
+        uriMappingImpl.addLink(uri(2), uri(0));
+
+        // Act
+        URI compactResult1 = mapping.mapURI(VF.createURI(uri(1)));
+        URI compactResult2 = mapping.mapURI(VF.createURI(uri(2)));
+        URI uriMappingImplResult1 = (URI) uriMappingImpl.mapResource(VF.createURI(uri(1)));
+        URI uriMappingImplResult2 = (URI) uriMappingImpl.mapResource(VF.createURI(uri(2)));
+        FrozenUriMapping frozenMapping = mapping.freeze();
+        URI frozenResult1 = frozenMapping.mapURI(VF.createURI(uri(1)));
+        URI frozenResult2 = frozenMapping.mapURI(VF.createURI(uri(2)));
+
+        // Assert
+        assertThat(compactResult1, equalTo(VF.createURI(uri(0))));
+        assertThat(compactResult2, sameInstance(compactResult1));
+        assertThat(uriMappingImplResult1, equalTo(VF.createURI(uri(0))));
+        assertThat(uriMappingImplResult2, sameInstance(uriMappingImplResult1));
+        assertThat(frozenResult1, equalTo(VF.createURI(uri(0))));
+        assertThat(frozenResult2, sameInstance(frozenResult1));
+    }
+
+    private static String uri(int i) {
+        return "http://example.com/" + i;
+    }
+}
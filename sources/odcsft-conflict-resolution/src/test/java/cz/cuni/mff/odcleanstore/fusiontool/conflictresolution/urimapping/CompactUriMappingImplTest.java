@@ -0,0 +1,94 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CompactUriMappingImplTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    @Test
+    public void choosesSameCanonicalUrisAsUriMappingImpl() throws Exception {
+        // Arrange
+        Random random = new Random(0);
+        int uriCount = 5000;
+        Set<String> preferredUris = new HashSet<>();
+        for (int i = 0; i < uriCount; i += 7) {
+            preferredUris.add(uri(i));
+        }
+        UriMappingIterableImpl expectedMapping = new UriMappingIterableImpl(preferredUris);
+        CompactUriMappingImpl mapping = new CompactUriMappingImpl(preferredUris);
+
+        // Act
+        for (int i = 0; i < uriCount; i++) {
+            String subject = uri(random.nextInt(uriCount));
+            String object = uri(random.nextInt(uriCount));
+            expectedMapping.addLink(subject, object);
+            mapping.addLink(subject, object);
+        }
+
+        // Assert
+        for (int i = 0; i < uriCount + 10; i++) {
+            String uri = uri(i);
+            assertThat(mapping.getCanonicalURI(uri), equalTo(expectedMapping.getCanonicalURI(uri)));
+            assertThat(mapping.mapResource(VF.createURI(uri)), equalTo(expectedMapping.mapResource(VF.createURI(uri))));
+        }
+        assertThat(ImmutableSet.copyOf(mapping), equalTo(ImmutableSet.copyOf(expectedMapping)));
+    }
+
+    @Test
+    public void mapsLongChainsOfLinks() throws Exception {
+        // Arrange
+        CompactUriMappingImpl mapping = new CompactUriMappingImpl(ImmutableSet.of(uri(0)));
+
+        // Act
+        for (int i = 500_000; i > 0; i--) {
+            mapping.addLink(uri(i), uri(i - 1));
+        }
+
+        // Assert
+        assertThat(mapping.getCanonicalURI(uri(500_000)), equalTo(uri(0)));
+        assertThat(mapping.getCanonicalURI(uri(250_000)), equalTo(uri(0)));
+        assertThat(mapping.size(), equalTo(500_001));
+    }
+
+    @Test
+    public void doesNotMapUnknownResources() throws Exception {
+        // Arrange
+        CompactUriMappingImpl mapping = new CompactUriMappingImpl(ImmutableSet.of("http://ax"));
+        mapping.addLink("http://a1", "http://ax");
+        mapping.addLink("http://cx", "http://cx");
+        URI unknownUri = VF.createURI("http://dx");
+        URI canonicalUri = VF.createURI("http://ax");
+        BNode bNode = VF.createBNode("http://a1");
+
+        // Act
+        Resource mappedUnknownUri = mapping.mapResource(unknownUri);
+        Resource mappedCanonicalUri = mapping.mapResource(canonicalUri);
+        Resource mappedBNode = mapping.mapResource(bNode);
+
+        // Assert
+        assertThat(mappedUnknownUri, sameInstance((Resource) unknownUri));
+        assertThat(mappedCanonicalUri, sameInstance((Resource) canonicalUri));
+        assertThat(mappedBNode, sameInstance((Resource) bNode));
+        assertThat(mapping.mapResource(VF.createURI("http://a1")), is((Resource) canonicalUri));
+        assertThat(ImmutableSet.copyOf(mapping), equalTo(ImmutableSet.of("http://a1")));
+    }
+
+    private static String uri(int i) {
+        return "http://example.com/resource/" + i;
+    }
+}
@@ -0,0 +1,152 @@
+package cz.cuni.mff.odcleanstore.fusiontool.conflictresolution.urimapping;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class FrozenUriMappingTest {
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+    private static final int URI_COUNT = 5000;
+
+    @Test
+    public void givesSameCanonicalUrisAsCompactUriMapping() throws Exception {
+        // Arrange
+        CompactUriMappingImpl expectedMapping = createRandomMapping(new CompactUriMappingImpl(createPreferredUris()));
+        CompactUriMappingImpl mapping = createRandomMapping(new CompactUriMappingImpl(createPreferredUris()));
+
+        // Act
+        FrozenUriMapping frozenMapping = mapping.freeze();
+
+        // Assert
+        assertSameMapping(frozenMapping, expectedMapping);
+        assertThat(frozenMapping.size(), equalTo(expectedMapping.size()));
+    }
+
+    @Test
+    public void givesSameCanonicalUrisAsUriMappingImpl() throws Exception {
+        // Arrange
+        UriMappingIterableImpl expectedMapping = createRandomMapping(new UriMappingIterableImpl(createPreferredUris()));
+        UriMappingIterableImpl mapping = createRandomMapping(new UriMappingIterableImpl(createPreferredUris()));
+
+        // Act
+        FrozenUriMapping frozenMapping = mapping.freeze();
+
+        // Assert
+        assertSameMapping(frozenMapping, expectedMapping);
+    }
+
+    @Test
+    public void mapsCanonicalAndUnknownUrisToThemselves() throws Exception {
+        // Arrange
+        CompactUriMappingImpl mapping = new CompactUriMappingImpl(ImmutableSet.of(uri(1)));
+        mapping.addLink(uri(0), uri(1));
+        URI canonicalUri = VF.createURI(uri(1));
+        URI unknownUri = VF.createURI(uri(2));
+
+        // Act
+        FrozenUriMapping frozenMapping = mapping.freeze();
+
+        // Assert
+        assertThat(frozenMapping.mapURI(canonicalUri), sameInstance(canonicalUri));
+        assertThat(frozenMapping.mapURI(unknownUri), sameInstance(unknownUri));
+        assertThat(frozenMapping.mapURI(VF.createURI(uri(0))), equalTo(canonicalUri));
+        assertThat(ImmutableSet.copyOf(frozenMapping), equalTo(ImmutableSet.of(uri(0))));
+    }
+
+    @Test
+    public void supportsConcurrentLookups() throws Exception {
+        // Arrange
+        CompactUriMappingImpl expectedMapping = createRandomMapping(new CompactUriMappingImpl(createPreferredUris()));
+        final FrozenUriMapping frozenMapping = createRandomMapping(new CompactUriMappingImpl(createPreferredUris())).freeze();
+        final String[] expectedCanonicalUris = new String[URI_COUNT];
+        for (int i = 0; i < URI_COUNT; i++) {
+            expectedCanonicalUris[i] = expectedMapping.getCanonicalURI(uri(i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        Random random = new Random(seed);
+                        int mismatchCount = 0;
+                        for (int i = 0; i < 50_000; i++) {
+                            int id = random.nextInt(URI_COUNT);
+                            if (!frozenMapping.getCanonicalURI(uri(id)).equals(expectedCanonicalUris[id])) {
+                                mismatchCount++;
+                            }
+                        }
+                        return mismatchCount;
+                    }
+                }));
+            }
+
+            // Assert
+            for (Future<Integer> result : results) {
+                assertThat(result.get(), equalTo(0));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwsWhenLinkAddedAfterFreeze() throws Exception {
+        // Arrange
+        CompactUriMappingImpl mapping = new CompactUriMappingImpl();
+        mapping.addLink(uri(0), uri(1));
+        mapping.freeze();
+
+        // Act
+        mapping.addLink(uri(1), uri(2));
+    }
+
+    private static <T extends MutableUriMapping> T createRandomMapping(T mapping) {
+        Random random = new Random(0);
+        for (int i = 0; i < URI_COUNT; i++) {
+            mapping.addLink(uri(random.nextInt(URI_COUNT)), uri(random.nextInt(URI_COUNT)));
+        }
+        return mapping;
+    }
+
+    private static Set<String> createPreferredUris() {
+        Set<String> preferredUris = new HashSet<>();
+        for (int i = 0; i < URI_COUNT; i += 7) {
+            preferredUris.add(uri(i));
+        }
+        return preferredUris;
+    }
+
+    private static void assertSameMapping(FrozenUriMapping frozenMapping, UriMappingIterable expectedMapping) {
+        for (int i = 0; i < URI_COUNT + 10; i++) {
+            String uri = uri(i);
+            assertThat(frozenMapping.getCanonicalURI(uri), equalTo(expectedMapping.getCanonicalURI(uri)));
+            assertThat(frozenMapping.mapResource(VF.createURI(uri)), equalTo(expectedMapping.mapResource(VF.createURI(uri))));
+        }
+        assertThat(ImmutableSet.copyOf(frozenMapping), equalTo(ImmutableSet.copyOf(expectedMapping)));
+    }
+
+    private static String uri(int i) {
+        return "http://example.com/" + i;
+    }
+}
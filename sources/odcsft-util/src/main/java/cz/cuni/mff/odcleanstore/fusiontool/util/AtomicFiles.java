@@ -0,0 +1,47 @@
+package cz.cuni.mff.odcleanstore.fusiontool.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility methods for replacing a file with a completely written temporary file, so that readers
+ * never see a partially written file and concurrent writers of the same file don't overwrite each other's
+ * temporary files.
+ */
+public final class AtomicFiles {
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * Creates a new uniquely named temporary file in the directory of the given target file.
+     * The temporary file is on the same file system as the target file so that it can be moved to it atomically.
+     * @param target file which will be replaced by the temporary file
+     * @return created empty temporary file
+     * @throws IOException I/O error
+     */
+    public static File createTempFile(File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        return File.createTempFile(target.getName() + ".", TEMP_FILE_SUFFIX, directory);
+    }
+
+    /**
+     * Moves the temporary file to the target file, replacing the target file if it exists.
+     * The move is atomic if supported by the file system.
+     * @param tempFile temporary file created by {@link #createTempFile(File)}
+     * @param target target file
+     * @throws IOException I/O error
+     */
+    public static void replace(File tempFile, File target) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private AtomicFiles() {
+    }
+}
@@ -0,0 +1,38 @@
+package cz.cuni.mff.odcleanstore.fusiontool.util;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Utility methods for memory-mapped buffers.
+ */
+public final class MappedBuffers {
+    /**
+     * Releases the mapping of the given buffer without waiting for garbage collection so that the mapped file
+     * can be deleted (which fails on Windows while the file is mapped).
+     * The Java 7 API has no way to unmap a buffer, therefore the cleaner of the JDK implementation is used
+     * if it is available; otherwise the buffer is left to be unmapped by garbage collection.
+     * The buffer must not be accessed after this method is called.
+     * @param buffer buffer to unmap; may be null
+     */
+    public static void unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (Exception e) {
+            // not supported by the JVM, the buffer will be unmapped when garbage collected
+        }
+    }
+
+    private MappedBuffers() {
+    }
+}